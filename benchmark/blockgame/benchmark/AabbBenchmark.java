@@ -0,0 +1,88 @@
+package blockgame.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blockgame.physics.Aabb;
+import blockgame.physics.MovingRectangle;
+
+/**
+ * Measures overlap tests between every pair of a set of boxes, through the
+ * {@link Aabb} kernel on plain arrays and through
+ * {@code Rectangle.intersectsX} and {@code intersectsY}. Each operation is
+ * one full set of pairs.
+ * 
+ * @author Frank Kormann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AabbBenchmark {
+
+	private static final int COUNT = 256;
+	private static final int AREA_SIZE = 1000;
+	private static final int MAX_BOX_SIZE = 100;
+
+	private int[] x, y, width, height;
+	private MovingRectangle[] rects;
+
+	@Setup
+	public void createBoxes() {
+		Random random = new Random(0);
+		x = new int[COUNT];
+		y = new int[COUNT];
+		width = new int[COUNT];
+		height = new int[COUNT];
+		rects = new MovingRectangle[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			x[i] = random.nextInt(AREA_SIZE);
+			y[i] = random.nextInt(AREA_SIZE);
+			width[i] = 1 + random.nextInt(MAX_BOX_SIZE);
+			height[i] = 1 + random.nextInt(MAX_BOX_SIZE);
+			rects[i] = new MovingRectangle(x[i], y[i], width[i], height[i]);
+		}
+	}
+
+	@Benchmark
+	public int kernel() {
+		int overlapping = 0;
+		for (int i = 0; i < COUNT; i++) {
+			for (int j = 0; j < COUNT; j++) {
+				if (Aabb.overlapsX(x[i], width[i], x[j], width[j])
+						&& Aabb.overlapsY(y[i], height[i], y[j], height[j])) {
+					overlapping++;
+				}
+			}
+		}
+		return overlapping;
+	}
+
+	@Benchmark
+	public int rectangles() {
+		int overlapping = 0;
+		for (int i = 0; i < COUNT; i++) {
+			for (int j = 0; j < COUNT; j++) {
+				if (rects[i].intersectsX(rects[j])
+						&& rects[i].intersectsY(rects[j])) {
+					overlapping++;
+				}
+			}
+		}
+		return overlapping;
+	}
+
+}
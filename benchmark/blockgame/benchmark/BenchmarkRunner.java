@@ -0,0 +1,30 @@
+package blockgame.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with JMH's GC profiler always on, so each result is
+ * reported as time per operation ({@code avgt}) alongside bytes allocated per
+ * operation ({@code gc.alloc.rate.norm}). An operation is one frame, except
+ * in {@code LevelBenchmark} where it is a whole solution recording.
+ * <p>
+ * Takes the same command-line arguments as JMH. For example,
+ * {@code -p level=/level_1-1.json LevelBenchmark} runs only level 1-1.
+ * 
+ * @author Frank Kormann
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args)
+			throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		new Runner(new OptionsBuilder().parent(commandLine)
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+
+}
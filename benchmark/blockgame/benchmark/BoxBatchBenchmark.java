@@ -0,0 +1,92 @@
+package blockgame.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blockgame.physics.BoxBatch;
+
+/**
+ * Compares the SIMD and scalar versions of {@link BoxBatch} on one box
+ * against an array of boxes. Each operation tests every box in the array.
+ * <p>
+ * The fork enables the Vector API, so {@code vector} uses it if the
+ * benchmarks were built with the {@code vector} profile. Otherwise,
+ * {@code vector} falls back to the scalar version.
+ * 
+ * @author Frank Kormann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules",
+		"jdk.incubator.vector" })
+@State(Scope.Thread)
+public class BoxBatchBenchmark {
+
+	private static final int AREA_SIZE = 1000;
+	private static final int MAX_BOX_SIZE = 100;
+	private static final int QUERY_SIZE = 200;
+
+	@Param({ "16", "256", "4096" })
+	public int size;
+
+	private int[] minX, minY, maxX, maxY;
+	private int[] indices;
+	private int[] result;
+
+	@Setup
+	public void createBoxes() {
+		Random random = new Random(0);
+		minX = new int[size];
+		minY = new int[size];
+		maxX = new int[size];
+		maxY = new int[size];
+		indices = new int[size];
+		result = new int[size];
+		for (int i = 0; i < size; i++) {
+			minX[i] = random.nextInt(AREA_SIZE);
+			minY[i] = random.nextInt(AREA_SIZE);
+			maxX[i] = minX[i] + random.nextInt(MAX_BOX_SIZE);
+			maxY[i] = minY[i] + random.nextInt(MAX_BOX_SIZE);
+			indices[i] = size - 1 - i;
+		}
+	}
+
+	@Benchmark
+	public int scalar() {
+		return BoxBatch.scalarTouching(0, 0, QUERY_SIZE, QUERY_SIZE, minX,
+				minY, maxX, maxY, 0, size, result, 0);
+	}
+
+	@Benchmark
+	public int vector() {
+		return BoxBatch.touching(0, 0, QUERY_SIZE, QUERY_SIZE, minX, minY,
+				maxX, maxY, 0, size, result, 0);
+	}
+
+	@Benchmark
+	public int scalarGather() {
+		return BoxBatch.scalarTouchingAt(0, 0, QUERY_SIZE, QUERY_SIZE, minX,
+				minY, maxX, maxY, indices, size, result, 0);
+	}
+
+	@Benchmark
+	public int vectorGather() {
+		return BoxBatch.touchingAt(0, 0, QUERY_SIZE, QUERY_SIZE, minX, minY,
+				maxX, maxY, indices, size, result, 0);
+	}
+
+}
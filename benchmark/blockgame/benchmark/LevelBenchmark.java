@@ -0,0 +1,113 @@
+package blockgame.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blockgame.HeadlessEngine;
+import blockgame.Level;
+import blockgame.gui.MainFrame.Direction;
+import blockgame.input.GameInputHandler.MovementInput;
+import blockgame.input.RecordingReader;
+import blockgame.util.FileSource;
+import blockgame.util.Pair;
+
+/**
+ * Measures playing through each shipped level with the inputs from its
+ * solution recording, from when the level is loaded until the recording runs
+ * out or the level is finished. Each operation is one whole recording, so
+ * every frame measured is one the level actually reaches in play. Divide by
+ * the length of the recording for the time and allocation per frame.
+ * <p>
+ * A fresh copy of the level is loaded before every operation, outside of the
+ * measurement. This is only safe because one operation runs hundreds of
+ * frames, so JMH's overhead for setting up each one is small next to it.
+ * 
+ * @author Frank Kormann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LevelBenchmark {
+
+	@Param({ "/level_1-1.json", "/level_1-2.json", "/level_1-3.json",
+			"/level_1-4.json", "/level_1-5.json", "/level_1-star.json",
+			"/level_2-1.json", "/level_2-2.json", "/level_2-3.json",
+			"/level_2-4.json", "/level_2-5.json", "/level_2-star.json",
+			"/level_3-1.json", "/level_3-2.json", "/level_3-3.json",
+			"/level_3-4.json", "/level_3-5.json", "/level_3-star.json",
+			"/level_4-1.json", "/level_4-2.json", "/level_4-3.json",
+			"/level_4-4.json", "/level_4-5.json", "/level_4-star.json",
+			"/level_5-1.json", "/level_5-2.json", "/level_5-3.json",
+			"/level_5-4.json", "/level_5-5.json", "/level_5-star.json",
+			"/level_6-1.json", "/level_6-2.json", "/level_6-3.json",
+			"/level_6-4.json", "/level_6-5.json", "/level_6-star.json",
+			"/level_crown-1.json", "/level_crown-2.json",
+			"/level_crown-3.json", "/level_crown-4.json",
+			"/level_crown-5.json", "/level_crown-star.json",
+			"/level_remix-1-1.json", "/level_remix-2-star.json",
+			"/level_remix-3-4.json", "/level_remix-6-4.json",
+			"/level_remix-crown-3.json", "/level_remix-crown-4.json" })
+	public String level;
+
+	private List<Pair<Map<Direction, Integer>, Set<MovementInput>>> frames;
+	private HeadlessEngine engine;
+
+	@Setup
+	public void readRecording() throws IOException {
+		frames = new ArrayList<>();
+
+		String solution = HeadlessEngine.readLevel(level).solution;
+		try (InputStream stream = FileSource.getStream(solution)) {
+			if (stream != null) {
+				RecordingReader reader = new RecordingReader(stream);
+				while (reader.isOpen()) {
+					frames.add(reader.readFrame());
+				}
+			}
+		}
+		if (frames.isEmpty()) {
+			frames.add(new Pair<>(new HashMap<>(), new HashSet<>()));
+		}
+	}
+
+	@Setup(org.openjdk.jmh.annotations.Level.Invocation)
+	public void load() throws IOException {
+		Level loaded = HeadlessEngine.readLevel(level);
+		engine = new HeadlessEngine(loaded);
+	}
+
+	@Benchmark
+	public int playRecording() {
+		for (Pair<Map<Direction, Integer>, Set<MovementInput>> inputs
+				: frames) {
+			if (engine.isFinished()) {
+				break;
+			}
+			engine.nextFrame(inputs);
+		}
+		return engine.getFrame();
+	}
+
+}
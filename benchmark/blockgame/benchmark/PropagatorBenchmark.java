@@ -0,0 +1,90 @@
+package blockgame.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blockgame.physics.CollisionPropagator;
+import blockgame.physics.MovingRectangle;
+import blockgame.physics.SpatialGrid;
+import blockgame.physics.WallRectangle;
+
+/**
+ * Measures {@code CollisionPropagator.propagateCollision} on a row of
+ * touching boxes. Each operation pushes one end of the row by a pixel, which
+ * pushes every box in the row, alternating ends so the row stays in place.
+ * 
+ * @author Frank Kormann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PropagatorBenchmark {
+
+	private static final int BOX_SIZE = 20;
+
+	@Param({ "10", "100", "1000" })
+	public int size;
+
+	private List<MovingRectangle> rects;
+	private SpatialGrid grid;
+	private CollisionPropagator propagator;
+	private boolean pushRight;
+
+	@Setup
+	public void createRow() {
+		rects = new ArrayList<>();
+		grid = new SpatialGrid();
+		List<WallRectangle> walls = new ArrayList<>();
+		walls.add(new WallRectangle(0, BOX_SIZE, (size + 2) * BOX_SIZE,
+				BOX_SIZE));
+		propagator = new CollisionPropagator(grid, walls, new HashMap<>());
+
+		for (int i = 0; i < size; i++) {
+			MovingRectangle rect = new MovingRectangle((i + 1) * BOX_SIZE, 0,
+					BOX_SIZE, BOX_SIZE);
+			rects.add(rect);
+			grid.add(rect);
+		}
+		pushRight = true;
+	}
+
+	@Benchmark
+	public long propagateCollision() {
+		for (int i = 0; i < rects.size(); i++) {
+			rects.get(i).updateLastPosition();
+		}
+		grid.updateAll();
+
+		MovingRectangle pusher;
+		if (pushRight) {
+			pusher = rects.get(0);
+			pusher.setX(pusher.getX() + 1);
+		}
+		else {
+			pusher = rects.get(rects.size() - 1);
+			pusher.setX(pusher.getX() - 1);
+		}
+		pushRight = !pushRight;
+
+		grid.update(pusher);
+		return propagator.propagateCollision(pusher);
+	}
+
+}
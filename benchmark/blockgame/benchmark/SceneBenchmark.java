@@ -0,0 +1,83 @@
+package blockgame.benchmark;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blockgame.HeadlessEngine;
+import blockgame.gui.MainFrame.Direction;
+import blockgame.input.GameInputHandler.MovementInput;
+import blockgame.util.Pair;
+
+/**
+ * Measures one frame of each of the synthetic {@link Scenes} at several
+ * sizes.
+ * <p>
+ * The player walks left and right, jumping every so often, so that it pushes
+ * boxes and walks through {@code SwitchArea}s.
+ * 
+ * @author Frank Kormann
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SceneBenchmark {
+
+	private static final int WALK_FRAMES = 60;
+	private static final int JUMP_FRAMES = 45;
+
+	@Param({ "stacks", "resting", "switches" })
+	public String scene;
+
+	@Param({ "10", "100", "1000" })
+	public int size;
+
+	private Pair<Map<Direction, Integer>, Set<MovementInput>>[] frames;
+	private HeadlessEngine engine;
+	private int frame;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void createInputs() {
+		frames = new Pair[2 * WALK_FRAMES * JUMP_FRAMES];
+		for (int i = 0; i < frames.length; i++) {
+			Set<MovementInput> inputs = EnumSet.noneOf(MovementInput.class);
+			inputs.add((i / WALK_FRAMES) % 2 == 0 ? MovementInput.RIGHT
+					: MovementInput.LEFT);
+			if (i % JUMP_FRAMES == 0) {
+				inputs.add(MovementInput.UP);
+			}
+			frames[i] = new Pair<>(new HashMap<>(), inputs);
+		}
+	}
+
+	@Setup(org.openjdk.jmh.annotations.Level.Iteration)
+	public void load() {
+		engine = new HeadlessEngine(Scenes.create(scene, size));
+		frame = 0;
+	}
+
+	@Benchmark
+	public void nextFrame() {
+		engine.nextFrame(frames[frame]);
+		frame = (frame + 1) % frames.length;
+	}
+
+}
@@ -0,0 +1,156 @@
+package blockgame.benchmark;
+
+import blockgame.Level;
+import blockgame.physics.KeyLayers;
+import blockgame.physics.MovingRectangle;
+import blockgame.physics.Rectangle.Colors;
+import blockgame.physics.SwitchArea;
+import blockgame.physics.SwitchRectangle;
+import blockgame.physics.WallRectangle;
+
+/**
+ * Synthetic {@code Level}s for benchmarking. Each one is enclosed by walls and
+ * has a player in the bottom-left corner.
+ * 
+ * @author Frank Kormann
+ */
+public class Scenes {
+
+	private static final int BOX_SIZE = 20;
+	private static final int STACK_HEIGHT = 10;
+	private static final int CELL_SIZE = 40;
+	private static final int WALL_THICKNESS = 10;
+
+	/**
+	 * Creates the scene named {@code name} with {@code size} boxes.
+	 * 
+	 * @param name one of {@code "stacks"}, {@code "resting"}, or
+	 *             {@code "switches"}
+	 * @param size number of boxes
+	 * 
+	 * @return the {@code Level}
+	 * 
+	 * @throws IllegalArgumentException if {@code name} is not a scene
+	 */
+	public static Level create(String name, int size)
+			throws IllegalArgumentException {
+		switch (name) {
+			case "stacks":
+				return stacks(size);
+			case "resting":
+				return resting(size);
+			case "switches":
+				return switches(size);
+			default:
+				throw new IllegalArgumentException("No scene named " + name);
+		}
+	}
+
+	/**
+	 * Columns of {@code STACK_HEIGHT} boxes standing on the floor a few pixels
+	 * apart, so pushing the first column pushes every column.
+	 * 
+	 * @param size number of boxes
+	 * 
+	 * @return the {@code Level}
+	 */
+	public static Level stacks(int size) {
+		int columns = (size + STACK_HEIGHT - 1) / STACK_HEIGHT;
+		Level level = enclosed(3 * CELL_SIZE + columns * (BOX_SIZE + 5),
+				STACK_HEIGHT * BOX_SIZE + 3 * CELL_SIZE);
+		int floor = level.height - WALL_THICKNESS;
+
+		for (int i = 0; i < size; i++) {
+			int x = 2 * CELL_SIZE + (i / STACK_HEIGHT) * (BOX_SIZE + 5);
+			int y = floor - (i % STACK_HEIGHT + 1) * BOX_SIZE;
+			level.movingRectangles
+					.add(new MovingRectangle(x, y, BOX_SIZE, BOX_SIZE));
+		}
+		return level;
+	}
+
+	/**
+	 * Boxes resting on their own ledges in a grid, which never move.
+	 * 
+	 * @param size number of boxes
+	 * 
+	 * @return the {@code Level}
+	 */
+	public static Level resting(int size) {
+		int columns = (int) Math.ceil(Math.sqrt(size));
+		int rows = (size + columns - 1) / columns;
+		Level level = enclosed((columns + 2) * CELL_SIZE,
+				(rows + 2) * CELL_SIZE);
+
+		for (int i = 0; i < size; i++) {
+			int x = CELL_SIZE + (i % columns) * CELL_SIZE;
+			int y = CELL_SIZE + (i / columns) * CELL_SIZE;
+			level.walls.add(new WallRectangle(x, y, CELL_SIZE - 10, 5));
+			level.movingRectangles.add(
+					new MovingRectangle(x + 5, y - BOX_SIZE, BOX_SIZE, BOX_SIZE));
+		}
+		return level;
+	}
+
+	/**
+	 * {@code SwitchRectangle}s resting on ledges in a grid, all switched by a
+	 * {@code SwitchArea} on the floor which the player walks through.
+	 * 
+	 * @param size number of {@code SwitchRectangle}s
+	 * 
+	 * @return the {@code Level}
+	 */
+	public static Level switches(int size) {
+		int columns = (int) Math.ceil(Math.sqrt(size));
+		int rows = (size + columns - 1) / columns;
+		Level level = enclosed(Math.max(6, columns + 2) * CELL_SIZE,
+				(rows + 3) * CELL_SIZE);
+		KeyLayers keyLayers = new KeyLayers();
+
+		for (int i = 0; i < size; i++) {
+			int x = CELL_SIZE + (i % columns) * CELL_SIZE;
+			int y = CELL_SIZE + (i / columns) * CELL_SIZE;
+			level.walls.add(new WallRectangle(x, y, CELL_SIZE - 10, 5));
+			level.movingRectangles.add(new SwitchRectangle(x + 5, y - BOX_SIZE,
+					BOX_SIZE, BOX_SIZE, Colors.BLUE, "benchmark", keyLayers));
+		}
+		level.areas.add(new SwitchArea(2 * CELL_SIZE,
+				level.height - WALL_THICKNESS - CELL_SIZE, CELL_SIZE, CELL_SIZE,
+				Colors.TRANSLUCENT_BLUE, "benchmark", keyLayers));
+		return level;
+	}
+
+	/**
+	 * Creates an empty {@code Level} of the given size with walls around the
+	 * edges and a player in the bottom-left corner.
+	 * 
+	 * @param width  width of the {@code Level}
+	 * @param height height of the {@code Level}
+	 * 
+	 * @return the {@code Level}
+	 */
+	private static Level enclosed(int width, int height) {
+		Level level = new Level();
+		level.name = "Benchmark";
+		level.width = width;
+		level.height = height;
+		addWalls(level);
+
+		MovingRectangle player = new MovingRectangle(WALL_THICKNESS + 5,
+				height - WALL_THICKNESS - BOX_SIZE, BOX_SIZE, BOX_SIZE,
+				Colors.PLAYER);
+		player.setControlledByPlayer(true);
+		level.movingRectangles.add(player);
+		return level;
+	}
+
+	private static void addWalls(Level level) {
+		level.walls.add(new WallRectangle(0, 0, level.width, WALL_THICKNESS));
+		level.walls.add(new WallRectangle(0, level.height - WALL_THICKNESS,
+				level.width, WALL_THICKNESS));
+		level.walls.add(new WallRectangle(0, 0, WALL_THICKNESS, level.height));
+		level.walls.add(new WallRectangle(level.width - WALL_THICKNESS, 0,
+				WALL_THICKNESS, level.height));
+	}
+
+}
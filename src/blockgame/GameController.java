@@ -8,25 +8,19 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import javax.sound.sampled.LineEvent;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
-import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.formdev.flatlaf.FlatLightLaf;
 import com.formdev.flatlaf.util.SystemInfo;
 
@@ -48,11 +42,7 @@ import blockgame.input.SoundMapper;
 import blockgame.physics.Area;
 import blockgame.physics.GoalArea;
 import blockgame.physics.MovingRectangle;
-import blockgame.physics.PhysicsSimulator;
 import blockgame.physics.Rectangle;
-import blockgame.physics.RevealingArea;
-import blockgame.physics.SwitchArea;
-import blockgame.physics.SwitchController;
 import blockgame.physics.SwitchRectangle;
 import blockgame.physics.WallRectangle;
 import blockgame.sound.MusicPlayer;
@@ -63,20 +53,28 @@ import blockgame.util.Pair;
 import blockgame.util.SaveManager;
 
 /**
- * Coordinates {@code MainFrame}, {@code PhysicsSimulator},
+ * Coordinates {@code MainFrame}, {@code HeadlessEngine},
  * {@code SoundEffectPlayer}, and {@code GameInputHandler}.
  * <p>
+ * Each level is loaded and run by a {@code HeadlessEngine}, with
+ * {@code MainFrame} as its {@code Viewport}. This is told about each object
+ * the engine adds so it can be drawn and have its sounds played.
+ * <p>
  * Level data is read from JSON files. The JSON is used to fill the fields in
  * {@link Level}, so it should have data for each of that class's public
  * attributes.
  * <p>
  * If the "BLOCKGAME_DIRECTORY" environment variable is set, it will be used as
  * the path to put save files. Otherwise, a default directory is used.
+ * <p>
+ * While the game is paused or the window is not focused, the game loop is
+ * idle and nothing is redrawn. Changes which need to be seen while idle, such
+ * as toggling hints, ask for a single frame to be drawn.
  * 
  * @author Frank Kormann
  */
 public class GameController extends WindowAdapter
-		implements ValueChangeListener {
+		implements ValueChangeListener, LevelListener {
 
 	private static final String DIRECTORY_ENV_VAR = "BLOCKGAME_DIRECTORY";
 
@@ -84,7 +82,7 @@ public class GameController extends WindowAdapter
 	private static final String FIRST_LEVEL = "/level_1-1.json";
 
 	private MainFrame mainFrame;
-	private PhysicsSimulator physicsSimulator;
+	private HeadlessEngine engine;
 	private SoundEffectPlayer sfxPlayer;
 	private GameInputHandler gameInputHandler;
 	private MenuBar menuBar;
@@ -95,9 +93,11 @@ public class GameController extends WindowAdapter
 	private List<HintRectangle> hints;
 
 	private ByteArrayOutputStream currentLevelOutputStream;
-	private TimerTask newFrameTask;
+	private GameLoop gameLoop;
 
-	private boolean paused;
+	private volatile boolean paused;
+	private volatile boolean focused;
+	private volatile boolean frameAdvanceRequested;
 
 	public static void main(String[] args) {
 		FlatLightLaf.setup();
@@ -135,7 +135,7 @@ public class GameController extends WindowAdapter
 
 		MusicPlayer musicPlayer = new MusicPlayer(soundMapper);
 		gameInputHandler = new GameInputHandler(inputMapper, paramMapper);
-		// physicsSimulator is instantiated when the first level is loaded
+		// engine is instantiated when the first level is loaded
 		mainFrame = new MainFrame(gameInputHandler, colorMapper, paramMapper);
 		sfxPlayer = new SoundEffectPlayer(soundMapper);
 		menuBar = new MenuBar(inputMapper, colorMapper, paramMapper,
@@ -154,8 +154,12 @@ public class GameController extends WindowAdapter
 		mainFrame.setJMenuBar(menuBar);
 
 		paused = false;
+		focused = false;
+		frameAdvanceRequested = false;
 
+		mainFrame.addWindowFocusListener(this);
 		paramMapper.addListener(this);
+		colorMapper.addListener(this);
 
 		SoundEffect.GAME_START.clip.addLineListener(e -> {
 			if (e.getType() == LineEvent.Type.STOP) {
@@ -169,17 +173,21 @@ public class GameController extends WindowAdapter
 		}
 
 		startGame(SaveManager.getValue("title_screen", FIRST_TITLE_SCREEN),
-				paramMapper.getInt(Parameter.GAME_SPEED));
+				paramMapper.getInt(Parameter.TICK_RATE),
+				paramMapper.getInt(Parameter.MAX_CATCH_UP_FRAMES));
 	}
 
 	/**
-	 * Loads {@code titleScreen} and begins a repeating {@code TimerTask} to
-	 * process each frame.
+	 * Loads {@code titleScreen} and starts a {@code GameLoop} to process each
+	 * frame.
 	 * 
 	 * @param titleScreen         resource name of title screen to load
-	 * @param millisBetweenFrames number of milliseconds between each frame
+	 * @param ticksPerSecond      number of frames to process each second
+	 * @param maxCatchUpFrames    most frames to process without drawing when
+	 *                            the game falls behind
 	 */
-	public void startGame(String titleScreen, int millisBetweenFrames) {
+	public void startGame(String titleScreen, int ticksPerSecond,
+			int maxCatchUpFrames) {
 		sfxPlayer.play(SoundEffect.GAME_START);
 		load(titleScreen);
 		mainFrame.setVisible(true);
@@ -191,24 +199,55 @@ public class GameController extends WindowAdapter
 			SaveManager.putValue("new_save", "false");
 		}
 
-		newFrameTask = new TimerTask() {
-			public void run() {
-				newFrameTaskAction();
-			}
-		};
+		gameLoop = new GameLoop(this::newFrameTaskAction,
+				this::drawFrameTaskAction,
+				GameLoop.nanosBetweenTicks(ticksPerSecond));
+		gameLoop.setMaxCatchUpTicks(maxCatchUpFrames);
+		updateIdle();
+		gameLoop.start();
+		requestRedraw();
+	}
 
-		new Timer().schedule(newFrameTask, 0, millisBetweenFrames);
+	/**
+	 * Returns how late frames have been processed compared to when they were
+	 * scheduled.
+	 * 
+	 * @return {@code LatenessStatistics} of the game loop
+	 */
+	public GameLoop.LatenessStatistics getLatenessStatistics() {
+		return gameLoop.getLatenessStatistics();
 	}
 
 	/**
-	 * Computes the next frame.
+	 * Computes the next frame. Does nothing if the game is paused or not
+	 * focused, unless a frame advance was asked for.
+	 * <p>
+	 * When the game falls behind, this runs several times in a row without
+	 * {@link #drawFrameTaskAction()} in between. Inputs are still polled and
+	 * recorded for each frame, so recordings stay exact.
 	 */
 	private void newFrameTaskAction() {
 		try {
-			if (!paused && mainFrame.isFocused()) {
+			if (frameAdvanceRequested) {
+				frameAdvanceRequested = false;
 				nextFrame();
 			}
-			mainFrame.repaint();
+			else if (!paused && mainFrame.isFocused()) {
+				nextFrame();
+			}
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			ErrorDialog.showDialog("Something went wrong", e);
+		}
+	}
+
+	/**
+	 * Publishes the latest frame to be drawn.
+	 */
+	private void drawFrameTaskAction() {
+		try {
+			mainFrame.publishFrame();
 		}
 		catch (Exception e) {
 			e.printStackTrace();
@@ -216,6 +255,25 @@ public class GameController extends WindowAdapter
 		}
 	}
 
+	/**
+	 * Makes the game loop idle if the game is paused or the window is not
+	 * focused, and wakes it up otherwise.
+	 */
+	private void updateIdle() {
+		if (gameLoop != null) {
+			gameLoop.setIdle(paused || !focused);
+		}
+	}
+
+	/**
+	 * Draws the current frame again, even if the game loop is idle.
+	 */
+	private void requestRedraw() {
+		if (gameLoop != null) {
+			gameLoop.requestTick();
+		}
+	}
+
 	/**
 	 * Restarts and reloads the current level, and stops reading from the
 	 * recording file if there is one.
@@ -226,7 +284,7 @@ public class GameController extends WindowAdapter
 	}
 
 	/**
-	 * Loads the resource named {@code resource} into {@code physicsSimulator}
+	 * Loads the resource named {@code resource} into a new {@code engine}
 	 * and {@code mainFrame} as a level.
 	 * 
 	 * @param resource name of resource to load
@@ -240,23 +298,11 @@ public class GameController extends WindowAdapter
 			return;
 		}
 
-		physicsSimulator = new PhysicsSimulator();
 		sfxPlayer.clear();
 		menuBar.reset();
 		hints.clear();
 
-		if (!SwingUtilities.isEventDispatchThread()) {
-			try {
-				SwingUtilities.invokeAndWait(() -> mainFrame.setUpLevel(level));
-			}
-			catch (InvocationTargetException | InterruptedException e) {
-				e.printStackTrace();
-				ErrorDialog.showDialog("Something went wrong", e);
-			}
-		}
-		else {
-			mainFrame.setUpLevel(level);
-		}
+		mainFrame.setUpLevel(level);
 
 		currentSolution = level.solution;
 		currentLevel = resource;
@@ -267,18 +313,20 @@ public class GameController extends WindowAdapter
 		menuBar.showLevelSelect(
 				(SaveManager.getValue("level_select_unlocked", "false")
 						.equals("true")));
-		loadObjects(level);
+		engine = new HeadlessEngine(level, mainFrame, this);
+		for (HintRectangle hint : level.hints) {
+			mainFrame.add(hint, 5);
+			hints.add(hint);
+		}
 
 		menuBar.showHintsMenu(hints.size() > 0 || !level.solution.equals(""));
 
-		physicsSimulator.setUp(mainFrame.getNextWidth(),
-				mainFrame.getNextHeight(), mainFrame.getNextXOffset(),
-				mainFrame.getNextYOffset());
-
 		mainFrame.moveToMiddleOfScreen();
 		beginTempRecording();
 
 		paused = false;
+		updateIdle();
+		requestRedraw();
 
 		if (!level.popup.equals("")
 				&& !isLevelInField("visited_levels", level.number)) {
@@ -292,16 +340,15 @@ public class GameController extends WindowAdapter
 	 * <p>
 	 * If the resource can't be read and the game just started, tries to read
 	 * {@code FIRST_TITLE_SCREEN}. If the player is in a level, calls
-	 * {@code physicsSimulator.resetNextLevel()} and returns {@code null}.
+	 * {@code engine.resetNextLevel()} and returns {@code null}.
 	 * 
 	 * @param resource name of resource to read
 	 * 
 	 * @return the {@code Level}
 	 */
 	private Level readLevel(String resource) {
-		try (InputStream levelSource = FileSource.getStream(resource)) {
-			ObjectMapper mapper = new ObjectMapper();
-			return mapper.readValue(levelSource, Level.class);
+		try {
+			return HeadlessEngine.readLevel(resource);
 		}
 		catch (Exception e) {
 			e.printStackTrace();
@@ -309,7 +356,7 @@ public class GameController extends WindowAdapter
 					+ "', file is corrupt or does not exist", e);
 
 			if (mainFrame.isVisible()) {
-				physicsSimulator.resetNextlevel();
+				engine.resetNextLevel();
 			}
 			else {
 				if (!resource.equals(FIRST_TITLE_SCREEN)) {
@@ -325,132 +372,33 @@ public class GameController extends WindowAdapter
 		}
 	}
 
-	/**
-	 * Adds all {@code MovingRectangle}s, {@code WallRectangle}s, {@code Area}s,
-	 * {@code GoalArea}s, and {@code HintRectangle}s from {@code level} to
-	 * {@code physicsPanel}, {@code mainFrame}, and/or {@code hints}.
-	 * 
-	 * @param level {@code Level} to take objects from
-	 */
-	private void loadObjects(Level level) {
-		Map<String, SwitchController> switchControllers = new HashMap<>();
-
-		for (MovingRectangle rect : level.movingRectangles) {
-			addMovingRectangle(rect, switchControllers);
-		}
-
-		for (WallRectangle wall : level.walls) {
-			physicsSimulator.add(wall);
-			mainFrame.add(wall, 4);
-			for (Area attached : wall.getAttachments()) {
-				level.areas.add(attached);
-			}
-		}
-
-		for (Area area : level.areas) {
-			addArea(area, switchControllers);
-		}
-
-		for (HintRectangle hint : level.hints) {
-			mainFrame.add(hint, 5);
-			hints.add(hint);
-		}
-	}
-
-	/**
-	 * Adds {@code rect} to {@code mainFrame}, {@code physicsSimulator}, and
-	 * {@code sfxPlayer}. If it is a {@code SwitchRectangle}, pairs it with a
-	 * {@code SwitchController} in {@code switchControllers}.
-	 * 
-	 * @param rect              {@code MovingRectangle} to add
-	 * @param switchControllers {@code Map} of key to {@code SwitchController}
-	 */
-	private void addMovingRectangle(MovingRectangle rect,
-			Map<String, SwitchController> switchControllers) {
+	@Override
+	public void movingRectangleAdded(MovingRectangle rect) {
 		if (rect instanceof SwitchRectangle) {
 			mainFrame.add(rect, 2);
 		}
 		else {
 			mainFrame.add(rect, 3);
 		}
-		physicsSimulator.add(rect);
 		sfxPlayer.add(rect);
-		if (rect instanceof SwitchRectangle) {
-			SwitchRectangle switchRect = (SwitchRectangle) rect;
-			createSwitchControllerIfNeeded(switchControllers,
-					switchRect.getKey());
-			switchControllers.get(switchRect.getKey())
-					.addSwitchRectangle(switchRect);
-		}
-		for (Area attached : rect.getAttachments()) {
-			addArea(attached, switchControllers);
-		}
 	}
 
-	/**
-	 * Adds {@code area} to {@code mainFrame} and {@code physicsSimulator}, and
-	 * {@code sfxPlayer} if it is a {@code GoalArea}. If it is a
-	 * {@code SwitchArea}, pairs it with a {@code SwitchController} in
-	 * {@code switchControllers}.
-	 * 
-	 * @param area              {@code Area} to add
-	 * @param switchControllers {@code Map} of key to {@code SwitchController}
-	 */
-	private void addArea(Area area,
-			Map<String, SwitchController> switchControllers) {
-		physicsSimulator.add(area);
+	@Override
+	public void wallAdded(WallRectangle wall) {
+		mainFrame.add(wall, 4);
+	}
+
+	@Override
+	public void areaAdded(Area area) {
 		if (area instanceof GoalArea) {
 			sfxPlayer.add((GoalArea) area);
 		}
 		if (area instanceof ImageArea) {
-			ImageArea imgArea = (ImageArea) area;
-			mainFrame.add(imgArea, 0);
-			setUpAreaSubtypes(imgArea.getImitatedArea(), switchControllers);
+			mainFrame.add(area, 0);
 		}
 		else {
 			mainFrame.add(area, 1);
 		}
-		setUpAreaSubtypes(area, switchControllers);
-	}
-
-	/**
-	 * Performs any necessary set-up for subtypes of {@code Area}, such as
-	 * setting the {@code SwitchController} for a {@code SwitchArea} or setting
-	 * the reveal action for a {@code RevealingArea}.
-	 * 
-	 * @param area              {@code Area} to set up
-	 * @param switchControllers {@code Map} of key to {@code SwitchController}
-	 */
-	private void setUpAreaSubtypes(Area area,
-			Map<String, SwitchController> switchControllers) {
-		if (area instanceof SwitchArea) {
-			SwitchArea switchArea = (SwitchArea) area;
-			createSwitchControllerIfNeeded(switchControllers,
-					switchArea.getKey());
-			switchArea
-					.setController(switchControllers.get(switchArea.getKey()));
-		}
-		if (area instanceof RevealingArea) {
-			((RevealingArea) area)
-					.setRevealAction(a -> addArea(a, switchControllers));
-		}
-	}
-
-	/**
-	 * Creates a new {@code SwitchController} and adds it to
-	 * {@code switchControllers} with {@code key} if there is not already a
-	 * {@code SwitchController} with {@code key}.
-	 * 
-	 * @param switchControllers {@code Map} of keys and
-	 *                          {@code SwitchController}s
-	 * @param key               {@code String} key to pair
-	 *                          {@code SwitchController} with
-	 */
-	private void createSwitchControllerIfNeeded(
-			Map<String, SwitchController> switchControllers, String key) {
-		if (!switchControllers.containsKey(key)) {
-			switchControllers.put(key, new SwitchController());
-		}
 	}
 
 	/**
@@ -459,47 +407,27 @@ public class GameController extends WindowAdapter
 	 * Performs these steps in order:
 	 * <ul>
 	 * <li>Polls {@code GameInputHandler} for inputs
-	 * <li>Resizes {@code MainFrame} according to inputs
-	 * <li>Updates the game state through {@code PhysicsSimulator}
+	 * <li>Processes the frame through {@code HeadlessEngine}, which resizes
+	 * {@code MainFrame}
+	 * <li>Plays sounds
 	 * <li>Loads the next level if necessary
-	 * <li>Resizes {@code MainFrame} according to {@code PhysicsSimulator}
-	 * <li>Redraws {@code MainFrame}
 	 * </ul>
 	 */
 	private void nextFrame() {
 		Pair<Map<Direction, Integer>, Set<MovementInput>> allInputs = gameInputHandler
 				.poll();
 
-		mainFrame.resizeAll(allInputs.first);
-		physicsSimulator.updateAndMoveObjects(allInputs.second,
-				mainFrame.getNextWidth(), mainFrame.getNextHeight(),
-				mainFrame.getNextXOffset(), mainFrame.getNextYOffset());
+		engine.nextFrame(allInputs);
 		sfxPlayer.playSounds();
 
-		if (!physicsSimulator.getNextLevel().equals("")) {
-			String nextLevel = physicsSimulator.getNextLevel();
+		if (engine.isFinished()) {
+			String nextLevel = engine.getNextLevel();
 			if (nextLevel.startsWith("$")) {
 				nextLevel = SaveManager.getValue(nextLevel.substring(1),
 						FIRST_LEVEL);
 			}
 			markLevelInField("completed_levels", currentLevelNumber);
 			load(nextLevel);
-			return;
-		}
-
-		mainFrame.resizeAll(physicsSimulator.getResizes());
-		if (!SwingUtilities.isEventDispatchThread()) {
-			try {
-				SwingUtilities
-						.invokeAndWait(() -> mainFrame.incorporateChanges());
-			}
-			catch (InvocationTargetException | InterruptedException e) {
-				e.printStackTrace();
-				ErrorDialog.showDialog("Something went wrong", e);
-			}
-		}
-		else {
-			mainFrame.incorporateChanges();
 		}
 	}
 
@@ -567,10 +495,14 @@ public class GameController extends WindowAdapter
 		switch (input) {
 			case PAUSE:
 				paused = !paused;
+				updateIdle();
 				break;
 			case FRAME_ADVANCE:
 				if (paused) {
-					nextFrame();
+					// Run on the game loop thread so frames are never processed
+					// on two threads at once
+					frameAdvanceRequested = true;
+					requestRedraw();
 				}
 				break;
 			case RELOAD_LEVEL:
@@ -578,6 +510,7 @@ public class GameController extends WindowAdapter
 				break;
 			case TOGGLE_HINTS:
 				hints.forEach(h -> h.toggleVisible());
+				requestRedraw();
 				break;
 			case PLAY_SOLUTION:
 				playSolution();
@@ -671,23 +604,41 @@ public class GameController extends WindowAdapter
 	public void windowClosing(WindowEvent e) {
 		gameInputHandler.endReading();
 		gameInputHandler.endWriting();
+		if (gameLoop != null
+				&& Boolean.getBoolean("blockgame.printFrameTiming")) {
+			System.err.println("Frame timing: " + getLatenessStatistics());
+		}
 		System.exit(0);
 	}
 
 	@Override
 	public void valueChanged(Enum<?> key, Object newValue) {
-		if (key == Parameter.GAME_SPEED) {
-			newFrameTask.cancel();
-			newFrameTask = new TimerTask() {
-				public void run() {
-					newFrameTaskAction();
-				}
-			};
-			new Timer().schedule(newFrameTask, 0,
-					((Number) newValue).intValue());
+		if (key == Parameter.TICK_RATE && gameLoop != null) {
+			gameLoop.setNanosBetweenTicks(GameLoop
+					.nanosBetweenTicks(((Number) newValue).intValue()));
+		}
+		else if (key == Parameter.MAX_CATCH_UP_FRAMES && gameLoop != null) {
+			gameLoop.setMaxCatchUpTicks(((Number) newValue).intValue());
+		}
+		else {
+			// Colors and parameters are read when painting, so the current
+			// frame only needs to be painted again
+			mainFrame.repaint();
 		}
 	}
 
+	@Override
+	public void windowGainedFocus(WindowEvent e) {
+		focused = true;
+		updateIdle();
+	}
+
+	@Override
+	public void windowLostFocus(WindowEvent e) {
+		focused = false;
+		updateIdle();
+	}
+
 	@Override
 	public void valueRemoved(Enum<?> key) {}
 
@@ -0,0 +1,406 @@
+package blockgame;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs an update task at a fixed rate on its own thread, and a render task
+ * after each update or run of updates.
+ * <p>
+ * Ticks are scheduled against {@code System.nanoTime()} at exact multiples of
+ * the period from when the schedule started, so small delays in one tick do
+ * not push every later tick back. The period can be any number of nanoseconds,
+ * which allows rates such as 120 or 144 ticks per second. Changing it takes
+ * effect on the next tick and keeps the same thread.
+ * <p>
+ * If a tick overruns so that the next one is already due, the loop catches up
+ * by running the update task for each tick that is due without rendering in
+ * between, then renders once. At most {@link #setMaxCatchUpTicks(int)} ticks
+ * are caught up at once. If the loop is still more than a whole period
+ * behind after that, the rest of the missed ticks are dropped and the
+ * schedule restarts from the current time, so the next tick runs right away.
+ * <p>
+ * How late each tick starts compared to when it was scheduled, and how many
+ * ticks were caught up or dropped, is recorded and can be read with
+ * {@link #getLatenessStatistics()}.
+ * <p>
+ * While idle, the thread parks until it is woken and no ticks are run, except
+ * ones asked for with {@link #requestTick()}. The schedule starts over from
+ * the current time once this stops being idle, so time spent idle is not
+ * counted as missed ticks.
+ *
+ * @author Frank Kormann
+ */
+public final class GameLoop {
+
+	// Waits closer to a tick than this are spun instead of parked, since
+	// parking can oversleep by about this much
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+	private static final int DEFAULT_MAX_CATCH_UP_TICKS = 5;
+
+	private Runnable update;
+	private Runnable render;
+	private volatile long nanosBetweenTicks;
+	private volatile int maxCatchUpTicks;
+	private volatile boolean running;
+	private volatile boolean idle;
+	private volatile boolean tickRequested;
+	private volatile Thread thread;
+
+	private long tickCount;
+	private long lateTickCount;
+	private long totalLatenessNanos;
+	private long maxLatenessNanos;
+	private long catchUpTickCount;
+	private long droppedTickCount;
+
+	/**
+	 * Creates a {@code GameLoop} which will run {@code task} every
+	 * {@code nanosBetweenTicks} nanoseconds once started, with nothing to
+	 * render.
+	 *
+	 * @param task              {@code Runnable} to run each tick
+	 * @param nanosBetweenTicks period of the loop in nanoseconds
+	 *
+	 * @throws IllegalArgumentException if {@code nanosBetweenTicks} is not
+	 *                                  positive
+	 */
+	public GameLoop(Runnable task, long nanosBetweenTicks)
+			throws IllegalArgumentException {
+		this(task, () -> {}, nanosBetweenTicks);
+	}
+
+	/**
+	 * Creates a {@code GameLoop} which will run {@code update} every
+	 * {@code nanosBetweenTicks} nanoseconds once started, and {@code render}
+	 * after each update or run of catch-up updates.
+	 *
+	 * @param update            {@code Runnable} to run each tick
+	 * @param render            {@code Runnable} to run once the updates which
+	 *                          are due have run
+	 * @param nanosBetweenTicks period of the loop in nanoseconds
+	 *
+	 * @throws IllegalArgumentException if {@code nanosBetweenTicks} is not
+	 *                                  positive
+	 */
+	public GameLoop(Runnable update, Runnable render, long nanosBetweenTicks)
+			throws IllegalArgumentException {
+		this.update = update;
+		this.render = render;
+		setNanosBetweenTicks(nanosBetweenTicks);
+		maxCatchUpTicks = DEFAULT_MAX_CATCH_UP_TICKS;
+		running = false;
+		idle = false;
+		tickRequested = false;
+		thread = null;
+	}
+
+	/**
+	 * Starts running ticks on a new thread, beginning right away. Does nothing
+	 * if this is already running.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this::run, "Game loop");
+		thread.start();
+	}
+
+	/**
+	 * Stops running ticks. A tick which is in progress is allowed to finish.
+	 * Does not wait for the thread to end.
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			thread = null;
+		}
+	}
+
+	/**
+	 * Returns {@code true} if this has been started and not stopped.
+	 *
+	 * @return {@code true} if running
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Sets whether this is idle. While idle, ticks are only run when asked for
+	 * with {@link #requestTick()}. When this stops being idle, the next tick
+	 * runs right away and the schedule continues from there.
+	 *
+	 * @param idle {@code true} to stop running ticks on schedule
+	 */
+	public synchronized void setIdle(boolean idle) {
+		this.idle = idle;
+		if (!idle && thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	public boolean isIdle() {
+		return idle;
+	}
+
+	/**
+	 * Runs one tick as soon as possible if this is idle. Does nothing if this
+	 * is not idle, since a tick will run soon anyway. Ticks asked for this way
+	 * are not counted in the lateness statistics.
+	 */
+	public synchronized void requestTick() {
+		tickRequested = true;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Sets the time between ticks. The next tick is scheduled this long after
+	 * the previous one.
+	 *
+	 * @param nanosBetweenTicks period of the loop in nanoseconds
+	 *
+	 * @throws IllegalArgumentException if {@code nanosBetweenTicks} is not
+	 *                                  positive
+	 */
+	public void setNanosBetweenTicks(long nanosBetweenTicks)
+			throws IllegalArgumentException {
+		if (nanosBetweenTicks <= 0) {
+			throw new IllegalArgumentException(
+					"Period must be positive: " + nanosBetweenTicks);
+		}
+		this.nanosBetweenTicks = nanosBetweenTicks;
+	}
+
+	public long getNanosBetweenTicks() {
+		return nanosBetweenTicks;
+	}
+
+	/**
+	 * Converts a number of ticks each second to the time between ticks.
+	 *
+	 * @param ticksPerSecond number of ticks each second
+	 *
+	 * @return period in nanoseconds
+	 *
+	 * @throws IllegalArgumentException if {@code ticksPerSecond} is not
+	 *                                  positive
+	 */
+	public static long nanosBetweenTicks(int ticksPerSecond)
+			throws IllegalArgumentException {
+		if (ticksPerSecond <= 0) {
+			throw new IllegalArgumentException(
+					"Tick rate must be positive: " + ticksPerSecond);
+		}
+		return TimeUnit.SECONDS.toNanos(1) / ticksPerSecond;
+	}
+
+	/**
+	 * Sets the most ticks to run without rendering in between when catching
+	 * up after an overrun. {@code 0} means ticks which are missed are always
+	 * dropped.
+	 *
+	 * @param maxCatchUpTicks most ticks to catch up at once
+	 *
+	 * @throws IllegalArgumentException if {@code maxCatchUpTicks} is negative
+	 */
+	public void setMaxCatchUpTicks(int maxCatchUpTicks)
+			throws IllegalArgumentException {
+		if (maxCatchUpTicks < 0) {
+			throw new IllegalArgumentException(
+					"Catch-up limit must not be negative: " + maxCatchUpTicks);
+		}
+		this.maxCatchUpTicks = maxCatchUpTicks;
+	}
+
+	public int getMaxCatchUpTicks() {
+		return maxCatchUpTicks;
+	}
+
+	/**
+	 * Returns statistics about how late ticks have started since this was
+	 * created or the statistics were last reset.
+	 *
+	 * @return {@code LatenessStatistics} so far
+	 */
+	public synchronized LatenessStatistics getLatenessStatistics() {
+		return new LatenessStatistics(tickCount, lateTickCount,
+				tickCount == 0 ? 0 : totalLatenessNanos / tickCount,
+				maxLatenessNanos, catchUpTickCount, droppedTickCount);
+	}
+
+	/**
+	 * Clears the statistics returned by {@link #getLatenessStatistics()}.
+	 */
+	public synchronized void resetLatenessStatistics() {
+		tickCount = 0;
+		lateTickCount = 0;
+		totalLatenessNanos = 0;
+		maxLatenessNanos = 0;
+		catchUpTickCount = 0;
+		droppedTickCount = 0;
+	}
+
+	private void run() {
+		long nextTick = System.nanoTime();
+		// A new thread may have been started after this one was stopped
+		while (running && thread == Thread.currentThread()) {
+			if (idle) {
+				if (tickRequested) {
+					tickRequested = false;
+					update.run();
+					render.run();
+					continue;
+				}
+				LockSupport.park(this);
+				// Start the schedule over in case this is no longer idle
+				nextTick = System.nanoTime();
+				continue;
+			}
+
+			long now = System.nanoTime();
+			long untilTick = nextTick - now;
+			if (untilTick > SPIN_NANOS) {
+				LockSupport.parkNanos(untilTick - SPIN_NANOS);
+				continue;
+			}
+			if (untilTick > 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+
+			recordTick(-untilTick);
+			tickRequested = false;
+			update.run();
+			long period = nanosBetweenTicks;
+			nextTick += period;
+
+			int caughtUp = 0;
+			long behind = System.nanoTime() - nextTick;
+			while (behind >= 0 && caughtUp < maxCatchUpTicks && running
+					&& !idle) {
+				recordTick(behind);
+				recordCatchUp();
+				update.run();
+				caughtUp++;
+				period = nanosBetweenTicks;
+				nextTick += period;
+				behind = System.nanoTime() - nextTick;
+			}
+			render.run();
+
+			now = System.nanoTime();
+			behind = now - nextTick;
+			if (behind > period) {
+				recordDropped(behind / period);
+				nextTick = now;
+			}
+		}
+	}
+
+	private synchronized void recordTick(long latenessNanos) {
+		tickCount++;
+		totalLatenessNanos += latenessNanos;
+		maxLatenessNanos = Math.max(maxLatenessNanos, latenessNanos);
+		if (latenessNanos >= nanosBetweenTicks / 2) {
+			lateTickCount++;
+		}
+	}
+
+	private synchronized void recordCatchUp() {
+		catchUpTickCount++;
+	}
+
+	private synchronized void recordDropped(long ticks) {
+		droppedTickCount += ticks;
+	}
+
+	/**
+	 * How late ticks of a {@code GameLoop} started compared to when they were
+	 * scheduled.
+	 */
+	public static class LatenessStatistics {
+
+		private long tickCount;
+		private long lateTickCount;
+		private long averageLatenessNanos;
+		private long maxLatenessNanos;
+		private long catchUpTickCount;
+		private long droppedTickCount;
+
+		private LatenessStatistics(long tickCount, long lateTickCount,
+				long averageLatenessNanos, long maxLatenessNanos,
+				long catchUpTickCount, long droppedTickCount) {
+			this.tickCount = tickCount;
+			this.lateTickCount = lateTickCount;
+			this.averageLatenessNanos = averageLatenessNanos;
+			this.maxLatenessNanos = maxLatenessNanos;
+			this.catchUpTickCount = catchUpTickCount;
+			this.droppedTickCount = droppedTickCount;
+		}
+
+		/**
+		 * Returns the number of ticks which have run.
+		 *
+		 * @return number of ticks
+		 */
+		public long getTickCount() {
+			return tickCount;
+		}
+
+		/**
+		 * Returns the number of ticks which started at least half a period
+		 * late.
+		 *
+		 * @return number of late ticks
+		 */
+		public long getLateTickCount() {
+			return lateTickCount;
+		}
+
+		public long getAverageLatenessNanos() {
+			return averageLatenessNanos;
+		}
+
+		public long getMaxLatenessNanos() {
+			return maxLatenessNanos;
+		}
+
+		/**
+		 * Returns the number of ticks which were run to catch up after an
+		 * overrun, without rendering after them. These are included in
+		 * {@link #getTickCount()}.
+		 *
+		 * @return number of catch-up ticks
+		 */
+		public long getCatchUpTickCount() {
+			return catchUpTickCount;
+		}
+
+		/**
+		 * Returns the number of ticks which were skipped because the loop was
+		 * still more than a period behind after catching up.
+		 *
+		 * @return number of dropped ticks
+		 */
+		public long getDroppedTickCount() {
+			return droppedTickCount;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"%d ticks, %d late, %d caught up, %d dropped, average %.3f ms late, max %.3f ms late",
+					tickCount, lateTickCount, catchUpTickCount,
+					droppedTickCount,
+					averageLatenessNanos / 1e6, maxLatenessNanos / 1e6);
+		}
+
+	}
+
+}
@@ -0,0 +1,458 @@
+package blockgame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import blockgame.gui.ImageArea;
+import blockgame.gui.MainFrame.Direction;
+import blockgame.input.GameInputHandler.MovementInput;
+import blockgame.physics.Area;
+import blockgame.physics.KeyLayers;
+import blockgame.physics.MovingRectangle;
+import blockgame.physics.PhysicsSimulator;
+import blockgame.physics.RevealingArea;
+import blockgame.physics.SwitchArea;
+import blockgame.physics.SwitchController;
+import blockgame.physics.SwitchRectangle;
+import blockgame.physics.WallRectangle;
+import blockgame.util.FileSource;
+import blockgame.util.Pair;
+
+/**
+ * Loads a {@code Level} into a {@code PhysicsSimulator} and runs it one frame
+ * at a time. {@code GameController} plays every level through one of these,
+ * and it can also be used without a window, drawing, or sound to replay
+ * recordings or run the game on a machine which has no display. Both go
+ * through the same code, so they can't behave differently.
+ * <p>
+ * The window geometry is kept by a {@code Viewport}. With a window this is
+ * {@code MainFrame}. Without one, resizes are buffered and applied at the end
+ * of each frame in the same way, and the window can't be made smaller than
+ * {@code WIDTH_MINIMUM} by {@code HEIGHT_MINIMUM}. There is no screen to
+ * limit the maximum size.
+ * <p>
+ * A {@code LevelListener} is told about each object as it is added, so it
+ * can be drawn or have its sounds played.
+ * <p>
+ * {@code Rectangle}'s {@code ColorMapper} and {@code ParameterMapper} are only
+ * used for drawing, so they do not need to be set when running without a
+ * window.
+ * 
+ * @author Frank Kormann
+ */
+public final class HeadlessEngine {
+
+	private static final int WIDTH_MINIMUM = 150;
+	private static final int HEIGHT_MINIMUM = 150;
+
+	private PhysicsSimulator physicsSimulator;
+	private Viewport viewport;
+	private LevelListener levelListener;
+	private List<MovingRectangle> movingRectangles;
+	private Map<String, SwitchController> switchControllers;
+
+	private int frame;
+	private String nextLevel;
+
+	/**
+	 * Reads the JSON data in the resource file as a {@code Level} object.
+	 * Each call gives the {@code Level} its own {@code KeyLayers}, so levels
+	 * can be read on several threads at once.
+	 * 
+	 * @param resource name of resource to read
+	 * 
+	 * @return the {@code Level}
+	 * 
+	 * @throws IOException if the resource can't be read or is not a valid
+	 *                     {@code Level}
+	 */
+	public static Level readLevel(String resource) throws IOException {
+		try (InputStream levelSource = FileSource.getStream(resource)) {
+			if (levelSource == null) {
+				throw new IOException("Resource '" + resource + "' not found");
+			}
+			InjectableValues keyLayers = new InjectableValues.Std()
+					.addValue(KeyLayers.class, new KeyLayers());
+			return new ObjectMapper().readerFor(Level.class)
+					.with(keyLayers).readValue(levelSource);
+		}
+	}
+
+	/**
+	 * Creates a new {@code HeadlessEngine} without a window and loads
+	 * {@code level} into it. {@code level} should not be used by anything else
+	 * afterwards.
+	 * 
+	 * @param level {@code Level} to load
+	 */
+	public HeadlessEngine(Level level) {
+		this(level, new HeadlessViewport(level.width, level.height),
+				new LevelListener() {
+					@Override
+					public void movingRectangleAdded(MovingRectangle rect) {}
+
+					@Override
+					public void wallAdded(WallRectangle wall) {}
+
+					@Override
+					public void areaAdded(Area area) {}
+				});
+	}
+
+	/**
+	 * Creates a new {@code HeadlessEngine} and loads {@code level} into it.
+	 * {@code viewport} should already be the size of {@code level}.
+	 * {@code level} should not be used by anything else afterwards.
+	 * 
+	 * @param level         {@code Level} to load
+	 * @param viewport      {@code Viewport} to resize
+	 * @param levelListener {@code LevelListener} to tell about each object
+	 *                      which is added
+	 */
+	public HeadlessEngine(Level level, Viewport viewport,
+			LevelListener levelListener) {
+		physicsSimulator = new PhysicsSimulator();
+		this.viewport = viewport;
+		this.levelListener = levelListener;
+		movingRectangles = new ArrayList<>();
+		switchControllers = new HashMap<>();
+
+		frame = 0;
+		nextLevel = "";
+
+		loadObjects(level);
+
+		physicsSimulator.setUp(viewport.getNextWidth(),
+				viewport.getNextHeight(), viewport.getNextXOffset(),
+				viewport.getNextYOffset());
+	}
+
+	/**
+	 * Adds all {@code MovingRectangle}s, {@code WallRectangle}s, and
+	 * {@code Area}s from {@code level} to {@code physicsSimulator}.
+	 * 
+	 * @param level {@code Level} to take objects from
+	 */
+	private void loadObjects(Level level) {
+		for (MovingRectangle rect : level.movingRectangles) {
+			addMovingRectangle(rect);
+		}
+
+		for (WallRectangle wall : level.walls) {
+			physicsSimulator.add(wall);
+			levelListener.wallAdded(wall);
+			for (Area attached : wall.getAttachments()) {
+				level.areas.add(attached);
+			}
+		}
+
+		for (Area area : level.areas) {
+			addArea(area);
+		}
+	}
+
+	/**
+	 * Adds {@code rect} to {@code physicsSimulator}. If it is a
+	 * {@code SwitchRectangle}, pairs it with a {@code SwitchController}.
+	 * 
+	 * @param rect {@code MovingRectangle} to add
+	 */
+	private void addMovingRectangle(MovingRectangle rect) {
+		physicsSimulator.add(rect);
+		movingRectangles.add(rect);
+		levelListener.movingRectangleAdded(rect);
+		if (rect instanceof SwitchRectangle) {
+			SwitchRectangle switchRect = (SwitchRectangle) rect;
+			getSwitchController(switchRect.getKey())
+					.addSwitchRectangle(switchRect);
+		}
+		for (Area attached : rect.getAttachments()) {
+			addArea(attached);
+		}
+	}
+
+	/**
+	 * Adds {@code area} to {@code physicsSimulator} and performs any set-up
+	 * needed for its subtype.
+	 * 
+	 * @param area {@code Area} to add
+	 */
+	private void addArea(Area area) {
+		physicsSimulator.add(area);
+		levelListener.areaAdded(area);
+		if (area instanceof ImageArea) {
+			setUpAreaSubtypes(((ImageArea) area).getImitatedArea());
+		}
+		setUpAreaSubtypes(area);
+	}
+
+	/**
+	 * Sets the {@code SwitchController} for a {@code SwitchArea} or the reveal
+	 * action for a {@code RevealingArea}.
+	 * 
+	 * @param area {@code Area} to set up
+	 */
+	private void setUpAreaSubtypes(Area area) {
+		if (area instanceof SwitchArea) {
+			SwitchArea switchArea = (SwitchArea) area;
+			switchArea.setController(getSwitchController(switchArea.getKey()));
+		}
+		if (area instanceof RevealingArea) {
+			((RevealingArea) area).setRevealAction(a -> addArea(a));
+		}
+	}
+
+	/**
+	 * Returns the {@code SwitchController} paired with {@code key}, creating
+	 * it if there is not one yet.
+	 * 
+	 * @param key {@code String} key of the {@code SwitchController}
+	 * 
+	 * @return the {@code SwitchController}
+	 */
+	private SwitchController getSwitchController(String key) {
+		if (!switchControllers.containsKey(key)) {
+			switchControllers.put(key, new SwitchController());
+		}
+		return switchControllers.get(key);
+	}
+
+	/**
+	 * Processes the next frame with inputs in the form returned by
+	 * {@link blockgame.input.GameInputHandler#poll()}.
+	 * <p>
+	 * Performs these steps in order:
+	 * <ul>
+	 * <li>Resizes according to inputs
+	 * <li>Updates the game state through {@code PhysicsSimulator}
+	 * <li>Stops if a {@code GoalArea} has been completed
+	 * <li>Resizes according to {@code PhysicsSimulator}
+	 * <li>Incorporates all pending resizes
+	 * </ul>
+	 * Once {@link #isFinished()} returns {@code true}, this has no effect.
+	 * 
+	 * @param allInputs {@code Pair} of resizes in each {@code Direction} and
+	 *                  {@code MovementInput}s
+	 */
+	public void nextFrame(
+			Pair<Map<Direction, Integer>, Set<MovementInput>> allInputs) {
+		if (isFinished()) {
+			return;
+		}
+
+		viewport.resizeAll(allInputs.first);
+		physicsSimulator.updateAndMoveObjects(allInputs.second,
+				viewport.getNextWidth(), viewport.getNextHeight(),
+				viewport.getNextXOffset(), viewport.getNextYOffset());
+		frame++;
+
+		if (!physicsSimulator.getNextLevel().equals("")) {
+			nextLevel = physicsSimulator.getNextLevel();
+			return;
+		}
+
+		viewport.resizeAll(physicsSimulator.getResizes());
+		viewport.incorporateChanges();
+	}
+
+	/**
+	 * Returns whether a {@code GoalArea} has been completed. After this
+	 * happens, no more frames are processed until
+	 * {@link #resetNextLevel()} is called.
+	 * 
+	 * @return {@code true} if the level is finished
+	 */
+	public boolean isFinished() {
+		return !nextLevel.equals("");
+	}
+
+	/**
+	 * Returns the level which the completed {@code GoalArea} leads to, or an
+	 * empty {@code String} if none has been completed.
+	 * 
+	 * @return name of the next level or {@code ""}
+	 */
+	public String getNextLevel() {
+		return nextLevel;
+	}
+
+	/**
+	 * Forgets that a {@code GoalArea} has been completed so that frames are
+	 * processed again. Used when the next level can't be loaded.
+	 */
+	public void resetNextLevel() {
+		nextLevel = "";
+		physicsSimulator.resetNextlevel();
+	}
+
+	/**
+	 * Returns the number of frames which have been processed.
+	 * 
+	 * @return number of frames
+	 */
+	public int getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Returns every {@code MovingRectangle} in the level, in the order they
+	 * were loaded.
+	 * 
+	 * @return unmodifiable {@code List} of {@code MovingRectangle}s
+	 */
+	public List<MovingRectangle> getMovingRectangles() {
+		return Collections.unmodifiableList(movingRectangles);
+	}
+
+	/**
+	 * Returns the buffered ideal width.
+	 * 
+	 * @return Current width + pending width changes
+	 */
+	public int getNextWidth() {
+		return viewport.getNextWidth();
+	}
+
+	/**
+	 * Returns the buffered ideal height.
+	 * 
+	 * @return Current height + pending height changes
+	 */
+	public int getNextHeight() {
+		return viewport.getNextHeight();
+	}
+
+	/**
+	 * Returns the buffered ideal x-offset.
+	 * 
+	 * @return Current x-offset + pending changes
+	 */
+	public int getNextXOffset() {
+		return viewport.getNextXOffset();
+	}
+
+	/**
+	 * Returns the buffered ideal y-offset.
+	 * 
+	 * @return Current y-offset + pending changes
+	 */
+	public int getNextYOffset() {
+		return viewport.getNextYOffset();
+	}
+
+	/**
+	 * {@code Viewport} used when there is no window, following the same rules
+	 * as {@code MainFrame} apart from the screen size.
+	 */
+	private static final class HeadlessViewport implements Viewport {
+
+		private int width, height, xOffset, yOffset;
+		private int xChange, yChange;
+		private int widthChange, heightChange;
+
+		private HeadlessViewport(int width, int height) {
+			this.width = width;
+			this.height = height;
+			xOffset = 0;
+			yOffset = 0;
+			xChange = 0;
+			yChange = 0;
+			widthChange = 0;
+			heightChange = 0;
+		}
+
+		/**
+		 * Buffers a resize, using the same rules as
+		 * {@link blockgame.gui.MainFrame#resize(int, Direction)}.
+		 * 
+		 * @param change    amount to move the side by
+		 * @param direction which side to move
+		 */
+		@SuppressWarnings("fallthrough")
+		private void resize(int change, Direction direction) {
+			if (change == 0) {
+				return;
+			}
+			if (direction == Direction.NORTH || direction == Direction.WEST) {
+				change *= -1;
+			}
+
+			if (direction == Direction.NORTH || direction == Direction.SOUTH) {
+				if (height + change < HEIGHT_MINIMUM) {
+					change = HEIGHT_MINIMUM - height;
+				}
+			}
+			if (direction == Direction.WEST || direction == Direction.EAST) {
+				if (width + change < WIDTH_MINIMUM) {
+					change = WIDTH_MINIMUM - width;
+				}
+			}
+
+			switch (direction) {
+				case NORTH:
+					yChange -= change;
+					// fallthrough
+				case SOUTH:
+					heightChange += change;
+					break;
+				case WEST:
+					xChange -= change;
+					// fallthrough
+				case EAST:
+					widthChange += change;
+					break;
+			}
+		}
+
+		@Override
+		public void resizeAll(Map<Direction, Integer> resizes) {
+			for (Direction direction : resizes.keySet()) {
+				resize(resizes.get(direction), direction);
+			}
+		}
+
+		@Override
+		public void incorporateChanges() {
+			width += widthChange;
+			height += heightChange;
+			xOffset += xChange;
+			yOffset += yChange;
+
+			xChange = 0;
+			yChange = 0;
+			widthChange = 0;
+			heightChange = 0;
+		}
+
+		@Override
+		public int getNextWidth() {
+			return width + widthChange;
+		}
+
+		@Override
+		public int getNextHeight() {
+			return height + heightChange;
+		}
+
+		@Override
+		public int getNextXOffset() {
+			return xOffset + xChange;
+		}
+
+		@Override
+		public int getNextYOffset() {
+			return yOffset + yChange;
+		}
+
+	}
+
+}
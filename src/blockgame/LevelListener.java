@@ -0,0 +1,41 @@
+package blockgame;
+
+import blockgame.physics.Area;
+import blockgame.physics.MovingRectangle;
+import blockgame.physics.WallRectangle;
+
+/**
+ * Listener interface for objects being added to a level by
+ * {@code HeadlessEngine}. Used to draw them or play their sounds.
+ * <p>
+ * Each method is called after the object has been added to the
+ * {@code PhysicsSimulator}. {@code Area}s revealed by a {@code RevealingArea}
+ * partway through the level are also passed to
+ * {@link #areaAdded(Area)}.
+ * 
+ * @author Frank Kormann
+ */
+public interface LevelListener {
+
+	/**
+	 * Fired when a {@code MovingRectangle} is added.
+	 * 
+	 * @param rect {@code MovingRectangle} which was added
+	 */
+	public void movingRectangleAdded(MovingRectangle rect);
+
+	/**
+	 * Fired when a {@code WallRectangle} is added.
+	 * 
+	 * @param wall {@code WallRectangle} which was added
+	 */
+	public void wallAdded(WallRectangle wall);
+
+	/**
+	 * Fired when an {@code Area} is added.
+	 * 
+	 * @param area {@code Area} which was added
+	 */
+	public void areaAdded(Area area);
+
+}
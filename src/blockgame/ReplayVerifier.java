@@ -0,0 +1,378 @@
+package blockgame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import blockgame.gui.MainFrame.Direction;
+import blockgame.input.GameInputHandler.MovementInput;
+import blockgame.input.RecordingReader;
+import blockgame.physics.MovingRectangle;
+import blockgame.util.FileSource;
+import blockgame.util.Pair;
+
+/**
+ * Command-line tool which replays each level's solution recording through a
+ * {@code HeadlessEngine} and checks it against a reference run.
+ * <p>
+ * Levels are given as resource names, such as {@code /level_1-1.json}. If no
+ * levels are given, every level in the level select index is checked. Levels
+ * are run one after another with no delay between frames.
+ * <p>
+ * After the recording ends, the level keeps running with no inputs for
+ * {@code FRAMES_AFTER_RECORDING} frames, the same as if the player let go of
+ * every key.
+ * <p>
+ * The state of every {@code MovingRectangle} and the window is hashed after
+ * each frame. A level passes if the hashes match the ones stored in
+ * {@code REFERENCE} for it, which means the recording plays out the same as
+ * it did when the reference was written. Whether a {@code GoalArea} was
+ * completed is reported but does not decide the result, since the shipped
+ * recordings do not all reach one. After an intended change to the physics,
+ * the reference can be rewritten with
+ * {@code --write-reference <file> [levels...]}.
+ * <p>
+ * Exits with status 1 if any level fails.
+ * 
+ * @author Frank Kormann
+ */
+public class ReplayVerifier {
+
+	private static final String LEVEL_INDEX = "/level_select_index.json";
+	private static final String REFERENCE = "/replay_reference.json";
+	private static final int FRAMES_AFTER_RECORDING = 300;
+	private static final int CHECKPOINT_INTERVAL = 60;
+
+	/**
+	 * Result of replaying one level's solution.
+	 */
+	public static class Result {
+
+		public final String level;
+		public final boolean passed;
+		public final int goalFrame;
+		public final int frames;
+		public final long nanos;
+		public final String message;
+
+		public Result(String level, boolean passed, int goalFrame, int frames,
+				long nanos, String message) {
+			this.level = level;
+			this.passed = passed;
+			this.goalFrame = goalFrame;
+			this.frames = frames;
+			this.nanos = nanos;
+			this.message = message;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %s: %s after %d frames in %.1f ms",
+					passed ? "PASS" : "FAIL", level, message, frames,
+					nanos / 1e6);
+		}
+
+	}
+
+	/**
+	 * What happened when a level's solution was replayed. {@code checkpoints}
+	 * holds the running hash of the level's state every
+	 * {@code CHECKPOINT_INTERVAL} frames, and once more after the last frame.
+	 * {@code goalFrame} is the frame a {@code GoalArea} was completed on, or
+	 * {@code -1} if none was.
+	 */
+	public static class Run {
+
+		public int frames;
+		public int goalFrame;
+		public List<Long> checkpoints;
+
+		public Run() {
+			frames = 0;
+			goalFrame = -1;
+			checkpoints = new ArrayList<>();
+		}
+
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> levels = new ArrayList<>(Arrays.asList(args));
+		String referenceFile = null;
+		if (levels.size() >= 2 && levels.get(0).equals("--write-reference")) {
+			referenceFile = levels.get(1);
+			levels = levels.subList(2, levels.size());
+		}
+		if (levels.isEmpty()) {
+			levels = readLevelIndex();
+		}
+
+		if (referenceFile != null) {
+			Map<String, Run> runs = new LinkedHashMap<>();
+			for (String level : levels) {
+				runs.put(level, run(level));
+			}
+			new ObjectMapper().writerWithDefaultPrettyPrinter()
+					.writeValue(new File(referenceFile), runs);
+			return;
+		}
+
+		long start = System.nanoTime();
+		List<Result> results = verifyAll(levels);
+		long elapsed = System.nanoTime() - start;
+
+		int failures = 0;
+		for (Result result : results) {
+			System.out.println(result);
+			if (!result.passed) {
+				failures++;
+			}
+		}
+		System.out.println(String.format("%d of %d levels passed in %.1f ms",
+				results.size() - failures, results.size(), elapsed / 1e6));
+
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Reads the resource names of every level in the level select index.
+	 * 
+	 * @return {@code List} of level resource names
+	 * 
+	 * @throws IOException if the index can't be read
+	 */
+	public static List<String> readLevelIndex() throws IOException {
+		try (InputStream source = FileSource.getStream(LEVEL_INDEX)) {
+			if (source == null) {
+				throw new IOException("Resource '" + LEVEL_INDEX + "' not found");
+			}
+			Map<String, Map<String, Pair<String, Integer>>> worlds = new ObjectMapper()
+					.readValue(source,
+							new TypeReference<Map<String, Map<String, Pair<String, Integer>>>>() {});
+
+			List<String> levels = new ArrayList<>();
+			for (Map<String, Pair<String, Integer>> world : worlds.values()) {
+				for (Pair<String, Integer> level : world.values()) {
+					levels.add(level.first);
+				}
+			}
+			return levels;
+		}
+	}
+
+	/**
+	 * Reads the reference run of every level which has one.
+	 * 
+	 * @return {@code Map} of level resource name to its reference {@code Run}
+	 * 
+	 * @throws IOException if the reference can't be read
+	 */
+	public static Map<String, Run> readReference() throws IOException {
+		try (InputStream source = FileSource.getStream(REFERENCE)) {
+			if (source == null) {
+				throw new IOException("Resource '" + REFERENCE + "' not found");
+			}
+			return new ObjectMapper().readValue(source,
+					new TypeReference<Map<String, Run>>() {});
+		}
+	}
+
+	/**
+	 * Verifies every level in {@code levels} against its reference run, one
+	 * after another.
+	 * 
+	 * @param levels resource names of levels to verify
+	 * 
+	 * @return {@code Result} for each level, in the same order as
+	 *         {@code levels}
+	 * 
+	 * @throws IOException if the reference can't be read
+	 */
+	public static List<Result> verifyAll(List<String> levels)
+			throws IOException {
+		Map<String, Run> reference = readReference();
+
+		List<Result> results = new ArrayList<>();
+		for (String level : levels) {
+			results.add(verify(level, reference.get(level)));
+		}
+		return results;
+	}
+
+	/**
+	 * Replays the solution recording of the level named {@code resource} and
+	 * compares it to {@code reference}.
+	 * 
+	 * @param resource  name of level resource
+	 * @param reference {@code Run} to compare against, or {@code null} if the
+	 *                  level has none
+	 * 
+	 * @return {@code Result} of replaying it
+	 */
+	public static Result verify(String resource, Run reference) {
+		long start = System.nanoTime();
+
+		Run run;
+		try {
+			run = run(resource);
+		}
+		catch (IOException e) {
+			return new Result(resource, false, -1, 0,
+					System.nanoTime() - start, e.getMessage());
+		}
+		long nanos = System.nanoTime() - start;
+
+		String goal = run.goalFrame >= 0
+				? "GoalArea completed on frame " + run.goalFrame
+				: "no GoalArea completed";
+		String difference = compare(run, reference);
+		if (difference != null) {
+			return new Result(resource, false, run.goalFrame, run.frames,
+					nanos, goal + ", " + difference);
+		}
+		return new Result(resource, true, run.goalFrame, run.frames, nanos,
+				goal + ", same as reference run");
+	}
+
+	/**
+	 * Replays the solution recording of the level named {@code resource}.
+	 * 
+	 * @param resource name of level resource
+	 * 
+	 * @return {@code Run} describing what happened
+	 * 
+	 * @throws IOException if the level or its solution can't be read
+	 */
+	public static Run run(String resource) throws IOException {
+		Level level;
+		try {
+			level = HeadlessEngine.readLevel(resource);
+		}
+		catch (IOException e) {
+			throw new IOException("can't read level: " + e.getMessage(), e);
+		}
+		if (level.solution.equals("")) {
+			throw new IOException("no solution");
+		}
+
+		try (InputStream solution = FileSource.getStream(level.solution)) {
+			if (solution == null) {
+				throw new IOException(
+						"can't find solution '" + level.solution + "'");
+			}
+			return replay(new HeadlessEngine(level),
+					new RecordingReader(solution));
+		}
+	}
+
+	/**
+	 * Runs {@code engine} with inputs from {@code reader} until a
+	 * {@code GoalArea} is completed or the recording runs out, then with no
+	 * inputs for {@code FRAMES_AFTER_RECORDING} frames.
+	 * 
+	 * @param engine {@code HeadlessEngine} the level is loaded into
+	 * @param reader {@code RecordingReader} of the level's solution
+	 * 
+	 * @return {@code Run} describing what happened
+	 * 
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static Run replay(HeadlessEngine engine, RecordingReader reader)
+			throws IOException {
+		Run run = new Run();
+		long hash = 17;
+
+		Pair<Map<Direction, Integer>, Set<MovementInput>> noInputs = new Pair<>(
+				new HashMap<>(), new HashSet<>());
+		int framesAfterRecording = 0;
+		while (!engine.isFinished()
+				&& framesAfterRecording < FRAMES_AFTER_RECORDING) {
+			if (reader.isOpen()) {
+				engine.nextFrame(reader.readFrame());
+			}
+			else {
+				engine.nextFrame(noInputs);
+				framesAfterRecording++;
+			}
+
+			hash = hashState(hash, engine);
+			if (engine.getFrame() % CHECKPOINT_INTERVAL == 0) {
+				run.checkpoints.add(hash);
+			}
+		}
+		run.checkpoints.add(hash);
+
+		run.frames = engine.getFrame();
+		if (engine.isFinished()) {
+			run.goalFrame = engine.getFrame();
+		}
+		return run;
+	}
+
+	/**
+	 * Adds the position, size, and velocity of every {@code MovingRectangle}
+	 * and the window's geometry to {@code hash}.
+	 * 
+	 * @param hash   running hash of previous frames
+	 * @param engine {@code HeadlessEngine} to hash the state of
+	 * 
+	 * @return new running hash
+	 */
+	private static long hashState(long hash, HeadlessEngine engine) {
+		for (MovingRectangle rect : engine.getMovingRectangles()) {
+			hash = hash * 31 + rect.getX();
+			hash = hash * 31 + rect.getY();
+			hash = hash * 31 + rect.getWidth();
+			hash = hash * 31 + rect.getHeight();
+			hash = hash * 31 + rect.getXVelocity();
+			hash = hash * 31 + rect.getYVelocity();
+		}
+		hash = hash * 31 + engine.getNextWidth();
+		hash = hash * 31 + engine.getNextHeight();
+		hash = hash * 31 + engine.getNextXOffset();
+		hash = hash * 31 + engine.getNextYOffset();
+		return hash;
+	}
+
+	/**
+	 * Describes the first way {@code run} differs from {@code reference}.
+	 * 
+	 * @param run       {@code Run} to check
+	 * @param reference {@code Run} to compare against, or {@code null}
+	 * 
+	 * @return description of the difference, or {@code null} if they are the
+	 *         same
+	 */
+	private static String compare(Run run, Run reference) {
+		if (reference == null) {
+			return "no reference run";
+		}
+		int checkpoints = Math.min(run.checkpoints.size(),
+				reference.checkpoints.size());
+		for (int i = 0; i < checkpoints; i++) {
+			if (!run.checkpoints.get(i).equals(reference.checkpoints.get(i))) {
+				return String.format(
+						"differs from reference run between frames %d and %d",
+						i * CHECKPOINT_INTERVAL,
+						Math.min((i + 1) * CHECKPOINT_INTERVAL, run.frames));
+			}
+		}
+		if (run.frames != reference.frames
+				|| run.goalFrame != reference.goalFrame) {
+			return "ran " + run.frames + " frames, reference run ran "
+					+ reference.frames;
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,59 @@
+package blockgame;
+
+import java.util.Map;
+
+import blockgame.gui.MainFrame.Direction;
+
+/**
+ * The window a level is played in, as far as the game state is concerned.
+ * Resizes are buffered and only take effect when
+ * {@link #incorporateChanges()} is called at the end of each frame.
+ * <p>
+ * {@code MainFrame} is the {@code Viewport} when there is a window.
+ * {@code HeadlessEngine} keeps its own otherwise.
+ * 
+ * @author Frank Kormann
+ */
+public interface Viewport {
+
+	/**
+	 * Buffers every resize in {@code resizes}.
+	 * 
+	 * @param resizes Map from {@code Direction} of each resize to change amount
+	 */
+	public void resizeAll(Map<Direction, Integer> resizes);
+
+	/**
+	 * Incorporates all pending changes to x, y, width, and height.
+	 */
+	public void incorporateChanges();
+
+	/**
+	 * Returns the buffered ideal width.
+	 * 
+	 * @return Current width + pending width changes
+	 */
+	public int getNextWidth();
+
+	/**
+	 * Returns the buffered ideal height.
+	 * 
+	 * @return Current height + pending height changes
+	 */
+	public int getNextHeight();
+
+	/**
+	 * Returns the buffered ideal x-offset.
+	 * 
+	 * @return Current x-offset + pending changes
+	 */
+	public int getNextXOffset();
+
+	/**
+	 * Returns the buffered ideal y-offset.
+	 * 
+	 * @return Current y-offset + pending changes
+	 */
+	public int getNextYOffset();
+
+}
@@ -18,4 +18,27 @@ public interface Drawable {
 	 */
 	public void draw(Graphics g);
 
+	/**
+	 * Returns a copy of this as it is now, which is drawn the same way and
+	 * will not change. Used to draw this on another thread while the original
+	 * keeps changing.
+	 * <p>
+	 * A {@code Drawable} which never changes can return itself.
+	 * 
+	 * @return unchanging copy of this
+	 */
+	public Drawable snapshot();
+
+	/**
+	 * Returns {@code true} if {@code snapshot}, which was returned by
+	 * {@link #snapshot()} on this earlier, would still be drawn exactly the
+	 * same as this. Then it can be drawn again instead of taking a new
+	 * snapshot.
+	 * 
+	 * @param snapshot earlier snapshot of this
+	 * 
+	 * @return {@code true} if {@code snapshot} is still up to date
+	 */
+	public boolean matchesSnapshot(Drawable snapshot);
+
 }
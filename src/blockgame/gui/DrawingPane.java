@@ -3,6 +3,7 @@ package blockgame.gui;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
@@ -12,7 +13,9 @@ import javax.swing.JPanel;
 
 import blockgame.input.ColorMapper;
 import blockgame.input.ValueChangeListener;
+import blockgame.physics.Rectangle;
 import blockgame.physics.Rectangle.Colors;
+import blockgame.util.TripleBuffer;
 
 /**
  * Draws all {@code Drawable}s to the window using their {@code draw} methods.
@@ -20,12 +23,33 @@ import blockgame.physics.Rectangle.Colors;
  * The x- and y-offsets need to be set properly with {@code setOffsets}. Because
  * the top-left corner will not always be at (0, 0), this keeps track of its
  * offset relative to (0, 0) to determine where to draw each {@code Drawable}.
+ * <p>
+ * {@code Drawable}s are not drawn directly, since they are changed by the
+ * thread running the game while this is painted on the AWT Event Dispatching
+ * Thread. Instead, the game thread copies them into a {@code RenderSnapshot}
+ * with {@link #publishSnapshot(int, int, int, int)} at the end of each frame,
+ * and this paints the latest one taken with {@link #updateSnapshot()}.
+ * Neither thread waits on the other.
+ * <p>
+ * Interpolation can be turned on with {@link #setInterpolating(boolean)}.
+ * Then each {@code Rectangle} is drawn partway between where it was in the
+ * previous {@code RenderSnapshot} and where it is in the current one,
+ * depending on how long ago the current one was published. This smooths out
+ * motion when the screen refreshes at a different rate than frames are
+ * processed. It only changes where things are drawn, never the
+ * {@code Drawable}s themselves.
  *
  * @author Frank Kormann
  */
 public class DrawingPane extends JPanel implements ValueChangeListener {
 
 	private SortedMap<Integer, List<Drawable>> drawableLists;
+	private transient TripleBuffer<RenderSnapshot> snapshots;
+	// Copy of each Drawable in the last RenderSnapshot published
+	private transient IdentityHashMap<Drawable, Drawable> lastSnapshots;
+
+	private volatile boolean interpolating;
+	private volatile long nanosBetweenSnapshots;
 
 	private int xOffset, yOffset;
 	private float scale;
@@ -48,6 +72,11 @@ public class DrawingPane extends JPanel implements ValueChangeListener {
 		colorMapper.addListener(this);
 
 		drawableLists = new TreeMap<>();
+		snapshots = new TripleBuffer<>(RenderSnapshot::new);
+		lastSnapshots = new IdentityHashMap<>();
+
+		interpolating = false;
+		nanosBetweenSnapshots = 1;
 	}
 
 	/**
@@ -71,25 +100,146 @@ public class DrawingPane extends JPanel implements ValueChangeListener {
 	 */
 	public synchronized void clearDrawables() {
 		drawableLists.clear();
+		lastSnapshots.clear();
+	}
+
+	/**
+	 * Copies every {@code Drawable} in this into a {@code RenderSnapshot} along
+	 * with the window bounds they go with, and makes it available to
+	 * {@link #updateSnapshot()}.
+	 * <p>
+	 * A {@code Drawable} which still matches its copy from the last
+	 * {@code RenderSnapshot} is not copied again. The old copy is used instead,
+	 * so nothing is allocated for {@code Drawable}s which have not changed.
+	 * <p>
+	 * This should be called from the thread which changes the
+	 * {@code Drawable}s, after it is done changing them for the frame.
+	 * 
+	 * @param width   width of the window for this frame
+	 * @param height  height of the window for this frame
+	 * @param xOffset x-offset of the window for this frame
+	 * @param yOffset y-offset of the window for this frame
+	 */
+	public synchronized void publishSnapshot(int width, int height,
+			int xOffset, int yOffset) {
+		RenderSnapshot snapshot = snapshots.getBack();
+		snapshot.clear(width, height, xOffset, yOffset);
+		for (Map.Entry<Integer, List<Drawable>> entry : drawableLists
+				.entrySet()) {
+			for (Drawable drawable : entry.getValue()) {
+				Drawable last = lastSnapshots.get(drawable);
+				if (last != null && drawable.matchesSnapshot(last)) {
+					snapshot.add(last, 0, 0);
+					continue;
+				}
+				Drawable copy = drawable.snapshot();
+				lastSnapshots.put(drawable, copy);
+				if (last instanceof Rectangle) {
+					Rectangle rect = (Rectangle) copy;
+					Rectangle lastRect = (Rectangle) last;
+					snapshot.add(copy, rect.getX() - lastRect.getX(),
+							rect.getY() - lastRect.getY());
+				}
+				else {
+					snapshot.add(copy, 0, 0);
+				}
+			}
+		}
+		snapshot.setPublishNanos(System.nanoTime());
+		snapshots.publish();
+	}
+
+	/**
+	 * Switches to painting the latest {@code RenderSnapshot}, if one has been
+	 * published since this was last called.
+	 * <p>
+	 * This should be called from the AWT Event Dispatching Thread.
+	 * 
+	 * @return {@code true} if there is a new {@code RenderSnapshot}
+	 */
+	public boolean updateSnapshot() {
+		return snapshots.update();
+	}
+
+	/**
+	 * Returns the {@code RenderSnapshot} which is being painted.
+	 * 
+	 * @return current {@code RenderSnapshot}
+	 */
+	public RenderSnapshot getSnapshot() {
+		return snapshots.getFront();
 	}
 
 	@Override
-	public synchronized void paintComponent(Graphics g) {
+	public void paintComponent(Graphics g) {
 		Graphics2D g2d = (Graphics2D) g.create();
 		super.paintComponent(g2d);
 		g2d.scale(scale, scale);
 		g2d.translate(-xOffset, -yOffset);
 
-		for (Map.Entry<Integer, List<Drawable>> entry : drawableLists
-				.entrySet()) {
-			for (Drawable drawable : entry.getValue()) {
-				drawable.draw(g2d);
-			}
+		RenderSnapshot snapshot = snapshots.getFront();
+		if (interpolating) {
+			snapshot.draw(g2d, getAlpha(snapshot));
+		}
+		else {
+			snapshot.draw(g2d);
 		}
 
 		g2d.dispose();
 	}
 
+	/**
+	 * Returns how far through the time between snapshots it has been since
+	 * {@code snapshot} was published, from {@code 0} to {@code 1}.
+	 * 
+	 * @param snapshot {@code RenderSnapshot} to find the alpha of
+	 * 
+	 * @return how far to draw between the previous snapshot and
+	 *         {@code snapshot}
+	 */
+	private double getAlpha(RenderSnapshot snapshot) {
+		long sincePublished = System.nanoTime() - snapshot.getPublishNanos();
+		return Math.min(Math.max(
+				sincePublished / (double) nanosBetweenSnapshots, 0), 1);
+	}
+
+	/**
+	 * Returns {@code true} if the current {@code RenderSnapshot} would be
+	 * drawn the same if it were painted again later, so there is no need to
+	 * keep repainting it. Always {@code true} if this is not interpolating.
+	 * 
+	 * @return {@code true} if the current {@code RenderSnapshot} is done
+	 *         interpolating
+	 */
+	public boolean isInterpolationDone() {
+		return !interpolating || getAlpha(snapshots.getFront()) >= 1;
+	}
+
+	/**
+	 * Sets whether to draw {@code Rectangle}s between where they were in the
+	 * previous {@code RenderSnapshot} and where they are in the current one.
+	 * 
+	 * @param interpolating {@code true} to interpolate
+	 */
+	public void setInterpolating(boolean interpolating) {
+		this.interpolating = interpolating;
+	}
+
+	public boolean isInterpolating() {
+		return interpolating;
+	}
+
+	/**
+	 * Sets how long it is expected to be between each {@code RenderSnapshot}
+	 * being published. Interpolation takes this long to reach the current
+	 * {@code RenderSnapshot}.
+	 * 
+	 * @param nanosBetweenSnapshots time between snapshots in nanoseconds
+	 */
+	public void setNanosBetweenSnapshots(long nanosBetweenSnapshots) {
+		this.nanosBetweenSnapshots = Math.max(nanosBetweenSnapshots, 1);
+	}
+
 	public void setScale(float scale) {
 		this.scale = scale;
 	}
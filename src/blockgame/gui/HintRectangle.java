@@ -59,6 +59,12 @@ public class HintRectangle extends Rectangle {
 		g.dispose();
 	}
 
+	@Override
+	public boolean matchesSnapshot(Drawable snapshot) {
+		return super.matchesSnapshot(snapshot)
+				&& ((HintRectangle) snapshot).visible == visible;
+	}
+
 	public void toggleVisible() {
 		visible = !visible;
 	}
@@ -45,7 +45,9 @@ public class ImageArea extends Area implements ValueChangeListener {
 		super(x, y, 0, 0, Colors.TRANSPARENT);
 		color = null;
 		imitatedArea = null;
-		colorMapper.addListener(this);
+		if (colorMapper != null) {
+			colorMapper.addListener(this);
+		}
 
 		try (InputStream imgSource = FileSource.getStream(source)) {
 			baseImage = ImageIO.read(imgSource);
@@ -75,7 +77,7 @@ public class ImageArea extends Area implements ValueChangeListener {
 	 * from {@code baseImage}.
 	 */
 	private void colorImage() {
-		if (color == null) {
+		if (color == null || colorMapper == null) {
 			return;
 		}
 		Color referenceColor = colorMapper.getColor(color);
@@ -117,6 +119,15 @@ public class ImageArea extends Area implements ValueChangeListener {
 		imitatedArea.setY(getY());
 		imitatedArea.setWidth(getWidth());
 		imitatedArea.setHeight(getHeight());
+		updateLayers();
+	}
+
+	@Override
+	protected int computeKindLayer() {
+		if (imitatedArea == null) {
+			return super.computeKindLayer();
+		}
+		return imitatedArea.getLayers() & KIND_LAYERS;
 	}
 
 	/**
@@ -2,7 +2,9 @@ package blockgame.gui;
 
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.DisplayMode;
 import java.awt.Font;
+import java.awt.GraphicsConfiguration;
 import java.awt.KeyboardFocusManager;
 import java.awt.Toolkit;
 import java.awt.event.ComponentAdapter;
@@ -10,15 +12,19 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.KeyEvent;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.imageio.ImageIO;
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 
 import com.formdev.flatlaf.util.UIScale;
 
+import blockgame.GameLoop;
 import blockgame.Level;
+import blockgame.Viewport;
 import blockgame.input.ColorMapper;
 import blockgame.input.GameInputHandler;
 import blockgame.input.ParameterMapper;
@@ -33,7 +39,8 @@ import blockgame.input.ValueChangeListener;
  * The usual methods for resizing a {@code JFrame} should not be used for this.
  * The methods {@link #resize(int, Direction)} and {@link #resizeAll(Map)}
  * should be used instead. {@code incorporateChanges} should be called at the
- * end of each frame.
+ * end of each frame, then {@code publishFrame} once everything has been
+ * updated.
  * <p>
  * Actual resizing of the window is delayed until {@code incorporateChanges} is
  * called at the end of each frame, after the new window size has been verified
@@ -41,6 +48,19 @@ import blockgame.input.ValueChangeListener;
  * in an invalid state. Such an invalid state would be correctly resized almost
  * immediately (at the next frame), leading to stuttering.
  * <p>
+ * The game runs on its own thread, so the size given by
+ * {@code getNextWidth} and the others is kept apart from the size the window
+ * is shown at. {@code publishFrame} takes a {@code RenderSnapshot} of the
+ * frame, including its size, and posts a task to the AWT Event Dispatching
+ * Thread which resizes the window to match and paints it. The game thread
+ * never waits for this, and if it publishes more frames before the task runs,
+ * only the latest one is shown.
+ * <p>
+ * If {@code Parameter.INTERPOLATION} is on, the {@code DrawingPane} is
+ * repainted at the refresh rate of the screen between frames, drawing each
+ * {@code Rectangle} partway between where it was on the previous frame and
+ * where it is now.
+ * <p>
  * Moving this around the screen without resizing it is not buffered. This has
  * no effect on game physics and should not cause visual issues.
  * <p>
@@ -53,7 +73,8 @@ import blockgame.input.ValueChangeListener;
  * 
  * @author Frank Kormann
  */
-public class MainFrame extends JFrame implements ValueChangeListener {
+public class MainFrame extends JFrame
+		implements ValueChangeListener, Viewport {
 
 	private static final String TASKBAR_ICON = "/taskbar_icon.png";
 	private static final String WINDOW_TITLE = "Resizer";
@@ -61,9 +82,14 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 
 	private static final int WIDTH_MINIMUM = 150;
 	private static final int HEIGHT_MINIMUM = 150;
+	// Used when the refresh rate of the screen is not known
+	private static final int DEFAULT_REFRESH_RATE = 60;
 
 	private float scale;
+	// Size of the next frame, used by the game thread
 	private int idealWidth, idealHeight, idealXOffset, idealYOffset;
+	// Size the window is shown at, used by the AWT Event Dispatching Thread
+	private int shownWidth, shownHeight, shownXOffset, shownYOffset;
 	private int centerX, centerY;
 	private int xChange, yChange;
 	private int widthChange, heightChange;
@@ -72,6 +98,8 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 	private String title;
 
 	private boolean interceptPropertyChangeEvent;
+	private AtomicBoolean framePosted;
+	private Timer interpolationTimer;
 
 	private DrawingPane drawingPane;
 	private ParameterMapper paramMapper;
@@ -114,7 +142,7 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 			ParameterMapper paramMapper) {
 		super(WINDOW_TITLE);
 
-		// idealXxx, width, height are instantiated in
+		// idealXxx, shownXxx, width, height are instantiated in
 		// setUpLevel()
 		xChange = 0;
 		yChange = 0;
@@ -124,11 +152,18 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 		title = getTitle();
 
 		interceptPropertyChangeEvent = false;
+		framePosted = new AtomicBoolean(false);
 
 		drawingPane = new DrawingPane(colorMapper);
 		this.paramMapper = paramMapper;
 		paramMapper.addListener(this);
 
+		interpolationTimer = new Timer(1000 / DEFAULT_REFRESH_RATE,
+				e -> repaintInterpolation());
+		drawingPane.setInterpolating(
+				paramMapper.getInt(Parameter.INTERPOLATION) != 0);
+		setTickRate(paramMapper.getInt(Parameter.TICK_RATE));
+
 		scale = 1;
 		setGameScale(paramMapper.getFloat(Parameter.GAME_SCALING));
 		setGuiScale(paramMapper.getFloat(Parameter.GUI_SCALING));
@@ -147,18 +182,18 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 	 */
 	private void setGameScale(float scale) {
 		this.scale = scale;
-		int newWidth = (int) (idealWidth * scale);
-		int newHeight = (int) (idealHeight * scale);
+		int newWidth = (int) (shownWidth * scale);
+		int newHeight = (int) (shownHeight * scale);
 
 		centerX -= (newWidth - getWidth() + getInsets().left
 				+ getInsets().right) / 2;
 		centerY -= (newHeight - getHeight() + getTitlePaneHeight()
 				+ getInsets().top + getInsets().bottom) / 2;
 		if (getPreferredY() < 0) {
-			centerY = -(int) (idealYOffset * scale);
+			centerY = -(int) (shownYOffset * scale);
 		}
 		if (getPreferredX() < 0) {
-			centerX = -(int) (idealXOffset * scale);
+			centerX = -(int) (shownXOffset * scale);
 		}
 
 		getContentPane().setPreferredSize(new Dimension(newWidth, newHeight));
@@ -193,6 +228,8 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 					e);
 		}
 
+		interpolationTimer.setDelay(1000 / getRefreshRate());
+
 		addKeyListener(gameInputHandler);
 		addFocusListener(gameInputHandler);
 		// Always return false so the event also gets dispatched to menu bar
@@ -212,10 +249,10 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 				// Move centerX|Y such that getPreferredX|Y() is getX|Y()
 				// so that this will not be moved back by arrangeComponents()
 				if (getX() != getPreferredX()) {
-					centerX = getX() - (int) (idealXOffset * scale);
+					centerX = getX() - (int) (shownXOffset * scale);
 				}
 				if (getY() != getPreferredY()) {
-					centerY = getY() - (int) (idealYOffset * scale);
+					centerY = getY() - (int) (shownYOffset * scale);
 				}
 			}
 		});
@@ -235,20 +272,37 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 	 * Sets width, height, and title for a {@code Level}. Also clears the
 	 * previous level.
 	 * <p>
-	 * This should be called from the AWT Event Dispatching Thread.
+	 * The size returned by {@code getNextWidth} and the others changes right
+	 * away. The window itself is changed on the AWT Event Dispatching Thread,
+	 * right away if this is called from it and later otherwise.
 	 * 
 	 * @param level Level to set up
 	 */
 	public void setUpLevel(Level level) {
 		drawingPane.clearDrawables();
-		drawingPane.setOffsets(0, 0);
 
 		idealWidth = level.width;
 		idealHeight = level.height;
 		idealXOffset = 0;
 		idealYOffset = 0;
+
+		runOnEventDispatchThread(() -> showLevel(level));
+	}
+
+	/**
+	 * Resizes the window and sets its title for {@code level}.
+	 * 
+	 * @param level Level to show
+	 */
+	private void showLevel(Level level) {
+		drawingPane.setOffsets(0, 0);
+
+		shownWidth = level.width;
+		shownHeight = level.height;
+		shownXOffset = 0;
+		shownYOffset = 0;
 		getContentPane().setPreferredSize(new Dimension(
-				(int) (idealWidth * scale), (int) (idealHeight * scale)));
+				(int) (shownWidth * scale), (int) (shownHeight * scale)));
 		pack();
 		titlePaneHeight = getTitlePaneHeight();
 
@@ -319,6 +373,7 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 	 * 
 	 * @param resizes Map from {@code Direction} of each resize to change amount
 	 */
+	@Override
 	public void resizeAll(Map<Direction, Integer> resizes) {
 		for (Direction direction : resizes.keySet()) {
 			resize(resizes.get(direction), direction);
@@ -326,31 +381,133 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 	}
 
 	/**
-	 * Incorporates all pending changes to x, y, width, and height, then lays
-	 * out components and repaints this.
-	 * <p>
-	 * This should be called from the AWT Event Dispatching Thread.
+	 * Incorporates all pending changes to x, y, width, and height. The window
+	 * is resized to match when the next frame is published.
 	 */
+	@Override
 	public void incorporateChanges() {
 		idealWidth += widthChange;
 		idealHeight += heightChange;
 		idealXOffset += xChange;
 		idealYOffset += yChange;
 
-		drawingPane.setOffsets(idealXOffset, idealYOffset);
-
 		xChange = 0;
 		yChange = 0;
 		widthChange = 0;
 		heightChange = 0;
+	}
 
-		arrangeComponents();
+	/**
+	 * Takes a {@code RenderSnapshot} of every {@code Drawable} in this along
+	 * with the current size, and posts a task to show it on the AWT Event
+	 * Dispatching Thread. Does not wait for it to be shown.
+	 * <p>
+	 * This should be called from the thread running the game, once everything
+	 * for the frame has been updated.
+	 */
+	public void publishFrame() {
+		drawingPane.publishSnapshot(idealWidth, idealHeight, idealXOffset,
+				idealYOffset);
+		// At most one task is waiting at a time, and it shows whatever frame
+		// is the latest when it runs
+		if (!framePosted.getAndSet(true)) {
+			SwingUtilities.invokeLater(this::showLatestFrame);
+		}
+	}
+
+	/**
+	 * Resizes this to match the latest published {@code RenderSnapshot}, then
+	 * repaints it.
+	 */
+	private void showLatestFrame() {
+		framePosted.set(false);
+		if (!drawingPane.updateSnapshot()) {
+			return;
+		}
+
+		RenderSnapshot snapshot = drawingPane.getSnapshot();
+		if (snapshot.boundsDiffer(shownWidth, shownHeight, shownXOffset,
+				shownYOffset)) {
+			shownWidth = snapshot.getWidth();
+			shownHeight = snapshot.getHeight();
+			shownXOffset = snapshot.getXOffset();
+			shownYOffset = snapshot.getYOffset();
+
+			drawingPane.setOffsets(shownXOffset, shownYOffset);
+			arrangeComponents();
+		}
+		drawingPane.repaint();
+		if (drawingPane.isInterpolating()) {
+			interpolationTimer.start();
+		}
 	}
 
+	/**
+	 * Repaints the {@code DrawingPane} while it is between frames, and stops
+	 * {@code interpolationTimer} once it has caught up to the latest one.
+	 */
+	private void repaintInterpolation() {
+		if (drawingPane.isInterpolationDone()) {
+			interpolationTimer.stop();
+		}
+		drawingPane.repaint();
+	}
+
+	/**
+	 * Returns the refresh rate of the screen this is on, or
+	 * {@code DEFAULT_REFRESH_RATE} if it is not known.
+	 * 
+	 * @return refresh rate in Hz
+	 */
+	private int getRefreshRate() {
+		GraphicsConfiguration config = getGraphicsConfiguration();
+		if (config == null) {
+			return DEFAULT_REFRESH_RATE;
+		}
+		int refreshRate = config.getDevice().getDisplayMode().getRefreshRate();
+		if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+			return DEFAULT_REFRESH_RATE;
+		}
+		return refreshRate;
+	}
+
+	/**
+	 * Tells the {@code DrawingPane} how long to take interpolating between
+	 * frames.
+	 * 
+	 * @param ticksPerSecond number of frames processed each second
+	 */
+	private void setTickRate(int ticksPerSecond) {
+		drawingPane.setNanosBetweenSnapshots(
+				GameLoop.nanosBetweenTicks(ticksPerSecond));
+	}
+
+	/**
+	 * Moves this to the middle of the screen. Done on the AWT Event
+	 * Dispatching Thread, right away if this is called from it and later
+	 * otherwise.
+	 */
 	public void moveToMiddleOfScreen() {
-		setLocationRelativeTo(null);
-		centerX = getX();
-		centerY = getY();
+		runOnEventDispatchThread(() -> {
+			setLocationRelativeTo(null);
+			centerX = getX();
+			centerY = getY();
+		});
+	}
+
+	/**
+	 * Runs {@code action} now if this is the AWT Event Dispatching Thread, and
+	 * posts it to run there later otherwise.
+	 * 
+	 * @param action {@code Runnable} to run
+	 */
+	private void runOnEventDispatchThread(Runnable action) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			action.run();
+		}
+		else {
+			SwingUtilities.invokeLater(action);
+		}
 	}
 
 	/**
@@ -406,27 +563,27 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 		if (drawingPane != null) {
 			drawingPane.setBounds(0, 0,
 					(int) Math.min(getContentPane().getWidth(),
-							idealWidth * scale),
+							shownWidth * scale),
 					(int) Math.max(getContentPane().getHeight(),
-							idealHeight * scale));
+							shownHeight * scale));
 		}
 	}
 
 	private int getPreferredX() {
-		return centerX + (int) (idealXOffset * scale);
+		return centerX + (int) (shownXOffset * scale);
 	}
 
 	private int getPreferredY() {
-		return centerY + (int) (idealYOffset * scale);
+		return centerY + (int) (shownYOffset * scale);
 	}
 
 	private int getPreferredWidth() {
-		return (int) (idealWidth * scale) + getInsets().left
+		return (int) (shownWidth * scale) + getInsets().left
 				+ getInsets().right;
 	}
 
 	private int getPreferredHeight() {
-		return (int) (idealHeight * scale) + getTitlePaneHeight()
+		return (int) (shownHeight * scale) + getTitlePaneHeight()
 				+ getInsets().top + getInsets().bottom;
 	}
 
@@ -465,6 +622,7 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 	 * 
 	 * @return Current width + pending width changes
 	 */
+	@Override
 	public int getNextWidth() {
 		return idealWidth + widthChange;
 	}
@@ -474,6 +632,7 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 	 * 
 	 * @return Current height + pending height changes
 	 */
+	@Override
 	public int getNextHeight() {
 		return idealHeight + heightChange;
 	}
@@ -483,6 +642,7 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 	 * 
 	 * @return Current x-offset + pending changes
 	 */
+	@Override
 	public int getNextXOffset() {
 		return idealXOffset + xChange;
 	}
@@ -492,6 +652,7 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 	 * 
 	 * @return Current y-offset + pending changes
 	 */
+	@Override
 	public int getNextYOffset() {
 		return idealYOffset + yChange;
 	}
@@ -527,6 +688,13 @@ public class MainFrame extends JFrame implements ValueChangeListener {
 		if (key == Parameter.BRACKET_TYPE) {
 			updateTitleBarText(title);
 		}
+		if (key == Parameter.TICK_RATE) {
+			setTickRate(((Number) newValue).intValue());
+		}
+		if (key == Parameter.INTERPOLATION) {
+			drawingPane.setInterpolating(((Number) newValue).intValue() != 0);
+			drawingPane.repaint();
+		}
 	}
 
 	@Override
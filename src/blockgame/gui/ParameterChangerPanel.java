@@ -38,8 +38,8 @@ public class ParameterChangerPanel extends NumberChangerPanel {
 
 	@Override
 	protected GetterSetter<Number> createGetterSetter(Enum<?> enumValue) {
-		if (enumValue == Parameter.GAME_SPEED) {
-			return new SliderSpinner(1, 100, 1, 60000, 5, false, "ms");
+		if (enumValue == Parameter.TICK_RATE) {
+			return new SliderSpinner(10, 240, 1, 1000, 1, false, "Hz");
 		}
 		if (enumValue == Parameter.GAME_SCALING) {
 			return new SliderSpinner(50, 200, 20, 500, 10, true, "%");
@@ -67,6 +67,9 @@ public class ParameterChangerPanel extends NumberChangerPanel {
 		if (enumValue == Parameter.RESIZING_AREA_WIDTH) {
 			return new SliderSpinner(10, 100, 0, 200, 5, false, "px");
 		}
+		if (enumValue == Parameter.MAX_CATCH_UP_FRAMES) {
+			return new SliderSpinner(0, 20, 0, 100, 1, false, "frames");
+		}
 		if (enumValue == Parameter.BRACKET_TYPE) {
 			DropDownGetterSetter bracketController = new DropDownGetterSetter();
 			for (BracketType bracket : BracketType.values()) {
@@ -78,13 +81,20 @@ public class ParameterChangerPanel extends NumberChangerPanel {
 			}
 			return bracketController;
 		}
+		if (enumValue == Parameter.INTERPOLATION) {
+			DropDownGetterSetter interpolationController =
+					new DropDownGetterSetter();
+			interpolationController.addItem("Off", 0);
+			interpolationController.addItem("On", 1);
+			return interpolationController;
+		}
 
 		return null;
 	}
 
 	@Override
 	protected String paramToName(Enum<?> enumValue) {
-		if (enumValue == Parameter.GAME_SPEED) {
+		if (enumValue == Parameter.TICK_RATE) {
 			return "Game Speed";
 		}
 		if (enumValue == Parameter.GAME_SCALING) {
@@ -105,6 +115,12 @@ public class ParameterChangerPanel extends NumberChangerPanel {
 		if (enumValue == Parameter.BRACKET_TYPE) {
 			return "Level Title Bracket Type";
 		}
+		if (enumValue == Parameter.MAX_CATCH_UP_FRAMES) {
+			return "Catch-up Frame Limit";
+		}
+		if (enumValue == Parameter.INTERPOLATION) {
+			return "Motion Smoothing";
+		}
 
 		return enumValue.toString();
 
@@ -112,8 +128,8 @@ public class ParameterChangerPanel extends NumberChangerPanel {
 
 	@Override
 	protected String paramToTooltip(Enum<?> enumValue) {
-		if (enumValue == Parameter.GAME_SPEED) {
-			return "Number of milliseconds between each frame\nLower is faster";
+		if (enumValue == Parameter.TICK_RATE) {
+			return "Number of frames processed each second\nHigher is faster";
 		}
 		if (enumValue == Parameter.GAME_SCALING) {
 			return "Multiplier for size of game objects";
@@ -133,6 +149,12 @@ public class ParameterChangerPanel extends NumberChangerPanel {
 		if (enumValue == Parameter.BRACKET_TYPE) {
 			return "Which bracket symbols to use in the level title";
 		}
+		if (enumValue == Parameter.MAX_CATCH_UP_FRAMES) {
+			return "Most frames to process without drawing when the game falls behind\n0 skips missed frames instead";
+		}
+		if (enumValue == Parameter.INTERPOLATION) {
+			return "Draw moving objects between frames at the screen's refresh rate\nAdds up to one frame of visual delay";
+		}
 
 		return null;
 	}
@@ -22,6 +22,23 @@ public class ParticleExplosion implements Drawable {
 		particles.forEach(p -> p.draw(g));
 	}
 
+	@Override
+	public ParticleExplosion snapshot() {
+		ParticleExplosion copy = new ParticleExplosion();
+		particles.forEach(p -> copy.particles.add(p.snapshot()));
+		return copy;
+	}
+
+	/**
+	 * Particles move every frame, so this only matches {@code snapshot} if
+	 * neither has any particles.
+	 */
+	@Override
+	public boolean matchesSnapshot(Drawable snapshot) {
+		return particles.isEmpty()
+				&& ((ParticleExplosion) snapshot).particles.isEmpty();
+	}
+
 	/**
 	 * Starts the explosion, centered at {@code (centerX, centerY)}. Each
 	 * particle receives a random velocity.
@@ -84,6 +101,21 @@ public class ParticleExplosion implements Drawable {
 			g.fillRect((int) x, (int) y, width, height);
 		}
 
+		@Override
+		public Particle snapshot() {
+			Particle copy = new Particle((int) x, (int) y, width);
+			copy.x = x;
+			copy.y = y;
+			return copy;
+		}
+
+		@Override
+		public boolean matchesSnapshot(Drawable snapshot) {
+			Particle other = (Particle) snapshot;
+			return other.x == x && other.y == y && other.width == width
+					&& other.height == height;
+		}
+
 		public void nextFrame() {
 			x += xVelocity;
 			y += yVelocity;
@@ -0,0 +1,154 @@
+package blockgame.gui;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+
+/**
+ * Everything needed to draw one frame: a copy of each {@code Drawable} in the
+ * order they should be drawn, and the size and offsets of the window for that
+ * frame.
+ * <p>
+ * Each {@code Drawable} also has how far it moved since the previous
+ * snapshot, so it can be drawn partway between the two with
+ * {@link #draw(Graphics2D, double)}.
+ * <p>
+ * These are filled by {@code DrawingPane} and passed between threads through
+ * a {@code TripleBuffer}. Once one has been published it does not change until
+ * the thread drawing it has moved on to a newer one, so it can be read without
+ * locking. The copies never change, so the same copy can be in more than one
+ * {@code RenderSnapshot}.
+ *
+ * @author Frank Kormann
+ */
+public class RenderSnapshot {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private Drawable[] drawables;
+	private int[] moveX, moveY;
+	private int drawableCount;
+	private int width, height, xOffset, yOffset;
+	private long publishNanos;
+
+	RenderSnapshot() {
+		drawables = new Drawable[INITIAL_CAPACITY];
+		moveX = new int[INITIAL_CAPACITY];
+		moveY = new int[INITIAL_CAPACITY];
+		drawableCount = 0;
+	}
+
+	/**
+	 * Empties this and sets the size and offsets of the window.
+	 */
+	void clear(int width, int height, int xOffset, int yOffset) {
+		Arrays.fill(drawables, 0, drawableCount, null);
+		drawableCount = 0;
+		this.width = width;
+		this.height = height;
+		this.xOffset = xOffset;
+		this.yOffset = yOffset;
+	}
+
+	/**
+	 * Adds {@code drawable} on top of everything already in this.
+	 * {@code drawable} should not change after it is added.
+	 * 
+	 * @param moveX distance moved right since the previous snapshot
+	 * @param moveY distance moved down since the previous snapshot
+	 */
+	void add(Drawable drawable, int moveX, int moveY) {
+		if (drawableCount == drawables.length) {
+			int newLength = drawables.length * 2;
+			drawables = Arrays.copyOf(drawables, newLength);
+			this.moveX = Arrays.copyOf(this.moveX, newLength);
+			this.moveY = Arrays.copyOf(this.moveY, newLength);
+		}
+		this.moveX[drawableCount] = moveX;
+		this.moveY[drawableCount] = moveY;
+		drawables[drawableCount++] = drawable;
+	}
+
+	/**
+	 * Sets when this was published, as given by {@code System.nanoTime()}.
+	 */
+	void setPublishNanos(long publishNanos) {
+		this.publishNanos = publishNanos;
+	}
+
+	/**
+	 * Draws every {@code Drawable} in this in order.
+	 *
+	 * @param g {@code Graphics} to draw with
+	 */
+	public void draw(Graphics g) {
+		for (int i = 0; i < drawableCount; i++) {
+			drawables[i].draw(g);
+		}
+	}
+
+	/**
+	 * Draws every {@code Drawable} in this in order, each moved back toward
+	 * where it was in the previous snapshot. At an {@code alpha} of {@code 0}
+	 * they are drawn where they were, and at {@code 1} where they are now.
+	 * 
+	 * @param g     {@code Graphics2D} to draw with
+	 * @param alpha how far to draw between the previous snapshot and this
+	 */
+	public void draw(Graphics2D g, double alpha) {
+		double behind = 1 - alpha;
+		AffineTransform transform = g.getTransform();
+		for (int i = 0; i < drawableCount; i++) {
+			if (behind == 0 || (moveX[i] == 0 && moveY[i] == 0)) {
+				drawables[i].draw(g);
+				continue;
+			}
+			g.translate(-moveX[i] * behind, -moveY[i] * behind);
+			drawables[i].draw(g);
+			g.setTransform(transform);
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the window size and offsets of this are
+	 * different from the given ones.
+	 *
+	 * @param width   window width to compare
+	 * @param height  window height to compare
+	 * @param xOffset window x-offset to compare
+	 * @param yOffset window y-offset to compare
+	 *
+	 * @return {@code true} if any of them are different
+	 */
+	public boolean boundsDiffer(int width, int height, int xOffset,
+			int yOffset) {
+		return this.width != width || this.height != height
+				|| this.xOffset != xOffset || this.yOffset != yOffset;
+	}
+
+	public int getDrawableCount() {
+		return drawableCount;
+	}
+
+	public long getPublishNanos() {
+		return publishNanos;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getXOffset() {
+		return xOffset;
+	}
+
+	public int getYOffset() {
+		return yOffset;
+	}
+
+}
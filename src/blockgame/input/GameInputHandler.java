@@ -70,7 +70,7 @@ public class GameInputHandler extends KeyAdapter
 	private boolean isNorthSelected;
 	private boolean isWestSelected;
 
-	private NumberReader reader;
+	private RecordingReader reader;
 	private NumberWriter writer;
 
 	/**
@@ -138,11 +138,7 @@ public class GameInputHandler extends KeyAdapter
 			}
 		}
 		else {
-			// Make sure values are read in the correct order
-			resizes.put(Direction.NORTH, reader.readInt());
-			resizes.put(Direction.SOUTH, reader.readInt());
-			resizes.put(Direction.WEST, reader.readInt());
-			resizes.put(Direction.EAST, reader.readInt());
+			resizes = reader.readResizes();
 		}
 		if (writer != null) {
 			// Make sure values are written in the correct order
@@ -286,7 +282,7 @@ public class GameInputHandler extends KeyAdapter
 	 */
 	public synchronized void beginReading(InputStream input) {
 		try {
-			reader = new NumberReader(input);
+			reader = new RecordingReader(input);
 		}
 		catch (IOException e) {
 			e.printStackTrace();
@@ -347,13 +343,7 @@ public class GameInputHandler extends KeyAdapter
 	 * Returns the {@code Input}s pressed on this frame in the input stream.
 	 */
 	private Set<MovementInput> readInputs() throws IOException {
-		Set<MovementInput> movementInputs = EnumSet.noneOf(MovementInput.class);
-
-		int numberOfInputs = reader.readByte();
-		for (int i = 0; i < numberOfInputs; i++) {
-			int inputOrdinal = reader.readByte();
-			movementInputs.add(MovementInput.values()[inputOrdinal]);
-		}
+		Set<MovementInput> movementInputs = reader.readInputs();
 
 		if (!reader.isOpen()) {
 			reader = null;
@@ -16,9 +16,9 @@ public class ParameterMapper extends Mapper<Number> {
 	 */
 	public enum Parameter {
 		/**
-		 * Number of milliseconds between each frame
+		 * Number of frames processed each second
 		 */
-		GAME_SPEED,
+		TICK_RATE,
 		/**
 		 * Multiplier for size of game area
 		 */
@@ -42,7 +42,16 @@ public class ParameterMapper extends Mapper<Number> {
 		/**
 		 * Which {@code BracketType} to use for bracket symbols
 		 */
-		BRACKET_TYPE
+		BRACKET_TYPE,
+		/**
+		 * Most frames to process without drawing when the game falls behind
+		 */
+		MAX_CATCH_UP_FRAMES,
+		/**
+		 * Whether to draw objects between where they were on the previous
+		 * frame and where they are now, {@code 0} for off and {@code 1} for on
+		 */
+		INTERPOLATION
 	}
 
 	public enum BracketType {
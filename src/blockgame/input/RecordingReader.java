@@ -0,0 +1,109 @@
+package blockgame.input;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import blockgame.gui.MainFrame.Direction;
+import blockgame.input.GameInputHandler.MovementInput;
+import blockgame.util.Pair;
+
+/**
+ * Reads frames of input from a recording written by
+ * {@code GameInputHandler}.
+ * <p>
+ * Each frame is stored as the resizes for {@code NORTH}, {@code SOUTH},
+ * {@code WEST}, and {@code EAST} in that order, then the number of
+ * {@code MovementInput}s followed by each of their ordinals.
+ * <p>
+ * When end-of-stream is detected, the stream is automatically closed.
+ * {@code isOpen} should be checked before any reads.
+ * 
+ * @see GameInputHandler
+ * 
+ * @author Frank Kormann
+ */
+public class RecordingReader {
+
+	private NumberReader reader;
+
+	/**
+	 * Creates a {@code RecordingReader} which reads from {@code stream}.
+	 * 
+	 * @param stream {@code InputStream} to read from
+	 * 
+	 * @throws IOException if an I/O error occurs
+	 */
+	public RecordingReader(InputStream stream) throws IOException {
+		reader = new NumberReader(stream);
+	}
+
+	public boolean isOpen() {
+		return reader.isOpen();
+	}
+
+	/**
+	 * Reads the next frame's resizes and {@code MovementInput}s, in the form
+	 * returned by {@link GameInputHandler#poll()}.
+	 * 
+	 * @return {@code Pair} of resizes in each {@code Direction} and
+	 *         {@code MovementInput}s
+	 * 
+	 * @throws IOException if an I/O error occurs
+	 */
+	public Pair<Map<Direction, Integer>, Set<MovementInput>> readFrame()
+			throws IOException {
+		return new Pair<>(readResizes(), readInputs());
+	}
+
+	/**
+	 * Reads the resizes for the next frame.
+	 * 
+	 * @return {@code Map} of {@code Direction} to {@code Integer} amount
+	 *         resized
+	 * 
+	 * @throws IOException if an I/O error occurs
+	 */
+	public Map<Direction, Integer> readResizes() throws IOException {
+		Map<Direction, Integer> resizes = new HashMap<>();
+		// Make sure values are read in the correct order
+		resizes.put(Direction.NORTH, reader.readInt());
+		resizes.put(Direction.SOUTH, reader.readInt());
+		resizes.put(Direction.WEST, reader.readInt());
+		resizes.put(Direction.EAST, reader.readInt());
+		return resizes;
+	}
+
+	/**
+	 * Reads the {@code MovementInput}s pressed on the next frame.
+	 * 
+	 * @return {@code Set} of {@code MovementInput}s
+	 * 
+	 * @throws IOException if an I/O error occurs
+	 */
+	public Set<MovementInput> readInputs() throws IOException {
+		Set<MovementInput> movementInputs = EnumSet.noneOf(MovementInput.class);
+
+		int numberOfInputs = reader.readByte();
+		for (int i = 0; i < numberOfInputs; i++) {
+			int inputOrdinal = reader.readByte();
+			movementInputs.add(MovementInput.values()[inputOrdinal]);
+		}
+
+		return movementInputs;
+	}
+
+	/**
+	 * Closes the {@code InputStream} this is based on. Subsequent calls to
+	 * {@code isOpen} will return {@code false}.
+	 * 
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
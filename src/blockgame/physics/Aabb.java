@@ -0,0 +1,291 @@
+package blockgame.physics;
+
+/**
+ * Overlap, penetration and swept-area math on axis-aligned boxes given as
+ * plain {@code int}s. {@code Rectangle}, {@code CollisionPropagator} and the
+ * broadphase structures all use these so the same test is never written out
+ * twice.
+ * <p>
+ * Boxes are given either as a position and a size on one axis, the way
+ * {@code Rectangle} stores them, or as inclusive minimum and maximum
+ * coordinates, the way the broadphase stores them. Sizes may be zero or
+ * negative. The overlap tests evaluate every comparison instead of stopping
+ * at the first one that decides the result, so they compile to straight-line
+ * code.
+ *
+ * @author Frank Kormann
+ */
+public final class Aabb {
+
+	/**
+	 * Returned by {@link #sweptImpact} when the boxes do not start
+	 * overlapping during the movement.
+	 */
+	public static final int NO_IMPACT = 0;
+	/**
+	 * Bit set in the result of {@link #sweptImpact} when the boxes start
+	 * overlapping by moving together in the x direction.
+	 */
+	public static final int IMPACT_X = 1;
+	/**
+	 * Bit set in the result of {@link #sweptImpact} when the boxes start
+	 * overlapping by moving together in the y direction.
+	 */
+	public static final int IMPACT_Y = 2;
+
+	private Aabb() {}
+
+	/**
+	 * Returns {@code true} if the span from {@code x} to {@code x + width}
+	 * overlaps the span from {@code otherX} to {@code otherX + otherWidth}.
+	 * This is the test used by {@link Rectangle#intersectsX(Rectangle)}, with
+	 * {@code x} and {@code width} belonging to the receiver.
+	 * <p>
+	 * Spans which only touch do not overlap. Because spans of zero or
+	 * negative size are allowed, this is not always symmetric.
+	 *
+	 * @param x          start of this span
+	 * @param width      size of this span
+	 * @param otherX     start of the other span
+	 * @param otherWidth size of the other span
+	 *
+	 * @return {@code true} if they overlap
+	 */
+	public static boolean overlapsX(int x, int width, int otherX,
+			int otherWidth) {
+		int end = x + width;
+		int otherEnd = otherX + otherWidth;
+		return (x <= otherX & otherX < end)
+				| (x < otherEnd & otherEnd <= end)
+				| (otherX < x & x < otherEnd);
+	}
+
+	/**
+	 * Returns {@code true} if the span from {@code y} to {@code y + height}
+	 * overlaps the span from {@code otherY} to {@code otherY + otherHeight}.
+	 * This is the test used by {@link Rectangle#intersectsY(Rectangle)}.
+	 * <p>
+	 * Same as {@link #overlapsX(int, int, int, int)}, except that a span which
+	 * starts at the same place as this one overlaps it if either has a
+	 * positive size.
+	 *
+	 * @param y           start of this span
+	 * @param height      size of this span
+	 * @param otherY      start of the other span
+	 * @param otherHeight size of the other span
+	 *
+	 * @return {@code true} if they overlap
+	 */
+	public static boolean overlapsY(int y, int height, int otherY,
+			int otherHeight) {
+		int end = y + height;
+		int otherEnd = otherY + otherHeight;
+		return (y <= otherY & otherY < end)
+				| (y < otherEnd & otherEnd <= end)
+				| (otherY <= y & y < otherEnd);
+	}
+
+	/**
+	 * Returns {@code true} if the box from {@code (minX, minY)} to
+	 * {@code (maxX, maxY)} overlaps or touches the box from
+	 * {@code (otherMinX, otherMinY)} to {@code (otherMaxX, otherMaxY)}. All
+	 * bounds are inclusive.
+	 *
+	 * @param minX      left edge of this box
+	 * @param minY      top edge of this box
+	 * @param maxX      right edge of this box
+	 * @param maxY      bottom edge of this box
+	 * @param otherMinX left edge of the other box
+	 * @param otherMinY top edge of the other box
+	 * @param otherMaxX right edge of the other box
+	 * @param otherMaxY bottom edge of the other box
+	 *
+	 * @return {@code true} if they overlap or touch
+	 */
+	public static boolean touches(int minX, int minY, int maxX, int maxY,
+			int otherMinX, int otherMinY, int otherMaxX, int otherMaxY) {
+		return (otherMinX <= maxX) & (minX <= otherMaxX) & (otherMinY <= maxY)
+				& (minY <= otherMaxY);
+	}
+
+	/**
+	 * Returns the lower end of the span from {@code position} to
+	 * {@code position + size}.
+	 *
+	 * @param position start of the span
+	 * @param size     size of the span, which may be negative
+	 *
+	 * @return lowest coordinate in the span
+	 */
+	public static int min(int position, int size) {
+		return Math.min(position, position + size);
+	}
+
+	/**
+	 * Returns the upper end of the span from {@code position} to
+	 * {@code position + size}.
+	 *
+	 * @param position start of the span
+	 * @param size     size of the span, which may be negative
+	 *
+	 * @return highest coordinate in the span
+	 */
+	public static int max(int position, int size) {
+		return Math.max(position, position + size);
+	}
+
+	/**
+	 * Returns the lower end of the swept span of something which moved from
+	 * {@code lastPosition} with size {@code lastSize} to {@code position} with
+	 * size {@code size}. The swept span covers both.
+	 *
+	 * @param position     current start
+	 * @param size         current size
+	 * @param lastPosition start on the previous frame
+	 * @param lastSize     size on the previous frame
+	 *
+	 * @return lowest coordinate in the swept span
+	 */
+	public static int sweptMin(int position, int size, int lastPosition,
+			int lastSize) {
+		return Math.min(min(position, size), min(lastPosition, lastSize));
+	}
+
+	/**
+	 * Returns the upper end of the swept span. See
+	 * {@link #sweptMin(int, int, int, int)}.
+	 *
+	 * @param position     current start
+	 * @param size         current size
+	 * @param lastPosition start on the previous frame
+	 * @param lastSize     size on the previous frame
+	 *
+	 * @return highest coordinate in the swept span
+	 */
+	public static int sweptMax(int position, int size, int lastPosition,
+			int lastSize) {
+		return Math.max(max(position, size), max(lastPosition, lastSize));
+	}
+
+	/**
+	 * Returns how far a span starting at {@code otherPosition} with size
+	 * {@code otherSize} has to move to end where a span starting at
+	 * {@code position} starts. Negative when it has to move backward.
+	 *
+	 * @param position      start of the span to move next to
+	 * @param otherPosition start of the span to move
+	 * @param otherSize     size of the span to move
+	 *
+	 * @return amount to move the other span
+	 */
+	public static int penetrationBefore(int position, int otherPosition,
+			int otherSize) {
+		return position - otherPosition - otherSize;
+	}
+
+	/**
+	 * Returns how far a span starting at {@code otherPosition} has to move to
+	 * start where the span from {@code position} with size {@code size} ends.
+	 *
+	 * @param position      start of the span to move next to
+	 * @param size          size of the span to move next to
+	 * @param otherPosition start of the span to move
+	 *
+	 * @return amount to move the other span
+	 */
+	public static int penetrationAfter(int position, int size,
+			int otherPosition) {
+		return position + size - otherPosition;
+	}
+
+	/**
+	 * Finds whether a box moving in a straight line by {@code (dx, dy)} starts
+	 * overlapping a still box at any point along the way, and which direction
+	 * it hits it from. This is the exact time of impact, so it does not
+	 * matter how far the box moves.
+	 * <p>
+	 * Boxes which only touch do not overlap, so a box which ends the movement
+	 * touching the still box has not hit it. A box which starts out
+	 * overlapping the still box has not hit it either. Boxes of zero or
+	 * negative size never hit anything.
+	 * <p>
+	 * If the box hits a corner exactly, both {@link #IMPACT_X} and
+	 * {@link #IMPACT_Y} are set.
+	 *
+	 * @param x           left edge of the still box
+	 * @param y           top edge of the still box
+	 * @param width       width of the still box
+	 * @param height      height of the still box
+	 * @param otherX      left edge of the moving box before it moves
+	 * @param otherY      top edge of the moving box before it moves
+	 * @param otherWidth  width of the moving box
+	 * @param otherHeight height of the moving box
+	 * @param dx          movement in the x direction
+	 * @param dy          movement in the y direction
+	 *
+	 * @return {@link #NO_IMPACT}, or some combination of {@link #IMPACT_X}
+	 *         and {@link #IMPACT_Y}
+	 */
+	public static int sweptImpact(int x, int y, int width, int height,
+			int otherX, int otherY, int otherWidth, int otherHeight, int dx,
+			int dy) {
+		if (width <= 0 || height <= 0 || otherWidth <= 0 || otherHeight <= 0
+				|| (dx == 0 && dy == 0)) {
+			return NO_IMPACT;
+		}
+		// Position of the moving box relative to the still one. They overlap
+		// in x while -otherWidth < relativeX < width, and likewise in y
+		long relativeX = (long) otherX - x;
+		long relativeY = (long) otherY - y;
+		if ((dx == 0 && (relativeX <= -otherWidth || relativeX >= width))
+				|| (dy == 0
+						&& (relativeY <= -otherHeight || relativeY >= height))) {
+			return NO_IMPACT;
+		}
+
+		// Times are fractions of the movement, stored as numerator over a
+		// positive denominator
+		long enterX = dx > 0 ? -otherWidth - relativeX : relativeX - width;
+		long exitX = dx > 0 ? width - relativeX : relativeX + otherWidth;
+		long durationX = Math.abs((long) dx);
+		long enterY = dy > 0 ? -otherHeight - relativeY : relativeY - height;
+		long exitY = dy > 0 ? height - relativeY : relativeY + otherHeight;
+		long durationY = Math.abs((long) dy);
+
+		int axis;
+		long enter, enterDuration, exit, exitDuration;
+		if (dx == 0) {
+			axis = IMPACT_Y;
+			enter = enterY;
+			enterDuration = durationY;
+			exit = exitY;
+			exitDuration = durationY;
+		}
+		else if (dy == 0) {
+			axis = IMPACT_X;
+			enter = enterX;
+			enterDuration = durationX;
+			exit = exitX;
+			exitDuration = durationX;
+		}
+		else {
+			// They overlap once they overlap on both axes, so the later
+			// entry is the one that counts
+			long compare = enterX * durationY - enterY * durationX;
+			axis = compare > 0 ? IMPACT_X
+					: compare < 0 ? IMPACT_Y : IMPACT_X | IMPACT_Y;
+			enter = compare >= 0 ? enterX : enterY;
+			enterDuration = compare >= 0 ? durationX : durationY;
+			boolean exitsX = exitX * durationY <= exitY * durationX;
+			exit = exitsX ? exitX : exitY;
+			exitDuration = exitsX ? durationX : durationY;
+		}
+
+		if (enter < 0 || enter >= enterDuration
+				|| enter * exitDuration >= exit * enterDuration) {
+			return NO_IMPACT;
+		}
+		return axis;
+	}
+
+}
@@ -1,7 +1,7 @@
 package blockgame.physics;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -14,7 +14,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  */
 public class AntigravityArea extends Area {
 
-	private static Map<MovingRectangle, Integer> areaCounter = new HashMap<>();
+	// Shared by every level, so it must be safe to use from several threads
+	private static Map<MovingRectangle, Integer> areaCounter =
+			new ConcurrentHashMap<>();
 
 	@JsonCreator
 	public AntigravityArea(@JsonProperty("x") int x, @JsonProperty("y") int y,
@@ -3,7 +3,9 @@ package blockgame.physics;
 import java.awt.Graphics;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
+import blockgame.gui.Drawable;
 import blockgame.util.DrawUtils;
 
 /**
@@ -26,11 +28,16 @@ public abstract class Area extends Rectangle {
 
 	private Set<MovingRectangle> rectsInside;
 	private boolean isActive;
+	// AreaIndex this is in, if any, and its id there
+	private AreaIndex index;
+	private int indexId;
 
 	public Area(int x, int y, int width, int height, Colors colorEnum) {
 		super(x, y, width, height, colorEnum, ResizeBehavior.STAY);
 		rectsInside = new HashSet<>();
 		isActive = true;
+		index = null;
+		indexId = -1;
 	}
 
 	@Override
@@ -53,6 +60,25 @@ public abstract class Area extends Rectangle {
 		g.dispose();
 	}
 
+	/**
+	 * Returns a copy of this which has no {@code MovingRectangle}s inside it
+	 * and is not in an {@code AreaIndex}, so changing it does not change this.
+	 */
+	@Override
+	public Area snapshot() {
+		Area copy = (Area) super.snapshot();
+		copy.rectsInside = Set.of();
+		copy.index = null;
+		copy.indexId = -1;
+		return copy;
+	}
+
+	@Override
+	public boolean matchesSnapshot(Drawable snapshot) {
+		return super.matchesSnapshot(snapshot)
+				&& ((Area) snapshot).isActive == isActive;
+	}
+
 	/**
 	 * Called when {@code rect} enters this.
 	 * 
@@ -79,7 +105,8 @@ public abstract class Area extends Rectangle {
 	 * this {@code Area}. Calls {@code onEnter} or {@code onExit} if necessary.
 	 * <p>
 	 * This method should be called on every frame for every
-	 * {@code MovingRectangle}.
+	 * {@code MovingRectangle} which overlaps this or was inside it. For any
+	 * other {@code MovingRectangle}, it does nothing.
 	 * 
 	 * @param rect {@code MovingRectangle} to handle
 	 */
@@ -89,18 +116,54 @@ public abstract class Area extends Rectangle {
 
 		if (alreadyInside && !intersects) {
 			rectsInside.remove(rect);
+			if (index != null) {
+				index.exited(indexId, rect);
+			}
 			onExit(rect);
 		}
 		else if (!alreadyInside && intersects) {
 			rectsInside.add(rect);
+			if (index != null) {
+				index.entered(indexId, rect);
+			}
 			onEnter(rect);
 		}
 
-		if (rectsInside.contains(rect)) {
+		// rect is inside now exactly when it intersects
+		if (intersects) {
 			everyFrame(rect);
 		}
 	}
 
+	@Override
+	protected void boundsChanged() {
+		super.boundsChanged();
+		if (index != null) {
+			index.moved(indexId);
+		}
+	}
+
+	/**
+	 * Records that this is in {@code index} under {@code id}.
+	 * 
+	 * @param index {@code AreaIndex} this was added to
+	 * @param id    id of this in {@code index}
+	 */
+	void setIndex(AreaIndex index, int id) {
+		this.index = index;
+		indexId = id;
+	}
+
+	/**
+	 * Returns the {@code AreaIndex} this is in, or {@code null} if it is not
+	 * in one.
+	 * 
+	 * @return {@code AreaIndex} of this
+	 */
+	AreaIndex getIndex() {
+		return index;
+	}
+
 	/**
 	 * Sets whether this is "active". See {@link #setActive(boolean)} for a
 	 * description of what activity means.
@@ -122,4 +185,14 @@ public abstract class Area extends Rectangle {
 		isActive = active;
 	}
 
+	/**
+	 * Performs {@code action} on every {@code MovingRectangle} which was
+	 * inside this the last time it was handled.
+	 * 
+	 * @param action what to do with each {@code MovingRectangle}
+	 */
+	void forEachInside(Consumer<MovingRectangle> action) {
+		rectsInside.forEach(action);
+	}
+
 }
@@ -0,0 +1,316 @@
+package blockgame.physics;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid which indexes {@code Area}s by their bounds, and keeps track of
+ * which {@code Area}s each {@code MovingRectangle} is inside. Used so that
+ * each {@code MovingRectangle} is only handled by the {@code Area}s which
+ * could affect it, instead of by every {@code Area}.
+ * <p>
+ * Each {@code Area} has an id, which is the number of {@code Area}s added
+ * before it. Queries return ids in ascending order, so handling the
+ * {@code Area}s found gives the same result as handling every {@code Area} in
+ * the order they were added.
+ * <p>
+ * {@code Area}s tell this when they move or when a {@code MovingRectangle}
+ * enters or exits them, so nothing needs to be updated by hand. An
+ * {@code Area} can only be in one {@code AreaIndex} at a time, once.
+ * <p>
+ * {@code MovingRectangle}s are identified by their index in a
+ * {@code SpatialGrid}. Ones which are not in it are not tracked.
+ *
+ * @author Frank Kormann
+ */
+class AreaIndex {
+
+	private static final int DEFAULT_CELL_SIZE = 64;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int cellSize;
+	private SpatialGrid grid;
+
+	private Area[] areas;
+	private int areaCount;
+	// Bounds of each Area when it was last filed, for BoxBatch
+	private int[] minX, minY, maxX, maxY;
+	// Range of cells each Area is currently filed under
+	private int[] minCellX, minCellY, maxCellX, maxCellY;
+	// Ids found in a cell by BoxBatch
+	private int[] cellHits;
+	// Last query each Area was found in, so it is not found twice
+	private int[] queryStamps;
+	private int queryCount;
+	private CellTable cells;
+
+	// Ids of Areas which have moved since they were filed
+	private boolean[] isMoved;
+	private int[] moved;
+	private int movedCount;
+
+	// Ids of the Areas each MovingRectangle is inside, by index in grid
+	private int[][] inside;
+	private int[] insideCount;
+
+	private int modCount;
+
+	/**
+	 * Creates an empty {@code AreaIndex} for the {@code MovingRectangle}s in
+	 * {@code grid}.
+	 *
+	 * @param grid {@code SpatialGrid} of {@code MovingRectangle}s which will
+	 *             be handled by the {@code Area}s in this
+	 */
+	AreaIndex(SpatialGrid grid) {
+		cellSize = DEFAULT_CELL_SIZE;
+		this.grid = grid;
+
+		areas = new Area[INITIAL_CAPACITY];
+		areaCount = 0;
+		minX = new int[INITIAL_CAPACITY];
+		minY = new int[INITIAL_CAPACITY];
+		maxX = new int[INITIAL_CAPACITY];
+		maxY = new int[INITIAL_CAPACITY];
+		minCellX = new int[INITIAL_CAPACITY];
+		minCellY = new int[INITIAL_CAPACITY];
+		maxCellX = new int[INITIAL_CAPACITY];
+		maxCellY = new int[INITIAL_CAPACITY];
+		cellHits = new int[INITIAL_CAPACITY];
+		queryStamps = new int[INITIAL_CAPACITY];
+		queryCount = 0;
+		cells = new CellTable();
+
+		isMoved = new boolean[INITIAL_CAPACITY];
+		moved = new int[INITIAL_CAPACITY];
+		movedCount = 0;
+
+		inside = new int[0][];
+		insideCount = new int[0];
+
+		modCount = 0;
+	}
+
+	/**
+	 * Adds {@code area} to this with the next id.
+	 *
+	 * @param area {@code Area} to add
+	 *
+	 * @return id of {@code area}
+	 */
+	int add(Area area) {
+		if (areaCount == areas.length) {
+			int newLength = areas.length * 2;
+			areas = Arrays.copyOf(areas, newLength);
+			minX = Arrays.copyOf(minX, newLength);
+			minY = Arrays.copyOf(minY, newLength);
+			maxX = Arrays.copyOf(maxX, newLength);
+			maxY = Arrays.copyOf(maxY, newLength);
+			cellHits = new int[newLength];
+			minCellX = Arrays.copyOf(minCellX, newLength);
+			minCellY = Arrays.copyOf(minCellY, newLength);
+			maxCellX = Arrays.copyOf(maxCellX, newLength);
+			maxCellY = Arrays.copyOf(maxCellY, newLength);
+			queryStamps = Arrays.copyOf(queryStamps, newLength);
+			isMoved = Arrays.copyOf(isMoved, newLength);
+			moved = Arrays.copyOf(moved, newLength);
+		}
+
+		int id = areaCount++;
+		areas[id] = area;
+		area.setIndex(this, id);
+		fileUnder(id);
+		modCount++;
+		return id;
+	}
+
+	/**
+	 * Returns the number of {@code Area}s in this. Every id is less than this.
+	 *
+	 * @return number of {@code Area}s
+	 */
+	int size() {
+		return areaCount;
+	}
+
+	/**
+	 * Returns the {@code Area} with id {@code id}.
+	 *
+	 * @param id id of the {@code Area}
+	 *
+	 * @return {@code Area} with that id
+	 */
+	Area get(int id) {
+		return areas[id];
+	}
+
+	/**
+	 * Returns a number which changes every time an {@code Area} in this is
+	 * added or moves. If this has not changed since a query, the result of
+	 * that query is still accurate as long as the {@code MovingRectangle} it
+	 * was for has not moved.
+	 *
+	 * @return modification count
+	 */
+	int getModCount() {
+		return modCount;
+	}
+
+	/**
+	 * Called by an {@code Area} in this when it moves or changes size.
+	 *
+	 * @param id id of the {@code Area}
+	 */
+	void moved(int id) {
+		modCount++;
+		if (!isMoved[id]) {
+			isMoved[id] = true;
+			moved[movedCount++] = id;
+		}
+	}
+
+	/**
+	 * Called by an {@code Area} in this when {@code rect} enters it.
+	 *
+	 * @param id   id of the {@code Area}
+	 * @param rect {@code MovingRectangle} which entered
+	 */
+	void entered(int id, MovingRectangle rect) {
+		int index = grid.indexOf(rect);
+		if (index < 0) {
+			return;
+		}
+		if (inside.length <= index) {
+			int newLength = Math.max(index + 1, inside.length * 2);
+			inside = Arrays.copyOf(inside, newLength);
+			insideCount = Arrays.copyOf(insideCount, newLength);
+		}
+		if (inside[index] == null) {
+			inside[index] = new int[4];
+		}
+		if (insideCount[index] == inside[index].length) {
+			inside[index] = Arrays.copyOf(inside[index],
+					insideCount[index] * 2);
+		}
+		inside[index][insideCount[index]++] = id;
+	}
+
+	/**
+	 * Called by an {@code Area} in this when {@code rect} exits it.
+	 *
+	 * @param id   id of the {@code Area}
+	 * @param rect {@code MovingRectangle} which exited
+	 */
+	void exited(int id, MovingRectangle rect) {
+		int index = grid.indexOf(rect);
+		if (index < 0 || index >= inside.length) {
+			return;
+		}
+		int[] ids = inside[index];
+		for (int i = 0; i < insideCount[index]; i++) {
+			if (ids[i] == id) {
+				ids[i] = ids[--insideCount[index]];
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Finds every {@code Area} with an id greater than {@code afterId} which
+	 * overlaps the current bounds of {@code rect} or which {@code rect} is
+	 * inside. Handling any other {@code Area} would do nothing.
+	 * <p>
+	 * The ids found are written into {@code result} in ascending order.
+	 * {@code result} must have room for {@link #size()} ids.
+	 *
+	 * @param rect    {@code MovingRectangle} to find {@code Area}s for
+	 * @param afterId only {@code Area}s with a greater id are found
+	 * @param result  array to write ids into
+	 *
+	 * @return number of ids written
+	 */
+	int query(MovingRectangle rect, int afterId, int[] result) {
+		refileMoved();
+		int count = 0;
+		queryCount++;
+
+		int rectMinX = Aabb.min(rect.getX(), rect.getWidth());
+		int rectMaxX = Aabb.max(rect.getX(), rect.getWidth());
+		int rectMinY = Aabb.min(rect.getY(), rect.getHeight());
+		int rectMaxY = Aabb.max(rect.getY(), rect.getHeight());
+
+		int fromCellX = Math.max(cellOf(rectMinX), cells.getMinCellX());
+		int fromCellY = Math.max(cellOf(rectMinY), cells.getMinCellY());
+		int toCellX = Math.min(cellOf(rectMaxX), cells.getMaxCellX());
+		int toCellY = Math.min(cellOf(rectMaxY), cells.getMaxCellY());
+
+		for (int cx = fromCellX; cx <= toCellX; cx++) {
+			for (int cy = fromCellY; cy <= toCellY; cy++) {
+				int slot = cells.find(cx, cy);
+				if (slot == -1) {
+					continue;
+				}
+				int found = BoxBatch.touchingAt(rectMinX, rectMinY, rectMaxX,
+						rectMaxY, minX, minY, maxX, maxY, cells.contents(slot),
+						cells.size(slot), cellHits, 0);
+				for (int i = 0; i < found; i++) {
+					int id = cellHits[i];
+					if (id > afterId && queryStamps[id] != queryCount) {
+						queryStamps[id] = queryCount;
+						result[count++] = id;
+					}
+				}
+			}
+		}
+
+		int index = grid.indexOf(rect);
+		if (index >= 0 && index < inside.length) {
+			for (int i = 0; i < insideCount[index]; i++) {
+				int id = inside[index][i];
+				if (id > afterId && queryStamps[id] != queryCount) {
+					queryStamps[id] = queryCount;
+					result[count++] = id;
+				}
+			}
+		}
+
+		Arrays.sort(result, 0, count);
+		return count;
+	}
+
+	/**
+	 * Re-files every {@code Area} which has moved since it was last filed.
+	 */
+	private void refileMoved() {
+		for (int i = 0; i < movedCount; i++) {
+			int id = moved[i];
+			isMoved[id] = false;
+			cells.file(minCellX[id], minCellY[id], maxCellX[id], maxCellY[id],
+					id, false);
+			fileUnder(id);
+		}
+		movedCount = 0;
+	}
+
+	/**
+	 * Files the {@code Area} with id {@code id} under every cell its bounds
+	 * touch.
+	 */
+	private void fileUnder(int id) {
+		Area area = areas[id];
+		minX[id] = Aabb.min(area.getX(), area.getWidth());
+		minY[id] = Aabb.min(area.getY(), area.getHeight());
+		maxX[id] = Aabb.max(area.getX(), area.getWidth());
+		maxY[id] = Aabb.max(area.getY(), area.getHeight());
+		minCellX[id] = cellOf(minX[id]);
+		minCellY[id] = cellOf(minY[id]);
+		maxCellX[id] = cellOf(maxX[id]);
+		maxCellY[id] = cellOf(maxY[id]);
+		cells.file(minCellX[id], minCellY[id], maxCellX[id], maxCellY[id], id,
+				true);
+	}
+
+	private int cellOf(int coordinate) {
+		return Math.floorDiv(coordinate, cellSize);
+	}
+
+}
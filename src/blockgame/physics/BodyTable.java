@@ -0,0 +1,268 @@
+package blockgame.physics;
+
+import java.util.Arrays;
+
+/**
+ * Copy of the state of every {@code MovingRectangle} in a {@code SpatialGrid},
+ * stored as parallel arrays of primitives indexed by grid index.
+ * <p>
+ * Code which looks at many {@code MovingRectangle}s at once, such as
+ * {@code SpatialGrid} queries and the overlap tests in
+ * {@code CollisionPropagator}, reads from this instead of following a
+ * reference and calling getters on each {@code MovingRectangle}. The values
+ * for different {@code MovingRectangle}s sit next to each other in memory, so
+ * this stays fast with thousands of them.
+ * <p>
+ * The {@code MovingRectangle}s are still what everything else uses.
+ * {@code MovingRectangle} writes every change to its position, size, previous
+ * position and size, velocity, and flags through to this, so it is never out
+ * of date.
+ *
+ * @author Frank Kormann
+ */
+class BodyTable {
+
+	/**
+	 * Flag which is set if the {@code MovingRectangle} is controlled by the
+	 * player.
+	 */
+	static final int CONTROLLED_BY_PLAYER = 1;
+	/**
+	 * Flag which is set if the {@code MovingRectangle} has moved or changed
+	 * size since its attached {@code Area}s were last updated.
+	 */
+	static final int ATTACHMENTS_DIRTY = 1 << 1;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] x, y, width, height;
+	private int[] lastX, lastY, lastWidth, lastHeight;
+	private int[] xVelocity, yVelocity;
+	private int[] flags;
+	private int size;
+	// Indices with ATTACHMENTS_DIRTY set, in the order they were marked
+	private int[] dirty;
+	private int dirtyCount;
+
+	/**
+	 * Creates an empty {@code BodyTable}.
+	 */
+	BodyTable() {
+		x = new int[INITIAL_CAPACITY];
+		y = new int[INITIAL_CAPACITY];
+		width = new int[INITIAL_CAPACITY];
+		height = new int[INITIAL_CAPACITY];
+		lastX = new int[INITIAL_CAPACITY];
+		lastY = new int[INITIAL_CAPACITY];
+		lastWidth = new int[INITIAL_CAPACITY];
+		lastHeight = new int[INITIAL_CAPACITY];
+		xVelocity = new int[INITIAL_CAPACITY];
+		yVelocity = new int[INITIAL_CAPACITY];
+		flags = new int[INITIAL_CAPACITY];
+		size = 0;
+		dirty = new int[INITIAL_CAPACITY];
+		dirtyCount = 0;
+	}
+
+	/**
+	 * Adds a row for {@code rect}, filled in with its current state, and
+	 * returns its index. {@code rect} should write its changes to that row
+	 * from then on.
+	 *
+	 * @param rect {@code MovingRectangle} to add
+	 *
+	 * @return index of the new row
+	 */
+	int add(MovingRectangle rect) {
+		if (size == x.length) {
+			int newLength = size * 2;
+			x = Arrays.copyOf(x, newLength);
+			y = Arrays.copyOf(y, newLength);
+			width = Arrays.copyOf(width, newLength);
+			height = Arrays.copyOf(height, newLength);
+			lastX = Arrays.copyOf(lastX, newLength);
+			lastY = Arrays.copyOf(lastY, newLength);
+			lastWidth = Arrays.copyOf(lastWidth, newLength);
+			lastHeight = Arrays.copyOf(lastHeight, newLength);
+			xVelocity = Arrays.copyOf(xVelocity, newLength);
+			yVelocity = Arrays.copyOf(yVelocity, newLength);
+			flags = Arrays.copyOf(flags, newLength);
+			dirty = Arrays.copyOf(dirty, newLength);
+		}
+
+		int index = size++;
+		x[index] = rect.getX();
+		y[index] = rect.getY();
+		width[index] = rect.getWidth();
+		height[index] = rect.getHeight();
+		setLastBounds(index, rect.getLastX(), rect.getLastY(),
+				rect.getLastWidth(), rect.getLastHeight());
+		setVelocity(index, rect.getXVelocity(), rect.getYVelocity());
+		setFlag(index, CONTROLLED_BY_PLAYER, rect.isControlledByPlayer());
+		return index;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @return number of rows
+	 */
+	int size() {
+		return size;
+	}
+
+	void setX(int index, int value) {
+		x[index] = value;
+	}
+
+	void setY(int index, int value) {
+		y[index] = value;
+	}
+
+	void setWidth(int index, int value) {
+		width[index] = value;
+	}
+
+	void setHeight(int index, int value) {
+		height[index] = value;
+	}
+
+	void setLastBounds(int index, int lastXValue, int lastYValue,
+			int lastWidthValue, int lastHeightValue) {
+		lastX[index] = lastXValue;
+		lastY[index] = lastYValue;
+		lastWidth[index] = lastWidthValue;
+		lastHeight[index] = lastHeightValue;
+	}
+
+	void setVelocity(int index, int xVelocityValue, int yVelocityValue) {
+		xVelocity[index] = xVelocityValue;
+		yVelocity[index] = yVelocityValue;
+	}
+
+	void setFlag(int index, int flag, boolean value) {
+		if (value) {
+			flags[index] |= flag;
+		}
+		else {
+			flags[index] &= ~flag;
+		}
+	}
+
+	int getX(int index) {
+		return x[index];
+	}
+
+	int getY(int index) {
+		return y[index];
+	}
+
+	int getWidth(int index) {
+		return width[index];
+	}
+
+	int getHeight(int index) {
+		return height[index];
+	}
+
+	int getLastX(int index) {
+		return lastX[index];
+	}
+
+	int getLastY(int index) {
+		return lastY[index];
+	}
+
+	int getLastWidth(int index) {
+		return lastWidth[index];
+	}
+
+	int getLastHeight(int index) {
+		return lastHeight[index];
+	}
+
+	int getXVelocity(int index) {
+		return xVelocity[index];
+	}
+
+	int getYVelocity(int index) {
+		return yVelocity[index];
+	}
+
+	boolean hasFlag(int index, int flag) {
+		return (flags[index] & flag) != 0;
+	}
+
+	/**
+	 * Sets {@link #ATTACHMENTS_DIRTY} at {@code index} and remembers
+	 * {@code index} for {@link #takeDirty()}. Does nothing if it is already
+	 * set.
+	 *
+	 * @param index row whose attachments are out of date
+	 */
+	void markAttachmentsDirty(int index) {
+		if ((flags[index] & ATTACHMENTS_DIRTY) != 0) {
+			return;
+		}
+		flags[index] |= ATTACHMENTS_DIRTY;
+		dirty[dirtyCount++] = index;
+	}
+
+	/**
+	 * Returns the number of rows with {@link #ATTACHMENTS_DIRTY} set.
+	 *
+	 * @return number of dirty rows
+	 */
+	int dirtyCount() {
+		return dirtyCount;
+	}
+
+	/**
+	 * Clears {@link #ATTACHMENTS_DIRTY} on one row which has it set and returns
+	 * that row. {@link #dirtyCount()} must be greater than 0.
+	 *
+	 * @return index of a row which was dirty
+	 */
+	int takeDirty() {
+		int index = dirty[--dirtyCount];
+		flags[index] &= ~ATTACHMENTS_DIRTY;
+		return index;
+	}
+
+	/**
+	 * Returns {@code true} if the position and size at {@code index} are the
+	 * same as on the previous frame.
+	 *
+	 * @param index row to test
+	 *
+	 * @return {@code true} if it has not moved or changed size
+	 */
+	boolean isStill(int index) {
+		return x[index] == lastX[index] && y[index] == lastY[index]
+				&& width[index] == lastWidth[index]
+				&& height[index] == lastHeight[index];
+	}
+
+	// These match the swept area helpers in SpatialGrid
+
+	int sweptMinX(int index) {
+		return Aabb.sweptMin(x[index], width[index], lastX[index],
+				lastWidth[index]);
+	}
+
+	int sweptMaxX(int index) {
+		return Aabb.sweptMax(x[index], width[index], lastX[index],
+				lastWidth[index]);
+	}
+
+	int sweptMinY(int index) {
+		return Aabb.sweptMin(y[index], height[index], lastY[index],
+				lastHeight[index]);
+	}
+
+	int sweptMaxY(int index) {
+		return Aabb.sweptMax(y[index], height[index], lastY[index],
+				lastHeight[index]);
+	}
+
+}
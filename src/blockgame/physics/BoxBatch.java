@@ -0,0 +1,153 @@
+package blockgame.physics;
+
+/**
+ * Tests one box against many boxes stored as parallel arrays of bounds.
+ * <p>
+ * If the game was built with the {@code vector} Maven profile and the
+ * {@code jdk.incubator.vector} module is enabled, with
+ * {@code --add-modules jdk.incubator.vector}, several boxes are tested at once
+ * with SIMD instructions. Otherwise, or if the system property
+ * {@code blockgame.scalarBoxBatch} is {@code true}, they are tested one at a
+ * time. Both give exactly the same results.
+ * <p>
+ * All bounds are inclusive, as in
+ * {@link Aabb#touches(int, int, int, int, int, int, int, int)}.
+ *
+ * @author Frank Kormann
+ */
+public final class BoxBatch {
+
+	private static final String VECTOR_CLASS = "blockgame.physics.VectorBoxBatch";
+
+	// null if the SIMD version is not available
+	private static final BoxTester VECTOR = loadVector();
+
+	private BoxBatch() {}
+
+	/**
+	 * Finds every position from {@code from} inclusive to {@code to} exclusive
+	 * whose box touches the box from {@code (minX, minY)} to
+	 * {@code (maxX, maxY)}, and writes them into {@code result} starting at
+	 * {@code offset}, in ascending order.
+	 *
+	 * @param minX    left edge of the box
+	 * @param minY    top edge of the box
+	 * @param maxX    right edge of the box
+	 * @param maxY    bottom edge of the box
+	 * @param boxMinX left edges of the boxes to test
+	 * @param boxMinY top edges of the boxes to test
+	 * @param boxMaxX right edges of the boxes to test
+	 * @param boxMaxY bottom edges of the boxes to test
+	 * @param from    first position to test
+	 * @param to      position after the last one to test
+	 * @param result  array to write positions into
+	 * @param offset  where to start writing in {@code result}
+	 *
+	 * @return number of positions written
+	 */
+	public static int touching(int minX, int minY, int maxX, int maxY,
+			int[] boxMinX, int[] boxMinY, int[] boxMaxX, int[] boxMaxY,
+			int from, int to, int[] result, int offset) {
+		if (VECTOR != null) {
+			return VECTOR.touching(minX, minY, maxX, maxY, boxMinX,
+					boxMinY, boxMaxX, boxMaxY, from, to, result, offset);
+		}
+		return scalarTouching(minX, minY, maxX, maxY, boxMinX, boxMinY,
+				boxMaxX, boxMaxY, from, to, result, offset);
+	}
+
+	/**
+	 * Same as
+	 * {@link #touching(int, int, int, int, int[], int[], int[], int[], int, int, int[], int)},
+	 * but tests the boxes at the first {@code count} indices in
+	 * {@code indices} and writes the indices of the ones which touch.
+	 *
+	 * @param minX    left edge of the box
+	 * @param minY    top edge of the box
+	 * @param maxX    right edge of the box
+	 * @param maxY    bottom edge of the box
+	 * @param boxMinX left edges of the boxes to test
+	 * @param boxMinY top edges of the boxes to test
+	 * @param boxMaxX right edges of the boxes to test
+	 * @param boxMaxY bottom edges of the boxes to test
+	 * @param indices indices of the boxes to test
+	 * @param count   number of indices to test
+	 * @param result  array to write indices into
+	 * @param offset  where to start writing in {@code result}
+	 *
+	 * @return number of indices written
+	 */
+	public static int touchingAt(int minX, int minY, int maxX, int maxY,
+			int[] boxMinX, int[] boxMinY, int[] boxMaxX, int[] boxMaxY,
+			int[] indices, int count, int[] result, int offset) {
+		if (VECTOR != null) {
+			return VECTOR.touchingAt(minX, minY, maxX, maxY, boxMinX,
+					boxMinY, boxMaxX, boxMaxY, indices, count, result, offset);
+		}
+		return scalarTouchingAt(minX, minY, maxX, maxY, boxMinX, boxMinY,
+				boxMaxX, boxMaxY, indices, count, result, offset);
+	}
+
+	/**
+	 * Returns {@code true} if boxes are being tested with SIMD instructions.
+	 *
+	 * @return {@code true} if the vector code is used
+	 */
+	public static boolean isVectorized() {
+		return VECTOR != null;
+	}
+
+	/**
+	 * Scalar version of
+	 * {@link #touching(int, int, int, int, int[], int[], int[], int[], int, int, int[], int)}.
+	 * Also used for the boxes left over after the vector code.
+	 */
+	public static int scalarTouching(int minX, int minY, int maxX, int maxY,
+			int[] boxMinX, int[] boxMinY, int[] boxMaxX, int[] boxMaxY,
+			int from, int to, int[] result, int offset) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			if (Aabb.touches(minX, minY, maxX, maxY, boxMinX[i], boxMinY[i],
+					boxMaxX[i], boxMaxY[i])) {
+				result[offset + count++] = i;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Scalar version of
+	 * {@link #touchingAt(int, int, int, int, int[], int[], int[], int[], int[], int, int[], int)}.
+	 * Also used for the boxes left over after the vector code.
+	 */
+	public static int scalarTouchingAt(int minX, int minY, int maxX, int maxY,
+			int[] boxMinX, int[] boxMinY, int[] boxMaxX, int[] boxMaxY,
+			int[] indices, int count, int[] result, int offset) {
+		int found = 0;
+		for (int i = 0; i < count; i++) {
+			int index = indices[i];
+			if (Aabb.touches(minX, minY, maxX, maxY, boxMinX[index],
+					boxMinY[index], boxMaxX[index], boxMaxY[index])) {
+				result[offset + found++] = index;
+			}
+		}
+		return found;
+	}
+
+	private static BoxTester loadVector() {
+		if (Boolean.getBoolean("blockgame.scalarBoxBatch")
+				|| ModuleLayer.boot().findModule("jdk.incubator.vector")
+						.isEmpty()) {
+			return null;
+		}
+		try {
+			return (BoxTester) Class.forName(VECTOR_CLASS)
+					.getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException e) {
+			// Not built with the vector profile
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,26 @@
+package blockgame.physics;
+
+/**
+ * Something which tests one box against many boxes for {@link BoxBatch}.
+ * 
+ * @author Frank Kormann
+ */
+interface BoxTester {
+
+	/**
+	 * See
+	 * {@link BoxBatch#touching(int, int, int, int, int[], int[], int[], int[], int, int, int[], int)}.
+	 */
+	public int touching(int minX, int minY, int maxX, int maxY,
+			int[] boxMinX, int[] boxMinY, int[] boxMaxX, int[] boxMaxY,
+			int from, int to, int[] result, int offset);
+
+	/**
+	 * See
+	 * {@link BoxBatch#touchingAt(int, int, int, int, int[], int[], int[], int[], int[], int, int[], int)}.
+	 */
+	public int touchingAt(int minX, int minY, int maxX, int maxY,
+			int[] boxMinX, int[] boxMinY, int[] boxMaxX, int[] boxMaxY,
+			int[] indices, int count, int[] result, int offset);
+
+}
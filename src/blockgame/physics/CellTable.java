@@ -0,0 +1,205 @@
+package blockgame.physics;
+
+import java.util.Arrays;
+
+/**
+ * Hash table from grid cells to lists of {@code int}s. Used by uniform grids
+ * to keep track of what is in each cell.
+ * <p>
+ * Cells are only stored once something is added to them, so the grid can be
+ * any size. Cells which have been emptied are kept around since they are
+ * likely to be used again.
+ *
+ * @author Frank Kormann
+ */
+class CellTable {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// Open addressing from packed cell coordinates to contents
+	private long[] keys;
+	private int[][] contents;
+	private int[] sizes;
+	private int cellCount;
+
+	// Every cell that has ever been used lies within these bounds
+	private int minCellX, minCellY, maxCellX, maxCellY;
+
+	/**
+	 * Creates an empty {@code CellTable}.
+	 */
+	CellTable() {
+		keys = new long[INITIAL_CAPACITY];
+		contents = new int[INITIAL_CAPACITY][];
+		sizes = new int[INITIAL_CAPACITY];
+		cellCount = 0;
+
+		minCellX = minCellY = Integer.MAX_VALUE;
+		maxCellX = maxCellY = Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Adds or removes {@code value} from every cell from
+	 * {@code (fromCellX, fromCellY)} to {@code (toCellX, toCellY)}, inclusive.
+	 *
+	 * @param fromCellX first cell column
+	 * @param fromCellY first cell row
+	 * @param toCellX   last cell column
+	 * @param toCellY   last cell row
+	 * @param value     value to file
+	 * @param add       {@code true} to add it to the cells, {@code false} to
+	 *                  remove it
+	 */
+	void file(int fromCellX, int fromCellY, int toCellX, int toCellY,
+			int value, boolean add) {
+		for (int cx = fromCellX; cx <= toCellX; cx++) {
+			for (int cy = fromCellY; cy <= toCellY; cy++) {
+				if (add) {
+					add(cx, cy, value);
+				}
+				else {
+					remove(cx, cy, value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the slot holding the cell at {@code (cellX, cellY)}, or
+	 * {@code -1} if nothing has ever been added to it.
+	 *
+	 * @param cellX cell column
+	 * @param cellY cell row
+	 *
+	 * @return slot of the cell
+	 */
+	int find(int cellX, int cellY) {
+		int slot = findSlot(cellX, cellY);
+		return contents[slot] == null ? -1 : slot;
+	}
+
+	/**
+	 * Returns the contents of the cell in {@code slot}. Only the first
+	 * {@link #size(int)} elements are in the cell.
+	 *
+	 * @param slot slot returned by {@link #find(int, int)}
+	 *
+	 * @return array holding the contents
+	 */
+	int[] contents(int slot) {
+		return contents[slot];
+	}
+
+	/**
+	 * Returns the number of values in the cell in {@code slot}.
+	 *
+	 * @param slot slot returned by {@link #find(int, int)}
+	 *
+	 * @return number of values
+	 */
+	int size(int slot) {
+		return sizes[slot];
+	}
+
+	int getMinCellX() {
+		return minCellX;
+	}
+
+	int getMinCellY() {
+		return minCellY;
+	}
+
+	int getMaxCellX() {
+		return maxCellX;
+	}
+
+	int getMaxCellY() {
+		return maxCellY;
+	}
+
+	private void add(int cellX, int cellY, int value) {
+		if ((cellCount + 1) * 2 > keys.length) {
+			grow();
+		}
+
+		int slot = findSlot(cellX, cellY);
+		if (contents[slot] == null) {
+			keys[slot] = packCell(cellX, cellY);
+			contents[slot] = new int[4];
+			sizes[slot] = 0;
+			cellCount++;
+
+			minCellX = Math.min(minCellX, cellX);
+			minCellY = Math.min(minCellY, cellY);
+			maxCellX = Math.max(maxCellX, cellX);
+			maxCellY = Math.max(maxCellY, cellY);
+		}
+
+		if (sizes[slot] == contents[slot].length) {
+			contents[slot] = Arrays.copyOf(contents[slot], sizes[slot] * 2);
+		}
+		contents[slot][sizes[slot]++] = value;
+	}
+
+	private void remove(int cellX, int cellY, int value) {
+		int slot = findSlot(cellX, cellY);
+		int[] cell = contents[slot];
+		if (cell == null) {
+			return;
+		}
+		for (int i = 0; i < sizes[slot]; i++) {
+			if (cell[i] == value) {
+				cell[i] = cell[--sizes[slot]];
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the slot which holds the cell at {@code (cellX, cellY)}, or the
+	 * empty slot where it would go.
+	 */
+	private int findSlot(int cellX, int cellY) {
+		long key = packCell(cellX, cellY);
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (contents[slot] != null && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[][] oldContents = contents;
+		int[] oldSizes = sizes;
+
+		keys = new long[oldKeys.length * 2];
+		contents = new int[oldKeys.length * 2][];
+		sizes = new int[oldKeys.length * 2];
+
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldContents[i] == null) {
+				continue;
+			}
+			int slot = hash(oldKeys[i]) & mask;
+			while (contents[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = oldKeys[i];
+			contents[slot] = oldContents[i];
+			sizes[slot] = oldSizes[i];
+		}
+	}
+
+	private static long packCell(int cellX, int cellY) {
+		return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+	}
+
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+
+}
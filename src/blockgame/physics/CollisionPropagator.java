@@ -1,23 +1,38 @@
 package blockgame.physics;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
 
 import blockgame.gui.MainFrame.Direction;
-import blockgame.util.Pair;
 
 /**
  * Calculates how to move all other {@code MovingRectangle}s when a
  * {@code MovingRectangle} moves. Takes into account {@code WallRectangle}s and
  * {@code SideRectangle}s which are acting like a wall.
  * <p>
- * The intended use of this class is to populate it with {@code Rectangle}s,
- * call {@link #propagateCollision()} to compute the collision, then throw this
- * instance away. Calling {@code propagateCollision} multiple times is not
- * supported and will result in an {@code IllegalStateException}.
+ * Other {@code MovingRectangle}s are found through a {@code SpatialGrid}, so
+ * only those near a moving {@code MovingRectangle} are considered. They are
+ * considered in order of their rank in the {@code SpatialGrid}. Likewise,
+ * {@code WallRectangle}s are found through a {@code WallIndex} and considered
+ * in the order they were added.
+ * <p>
+ * One instance is intended to be kept for the whole simulation, and
+ * {@link #propagateCollision(MovingRectangle)} called each time a
+ * {@code MovingRectangle} moves. Bookkeeping is kept in arrays indexed by each
+ * {@code MovingRectangle}'s index in the {@code SpatialGrid}, which are reset
+ * at the start of every call, so propagating collision does not allocate
+ * anything once the arrays are large enough.
+ * <p>
+ * By default, a {@code MovingRectangle} which ends up on the other side of
+ * something without overlapping it is found by checking which side of it
+ * each was on before and after moving. This only works as long as nothing
+ * moves too far in one frame. With {@link #setSweptCollision(boolean)}, the
+ * exact time of impact is used instead, so nothing passes through anything no
+ * matter how far it moves.
+ * <p>
+ * Amounts of movement are packed into a single {@code long}. Use
+ * {@link #unpackX(long)} and {@link #unpackY(long)} to read them.
  * 
  * @author Frank Kormann
  */
@@ -26,56 +41,266 @@ public class CollisionPropagator {
 	private static int WALL_COLLISION_LEEWAY_X = 4;
 	private static int WALL_COLLISION_LEEWAY_Y = 5;
 
-	private MovingRectangle initialRect;
-	private boolean completed;
+	// Values of pushedBy which are not indices in colliders
+	private static final int NOT_PUSHED = -1;
+	private static final int OUTSIDE_GRID = -2;
+	// Marks the end of a list of children
+	private static final int NONE = -1;
 
-	private List<MovingRectangle> colliders;
+	// Positions in bounds
+	private static final int X = 0, Y = 1, WIDTH = 2, HEIGHT = 3;
+	private static final int LAST_X = 4, LAST_Y = 5, LAST_WIDTH = 6,
+			LAST_HEIGHT = 7;
+	// Start of the second Rectangle in bounds
+	private static final int OTHER = 8;
+
+	private SpatialGrid colliders;
 	private List<WallRectangle> walls;
+	private WallIndex wallIndex;
 	private Map<Direction, SideRectangle> sides;
+	private SideRectangle[] sideArray;
+	private boolean sweptCollision;
+
+	// Each of these is indexed by index in colliders
+	private boolean[] pushing;  // currently pushing, directly or indirectly
+	private int[] pushedBy;
+	private int[] pushedX, pushedY;
+	private int[] pushOrder;  // position in pushed
+	private int[] nextSibling, previousSibling;
+	// Indexed by index in colliders, with one extra slot for OUTSIDE_GRID
+	private int[] firstChild, lastChild;
+
+	// Indices which have been pushed during this propagation
+	private int[] pushed;
+	private int pushedCount;
+
+	// MovingRectangle being propagated from, if it is not in colliders
+	private MovingRectangle outsideGrid;
+	private int topIndex;
+
+	// State of each level of propagation, indexed by depth
+	private int[] frameIndex;
+	private int[] frameAmountX, frameAmountY;
+	private int[] frameLastRank;
+	private int[] frameStart, frameCount, frameNext;
+	private int[] frameModCount;
+	private int[] frameChildX;  // collisionX of the child being pushed
+
+	// Candidates of every level of propagation, stacked on top of each other
+	private int[] candidates;
+	private int candidatesTop;
+
+	// Indices in walls found by the latest queries of wallIndex
+	private int[] wallCandidates;
+	private int[] wallHits;
+
+	// Position, size, and last position and size of the two Rectangles in
+	// calculateCollision, filled in by fillBounds
+	private int[] bounds;
 
 	/**
-	 * Creates a {@code CollisionCalculator} with the given {@code walls} and
-	 * {@code sides}.
+	 * Creates a {@code CollisionPropagator} for the {@code MovingRectangle}s
+	 * in {@code colliders}.
 	 * <p>
-	 * {@code colliders}, {@code walls}, and {@code sides} will be unaltered,
-	 * although the {@code MovingRectangle}s within {@code colliders} may be
-	 * moved.
+	 * {@code walls} and {@code sides} will be unaltered. The
+	 * {@code MovingRectangle}s within {@code colliders} may be moved, and
+	 * {@code colliders} is updated whenever they are. All three may have
+	 * elements added between calls to {@code propagateCollision}.
 	 * 
-	 * @param thatMoved {@code MovingRectangle} which collision should be
-	 *                  propagated from
-	 * @param colliders {@code MovingRectangle}s for {@code thatMoved} to push
+	 * @param colliders {@code SpatialGrid} of {@code MovingRectangle}s to push
 	 * @param walls     {@code WallRectangle}s for {@code MovingRectangle}s to
 	 *                  interact with
 	 * @param sides     {@code SideRectangle}s for {@code MovingRectangle}s to
 	 *                  interact with
 	 */
-	public CollisionPropagator(MovingRectangle thatMoved,
-			List<MovingRectangle> colliders, List<WallRectangle> walls,
-			Map<Direction, SideRectangle> sides) {
-		initialRect = thatMoved;
-		completed = false;
-		this.colliders = new ArrayList<>(colliders);
+	public CollisionPropagator(SpatialGrid colliders,
+			List<WallRectangle> walls, Map<Direction, SideRectangle> sides) {
+		this.colliders = colliders;
 		this.walls = walls;
+		wallIndex = new WallIndex(walls);
 		this.sides = sides;
+		sideArray = new SideRectangle[Direction.values().length];
+		sweptCollision = false;
+
+		pushing = new boolean[0];
+		pushedBy = new int[0];
+		pushedX = new int[0];
+		pushedY = new int[0];
+		pushed = new int[0];
+		pushedCount = 0;
+		pushOrder = new int[0];
+		nextSibling = new int[0];
+		previousSibling = new int[0];
+		firstChild = new int[] { NONE };
+		lastChild = new int[] { NONE };
+		outsideGrid = null;
+		topIndex = OUTSIDE_GRID;
+		frameIndex = new int[1];
+		frameAmountX = new int[1];
+		frameAmountY = new int[1];
+		frameLastRank = new int[1];
+		frameStart = new int[1];
+		frameCount = new int[1];
+		frameModCount = new int[1];
+		frameNext = new int[1];
+		frameChildX = new int[1];
+		candidates = new int[0];
+		candidatesTop = 0;
+		wallCandidates = new int[0];
+		wallHits = new int[0];
+		bounds = new int[2 * OTHER];
 	}
 
 	/**
-	 * Moves the initial rect {@code thatMoved} (from constructor) so that it
-	 * does not intersect any {@code WallRectangles}. Moves other
-	 * {@code MovingRectangles} so that they do not intersect {@code rect}. Acts
-	 * recursively on each {@code MovingRectangle} moved by {@code rect}.
-	 * <p>
-	 * This is intended to be called only once. Repeated calls will result in an
-	 * {@code IllegalStateException}.
+	 * Sets whether to find collisions between {@code Rectangle}s which pass
+	 * through each other by their exact time of impact. Otherwise, they are
+	 * found by comparing which side of each other they were on before and
+	 * after moving, which is how recordings were made.
+	 * 
+	 * @param sweptCollision {@code true} to use the time of impact
+	 */
+	public void setSweptCollision(boolean sweptCollision) {
+		this.sweptCollision = sweptCollision;
+	}
+
+	/**
+	 * Returns whether the exact time of impact is used. See
+	 * {@link #setSweptCollision(boolean)}.
+	 * 
+	 * @return {@code true} if the time of impact is used
+	 */
+	public boolean isSweptCollision() {
+		return sweptCollision;
+	}
+
+	/**
+	 * Returns the x component of a movement returned by this.
+	 * 
+	 * @param movement packed movement
+	 * 
+	 * @return Δx
+	 */
+	public static int unpackX(long movement) {
+		return (int) (movement >> 32);
+	}
+
+	/**
+	 * Returns the y component of a movement returned by this.
+	 * 
+	 * @param movement packed movement
+	 * 
+	 * @return Δy
+	 */
+	public static int unpackY(long movement) {
+		return (int) movement;
+	}
+
+	/**
+	 * Returns the number of {@code MovingRectangle}s which were pushed during
+	 * the latest call to {@code propagateCollision}.
+	 * 
+	 * @return number of {@code MovingRectangle}s pushed
+	 */
+	public int getPushedCount() {
+		return pushedCount;
+	}
+
+	/**
+	 * Returns the index in the {@code SpatialGrid} of the {@code n}th
+	 * {@code MovingRectangle} pushed during the latest call to
+	 * {@code propagateCollision}. This does not include the
+	 * {@code MovingRectangle} which collision was propagated from.
+	 * 
+	 * @param n which pushed {@code MovingRectangle}, less than
+	 *          {@link #getPushedCount()}
+	 * 
+	 * @return its index
+	 */
+	public int getPushed(int n) {
+		return pushed[n];
+	}
+
+	private static long pack(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Moves {@code thatMoved} so that it does not intersect any
+	 * {@code WallRectangles}. Moves other {@code MovingRectangles} so that they
+	 * do not intersect {@code thatMoved}. Does the same for each
+	 * {@code MovingRectangle} moved by {@code thatMoved}, and so on.
+	 * 
+	 * @param thatMoved {@code MovingRectangle} which collision should be
+	 *                  propagated from
 	 * 
-	 * @return { Δx, Δy } amount {@code rect} was pushed back
+	 * @return { Δx, Δy } amount {@code thatMoved} was pushed back, packed into
+	 *         a {@code long}
 	 */
-	public int[] propagateCollision() {
-		if (completed) {
-			throw new IllegalStateException("Already propagated collision");
+	public long propagateCollision(MovingRectangle thatMoved) {
+		reset();
+		int index = colliders.indexOf(thatMoved);
+		if (index < 0) {
+			index = OUTSIDE_GRID;
+			outsideGrid = thatMoved;
+		}
+		topIndex = index;
+		long pushback = propagateCollision(index);
+		outsideGrid = null;
+		return pushback;
+	}
+
+	/**
+	 * Clears the bookkeeping from the previous propagation and makes sure
+	 * there is room for every {@code MovingRectangle} in {@code colliders}.
+	 */
+	private void reset() {
+		for (int i = 0; i < pushedCount; i++) {
+			pushedBy[pushed[i]] = NOT_PUSHED;
+			firstChild[pushed[i]] = NONE;
+			lastChild[pushed[i]] = NONE;
+		}
+		firstChild[slotOf(topIndex)] = NONE;
+		lastChild[slotOf(topIndex)] = NONE;
+		pushedCount = 0;
+		candidatesTop = 0;
+
+		wallIndex.update();
+		if (wallCandidates.length < wallIndex.size()) {
+			wallCandidates = new int[wallIndex.size()];
+			wallHits = new int[wallIndex.size()];
+		}
+
+		int size = colliders.size();
+		if (pushedBy.length < size) {
+			int newLength = Math.max(size, pushedBy.length * 2);
+			int oldLength = pushedBy.length;
+			pushing = Arrays.copyOf(pushing, newLength);
+			pushedBy = Arrays.copyOf(pushedBy, newLength);
+			Arrays.fill(pushedBy, oldLength, newLength, NOT_PUSHED);
+			pushedX = Arrays.copyOf(pushedX, newLength);
+			pushedY = Arrays.copyOf(pushedY, newLength);
+			pushed = Arrays.copyOf(pushed, newLength);
+			pushOrder = Arrays.copyOf(pushOrder, newLength);
+			nextSibling = Arrays.copyOf(nextSibling, newLength);
+			previousSibling = Arrays.copyOf(previousSibling, newLength);
+			// One extra slot for children of a Rectangle outside the grid
+			firstChild = new int[newLength + 1];
+			lastChild = new int[newLength + 1];
+			Arrays.fill(firstChild, NONE);
+			Arrays.fill(lastChild, NONE);
+
+			// Each level of propagation is a different MovingRectangle, plus
+			// one which may be outside the grid
+			frameIndex = new int[newLength + 1];
+			frameAmountX = new int[newLength + 1];
+			frameAmountY = new int[newLength + 1];
+			frameLastRank = new int[newLength + 1];
+			frameStart = new int[newLength + 1];
+			frameCount = new int[newLength + 1];
+			frameModCount = new int[newLength + 1];
+			frameNext = new int[newLength + 1];
+			frameChildX = new int[newLength + 1];
 		}
-		completed = true;
-		return propagateCollision(initialRect, colliders, new HashMap<>());
 	}
 
 	/*
@@ -84,126 +309,332 @@ public class CollisionPropagator {
 	 * alignment step is performed to make sure nothing was moved that should
 	 * not have been.
 	 * 
-	 * collisionMap is used to track which MovingRectangles pushed each other
-	 * and how much
+	 * pushedBy, pushedX, and pushedY track which MovingRectangles pushed each
+	 * other and how much. firstChild, lastChild, and the sibling arrays list
+	 * what each one pushed, in the order they were first pushed
+	 * 
+	 * Candidates are re-queried whenever anything has moved since the last
+	 * query, so the result is the same as testing every MovingRectangle in
+	 * rank order
+	 * 
+	 * Instead of recursing into each pushed MovingRectangle, the state of each
+	 * level is kept in the frame arrays, so there is no limit on how many
+	 * MovingRectangles can push each other in a row
 	 */
-	private int[] propagateCollision(MovingRectangle rect,
-			List<MovingRectangle> colliders,
-			Map<MovingRectangle, Pair<MovingRectangle, int[]>> collisionMap) {
+	private long propagateCollision(int topIndex) {
+		int depth = 0;
+		enterFrame(depth++, topIndex);
 
-		int[] collisionData;
-		int[] pushedAmount = { 0, 0 };
-		colliders = new ArrayList<>(colliders);
-		colliders.remove(rect);
+		while (true) {
+			int frame = depth - 1;
+			int index = frameIndex[frame];
+			MovingRectangle rect = rectangleAt(index);
 
-		int[] wallPushback = handleCollisionWithWalls(rect);
-		pushedAmount[0] += wallPushback[0];
-		pushedAmount[1] += wallPushback[1];
+			int otherIndex = nextCollision(frame, rect);
+			if (otherIndex != NONE) {
+				enterFrame(depth++, otherIndex);
+				continue;
+			}
 
-		for (MovingRectangle other : colliders) {
+			long pushback = exitFrame(frame, rect);
+			depth--;
+			if (depth == 0) {
+				return pushback;
+			}
 
-			collisionData = calculateCollision(rect, other);
-			if (collisionData[0] == 0 && collisionData[1] == 0) {
+			// rect's parent should only be pushed back in the direction it
+			// pushed rect
+			int parent = depth - 1;
+			MovingRectangle parentRect = rectangleAt(frameIndex[parent]);
+			if (frameChildX[parent] != 0) {
+				parentRect.moveCollision(unpackX(pushback), 0, true);
+				frameAmountX[parent] += unpackX(pushback);
+			}
+			else {
+				parentRect.moveCollision(0, unpackY(pushback), true);
+				frameAmountY[parent] += unpackY(pushback);
+			}
+			colliders.update(parentRect);
+		}
+	}
+
+	/**
+	 * Starts propagating collision from the {@code MovingRectangle} at
+	 * {@code index}: collides it with walls and finds its candidates.
+	 * 
+	 * @param frame level of propagation
+	 * @param index index in {@code colliders}, or {@code OUTSIDE_GRID}
+	 */
+	private void enterFrame(int frame, int index) {
+		MovingRectangle rect = rectangleAt(index);
+		if (index >= 0) {
+			pushing[index] = true;
+		}
+
+		long wallPushback = handleCollisionWithWalls(rect);
+
+		frameIndex[frame] = index;
+		frameAmountX[frame] = unpackX(wallPushback);
+		frameAmountY[frame] = unpackY(wallPushback);
+		frameLastRank[frame] = -1;
+		frameStart[frame] = candidatesTop;
+		frameCount[frame] = queryCandidates(rect, -1, candidatesTop);
+		frameModCount[frame] = colliders.getModCount();
+		frameNext[frame] = frameStart[frame];
+	}
+
+	/**
+	 * Finds the next candidate which {@code rect} collides with, pushes it
+	 * out of {@code rect}, and returns its index. Returns {@code NONE} if
+	 * there are no candidates left.
+	 * 
+	 * @param frame level of propagation
+	 * @param rect  {@code MovingRectangle} of that level
+	 * 
+	 * @return index of the pushed {@code MovingRectangle}, or {@code NONE}
+	 */
+	private int nextCollision(int frame, MovingRectangle rect) {
+		int index = frameIndex[frame];
+		int start = frameStart[frame];
+
+		while (true) {
+			if (frameModCount[frame] != colliders.getModCount()) {
+				frameCount[frame] = queryCandidates(rect, frameLastRank[frame],
+						start);
+				frameModCount[frame] = colliders.getModCount();
+				frameNext[frame] = start;
+			}
+			if (frameNext[frame] >= start + frameCount[frame]) {
+				return NONE;
+			}
+			int otherIndex = candidates[frameNext[frame]++];
+			if (pushing[otherIndex]) {
 				continue;
 			}
+			MovingRectangle other = colliders.get(otherIndex);
+			frameLastRank[frame] = colliders.getRank(otherIndex);
 
-			if (collisionData[0] != 0 && collisionData[1] != 0) {
-				if (collisionData[1] < 0 || (rect instanceof SwitchRectangle
+			long collision = calculateCollision(rect, other);
+			if (collision == 0) {
+				continue;
+			}
+			int collisionX = unpackX(collision);
+			int collisionY = unpackY(collision);
+
+			if (collisionX != 0 && collisionY != 0) {
+				if (collisionY < 0 || (rect instanceof SwitchRectangle
 						&& ((SwitchRectangle) rect).becameActive())) {
-					collisionData[1] = 0;
+					collisionY = 0;
 				}
 				else {
-					collisionData[0] = 0;
+					collisionX = 0;
 				}
 			}
 
-			collisionData[0] = -correctGrowthForCollision(rect,
-					-collisionData[0], true);
-			collisionData[1] = -correctGrowthForCollision(rect,
-					-collisionData[1], false);
+			collisionX = -correctGrowthForCollision(rect, -collisionX, true);
+			collisionY = -correctGrowthForCollision(rect, -collisionY, false);
 
-			collisionData[0] = correctGrowthForCollision(other,
-					collisionData[0], true);
-			collisionData[1] = correctGrowthForCollision(other,
-					collisionData[1], false);
+			collisionX = correctGrowthForCollision(other, collisionX, true);
+			collisionY = correctGrowthForCollision(other, collisionY, false);
 
-			other.moveCollision(collisionData[0], collisionData[1], false);
+			other.moveCollision(collisionX, collisionY, false);
+			colliders.update(rect);
+			colliders.update(other);
 			// Fixes issue with jumping into blocks from below
-			if (collisionData[1] < 0) {
+			if (collisionY < 0) {
 				other.setYVelocity(0);
 			}
-			collisionMap.put(other,
-					new Pair<MovingRectangle, int[]>(rect, collisionData));
-
-			int[] pushback = propagateCollision(other, colliders, collisionMap);
-
-			// rect should only be pushed back in the direction it pushed othe
-			if (collisionData[0] != 0) {
-				rect.moveCollision(pushback[0], 0, true);
-				pushedAmount[0] += pushback[0];
+			if (pushedBy[otherIndex] == NOT_PUSHED) {
+				pushOrder[otherIndex] = pushedCount;
+				pushed[pushedCount++] = otherIndex;
 			}
 			else {
-				rect.moveCollision(0, pushback[1], true);
-				pushedAmount[1] += pushback[1];
+				unlinkChild(otherIndex);
 			}
+			pushedBy[otherIndex] = index;
+			linkChild(otherIndex);
+			pushedX[otherIndex] = collisionX;
+			pushedY[otherIndex] = collisionY;
+
+			frameChildX[frame] = collisionX;
+			return otherIndex;
+		}
+	}
 
+	/**
+	 * Finishes propagating collision from {@code rect} by pulling back
+	 * everything it pushed.
+	 * 
+	 * @param frame level of propagation
+	 * @param rect  {@code MovingRectangle} of that level
+	 * 
+	 * @return { Δx, Δy } amount {@code rect} was pushed back, packed into a
+	 *         {@code long}
+	 */
+	private long exitFrame(int frame, MovingRectangle rect) {
+		int index = frameIndex[frame];
+		if (index >= 0) {
+			pushing[index] = false;
 		}
+		candidatesTop = frameStart[frame];
 
 		// Pull back Rectangles that collided to be aligned with the edge of
 		// this
-		for (MovingRectangle c : collisionMap.keySet()) {
-			if (collisionMap.get(c).first == rect) {
-				pullback(rect, c, collisionMap);
+		pullbackChildren(index);
+
+		return pack(frameAmountX[frame], frameAmountY[frame]);
+	}
+
+	/**
+	 * Returns the {@code MovingRectangle} at {@code index} in
+	 * {@code colliders}, or the one being propagated from if {@code index} is
+	 * {@code OUTSIDE_GRID}.
+	 */
+	private MovingRectangle rectangleAt(int index) {
+		return index == OUTSIDE_GRID ? outsideGrid : colliders.get(index);
+	}
+
+	/**
+	 * Returns the slot in {@code firstChild} and {@code lastChild} for the
+	 * children of {@code index}.
+	 */
+	private int slotOf(int index) {
+		return index == OUTSIDE_GRID ? firstChild.length - 1 : index;
+	}
+
+	/**
+	 * Adds {@code child} to the children of {@code pushedBy[child]}, keeping
+	 * them in the order they were first pushed.
+	 */
+	private void linkChild(int child) {
+		int slot = slotOf(pushedBy[child]);
+		int after = lastChild[slot];
+		while (after != NONE && pushOrder[after] > pushOrder[child]) {
+			after = previousSibling[after];
+		}
+		int before = after == NONE ? firstChild[slot] : nextSibling[after];
+
+		previousSibling[child] = after;
+		nextSibling[child] = before;
+		if (after == NONE) {
+			firstChild[slot] = child;
+		}
+		else {
+			nextSibling[after] = child;
+		}
+		if (before == NONE) {
+			lastChild[slot] = child;
+		}
+		else {
+			previousSibling[before] = child;
+		}
+	}
+
+	/**
+	 * Removes {@code child} from the children of {@code pushedBy[child]}.
+	 */
+	private void unlinkChild(int child) {
+		int slot = slotOf(pushedBy[child]);
+		int after = previousSibling[child];
+		int before = nextSibling[child];
+		if (after == NONE) {
+			firstChild[slot] = before;
+		}
+		else {
+			nextSibling[after] = before;
+		}
+		if (before == NONE) {
+			lastChild[slot] = after;
+		}
+		else {
+			previousSibling[before] = after;
+		}
+	}
+
+	/**
+	 * Pulls back everything pushed by {@code parent}, then everything pushed
+	 * by those, and so on, parents before children.
+	 * <p>
+	 * {@code pushedBy} never has cycles, so this walks the tree of children
+	 * without a stack by climbing back up through {@code pushedBy}.
+	 * 
+	 * @param parent index in {@code colliders}, or {@code OUTSIDE_GRID}
+	 */
+	private void pullbackChildren(int parent) {
+		int node = firstChild[slotOf(parent)];
+		while (node != NONE) {
+			pullback(rectangleAt(pushedBy[node]), node);
+
+			if (firstChild[node] != NONE) {
+				node = firstChild[node];
+				continue;
 			}
+			while (nextSibling[node] == NONE) {
+				node = pushedBy[node];
+				if (node == parent) {
+					return;
+				}
+			}
+			node = nextSibling[node];
 		}
+	}
 
-		return pushedAmount;
+	/**
+	 * Queries {@code colliders} for candidates to collide with {@code rect},
+	 * writing them into {@code candidates} starting at {@code start}.
+	 * 
+	 * @param rect      {@code MovingRectangle} to find candidates for
+	 * @param afterRank only candidates with a greater rank are found
+	 * @param start     position in {@code candidates} to write at
+	 * 
+	 * @return number of candidates found
+	 */
+	private int queryCandidates(MovingRectangle rect, int afterRank,
+			int start) {
+		if (candidates.length < start + colliders.size()) {
+			candidates = Arrays.copyOf(candidates,
+					Math.max(start + colliders.size(), candidates.length * 2));
+		}
+		int count = colliders.query(rect, afterRank, candidates, start);
+		candidatesTop = start + count;
+		return count;
 	}
 
 	/**
-	 * Called by {@link #propagateCollision} to traverse through
-	 * {@code collisionMap}. Pull {@code other} back to {@code rect} and pull
-	 * the rectangles associated with {@code other} back to {@code other}.
+	 * Pull {@code other} back to {@code rect}. Called for each
+	 * {@code MovingRectangle} which was pushed, after the one which pushed it.
 	 * <p>
 	 * Undoes the collision between {@code rect} and {@code other} if they
 	 * should not have collided.
 	 * 
-	 * @param rect         {@code Rectangle} to align with
-	 * @param other        {@code Rectangle} to pull back
-	 * @param collisionMap {@code Map} of each {@code MovingRectangle} to how
-	 *                     much it was pushed in each direction
+	 * @param rect       {@code Rectangle} to align with
+	 * @param otherIndex index in {@code colliders} of the
+	 *                   {@code MovingRectangle} to pull back
 	 */
-	private void pullback(Rectangle rect, MovingRectangle other,
-			Map<MovingRectangle, Pair<MovingRectangle, int[]>> collisionMap) {
+	private void pullback(Rectangle rect, int otherIndex) {
+		MovingRectangle other = colliders.get(otherIndex);
 		int xChange = 0;
 		int yChange = 0;
 
-		int[] pushedAmount = collisionMap.get(other).second;
-
-		if (pushedAmount[1] == 0) {  // not pushed in y direction -> x collision
+		if (pushedY[otherIndex] == 0) {  // not pushed in y direction -> x
 			xChange = pullToX(rect, other);
 		}
 		else {
 			yChange = pullToY(rect, other);
 		}
 
-		if (Math.abs(xChange) > Math.abs(pushedAmount[0])
+		if (Math.abs(xChange) > Math.abs(pushedX[otherIndex])
 				|| (!other.intersectsY(rect)
 						&& !other.usedToIntersectY(other))) {
-			xChange = -pushedAmount[0];
+			xChange = -pushedX[otherIndex];
 		}
-		if (Math.abs(yChange) > Math.abs(pushedAmount[1])
+		if (Math.abs(yChange) > Math.abs(pushedY[otherIndex])
 				|| (!other.intersectsX(rect)
 						&& !other.usedToIntersectX(rect))) {
-			yChange = -pushedAmount[1];
+			yChange = -pushedY[otherIndex];
 		}
 		other.moveCollision(xChange, yChange, false);
-
-		for (MovingRectangle c : collisionMap.keySet()) {
-			if (collisionMap.get(c).first == other) {
-				pullback(other, c, collisionMap);
-			}
-		}
+		colliders.update(other);
 	}
 
 	/**
@@ -211,21 +642,53 @@ public class CollisionPropagator {
 	 * 
 	 * @param rect {@code MovingRectangle} to move
 	 * 
-	 * @return { dx, dy } of amount {@code rect} was pushed back
+	 * @return { dx, dy } of amount {@code rect} was pushed back, packed into a
+	 *         {@code long}
 	 */
-	private int[] handleCollisionWithWalls(MovingRectangle rect) {
+	private long handleCollisionWithWalls(MovingRectangle rect) {
+
+		int pushedBackX = 0;
+		int pushedBackY = 0;
+
+		sides.values().toArray(sideArray);
+		for (int i = 0; i < sides.size(); i++) {
+			if (sideArray[i].isActingLikeWall()) {
+				long pushedBack = collideWithWall(rect, sideArray[i]);
+				pushedBackX += unpackX(pushedBack);
+				pushedBackY += unpackY(pushedBack);
+			}
+		}
+
+		// Only walls touching where rect has been this frame can collide with
+		// it. If rect is moved, walls are found again so none are missed
+		int boundsX = rect.getX();
+		int boundsY = rect.getY();
+		int boundsWidth = rect.getWidth();
+		int boundsHeight = rect.getHeight();
+		int lastWall = -1;
+		int count = wallIndex.query(rect, lastWall, wallCandidates);
+		int next = 0;
+		while (next < count) {
+			int wall = wallCandidates[next++];
+			lastWall = wall;
 
-		int[] pushedBack = { 0, 0 };
+			long pushedBack = collideWithWall(rect, walls.get(wall));
+			pushedBackX += unpackX(pushedBack);
+			pushedBackY += unpackY(pushedBack);
 
-		Stream.concat(sides.values().stream().filter(s -> s.isActingLikeWall()),
-				walls.stream())
-				.map(w -> collideWithWall(rect, w))
-				.forEach(a -> {
-					pushedBack[0] += a[0];
-					pushedBack[1] += a[1];
-				});
+			if (rect.getX() != boundsX || rect.getY() != boundsY
+					|| rect.getWidth() != boundsWidth
+					|| rect.getHeight() != boundsHeight) {
+				boundsX = rect.getX();
+				boundsY = rect.getY();
+				boundsWidth = rect.getWidth();
+				boundsHeight = rect.getHeight();
+				count = wallIndex.query(rect, lastWall, wallCandidates);
+				next = 0;
+			}
+		}
 
-		return pushedBack;
+		return pack(pushedBackX, pushedBackY);
 	}
 
 	/**
@@ -236,87 +699,92 @@ public class CollisionPropagator {
 	 * @param wall {@code Rectangle} to represent the wall. Usually a
 	 *             {@code WallRectangle} or {@code SideRectangle}
 	 * 
-	 * @return { dx, dy } of amount {@code rect} was pushed back
+	 * @return { dx, dy } of amount {@code rect} was pushed back, packed into a
+	 *         {@code long}
 	 */
-	private int[] collideWithWall(MovingRectangle rect, Rectangle wall) {
+	private long collideWithWall(MovingRectangle rect, Rectangle wall) {
 
-		int[] collisionData = calculateCollision(wall, rect);
+		long collision = calculateCollision(wall, rect);
 
-		if (collisionData[0] == 0 && collisionData[1] == 0) {
-			return new int[] { 0, 0 };
+		if (collision == 0) {
+			return 0;
 		}
 
-		if (collisionData[0] != 0 && collisionData[1] != 0) {
-			if (collisionData[1] > 0) {
-				collisionData[1] = 0;
+		int collisionX = unpackX(collision);
+		int collisionY = unpackY(collision);
+
+		if (collisionX != 0 && collisionY != 0) {
+			if (collisionY > 0) {
+				collisionY = 0;
 			}
 			else {
-				collisionData[0] = 0;
+				collisionX = 0;
 			}
 		}
 
-		collisionData[0] = correctGrowthForCollision(rect, collisionData[0],
-				true);
-		collisionData[1] = correctGrowthForCollision(rect, collisionData[1],
-				false);
+		collisionX = correctGrowthForCollision(rect, collisionX, true);
+		collisionY = correctGrowthForCollision(rect, collisionY, false);
 
-		int[] originalMovement = { collisionData[0], collisionData[1] };
+		long originalMovement = pack(collisionX, collisionY);
+		long movement = originalMovement;
 
-		if (collisionData[0] != 0) {
-			fudgeCollision(collisionData,
+		if (collisionX != 0) {
+			movement = fudgeCollision(movement,
 					wall.getY() - rect.getY() - rect.getHeight(),
 					WALL_COLLISION_LEEWAY_Y, false);
-			fudgeCollision(collisionData,
+			movement = fudgeCollision(movement,
 					wall.getY() + wall.getHeight() - rect.getY(),
 					WALL_COLLISION_LEEWAY_Y, false);
 		}
-		else if (collisionData[1] > 0) {
-			fudgeCollision(collisionData,
+		else if (collisionY > 0) {
+			movement = fudgeCollision(movement,
 					wall.getX() - rect.getX() - rect.getWidth(),
 					WALL_COLLISION_LEEWAY_X, true);
-			fudgeCollision(collisionData,
+			movement = fudgeCollision(movement,
 					wall.getX() + wall.getWidth() - rect.getX(),
 					WALL_COLLISION_LEEWAY_X, true);
 		}
 
 		// TODO Check whether the fudged collision would push another
 		// MovingRectangle into a wall
-		if (wouldIntersectAWall(rect, collisionData[0], collisionData[1])) {
-			collisionData = originalMovement;
+		if (wouldIntersectAWall(rect, unpackX(movement), unpackY(movement))) {
+			movement = originalMovement;
 		}
 
 		// Canceling velocity only if the collision wasn't fudged leads to more
 		// natural-looking trajectory when brushing against walls during a jump
-		boolean wasntFudged = collisionData[0] == originalMovement[0]
-				&& collisionData[1] == originalMovement[1];
-		rect.moveCollision(collisionData[0], collisionData[1], wasntFudged);
+		boolean wasntFudged = movement == originalMovement;
+		rect.moveCollision(unpackX(movement), unpackY(movement), wasntFudged);
+		colliders.update(rect);
 
-		return collisionData;
+		return movement;
 	}
 
 	/**
-	 * If {@code |sliverSize| <= threshold}, alters {@code movement} to be
+	 * If {@code |sliverSize| <= threshold}, returns a movement which is
 	 * {@code 0} in one direction and {@code sliverSize} in the other.
+	 * Otherwise, returns {@code movement}.
 	 * <p>
 	 * In the context of a collision, let Rectangle A be pushing out Rectangle
 	 * B. If Rectangle B is only colliding with a small sliver of Rectangle A,
 	 * this changes the movement of Rectangle B from one direction (pushed out
 	 * by the sliver) into another (bumped on top of the sliver).
 	 * 
-	 * @param movement   {@code int[]} containing movement information in x and
-	 *                   y directions
+	 * @param movement   packed movement in x and y directions
 	 * @param sliverSize amount of Rectangle A that Rectangle B is colliding
 	 *                   with
 	 * @param threshold  maximum amount of leeway
 	 * @param isX        {@code true} if {@code sliverSize} and
 	 *                   {@code threshold} represent values in the x direction
+	 * 
+	 * @return packed movement, possibly altered
 	 */
-	private void fudgeCollision(int[] movement, int sliverSize, int threshold,
+	private long fudgeCollision(long movement, int sliverSize, int threshold,
 			boolean isX) {
 		if (Math.abs(sliverSize) <= threshold) {
-			movement[isX ? 0 : 1] = sliverSize;
-			movement[isX ? 1 : 0] = 0;
+			return isX ? pack(sliverSize, 0) : pack(0, sliverSize);
 		}
+		return movement;
 	}
 
 	/**
@@ -331,13 +799,21 @@ public class CollisionPropagator {
 	 */
 	private boolean wouldIntersectAWall(MovingRectangle rect, int xChange,
 			int yChange) {
-		MovingRectangle potentialRect = new MovingRectangle(
-				rect.getX() + xChange, rect.getY() + yChange, rect.getWidth(),
-				rect.getHeight());
+		int x = rect.getX() + xChange;
+		int y = rect.getY() + yChange;
+		int width = rect.getWidth();
+		int height = rect.getHeight();
 
-		for (WallRectangle wall : walls) {
-			if (wall.intersectsX(potentialRect)
-					&& wall.intersectsY(potentialRect)) {
+		int count = wallIndex.query(x, y, x + width, y + height, -1, wallHits);
+		for (int i = 0; i < count; i++) {
+			WallRectangle wall = walls.get(wallHits[i]);
+			// Same as wall.intersectsX and wall.intersectsY against a plain
+			// MovingRectangle at the proposed position
+			boolean inBoundsX = Aabb.overlapsX(wall.getX(), wall.getWidth(), x,
+					width);
+			boolean inBoundsY = Aabb.overlapsY(wall.getY(), wall.getHeight(),
+					y, height);
+			if (inBoundsX && inBoundsY) {
 				return true;
 			}
 		}
@@ -365,23 +841,46 @@ public class CollisionPropagator {
 	 * @param other {@code MovingRectangle} that will move
 	 * 
 	 * @return { Δx, Δy } amount to move {@code other} to resolve collision with
-	 *         {@code rect}
+	 *         {@code rect}, packed into a {@code long}
 	 */
-	private int[] calculateCollision(Rectangle rect, MovingRectangle other) {
+	private long calculateCollision(Rectangle rect, MovingRectangle other) {
 		if (rect == other) {
-			return new int[] { 0, 0 };
+			return 0;
 		}
 
+		fillBounds(rect, 0);
+		fillBounds(other, OTHER);
+		int[] b = bounds;
+
 		int xChange = 0;
 		int yChange = 0;
-		boolean inBoundsX = rect.intersectsX(other) && other.intersectsX(rect);
-		boolean inBoundsY = rect.intersectsY(other) && other.intersectsY(rect);
+		// Same as rect.intersectsX(other) && other.intersectsX(rect) and so
+		// on, without checking whether they can interact for every test
+		boolean interacts = rect.canInteract(other) && other.canInteract(rect);
+		boolean interacted = rect.usedToInteract(other)
+				&& other.usedToInteract(rect);
+		boolean inBoundsX = interacts
+				&& Aabb.overlapsX(b[X], b[WIDTH], b[OTHER + X],
+						b[OTHER + WIDTH])
+				&& Aabb.overlapsX(b[OTHER + X], b[OTHER + WIDTH], b[X],
+						b[WIDTH]);
+		boolean inBoundsY = interacts
+				&& Aabb.overlapsY(b[Y], b[HEIGHT], b[OTHER + Y],
+						b[OTHER + HEIGHT])
+				&& Aabb.overlapsY(b[OTHER + Y], b[OTHER + HEIGHT], b[Y],
+						b[HEIGHT]);
 		// "Used to be" values so Rectangles can tell whether they should be
 		// moved in x or y direction
-		boolean usedToBeInBoundsX = rect.usedToIntersectX(other)
-				&& other.usedToIntersectX(rect);
-		boolean usedToBeInBoundsY = rect.usedToIntersectY(other)
-				&& other.usedToIntersectY(rect);
+		boolean usedToBeInBoundsX = interacted
+				&& Aabb.overlapsX(b[LAST_X], b[LAST_WIDTH], b[OTHER + LAST_X],
+						b[OTHER + LAST_WIDTH])
+				&& Aabb.overlapsX(b[OTHER + LAST_X], b[OTHER + LAST_WIDTH],
+						b[LAST_X], b[LAST_WIDTH]);
+		boolean usedToBeInBoundsY = interacted
+				&& Aabb.overlapsY(b[LAST_Y], b[LAST_HEIGHT], b[OTHER + LAST_Y],
+						b[OTHER + LAST_HEIGHT])
+				&& Aabb.overlapsY(b[OTHER + LAST_Y], b[OTHER + LAST_HEIGHT],
+						b[LAST_Y], b[LAST_HEIGHT]);
 
 		if (inBoundsX && inBoundsY) {
 			if (usedToBeInBoundsX) {
@@ -403,15 +902,24 @@ public class CollisionPropagator {
 		else if (inBoundsY && usedToBeInBoundsX) {
 			yChange = pullToY(rect, other);
 		}
+		else if (sweptCollision) {
+			if (interacts && interacted) {
+				int impact = sweptImpact();
+				if ((impact & Aabb.IMPACT_X) != 0) {
+					xChange = pullToX(rect, other);
+				}
+				if ((impact & Aabb.IMPACT_Y) != 0) {
+					yChange = pullToY(rect, other);
+				}
+			}
+		}
 		else {
 			// If other started on one side of this and ended up on the opposite
 			// side, it must have collided between frames
-			int xSign = (int) Math.signum(rect.getX() - other.getX());
-			int ySign = (int) Math.signum(rect.getY() - other.getY());
-			int xOldSign = (int) Math
-					.signum(rect.getLastX() - other.getLastX());
-			int yOldSign = (int) Math
-					.signum(rect.getLastY() - other.getLastY());
+			int xSign = (int) Math.signum(b[X] - b[OTHER + X]);
+			int ySign = (int) Math.signum(b[Y] - b[OTHER + Y]);
+			int xOldSign = (int) Math.signum(b[LAST_X] - b[OTHER + LAST_X]);
+			int yOldSign = (int) Math.signum(b[LAST_Y] - b[OTHER + LAST_Y]);
 			if ((xSign != xOldSign) && (inBoundsY || usedToBeInBoundsY)
 					&& xOldSign != 0) {
 				xChange = pullToX(rect, other);
@@ -429,7 +937,59 @@ public class CollisionPropagator {
 			yChange = 0;
 		}
 
-		return new int[] { xChange, yChange };
+		return pack(xChange, yChange);
+	}
+
+	/**
+	 * Finds which direction the second {@code Rectangle} in {@code bounds} hit
+	 * the first from while they both moved from their last positions to their
+	 * current ones, using their current sizes.
+	 * 
+	 * @return result of
+	 *         {@link Aabb#sweptImpact(int, int, int, int, int, int, int, int, int, int)}
+	 */
+	private int sweptImpact() {
+		int[] b = bounds;
+		int dx = (b[OTHER + X] - b[OTHER + LAST_X]) - (b[X] - b[LAST_X]);
+		int dy = (b[OTHER + Y] - b[OTHER + LAST_Y]) - (b[Y] - b[LAST_Y]);
+		return Aabb.sweptImpact(b[LAST_X], b[LAST_Y], b[WIDTH], b[HEIGHT],
+				b[OTHER + LAST_X], b[OTHER + LAST_Y], b[OTHER + WIDTH],
+				b[OTHER + HEIGHT], dx, dy);
+	}
+
+	/**
+	 * Writes the position, size, and last position and size of {@code rect}
+	 * into {@code bounds} starting at {@code start}. A
+	 * {@code MovingRectangle} in {@code colliders} is read from its
+	 * {@code BodyTable}.
+	 * 
+	 * @param rect  {@code Rectangle} to read
+	 * @param start position in {@code bounds} to write at
+	 */
+	private void fillBounds(Rectangle rect, int start) {
+		int index = rect instanceof MovingRectangle
+				? colliders.indexOf((MovingRectangle) rect)
+				: -1;
+		if (index < 0) {
+			bounds[start + X] = rect.getX();
+			bounds[start + Y] = rect.getY();
+			bounds[start + WIDTH] = rect.getWidth();
+			bounds[start + HEIGHT] = rect.getHeight();
+			bounds[start + LAST_X] = rect.getLastX();
+			bounds[start + LAST_Y] = rect.getLastY();
+			bounds[start + LAST_WIDTH] = rect.getLastWidth();
+			bounds[start + LAST_HEIGHT] = rect.getLastHeight();
+			return;
+		}
+		BodyTable table = colliders.getTable();
+		bounds[start + X] = table.getX(index);
+		bounds[start + Y] = table.getY(index);
+		bounds[start + WIDTH] = table.getWidth(index);
+		bounds[start + HEIGHT] = table.getHeight(index);
+		bounds[start + LAST_X] = table.getLastX(index);
+		bounds[start + LAST_Y] = table.getLastY(index);
+		bounds[start + LAST_WIDTH] = table.getLastWidth(index);
+		bounds[start + LAST_HEIGHT] = table.getLastHeight(index);
 	}
 
 	/**
@@ -499,9 +1059,11 @@ public class CollisionPropagator {
 					+ other.getWidth() > sides.get(Direction.EAST).getX();
 		}
 		if (moveLeft) {
-			return rect.getX() - other.getX() - other.getWidth();
+			return Aabb.penetrationBefore(rect.getX(), other.getX(),
+					other.getWidth());
 		}
-		return rect.getX() + rect.getWidth() - other.getX();
+		return Aabb.penetrationAfter(rect.getX(), rect.getWidth(),
+				other.getX());
 	}
 
 	/**
@@ -521,9 +1083,11 @@ public class CollisionPropagator {
 					+ other.getHeight() > sides.get(Direction.SOUTH).getY();
 		}
 		if (moveUp) {
-			return rect.getY() - other.getY() - other.getHeight();
+			return Aabb.penetrationBefore(rect.getY(), other.getY(),
+					other.getHeight());
 		}
-		return rect.getY() + rect.getHeight() - other.getY();
+		return Aabb.penetrationAfter(rect.getY(), rect.getHeight(),
+				other.getY());
 	}
 
 }
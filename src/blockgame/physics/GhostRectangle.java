@@ -6,7 +6,6 @@ import java.awt.Graphics;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import blockgame.gui.MainFrame.Direction;
 import blockgame.input.ParameterMapper.Parameter;
 import blockgame.util.DrawUtils;
 
@@ -16,11 +15,13 @@ import blockgame.util.DrawUtils;
  * 
  * @author Frank Kormann
  */
-public class GhostRectangle extends MovingRectangle {
+public final class GhostRectangle extends MovingRectangle {
 
 	private static final int BORDER_THICKNESS = 1;
 	private static final int STRIPE_THICKNESS_OPAQUE = 5;
 	private static final int STRIPE_THICKNESS_TRANSLUCENT = 10;
+	private static final int IGNORED_SIDE_LAYERS = SIDE_NORTH_LAYER
+			| SIDE_WEST_LAYER | SIDE_EAST_LAYER;
 
 	@JsonCreator
 	public GhostRectangle(@JsonProperty("x") int x, @JsonProperty("y") int y,
@@ -28,6 +29,7 @@ public class GhostRectangle extends MovingRectangle {
 			@JsonProperty("height") int height,
 			@JsonProperty("color") Colors color) {
 		super(x, y, width, height, color);
+		setLayers(OTHER_LAYER, ALL_LAYERS & ~IGNORED_SIDE_LAYERS);
 	}
 
 	@Override
@@ -52,11 +54,8 @@ public class GhostRectangle extends MovingRectangle {
 	}
 
 	@Override
-	public boolean canInteract(Rectangle other) {
-		if (other instanceof SideRectangle) {
-			return ((SideRectangle) other).getDirection() == Direction.SOUTH;
-		}
-		return super.canInteract(other);
+	protected int computeLayerMask() {
+		return super.computeLayerMask() & ~IGNORED_SIDE_LAYERS;
 	}
 
 }
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSetter;
 
+import blockgame.gui.Drawable;
 import blockgame.gui.ParticleExplosion;
 
 /**
@@ -99,6 +100,27 @@ public class GoalArea extends Area {
 		g.dispose();
 	}
 
+	@Override
+	public GoalArea snapshot() {
+		GoalArea copy = (GoalArea) super.snapshot();
+		if (hasParticles) {
+			copy.particleExplosion = particleExplosion.snapshot();
+		}
+		return copy;
+	}
+
+	@Override
+	public boolean matchesSnapshot(Drawable snapshot) {
+		if (!super.matchesSnapshot(snapshot)) {
+			return false;
+		}
+		GoalArea other = (GoalArea) snapshot;
+		return other.timer == timer && other.isSpecial == isSpecial
+				&& other.hasParticles == hasParticles && (!hasParticles
+						|| particleExplosion
+								.matchesSnapshot(other.particleExplosion));
+	}
+
 	/**
 	 * Not implemented.
 	 * 
@@ -5,6 +5,7 @@ import java.awt.Graphics;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import blockgame.gui.Drawable;
 import blockgame.gui.MainFrame.Direction;
 import blockgame.util.DrawUtils;
 
@@ -82,6 +83,15 @@ public class GrowArea extends Area {
 		g.dispose();
 	}
 
+	@Override
+	public boolean matchesSnapshot(Drawable snapshot) {
+		if (!super.matchesSnapshot(snapshot)) {
+			return false;
+		}
+		GrowArea other = (GrowArea) snapshot;
+		return other.xGrowth == xGrowth && other.yGrowth == yGrowth;
+	}
+
 	/**
 	 * Not implemented.
 	 * 
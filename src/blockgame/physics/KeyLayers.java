@@ -0,0 +1,51 @@
+package blockgame.physics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gives each key of the {@code SwitchArea}s and {@code SwitchRectangle}s in a
+ * level its own collision layer. Keys are given layers in the order they are
+ * first seen. Once the layers run out, every new key shares
+ * {@code KEY_OVERFLOW_LAYER}.
+ * <p>
+ * Each level should be read with its own {@code KeyLayers}, and everything in
+ * a level should use the same one. {@code HeadlessEngine.readLevel} passes one
+ * to the constructors through Jackson.
+ *
+ * @author Frank Kormann
+ */
+public final class KeyLayers {
+
+	private static final int FIRST_KEY_BIT = 7;
+	private static final int LAST_KEY_BIT = 27;
+
+	private Map<String, Integer> layers;
+
+	/**
+	 * Creates a {@code KeyLayers} which has not given out any layers.
+	 */
+	public KeyLayers() {
+		layers = new HashMap<>();
+	}
+
+	/**
+	 * Returns the layer for {@code key}, which is the same every time it is
+	 * called with an equal {@code key}.
+	 * 
+	 * @param key key of a {@code SwitchArea} or {@code SwitchRectangle}
+	 * 
+	 * @return layer with one bit set
+	 */
+	public int layerOf(String key) {
+		Integer layer = layers.get(key);
+		if (layer == null) {
+			int bit = FIRST_KEY_BIT + layers.size();
+			layer = bit <= LAST_KEY_BIT ? 1 << bit
+					: Rectangle.KEY_OVERFLOW_LAYER;
+			layers.put(key, layer);
+		}
+		return layer;
+	}
+
+}
@@ -15,6 +15,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * Width/height should generally be adjusted using {@link#changeWidth} and
  * {@link#changeHeight}. This allows some metadata to be updated which is used
  * in resolving collisions.
+ * <p>
+ * Once this is added to a {@code SpatialGrid}, every change to its state is
+ * also written to the grid's {@code BodyTable}.
  * 
  * @author Frank Kormann
  */
@@ -34,6 +37,10 @@ public class MovingRectangle extends Rectangle {
 	private boolean controlledByPlayer;
 	private boolean hasMoved;
 	private int jumpFramesRemaining;
+	// Index of this in the SpatialGrid it belongs to, or -1 if there is none
+	private int gridIndex;
+	// Table of that SpatialGrid, or null if there is none
+	private BodyTable table;
 
 	public MovingRectangle(int x, int y, int width, int height) {
 		this(x, y, width, height, Colors.BLACK);
@@ -57,6 +64,8 @@ public class MovingRectangle extends Rectangle {
 		controlledByPlayer = false;
 		hasMoved = false;
 		jumpFramesRemaining = 0;
+		gridIndex = -1;
+		table = null;
 
 		updateLastPosition();
 
@@ -73,6 +82,10 @@ public class MovingRectangle extends Rectangle {
 		lastY = getY();
 		lastWidth = getWidth();
 		lastHeight = getHeight();
+		if (table != null) {
+			table.setLastBounds(gridIndex, lastX, lastY, lastWidth,
+					lastHeight);
+		}
 		leftWidthChange = 0;
 		topHeightChange = 0;
 
@@ -90,6 +103,7 @@ public class MovingRectangle extends Rectangle {
 		// Taken from the implementation of Math.clamp
 		xVelocity = Math.min(MAX_X_SPEED, Math.max(xVelocity, -MAX_X_SPEED));
 		yVelocity = Math.min(MAX_Y_SPEED, Math.max(yVelocity, -MAX_Y_SPEED));
+		writeVelocity();
 		setX(getX() + xVelocity);
 		setY(getY() + yVelocity);
 	}
@@ -119,6 +133,7 @@ public class MovingRectangle extends Rectangle {
 					&& Math.signum(yChange) != Math.signum(yVelocity)) {
 				yVelocity = 0;
 			}
+			writeVelocity();
 		}
 
 		setX(getX() + xChange);
@@ -179,6 +194,7 @@ public class MovingRectangle extends Rectangle {
 
 	public void setXVelocity(int xVelocity) {
 		this.xVelocity = xVelocity;
+		writeVelocity();
 	}
 
 	public int getYVelocity() {
@@ -187,6 +203,68 @@ public class MovingRectangle extends Rectangle {
 
 	public void setYVelocity(int yVelocity) {
 		this.yVelocity = yVelocity;
+		writeVelocity();
+	}
+
+	/**
+	 * Writes the velocity of this to {@code table}, if there is one.
+	 */
+	private void writeVelocity() {
+		if (table != null) {
+			table.setVelocity(gridIndex, xVelocity, yVelocity);
+		}
+	}
+
+	/**
+	 * If this is in a {@code SpatialGrid}, marks its attached {@code Area}s to
+	 * be updated the next time the {@code SpatialGrid} flushes them instead of
+	 * updating them now. This is moved and resized many times per frame, so
+	 * this saves updating them for every intermediate position.
+	 * <p>
+	 * Otherwise, updates them right away.
+	 * 
+	 * @see SpatialGrid#flushAttachments()
+	 */
+	@Override
+	protected void boundsChanged() {
+		if (table != null) {
+			table.markAttachmentsDirty(gridIndex);
+		}
+		else {
+			super.boundsChanged();
+		}
+	}
+
+	@Override
+	public void setX(int x) {
+		super.setX(x);
+		if (table != null) {
+			table.setX(gridIndex, x);
+		}
+	}
+
+	@Override
+	public void setY(int y) {
+		super.setY(y);
+		if (table != null) {
+			table.setY(gridIndex, y);
+		}
+	}
+
+	@Override
+	public void setWidth(int width) {
+		super.setWidth(width);
+		if (table != null) {
+			table.setWidth(gridIndex, width);
+		}
+	}
+
+	@Override
+	public void setHeight(int height) {
+		super.setHeight(height);
+		if (table != null) {
+			table.setHeight(gridIndex, height);
+		}
 	}
 
 	/**
@@ -263,6 +341,10 @@ public class MovingRectangle extends Rectangle {
 
 	public void setControlledByPlayer(boolean controlledByPlayer) {
 		this.controlledByPlayer = controlledByPlayer;
+		if (table != null) {
+			table.setFlag(gridIndex, BodyTable.CONTROLLED_BY_PLAYER,
+					controlledByPlayer);
+		}
 	}
 
 	public boolean hasMoved() {
@@ -282,4 +364,32 @@ public class MovingRectangle extends Rectangle {
 		jumpFramesRemaining = jumpFrames;
 	}
 
+	int getGridIndex() {
+		return gridIndex;
+	}
+
+	/**
+	 * Returns a copy of this which is not in a {@code SpatialGrid}, so changing
+	 * it does not change this.
+	 */
+	@Override
+	public MovingRectangle snapshot() {
+		MovingRectangle copy = (MovingRectangle) super.snapshot();
+		copy.gridIndex = -1;
+		copy.table = null;
+		return copy;
+	}
+
+	/**
+	 * Sets the index of this in a {@code SpatialGrid} and the {@code BodyTable}
+	 * to write changes to.
+	 * 
+	 * @param gridIndex index in the {@code SpatialGrid}
+	 * @param table     {@code BodyTable} of the {@code SpatialGrid}
+	 */
+	void setGridIndex(int gridIndex, BodyTable table) {
+		this.gridIndex = gridIndex;
+		this.table = table;
+	}
+
 }
@@ -1,10 +1,11 @@
 package blockgame.physics;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import blockgame.gui.MainFrame.Direction;
 import blockgame.input.GameInputHandler.MovementInput;
@@ -20,6 +21,15 @@ import blockgame.input.GameInputHandler.MovementInput;
  * <p>
  * {@code Rectangles} are added to the simulation by passing a reference to
  * {@code add(Rectangle)}. They are updated in-place.
+ * <p>
+ * {@code MovingRectangle}s which have come to rest are put to sleep and
+ * skipped until something disturbs them. See {@link SleepTracker}.
+ * <p>
+ * {@code WallRectangle}s added before {@code setUp} which line up exactly are
+ * merged together for collision. See {@link WallMerger}.
+ * <p>
+ * Collision from a window side is skipped on frames where it would do
+ * nothing. See {@link SideProximity}.
  * 
  * @author Frank Kormann
  */
@@ -35,10 +45,30 @@ public class PhysicsSimulator {
 	// SwitchRectangles should also be put into movingRectangles
 	private List<SwitchRectangle> switchRectangles;
 	private List<WallRectangle> walls;
+	// Same as walls, but merged together where possible
+	private List<WallRectangle> collisionWalls;
+	private int removedWallCount;
 	private List<Area> areas;
+	// Same as areas, indexed by position, unless an Area could not be indexed
+	private AreaIndex areaIndex;
+	private boolean areasIndexed;
+	private int[] areaIds;
 	private List<SwitchArea> switchAreas;
 	private List<GoalArea> goals;
 	private Map<Direction, SideRectangle> sides;
+	private SpatialGrid grid;
+	private CollisionPropagator propagator;
+	private boolean sweptCollision;
+	// Kept from frame to frame because they barely change between frames
+	private SortOrder leftOrder;
+	private SortOrder topOrder;
+	private Map<Direction, SortOrder> sideOrders;
+	private SideProximity sideProximity;
+	private SleepTracker sleepTracker;
+	// MovingRectangles found by findNearby
+	private int[] nearbyIndices;
+	private int nearbyCount;
+	private Consumer<MovingRectangle> nearbyCollector;
 
 	private List<Area> areasToAdd;
 
@@ -55,21 +85,44 @@ public class PhysicsSimulator {
 		movingRectangles = new ArrayList<>();
 		switchRectangles = new ArrayList<>();
 		walls = new ArrayList<>();
+		collisionWalls = new ArrayList<>();
+		removedWallCount = 0;
 		areas = new ArrayList<>();
 		switchAreas = new ArrayList<>();
 		goals = new ArrayList<>();
-		sides = new HashMap<>();
+		// EnumMap so the sides are always handled in the same order, since the
+		// order can change where rectangles end up
+		sides = new EnumMap<>(Direction.class);
+		grid = new SpatialGrid();
+		areaIndex = new AreaIndex(grid);
+		areasIndexed = true;
+		areaIds = new int[0];
+		propagator = new CollisionPropagator(grid, collisionWalls, sides);
+		sweptCollision = false;
+		leftOrder = new SortOrder(SortOrder.Key.LEFT);
+		topOrder = new SortOrder(SortOrder.Key.TOP);
+		sideOrders = new EnumMap<>(Direction.class);
+		sideOrders.put(Direction.NORTH, new SortOrder(SortOrder.Key.TOP));
+		sideOrders.put(Direction.SOUTH, new SortOrder(SortOrder.Key.BOTTOM));
+		sideOrders.put(Direction.WEST, new SortOrder(SortOrder.Key.LEFT));
+		sideOrders.put(Direction.EAST, new SortOrder(SortOrder.Key.RIGHT));
+		sideProximity = new SideProximity(grid, collisionWalls, sides);
+		sleepTracker = new SleepTracker(grid);
+		nearbyIndices = new int[0];
+		nearbyCount = 0;
+		nearbyCollector = this::addNearby;
 
 		areasToAdd = new ArrayList<>();
 
-		sideRectangleResizes = new HashMap<>();
+		sideRectangleResizes = new EnumMap<>(Direction.class);
 
 		nextLevel = "";
 	}
 
 	/**
-	 * Sets up {@code SideRectangles} that represent window edges and sets
-	 * initial status of {@code SwitchRectangle}s.
+	 * Sets up {@code SideRectangles} that represent window edges, merges
+	 * {@code WallRectangle}s, and sets initial status of
+	 * {@code SwitchRectangle}s.
 	 * 
 	 * @param width   Width of play area
 	 * @param height  Height of play area
@@ -88,10 +141,16 @@ public class PhysicsSimulator {
 
 		for (SideRectangle side : sides.values()) {
 			for (Area attached : side.getAttachments()) {
-				areas.add(attached);
+				addToAreas(attached);
 			}
 		}
 
+		collisionWalls = WallMerger.merge(walls);
+		removedWallCount = walls.size() - collisionWalls.size();
+		propagator = new CollisionPropagator(grid, collisionWalls, sides);
+		propagator.setSweptCollision(sweptCollision);
+		sideProximity = new SideProximity(grid, collisionWalls, sides);
+
 		areasToAdd.forEach(a -> addArea(a));
 		areasToAdd.clear();
 		applySwitchAreas();
@@ -99,6 +158,10 @@ public class PhysicsSimulator {
 
 	public void add(MovingRectangle rect) {
 		movingRectangles.add(rect);
+		grid.add(rect);
+		leftOrder.add(rect);
+		topOrder.add(rect);
+		sideOrders.values().forEach(o -> o.add(rect));
 		if (rect instanceof SwitchRectangle) {
 			switchRectangles.add((SwitchRectangle) rect);
 		}
@@ -106,6 +169,7 @@ public class PhysicsSimulator {
 
 	public void add(WallRectangle wall) {
 		walls.add(wall);
+		collisionWalls.add(wall);
 	}
 
 	/**
@@ -125,7 +189,24 @@ public class PhysicsSimulator {
 			goals.add((GoalArea) area);
 		}
 		else {
-			areas.add(area);
+			addToAreas(area);
+		}
+	}
+
+	/**
+	 * Adds {@code area} to {@code areas} and to {@code areaIndex}. If it is
+	 * already in an {@code AreaIndex}, every {@code Area} is applied from then
+	 * on instead of only the ones nearby.
+	 * 
+	 * @param area {@code Area} to add
+	 */
+	private void addToAreas(Area area) {
+		areas.add(area);
+		if (area.getIndex() != null) {
+			areasIndexed = false;
+		}
+		if (areasIndexed) {
+			areaIndex.add(area);
 		}
 	}
 
@@ -153,6 +234,10 @@ public class PhysicsSimulator {
 		moveAllMovingRectangles();
 
 		moveAllSides(width, height, xOffset, yOffset);
+
+		sleepTracker.update();
+		// Attached Areas need to be in place before they are drawn
+		grid.flushAttachments();
 	}
 
 	/**
@@ -201,21 +286,36 @@ public class PhysicsSimulator {
 	 */
 	private void moveAllMovingRectangles() {
 		movingRectangles.forEach(r -> r.updateLastPosition());
+		grid.updateAll();
 		applySwitchAreas();  // Make sure activity doesn't change mid-frame
 
+		sleepTracker.checkAreas(areas);
+		sleepTracker.checkAreas(switchAreas);
+		sleepTracker.checkAreas(goals);
+		for (SwitchRectangle rect : switchRectangles) {
+			if (rect.becameActive() || rect.becameInactive()) {
+				sleepTracker.wake(rect);
+			}
+		}
+
 		// Sort by distance from top (tiebreak distance from left) of screen for
 		// consistency
-		movingRectangles.sort((r1, r2) -> r1.getX() - r2.getX());
-		movingRectangles.sort((r1, r2) -> r1.getY() - r2.getY());
+		leftOrder.sort(grid);
+		topOrder.sort(grid);
 
 		for (SwitchRectangle rect : switchRectangles) {
 			if (rect.becameActive()) {
-				new CollisionPropagator(rect, movingRectangles, walls, sides)
-						.propagateCollision();
+				propagator.propagateCollision(rect);
+				sleepTracker.wakeAfterCollision(rect, propagator);
 			}
 		}
 
-		for (MovingRectangle rect : movingRectangles) {
+		for (int i = 0; i < topOrder.size(); i++) {
+			MovingRectangle rect = topOrder.get(i);
+			if (sleepTracker.isAsleep(rect)) {
+				continue;
+			}
+
 			applyAreas(rect);
 			applyNaturalForces(rect);
 
@@ -225,9 +325,10 @@ public class PhysicsSimulator {
 			}
 
 			rect.moveVelocity();
+			grid.update(rect);
 
-			new CollisionPropagator(rect, movingRectangles, walls, sides)
-					.propagateCollision();
+			propagator.propagateCollision(rect);
+			sleepTracker.wakeAfterCollision(rect, propagator);
 		}
 	}
 
@@ -236,13 +337,70 @@ public class PhysicsSimulator {
 	 * to update the activity of {@code SwitchRectangle}s if necessary.
 	 */
 	public void applySwitchAreas() {
+		grid.flushAttachments();
 		for (SwitchArea area : switchAreas) {
-			for (MovingRectangle rect : movingRectangles) {
-				area.handle(rect);
+			findNearby(area);
+			for (int i = 0; i < nearbyCount; i++) {
+				area.handle(grid.get(nearbyIndices[i]));
 			}
 		}
 	}
 
+	/**
+	 * Finds every {@code MovingRectangle} which {@code area} could affect:
+	 * those overlapping it, and those which were inside it the last time it
+	 * was handled. Handling {@code area} for any other
+	 * {@code MovingRectangle} does nothing.
+	 * <p>
+	 * Their indices in {@code grid} are written into {@code nearbyIndices},
+	 * in order of rank.
+	 * 
+	 * @param area {@code Area} to find {@code MovingRectangle}s for
+	 */
+	private void findNearby(Area area) {
+		if (nearbyIndices.length < 2 * grid.size()) {
+			nearbyIndices = new int[2 * grid.size()];
+		}
+
+		nearbyCount = grid.query(Aabb.min(area.getX(), area.getWidth()),
+				Aabb.min(area.getY(), area.getHeight()),
+				Aabb.max(area.getX(), area.getWidth()),
+				Aabb.max(area.getY(), area.getHeight()), nearbyIndices, 0);
+
+		int overlapping = nearbyCount;
+		area.forEachInside(nearbyCollector);
+		if (nearbyCount == overlapping) {
+			return;
+		}
+
+		// Merge in the ones which were inside, which are usually also
+		// overlapping, and drop duplicates
+		for (int i = 1; i < nearbyCount; i++) {
+			int index = nearbyIndices[i];
+			int rank = grid.getRank(index);
+			int j = i - 1;
+			while (j >= 0 && grid.getRank(nearbyIndices[j]) > rank) {
+				nearbyIndices[j + 1] = nearbyIndices[j];
+				j--;
+			}
+			nearbyIndices[j + 1] = index;
+		}
+		int unique = 0;
+		for (int i = 0; i < nearbyCount; i++) {
+			if (unique == 0 || nearbyIndices[unique - 1] != nearbyIndices[i]) {
+				nearbyIndices[unique++] = nearbyIndices[i];
+			}
+		}
+		nearbyCount = unique;
+	}
+
+	private void addNearby(MovingRectangle rect) {
+		int index = grid.indexOf(rect);
+		if (index >= 0) {
+			nearbyIndices[nearbyCount++] = index;
+		}
+	}
+
 	/**
 	 * Tests if {@code rect} intersects any {@code Area}s and applies effects of
 	 * any it does intersect.
@@ -250,8 +408,48 @@ public class PhysicsSimulator {
 	 * @param rect {@code MovingRectangle} to consider
 	 */
 	private void applyAreas(MovingRectangle rect) {
-		for (Area area : areas) {
-			area.handle(rect);
+		if (!areasIndexed) {
+			for (Area area : areas) {
+				// Earlier Areas can resize rect, which moves its attachments
+				grid.flushAttachments();
+				area.handle(rect);
+			}
+			applyGoalAreas(rect);
+			return;
+		}
+
+		// Areas which rect does not overlap and was not inside do nothing, so
+		// only the rest are handled, in the same order
+		if (areaIds.length < areaIndex.size()) {
+			areaIds = new int[areaIndex.size()];
+		}
+		grid.flushAttachments();
+		int count = areaIndex.query(rect, -1, areaIds);
+		int next = 0;
+		int modCount = areaIndex.getModCount();
+		int x = rect.getX();
+		int y = rect.getY();
+		int width = rect.getWidth();
+		int height = rect.getHeight();
+
+		while (next < count) {
+			int id = areaIds[next++];
+			areaIndex.get(id).handle(rect);
+			// Earlier Areas can resize rect, which moves its attachments
+			grid.flushAttachments();
+
+			// Other Areas may overlap rect now
+			if (modCount != areaIndex.getModCount() || x != rect.getX()
+					|| y != rect.getY() || width != rect.getWidth()
+					|| height != rect.getHeight()) {
+				count = areaIndex.query(rect, id, areaIds);
+				next = 0;
+				modCount = areaIndex.getModCount();
+				x = rect.getX();
+				y = rect.getY();
+				width = rect.getWidth();
+				height = rect.getHeight();
+			}
 		}
 		applyGoalAreas(rect);
 	}
@@ -263,6 +461,7 @@ public class PhysicsSimulator {
 	 * @param rect {@code MovingRectangle} to consider
 	 */
 	private void applyGoalAreas(MovingRectangle rect) {
+		grid.flushAttachments();
 		for (GoalArea goal : goals) {
 			goal.handle(rect);
 			if (goal.hasWon()) {
@@ -308,33 +507,28 @@ public class PhysicsSimulator {
 
 		for (SideRectangle side : sides.values()) {
 			Direction direction = side.getDirection();
+			sideOrders.get(direction).sort(grid);
 			int difference = 0;
 			switch (direction) {
 				// Width/height are super high to prevent bug where
 				// MovingRectangles could phase through the floor because the
 				// floor was not wide enough
 				case NORTH:
-					movingRectangles.sort((r1, r2) -> r1.getY() - r2.getY());
 					difference = calculateCollisionForSide(side,
 							xOffset - 50 * width, yOffset - side.getHeight(),
 							101 * width, side.getHeight());
 					break;
 				case SOUTH:
-					movingRectangles.sort((r1, r2) -> r2.getY() + r2.getHeight()
-							- r1.getY() - r1.getHeight());
 					difference = calculateCollisionForSide(side,
 							xOffset - 50 * width, yOffset + height, 101 * width,
 							side.getHeight());
 					break;
 				case WEST:
-					movingRectangles.sort((r1, r2) -> r1.getX() - r2.getX());
 					difference = calculateCollisionForSide(side,
 							xOffset - side.getWidth(), yOffset - 50 * height,
 							side.getWidth(), 101 * height);
 					break;
 				case EAST:
-					movingRectangles.sort((r1, r2) -> r2.getX() + r2.getWidth()
-							- r1.getX() - r1.getWidth());
 					difference = calculateCollisionForSide(side,
 							xOffset + width, yOffset - 50 * height,
 							side.getWidth(), 101 * height);
@@ -349,8 +543,8 @@ public class PhysicsSimulator {
 	/**
 	 * Resizes a side and handles its collision.
 	 * <p>
-	 * {@code movingRectangles} must be sorted by ascending distance from the
-	 * side.
+	 * The ranks in {@code grid} must be in ascending order of distance from
+	 * the side.
 	 * 
 	 * @param side      {@code SideRectangle} to move
 	 * @param newX      New x position
@@ -367,18 +561,31 @@ public class PhysicsSimulator {
 		side.setWidth(newWidth);
 		side.setHeight(newHeight);
 
+		if (sideProximity.isIdle(side)) {
+			return 0;
+		}
+
 		sides.get(side.getDirection().getOpposite()).setActLikeWall(true);
 
-		int[] pushedBack = new CollisionPropagator(side, movingRectangles,
-				walls, sides).propagateCollision();
+		long pushedBack = propagator.propagateCollision(side);
+		sideProximity.record(side, newX, newY, newWidth, newHeight,
+				pushedBack, propagator.getPushedCount());
+		// Only wake what the side touches if it moved, so things resting
+		// against a still window edge can sleep
+		if (side.getX() != side.getLastX() || side.getY() != side.getLastY()
+				|| side.getWidth() != side.getLastWidth()
+				|| side.getHeight() != side.getLastHeight()) {
+			sleepTracker.wakeAround(side);
+		}
+		sleepTracker.wakePushed(propagator);
 
 		sides.get(side.getDirection().getOpposite()).setActLikeWall(false);
 
 		// Infer side's direction based on how it collided
-		if (pushedBack[0] != 0) {
-			return pushedBack[0];
+		if (CollisionPropagator.unpackX(pushedBack) != 0) {
+			return CollisionPropagator.unpackX(pushedBack);
 		}
-		return pushedBack[1];
+		return CollisionPropagator.unpackY(pushedBack);
 	}
 
 	/**
@@ -401,6 +608,45 @@ public class PhysicsSimulator {
 		goals.stream().filter(g -> g.hasWon()).forEach(g -> g.markUsed());
 	}
 
+	/**
+	 * Returns {@code true} if {@code rect} is asleep and being skipped each
+	 * frame. See {@link SleepTracker}.
+	 * 
+	 * @param rect {@code MovingRectangle} to test
+	 * 
+	 * @return {@code true} if it is asleep
+	 */
+	boolean isAsleep(MovingRectangle rect) {
+		return sleepTracker.isAsleep(rect);
+	}
+
+	/**
+	 * Returns how many {@code WallRectangle}s were removed by merging them
+	 * together in {@code setUp}.
+	 * 
+	 * @return number of {@code WallRectangle}s removed
+	 */
+	public int getRemovedWallCount() {
+		return removedWallCount;
+	}
+
+	/**
+	 * Sets whether collision uses the exact time of impact, so that nothing
+	 * passes through anything however fast it moves. Recordings were made
+	 * without it, so it is off by default. See
+	 * {@link CollisionPropagator#setSweptCollision(boolean)}.
+	 * 
+	 * @param sweptCollision {@code true} to use the time of impact
+	 */
+	public void setSweptCollision(boolean sweptCollision) {
+		this.sweptCollision = sweptCollision;
+		propagator.setSweptCollision(sweptCollision);
+	}
+
+	public boolean isSweptCollision() {
+		return sweptCollision;
+	}
+
 	public Map<Direction, Integer> getResizes() {
 		return sideRectangleResizes;
 	}
@@ -4,12 +4,10 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
@@ -46,8 +44,29 @@ import blockgame.util.Pair;
  * {@link#getLastX()}, {@link#getLastY()}, {@link#getLastWidth()}, and
  * {@link#getLastHeight()}.
  * <p>
+ * Which {@code Rectangle}s can interact with each other is decided by
+ * collision layers. Each {@code Rectangle} is on one kind layer, such as
+ * {@code WALL_LAYER}, and one layer for its {@code ResizeBehavior}, and has a
+ * mask of the layers it can interact with. Subclasses which interact
+ * differently should override {@link #computeKindLayer()} or
+ * {@link #computeLayerMask()} and call {@link #updateLayers()} whenever their
+ * result changes. Their constructors should pass the same values to
+ * {@link #setLayers(int, int)} instead, since they are not fully constructed
+ * yet when {@code updateLayers} would call those methods.
+ * <p>
+ * Each key of a {@code SwitchArea} or {@code SwitchRectangle} gets its own
+ * layer from the {@code KeyLayers} of its level.
+ * <p>
  * A {@code ColorMapper} with values for each {@code Colors} should be set with
  * {@code setColorMapper} before this can be drawn.
+ * <p>
+ * {@link #snapshot()} makes a shallow copy which is not attached to any
+ * {@code Area}s. Subclasses which hold on to other parts of the simulation
+ * should override it to leave those out of the copy, and subclasses which
+ * draw from mutable objects they hold should override it to copy those too.
+ * Subclasses which draw from more fields than their position, size, color and
+ * {@code ResizeBehavior} should override {@link #matchesSnapshot(Drawable)}
+ * to compare them too.
  *
  * @author Frank Kormann
  */
@@ -66,7 +85,7 @@ import blockgame.util.Pair;
 		@JsonSubTypes.Type(value = MovingRectangle.class, name = "MovingRectangle"),
 		@JsonSubTypes.Type(value = SwitchRectangle.class, name = "SwitchRectangle"),
 		@JsonSubTypes.Type(value = WallRectangle.class, name = "WallRectangle") })
-public abstract class Rectangle implements Drawable {
+public abstract class Rectangle implements Drawable, Cloneable {
 
 	private static final float BORDER_DARKNESS = 0.8f;
 	private static final int BORDER_THICKNESS = 1;
@@ -129,6 +148,25 @@ public abstract class Rectangle implements Drawable {
 		SAME_HEIGHT
 	}
 
+	// Collision layers. Kind layers are the low bits, ResizeBehavior layers
+	// are the high bits
+	protected static final int OTHER_LAYER = 1;
+	protected static final int WALL_LAYER = 1 << 1;
+	protected static final int SIDE_NORTH_LAYER = 1 << 2;
+	protected static final int SIDE_SOUTH_LAYER = 1 << 3;
+	protected static final int SIDE_WEST_LAYER = 1 << 4;
+	protected static final int SIDE_EAST_LAYER = 1 << 5;
+	// Shared by every key after the key layers run out. Key layers are
+	// between this and the ResizeBehavior layers, see KeyLayers
+	protected static final int KEY_OVERFLOW_LAYER = 1 << 6;
+	private static final int FIRST_RESIZE_BIT = 28;
+
+	protected static final int SIDE_LAYERS = SIDE_NORTH_LAYER
+			| SIDE_SOUTH_LAYER | SIDE_WEST_LAYER | SIDE_EAST_LAYER;
+	protected static final int RESIZE_LAYERS = -1 << FIRST_RESIZE_BIT;
+	protected static final int KIND_LAYERS = ~RESIZE_LAYERS;
+	protected static final int ALL_LAYERS = -1;
+
 	public enum Colors {
 		BACKGROUND, PLAYER, RED, GREEN, BLUE, ORANGE, GRAY, DARK_GRAY, BLACK,
 		TRANSLUCENT_RED, TRANSLUCENT_GREEN, TRANSLUCENT_BLUE,
@@ -141,7 +179,11 @@ public abstract class Rectangle implements Drawable {
 	private Colors colorEnum;
 	private int x, y, width, height;
 	private ResizeBehavior resizeBehavior;
-	private Map<Area, Set<AttachmentOption>> attachedAreas;
+	private int layers;
+	private int layerMask;
+	private List<Area> attachedAreas;
+	// AttachmentOptions of each attached Area, one bit per option
+	private int[] attachmentOptions;
 
 	public Rectangle(int x, int y, int width, int height, Colors colorEnum,
 			ResizeBehavior resizeBehavior) {
@@ -151,7 +193,12 @@ public abstract class Rectangle implements Drawable {
 		this.width = width;
 		this.height = height;
 		this.resizeBehavior = resizeBehavior;
-		attachedAreas = new HashMap<>();
+		// Subclasses are not constructed yet, so they call setLayers
+		// themselves if they need to
+		layers = OTHER_LAYER | resizeLayer(resizeBehavior);
+		layerMask = ALL_LAYERS;
+		attachedAreas = new ArrayList<>();
+		attachmentOptions = new int[0];
 	}
 
 	public static void setColorMapper(ColorMapper colorMapper) {
@@ -177,44 +224,188 @@ public abstract class Rectangle implements Drawable {
 		g.dispose();
 	}
 
+	@Override
+	public Rectangle snapshot() {
+		Rectangle copy;
+		try {
+			copy = (Rectangle) clone();
+		}
+		catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+		copy.attachedAreas = List.of();
+		copy.attachmentOptions = new int[0];
+		return copy;
+	}
+
+	@Override
+	public boolean matchesSnapshot(Drawable snapshot) {
+		if (snapshot.getClass() != getClass()) {
+			return false;
+		}
+		Rectangle other = (Rectangle) snapshot;
+		return other.x == x && other.y == y && other.width == width
+				&& other.height == height && other.colorEnum == colorEnum
+				&& other.resizeBehavior == resizeBehavior;
+	}
+
+	/**
+	 * Called whenever this moves or changes size. Attached {@code Area}s are
+	 * updated right away by default.
+	 * <p>
+	 * Subclasses may override this to put off updating attached {@code Area}s
+	 * when this changes many times in a row, as long as
+	 * {@link #updateAttachments()} is called before anything looks at them,
+	 * or to keep track of where this is.
+	 */
+	protected void boundsChanged() {
+		updateAttachments();
+	}
+
 	/**
 	 * Moves and resizes all attached {@code Area}s to conform with their
 	 * attachment options.
 	 */
 	protected void updateAttachments() {
-		for (Entry<Area, Set<AttachmentOption>> areaPair : attachedAreas
-				.entrySet()) {
-			Area attached = areaPair.getKey();
-			Set<AttachmentOption> options = areaPair.getValue();
-
-			if (options.contains(AttachmentOption.SAME_WIDTH)) {
-				attached.setWidth(width);
-			}
-
-			if (options.contains(AttachmentOption.SAME_HEIGHT)) {
-				attached.setHeight(height);
-			}
-
-			if (options.contains(AttachmentOption.GLUED_NORTH)) {
-				attached.setX(x);
-				attached.setY(y - attached.getHeight());
-			}
-
-			if (options.contains(AttachmentOption.GLUED_SOUTH)) {
-				attached.setX(x);
-				attached.setY(y + height);
-			}
-
-			if (options.contains(AttachmentOption.GLUED_WEST)) {
-				attached.setX(x - attached.getWidth());
-				attached.setY(y);
-			}
-
-			if (options.contains(AttachmentOption.GLUED_EAST)) {
-				attached.setX(x + width);
-				attached.setY(y);
-			}
+		for (int i = 0; i < attachedAreas.size(); i++) {
+			updateAttachment(attachedAreas.get(i), attachmentOptions[i]);
+		}
+	}
+
+	/**
+	 * Moves and resizes {@code attached} to conform with {@code options}.
+	 * 
+	 * @param attached {@code Area} to move
+	 * @param options  {@code AttachmentOption}s of {@code attached}, as
+	 *                 returned by {@link #optionBits(Collection)}
+	 */
+	private void updateAttachment(Area attached, int options) {
+		if (hasOption(options, AttachmentOption.SAME_WIDTH)) {
+			attached.setWidth(width);
+		}
+
+		if (hasOption(options, AttachmentOption.SAME_HEIGHT)) {
+			attached.setHeight(height);
+		}
+
+		if (hasOption(options, AttachmentOption.GLUED_NORTH)) {
+			attached.setX(x);
+			attached.setY(y - attached.getHeight());
+		}
+
+		if (hasOption(options, AttachmentOption.GLUED_SOUTH)) {
+			attached.setX(x);
+			attached.setY(y + height);
 		}
+
+		if (hasOption(options, AttachmentOption.GLUED_WEST)) {
+			attached.setX(x - attached.getWidth());
+			attached.setY(y);
+		}
+
+		if (hasOption(options, AttachmentOption.GLUED_EAST)) {
+			attached.setX(x + width);
+			attached.setY(y);
+		}
+	}
+
+	/**
+	 * Returns {@code options} as a bitmask with one bit set for each
+	 * {@code AttachmentOption}.
+	 * 
+	 * @param options {@code AttachmentOption}s to convert
+	 * 
+	 * @return bitmask of {@code options}
+	 */
+	private static int optionBits(Collection<AttachmentOption> options) {
+		int bits = 0;
+		for (AttachmentOption option : options) {
+			bits |= 1 << option.ordinal();
+		}
+		return bits;
+	}
+
+	private static boolean hasOption(int options, AttachmentOption option) {
+		return (options & (1 << option.ordinal())) != 0;
+	}
+
+	/**
+	 * Returns the layer for {@code resizeBehavior}. {@code null} is treated
+	 * like {@code STAY}.
+	 * 
+	 * @param resizeBehavior {@code ResizeBehavior} to get the layer of
+	 * 
+	 * @return layer with one bit set
+	 */
+	protected static int resizeLayer(ResizeBehavior resizeBehavior) {
+		if (resizeBehavior == null) {
+			resizeBehavior = ResizeBehavior.STAY;
+		}
+		return 1 << (FIRST_RESIZE_BIT + resizeBehavior.ordinal());
+	}
+
+	/**
+	 * Returns the kind layer this is on. Should only have one bit set, within
+	 * {@code KIND_LAYERS}.
+	 * 
+	 * @return kind layer
+	 */
+	protected int computeKindLayer() {
+		return OTHER_LAYER;
+	}
+
+	/**
+	 * Returns the layers this can interact with. Should include at least one
+	 * bit in {@code KIND_LAYERS} and one in {@code RESIZE_LAYERS}.
+	 * 
+	 * @return layer mask
+	 */
+	protected int computeLayerMask() {
+		return ALL_LAYERS;
+	}
+
+	/**
+	 * Recomputes the layers this is on and the layers it can interact with.
+	 * Should be called whenever {@link #computeKindLayer()} or
+	 * {@link #computeLayerMask()} would return something different.
+	 */
+	protected final void updateLayers() {
+		setLayers(computeKindLayer(), computeLayerMask());
+	}
+
+	/**
+	 * Sets the kind layer this is on and the layers it can interact with. The
+	 * {@code ResizeBehavior} layer is added to {@code kindLayer}.
+	 * <p>
+	 * Constructors of subclasses should call this with what
+	 * {@link #computeKindLayer()} and {@link #computeLayerMask()} will return,
+	 * rather than calling {@link #updateLayers()}.
+	 * 
+	 * @param kindLayer kind layer, with one bit set
+	 * @param layerMask layers this can interact with
+	 */
+	protected final void setLayers(int kindLayer, int layerMask) {
+		layers = kindLayer | resizeLayer(resizeBehavior);
+		this.layerMask = layerMask;
+	}
+
+	/**
+	 * Returns the layers this is on: one kind layer and one layer for its
+	 * {@code ResizeBehavior}.
+	 * 
+	 * @return layers
+	 */
+	public int getLayers() {
+		return layers;
+	}
+
+	/**
+	 * Returns the layers this can interact with.
+	 * 
+	 * @return layer mask
+	 */
+	public int getLayerMask() {
+		return layerMask;
 	}
 
 	/**
@@ -223,12 +414,49 @@ public abstract class Rectangle implements Drawable {
 	 * This method should usually be called both ways. It is possible that
 	 * {@code this.canInteract(other)} is {@code true} but
 	 * {@code other.canInteract(this)} is {@code false}.
+	 * <p>
+	 * This is decided by collision layers. See {@link Rectangle}.
 	 * 
 	 * @param other {@code Rectangle} which is to be tested against
 	 * 
 	 * @return {@code true} if this thinks it can interact with {@code other}
 	 */
-	public boolean canInteract(Rectangle other) {
+	public final boolean canInteract(Rectangle other) {
+		return canInteract(layerMask, other);
+	}
+
+	/**
+	 * Returns true if this would think it can interact with {@code other} if
+	 * its layer mask was {@code mask}. {@code other} must be on both a kind
+	 * layer and a {@code ResizeBehavior} layer in {@code mask}.
+	 * 
+	 * @param mask  layer mask to use
+	 * @param other {@code Rectangle} which is to be tested against
+	 * 
+	 * @return {@code true} if this thinks it can interact with {@code other}
+	 */
+	protected final boolean canInteract(int mask, Rectangle other) {
+		int shared = mask & other.layers;
+		if ((shared & KIND_LAYERS) == 0 || (shared & RESIZE_LAYERS) == 0) {
+			return false;
+		}
+		return (shared & KIND_LAYERS) != KEY_OVERFLOW_LAYER
+				|| matchesOverflowKey(mask, other);
+	}
+
+	/**
+	 * Returns true if this can interact with {@code other}, which is only on
+	 * {@code KEY_OVERFLOW_LAYER} out of the kind layers in {@code mask}.
+	 * Subclasses which use a layer from {@link KeyLayers} in their layer mask
+	 * should override this to compare keys, since every key on
+	 * {@code KEY_OVERFLOW_LAYER} shares the same layer.
+	 * 
+	 * @param mask  layer mask being used
+	 * @param other {@code Rectangle} which is to be tested against
+	 * 
+	 * @return {@code true} if this can interact with {@code other}
+	 */
+	protected boolean matchesOverflowKey(int mask, Rectangle other) {
 		return true;
 	}
 
@@ -262,11 +490,8 @@ public abstract class Rectangle implements Drawable {
 	 * @return true if they intersect in the x direction
 	 */
 	public boolean intersectsX(Rectangle other) {
-		boolean inBoundsX = (x <= other.getX() && other.getX() < x + width)
-				|| (x < other.getX() + other.getWidth()
-						&& other.getX() + other.getWidth() <= x + width)
-				|| (other.getX() < x && x < other.getX() + other.getWidth());
-		return canInteract(other) && other.canInteract(this) && inBoundsX;
+		return Aabb.overlapsX(x, width, other.getX(), other.getWidth())
+				&& canInteract(other) && other.canInteract(this);
 	}
 
 	/**
@@ -277,11 +502,8 @@ public abstract class Rectangle implements Drawable {
 	 * @return true if they intersect in the y direction
 	 */
 	public boolean intersectsY(Rectangle other) {
-		boolean inBoundsY = (y <= other.getY() && other.getY() < y + height)
-				|| (y < other.getY() + other.getHeight()
-						&& other.getY() + other.getHeight() <= y + height)
-				|| (other.getY() <= y && y < other.getY() + other.getHeight());
-		return canInteract(other) && other.canInteract(this) && inBoundsY;
+		return Aabb.overlapsY(y, height, other.getY(), other.getHeight())
+				&& canInteract(other) && other.canInteract(this);
 	}
 
 	/**
@@ -293,16 +515,8 @@ public abstract class Rectangle implements Drawable {
 	 * @return true if they used to intersect in the x direction
 	 */
 	public boolean usedToIntersectX(Rectangle other) {
-		boolean usedToBeInBoundsX = (getLastX() <= other.getLastX()
-				&& other.getLastX() < getLastX() + getLastWidth())
-				|| (getLastX() < other.getLastX() + other.getLastWidth()
-						&& other.getLastX() + other.getLastWidth() <= getLastX()
-								+ getLastWidth())
-				|| (other.getLastX() < getLastX()
-						&& getLastX() < other.getLastX()
-								+ other.getLastWidth());
-		return canInteract(other) && other.canInteract(this)
-				&& usedToBeInBoundsX;
+		return Aabb.overlapsX(getLastX(), getLastWidth(), other.getLastX(),
+				other.getLastWidth()) && usedToInteract(other);
 	}
 
 	/**
@@ -314,17 +528,23 @@ public abstract class Rectangle implements Drawable {
 	 * @return true if they used to intersect in the y direction
 	 */
 	public boolean usedToIntersectY(Rectangle other) {
-		boolean usedToBeInBoundsY = (getLastY() <= other.getLastY()
-				&& other.getLastY() < getLastY() + getLastHeight())
-				|| (getLastY() < other.getLastY() + other.getLastHeight()
-						&& other.getLastY()
-								+ other.getLastHeight() <= getLastY()
-										+ getLastHeight())
-				|| (other.getLastY() < getLastY()
-						&& getLastY() < other.getLastY()
-								+ other.getLastHeight());
-		return canInteract(other) && other.canInteract(this)
-				&& usedToBeInBoundsY;
+		return Aabb.overlapsY(getLastY(), getLastHeight(), other.getLastY(),
+				other.getLastHeight()) && usedToInteract(other);
+	}
+
+	/**
+	 * Returns {@code true} if this and {@code other} could interact on the
+	 * previous frame. Used by {@code usedToIntersectX} and
+	 * {@code usedToIntersectY}.
+	 * <p>
+	 * By default, this is the same as whether they can interact now.
+	 * 
+	 * @param other other {@code Rectangle}
+	 * 
+	 * @return {@code true} if they could interact on the previous frame
+	 */
+	protected boolean usedToInteract(Rectangle other) {
+		return canInteract(other) && other.canInteract(this);
 	}
 
 	public int getX() {
@@ -342,7 +562,7 @@ public abstract class Rectangle implements Drawable {
 
 	public void setX(int x) {
 		this.x = x;
-		updateAttachments();
+		boundsChanged();
 	}
 
 	public int getY() {
@@ -360,7 +580,7 @@ public abstract class Rectangle implements Drawable {
 
 	public void setY(int y) {
 		this.y = y;
-		updateAttachments();
+		boundsChanged();
 	}
 
 	public int getWidth() {
@@ -378,7 +598,7 @@ public abstract class Rectangle implements Drawable {
 
 	public void setWidth(int width) {
 		this.width = width;
-		updateAttachments();
+		boundsChanged();
 	}
 
 	public int getHeight() {
@@ -396,11 +616,12 @@ public abstract class Rectangle implements Drawable {
 
 	public void setHeight(int height) {
 		this.height = height;
-		updateAttachments();
+		boundsChanged();
 	}
 
 	public void setResizeBehavior(ResizeBehavior resizeBehavior) {
 		this.resizeBehavior = resizeBehavior;
+		updateLayers();
 	}
 
 	public ResizeBehavior getResizeBehavior() {
@@ -427,9 +648,7 @@ public abstract class Rectangle implements Drawable {
 	}
 
 	public void addAttachment(Area attachment, AttachmentOption... options) {
-		Set<AttachmentOption> optionsSet = new HashSet<AttachmentOption>(
-				Arrays.asList(options));
-		attachedAreas.put(attachment, optionsSet);
+		putAttachment(attachment, optionBits(Arrays.asList(options)));
 		updateAttachments();
 	}
 
@@ -437,17 +656,49 @@ public abstract class Rectangle implements Drawable {
 	public void addAllAttachments(
 			List<Pair<Area, Set<AttachmentOption>>> attachments) {
 		for (Pair<Area, Set<AttachmentOption>> pair : attachments) {
-			attachedAreas.put(pair.first, pair.second);
+			putAttachment(pair.first, optionBits(pair.second));
 		}
 		updateAttachments();
 	}
 
+	/**
+	 * Attaches {@code attachment} with {@code options}, replacing its options
+	 * if it is already attached.
+	 */
+	private void putAttachment(Area attachment, int options) {
+		int index = attachedAreas.indexOf(attachment);
+		if (index == -1) {
+			index = attachedAreas.size();
+			attachedAreas.add(attachment);
+			attachmentOptions = Arrays.copyOf(attachmentOptions, index + 1);
+		}
+		attachmentOptions[index] = options;
+	}
+
 	public void removeAttachment(Area attachment) {
-		attachedAreas.remove(attachment);
+		int index = attachedAreas.indexOf(attachment);
+		if (index == -1) {
+			return;
+		}
+		attachedAreas.remove(index);
+		System.arraycopy(attachmentOptions, index + 1, attachmentOptions,
+				index, attachedAreas.size() - index);
+	}
+
+	/**
+	 * Performs {@code action} on every attached {@code Area}. Unlike
+	 * {@link #getAttachments()}, this does not allocate anything.
+	 * 
+	 * @param action what to do with each {@code Area}
+	 */
+	public void forEachAttachment(Consumer<Area> action) {
+		for (int i = 0; i < attachedAreas.size(); i++) {
+			action.accept(attachedAreas.get(i));
+		}
 	}
 
 	public List<Area> getAttachments() {
-		return new ArrayList<>(attachedAreas.keySet());
+		return new ArrayList<>(attachedAreas);
 	}
 
 	@Override
@@ -5,6 +5,7 @@ import java.awt.Graphics;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import blockgame.gui.Drawable;
 import blockgame.gui.MainFrame.Direction;
 import blockgame.util.DrawUtils;
 
@@ -85,6 +86,15 @@ public class ShrinkArea extends Area {
 		g.dispose();
 	}
 
+	@Override
+	public boolean matchesSnapshot(Drawable snapshot) {
+		if (!super.matchesSnapshot(snapshot)) {
+			return false;
+		}
+		ShrinkArea other = (ShrinkArea) snapshot;
+		return other.xShrink == xShrink && other.yShrink == yShrink;
+	}
+
 	/**
 	 * Not implemented.
 	 * 
@@ -0,0 +1,142 @@
+package blockgame.physics;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import blockgame.gui.MainFrame.Direction;
+
+/**
+ * Keeps track of which window sides can skip collision on a frame.
+ * <p>
+ * A {@code SideRectangle} is idle if it did not move, nothing it could
+ * collide with has changed since the last time collision from it did
+ * nothing, and no {@code MovingRectangle} is within its reach. Collision from
+ * an idle {@code SideRectangle} would do nothing again, so it can be skipped.
+ * <p>
+ * Its reach is its swept area, which is where {@code CollisionPropagator}
+ * looks for {@code MovingRectangle}s to push.
+ *
+ * @author Frank Kormann
+ */
+class SideProximity {
+
+	private static final int STATE_SIZE = 21;
+
+	private SpatialGrid grid;
+	private List<WallRectangle> walls;
+	private Map<Direction, SideRectangle> sides;
+
+	// State of each side the last time collision from it did nothing
+	private Map<Direction, int[]> idleStates;
+	private int[] state;
+	private int[] queryResult;
+
+	/**
+	 * Creates a {@code SideProximity} for {@code sides}.
+	 *
+	 * @param grid  {@code SpatialGrid} of {@code MovingRectangle}s which
+	 *              {@code sides} can push
+	 * @param walls {@code WallRectangle}s which {@code sides} collide with
+	 * @param sides window sides
+	 */
+	SideProximity(SpatialGrid grid, List<WallRectangle> walls,
+			Map<Direction, SideRectangle> sides) {
+		this.grid = grid;
+		this.walls = walls;
+		this.sides = sides;
+		idleStates = new EnumMap<>(Direction.class);
+		state = new int[STATE_SIZE];
+		queryResult = new int[0];
+	}
+
+	/**
+	 * Returns {@code true} if collision from {@code side} can be skipped. It
+	 * should already be moved to its new position for this frame.
+	 *
+	 * @param side {@code SideRectangle} to test
+	 *
+	 * @return {@code true} if propagating collision from {@code side} would
+	 *         do nothing
+	 */
+	boolean isIdle(SideRectangle side) {
+		int[] idleState = idleStates.get(side.getDirection());
+		if (idleState == null || !isStill(side)) {
+			return false;
+		}
+		fillState(side, state);
+		if (!Arrays.equals(idleState, state)) {
+			return false;
+		}
+
+		if (queryResult.length < grid.size()) {
+			queryResult = new int[grid.size()];
+		}
+		return grid.query(side, -1, queryResult, 0) == 0;
+	}
+
+	/**
+	 * Records the result of propagating collision from {@code side}.
+	 *
+	 * @param side        {@code SideRectangle} collision was propagated from
+	 * @param newX        x position {@code side} was moved to beforehand
+	 * @param newY        y position {@code side} was moved to beforehand
+	 * @param newWidth    width {@code side} was set to beforehand
+	 * @param newHeight   height {@code side} was set to beforehand
+	 * @param pushedBack  amount {@code side} was pushed back
+	 * @param pushedCount number of {@code MovingRectangle}s it pushed
+	 */
+	void record(SideRectangle side, int newX, int newY, int newWidth,
+			int newHeight, long pushedBack, int pushedCount) {
+		Direction direction = side.getDirection();
+		if (pushedBack != 0 || pushedCount != 0 || !isStill(side)
+				|| side.getX() != newX || side.getY() != newY
+				|| side.getWidth() != newWidth
+				|| side.getHeight() != newHeight) {
+			idleStates.remove(direction);
+			return;
+		}
+
+		int[] idleState = idleStates.get(direction);
+		if (idleState == null) {
+			idleState = new int[STATE_SIZE];
+			idleStates.put(direction, idleState);
+		}
+		fillState(side, idleState);
+	}
+
+	private static boolean isStill(SideRectangle side) {
+		return side.getX() == side.getLastX() && side.getY() == side.getLastY()
+				&& side.getWidth() == side.getLastWidth()
+				&& side.getHeight() == side.getLastHeight();
+	}
+
+	/**
+	 * Writes everything that collision from {@code side} with walls and the
+	 * opposite side depends on into {@code result}.
+	 */
+	private void fillState(SideRectangle side, int[] result) {
+		SideRectangle opposite = sides.get(side.getDirection().getOpposite());
+		fillBounds(side, result, 0);
+		result[8] = side.getLeftWidthChange();
+		result[9] = side.getTopHeightChange();
+		fillBounds(opposite, result, 10);
+		// Used to decide which way to push when positions are tied
+		result[18] = sides.get(Direction.EAST).getX();
+		result[19] = sides.get(Direction.SOUTH).getY();
+		result[20] = walls.size();
+	}
+
+	private static void fillBounds(Rectangle rect, int[] result, int start) {
+		result[start] = rect.getX();
+		result[start + 1] = rect.getY();
+		result[start + 2] = rect.getWidth();
+		result[start + 3] = rect.getHeight();
+		result[start + 4] = rect.getLastX();
+		result[start + 5] = rect.getLastY();
+		result[start + 6] = rect.getLastWidth();
+		result[start + 7] = rect.getLastHeight();
+	}
+
+}
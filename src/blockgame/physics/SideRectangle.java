@@ -24,6 +24,7 @@ public class SideRectangle extends MovingRectangle {
 		super(x, y, width, height);
 		this.direction = direction;
 		actingLikeWall = true;
+		setLayers(kindLayer(direction), layerMask(direction));
 
 		if (direction != Direction.SOUTH) {
 			getAttachments().stream()
@@ -33,22 +34,56 @@ public class SideRectangle extends MovingRectangle {
 	}
 
 	@Override
-	public boolean canInteract(Rectangle other) {
-		if (other instanceof SideRectangle)
-			return false;
+	protected int computeKindLayer() {
+		return kindLayer(direction);
+	}
+
+	@Override
+	protected int computeLayerMask() {
+		return layerMask(direction);
+	}
+
+	/**
+	 * Returns the kind layer of a {@code SideRectangle} in {@code direction}.
+	 * 
+	 * @param direction {@code Direction} of the side
+	 * 
+	 * @return kind layer
+	 */
+	private static int kindLayer(Direction direction) {
+		if (direction == Direction.SOUTH) {
+			return SIDE_SOUTH_LAYER;
+		}
+		if (direction == Direction.WEST) {
+			return SIDE_WEST_LAYER;
+		}
+		if (direction == Direction.EAST) {
+			return SIDE_EAST_LAYER;
+		}
+		return SIDE_NORTH_LAYER;
+	}
 
-		switch (other.getResizeBehavior()) {
-			case STAY:
-				return false;
-			case PREVENT_X:
-				return direction == Direction.WEST
-						|| direction == Direction.EAST;
-			case PREVENT_Y:
-				return direction == Direction.NORTH
-						|| direction == Direction.SOUTH;
-			default:
-				return true;
+	/**
+	 * Returns the layer mask of a {@code SideRectangle} in {@code direction}.
+	 * It can not interact with other {@code SideRectangle}s or with
+	 * {@code Rectangle}s whose {@code ResizeBehavior} is {@code STAY}, or
+	 * {@code PREVENT_X} or {@code PREVENT_Y} when it is not in that
+	 * direction.
+	 * 
+	 * @param direction {@code Direction} of the side
+	 * 
+	 * @return layer mask
+	 */
+	private static int layerMask(Direction direction) {
+		int mask = (KIND_LAYERS & ~SIDE_LAYERS)
+				| resizeLayer(ResizeBehavior.MOVE);
+		if (direction == Direction.WEST || direction == Direction.EAST) {
+			mask |= resizeLayer(ResizeBehavior.PREVENT_X);
+		}
+		if (direction == Direction.NORTH || direction == Direction.SOUTH) {
+			mask |= resizeLayer(ResizeBehavior.PREVENT_Y);
 		}
+		return mask;
 	}
 
 	@Override
@@ -0,0 +1,321 @@
+package blockgame.physics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of which {@code MovingRectangle}s in a {@code SpatialGrid} are
+ * asleep. {@code PhysicsSimulator} skips sleeping {@code MovingRectangle}s
+ * when moving things each frame, so a level full of resting blocks costs
+ * almost nothing to simulate.
+ * <p>
+ * A {@code MovingRectangle} falls asleep once it has been at rest for
+ * {@code FRAMES_BEFORE_SLEEP} frames in a row, meaning its position, size, and
+ * velocity did not change over the frame. It must also only be touching other
+ * {@code MovingRectangle}s which are falling asleep at the same time or are
+ * already asleep. Player-controlled {@code MovingRectangle}s never sleep.
+ * <p>
+ * A {@code MovingRectangle} at rest would do the same thing every frame if
+ * nothing around it changed, so skipping it makes no difference. It is woken
+ * up as soon as anything which could affect it changes:
+ * <ul>
+ * <li>something moves into or away from it
+ * <li>it is pushed
+ * <li>an {@code Area} which overlaps it moves, changes size, or becomes active
+ * or inactive
+ * <li>it is a {@code SwitchRectangle} which becomes active or inactive
+ * </ul>
+ * Waking up a {@code MovingRectangle} also wakes up every sleeping
+ * {@code MovingRectangle} touching it, and so on, since they may have been
+ * resting on it.
+ * <p>
+ * "Touching" uses the swept areas in the {@code SpatialGrid}, including their
+ * edges.
+ *
+ * @author Frank Kormann
+ */
+class SleepTracker {
+
+	static final int FRAMES_BEFORE_SLEEP = 30;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private SpatialGrid grid;
+
+	// Each of these is indexed by index in grid
+	private int[] restingFrames;
+	private boolean[] asleep;
+	// Used while deciding which MovingRectangles can fall asleep
+	private boolean[] mustStayAwake;
+
+	// Indices whose neighbors still need to be looked at
+	private int[] worklist;
+	private int worklistSize;
+	private int[] queryResult;
+
+	// Bounds and activity of each Area when it was last checked
+	private Map<Area, int[]> areaStates;
+	private Consumer<Area> areaChecker;
+
+	/**
+	 * Creates a {@code SleepTracker} for the {@code MovingRectangle}s in
+	 * {@code grid}. Every {@code MovingRectangle} starts awake.
+	 *
+	 * @param grid {@code SpatialGrid} of {@code MovingRectangle}s
+	 */
+	SleepTracker(SpatialGrid grid) {
+		this.grid = grid;
+
+		restingFrames = new int[INITIAL_CAPACITY];
+		asleep = new boolean[INITIAL_CAPACITY];
+		mustStayAwake = new boolean[INITIAL_CAPACITY];
+		worklist = new int[INITIAL_CAPACITY];
+		worklistSize = 0;
+		queryResult = new int[INITIAL_CAPACITY];
+
+		areaStates = new IdentityHashMap<>();
+		areaChecker = this::checkArea;
+	}
+
+	/**
+	 * Returns {@code true} if {@code rect} is asleep.
+	 *
+	 * @param rect {@code MovingRectangle} to test
+	 *
+	 * @return {@code true} if it is asleep
+	 */
+	boolean isAsleep(MovingRectangle rect) {
+		int index = grid.indexOf(rect);
+		return index >= 0 && index < asleep.length && asleep[index];
+	}
+
+	/**
+	 * Wakes up {@code rect} and everything touching it.
+	 *
+	 * @param rect {@code MovingRectangle} to wake up
+	 */
+	void wake(MovingRectangle rect) {
+		int index = grid.indexOf(rect);
+		if (index >= 0) {
+			ensureCapacity();
+			wake(index);
+			wakeNeighbors();
+		}
+	}
+
+	/**
+	 * Wakes up everything touching the swept area of {@code moved}, and
+	 * everything overlapping its attached {@code Area}s if they have changed.
+	 * Should be called whenever a {@code Rectangle} moves or changes size.
+	 *
+	 * @param moved {@code Rectangle} which moved
+	 */
+	void wakeAround(Rectangle moved) {
+		ensureCapacity();
+		int count = grid.query(moved, -1, queryResult, 0);
+		wakeAll(count);
+		grid.flushAttachments();
+		moved.forEachAttachment(areaChecker);
+	}
+
+	/**
+	 * Wakes up everything touched by the latest call to
+	 * {@code propagator.propagateCollision(moved)}.
+	 *
+	 * @param moved      {@code Rectangle} which collision was propagated from
+	 * @param propagator {@code CollisionPropagator} which propagated it
+	 */
+	void wakeAfterCollision(Rectangle moved, CollisionPropagator propagator) {
+		wakeAround(moved);
+		wakePushed(propagator);
+	}
+
+	/**
+	 * Wakes up every {@code MovingRectangle} pushed during the latest call to
+	 * {@code propagator.propagateCollision}, and everything around them.
+	 *
+	 * @param propagator {@code CollisionPropagator} which propagated collision
+	 */
+	void wakePushed(CollisionPropagator propagator) {
+		for (int i = 0; i < propagator.getPushedCount(); i++) {
+			wakeAround(grid.get(propagator.getPushed(i)));
+		}
+	}
+
+	/**
+	 * Wakes up everything overlapping any of {@code areas} which have moved,
+	 * changed size, or changed activity since they were last checked. An
+	 * {@code Area} which has never been checked counts as changed.
+	 *
+	 * @param areas {@code Area}s to check
+	 */
+	void checkAreas(Collection<? extends Area> areas) {
+		grid.flushAttachments();
+		areas.forEach(areaChecker);
+	}
+
+	/**
+	 * Updates how long each {@code MovingRectangle} has been at rest and puts
+	 * to sleep the ones which can. Should be called at the end of each frame.
+	 */
+	void update() {
+		ensureCapacity();
+		int size = grid.size();
+
+		boolean anyCandidates = false;
+		for (int i = 0; i < size; i++) {
+			if (asleep[i]) {
+				continue;
+			}
+			if (isAtRest(i)) {
+				restingFrames[i]++;
+			}
+			else {
+				restingFrames[i] = 0;
+			}
+			mustStayAwake[i] = restingFrames[i] < FRAMES_BEFORE_SLEEP;
+			anyCandidates |= !mustStayAwake[i];
+		}
+		if (!anyCandidates) {
+			return;
+		}
+
+		// Anything touching a MovingRectangle which must stay awake must also
+		// stay awake
+		worklistSize = 0;
+		for (int i = 0; i < size; i++) {
+			if (!asleep[i] && mustStayAwake[i]) {
+				worklist[worklistSize++] = i;
+			}
+		}
+		while (worklistSize > 0) {
+			int index = worklist[--worklistSize];
+			int count = grid.query(grid.get(index), -1, queryResult, 0);
+			for (int i = 0; i < count; i++) {
+				int other = queryResult[i];
+				if (!asleep[other] && !mustStayAwake[other]) {
+					mustStayAwake[other] = true;
+					worklist[worklistSize++] = other;
+				}
+			}
+		}
+
+		for (int i = 0; i < size; i++) {
+			if (!mustStayAwake[i]) {
+				asleep[i] = true;
+			}
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the {@code MovingRectangle} at {@code index} did
+	 * not move, change size, or change velocity this frame and is not
+	 * controlled by the player.
+	 */
+	private boolean isAtRest(int index) {
+		BodyTable table = grid.getTable();
+		return !table.hasFlag(index, BodyTable.CONTROLLED_BY_PLAYER)
+				&& table.getXVelocity(index) == 0
+				&& table.getYVelocity(index) == 0 && table.isStill(index);
+	}
+
+	/**
+	 * Wakes up everything overlapping {@code area} if it has changed since it
+	 * was last checked.
+	 *
+	 * @param area {@code Area} to check
+	 */
+	private void checkArea(Area area) {
+		int[] state = areaStates.get(area);
+		int active = area.getActive() ? 1 : 0;
+		if (state != null && state[0] == area.getX()
+				&& state[1] == area.getY() && state[2] == area.getWidth()
+				&& state[3] == area.getHeight() && state[4] == active) {
+			return;
+		}
+
+		int minX = area.getX();
+		int minY = area.getY();
+		int maxX = area.getX() + area.getWidth();
+		int maxY = area.getY() + area.getHeight();
+		if (state == null) {
+			state = new int[5];
+			areaStates.put(area, state);
+		}
+		else {
+			minX = Math.min(minX, state[0]);
+			minY = Math.min(minY, state[1]);
+			maxX = Math.max(maxX, state[0] + state[2]);
+			maxY = Math.max(maxY, state[1] + state[3]);
+		}
+		state[0] = area.getX();
+		state[1] = area.getY();
+		state[2] = area.getWidth();
+		state[3] = area.getHeight();
+		state[4] = active;
+
+		ensureCapacity();
+		wakeAll(grid.query(minX, minY, maxX, maxY, queryResult, 0));
+	}
+
+	/**
+	 * Wakes up the first {@code count} indices in {@code queryResult} and
+	 * everything touching them.
+	 */
+	private void wakeAll(int count) {
+		for (int i = 0; i < count; i++) {
+			wake(queryResult[i]);
+		}
+		wakeNeighbors();
+	}
+
+	/**
+	 * Wakes up {@code index} and adds it to {@code worklist} if it was asleep.
+	 */
+	private void wake(int index) {
+		if (asleep[index]) {
+			asleep[index] = false;
+			restingFrames[index] = 0;
+			worklist[worklistSize++] = index;
+		}
+	}
+
+	/**
+	 * Wakes up everything touching the indices in {@code worklist}, until
+	 * there is nothing left to wake up.
+	 */
+	private void wakeNeighbors() {
+		while (worklistSize > 0) {
+			int index = worklist[--worklistSize];
+			int count = grid.query(grid.get(index), -1, queryResult, 0);
+			for (int i = 0; i < count; i++) {
+				int other = queryResult[i];
+				if (asleep[other]) {
+					asleep[other] = false;
+					restingFrames[other] = 0;
+					worklist[worklistSize++] = other;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes sure there is room for every {@code MovingRectangle} in
+	 * {@code grid}.
+	 */
+	private void ensureCapacity() {
+		int size = grid.size();
+		if (restingFrames.length < size) {
+			int newLength = Math.max(size, restingFrames.length * 2);
+			restingFrames = Arrays.copyOf(restingFrames, newLength);
+			asleep = Arrays.copyOf(asleep, newLength);
+			mustStayAwake = Arrays.copyOf(mustStayAwake, newLength);
+			worklist = Arrays.copyOf(worklist, newLength);
+			queryResult = Arrays.copyOf(queryResult, newLength);
+		}
+	}
+
+}
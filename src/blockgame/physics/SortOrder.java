@@ -0,0 +1,139 @@
+package blockgame.physics;
+
+import java.util.Arrays;
+
+/**
+ * Ordering of every {@code MovingRectangle} in a {@code SpatialGrid} by one
+ * edge, which is kept from frame to frame.
+ * <p>
+ * Calling {@link #sort(SpatialGrid)} gives exactly the same order as a stable
+ * sort of the {@code MovingRectangle}s in order of their current rank: ties
+ * are broken by rank. Since {@code MovingRectangle}s only move a few pixels
+ * each frame, the order from the previous frame is almost always nearly
+ * sorted already, so it is re-sorted with insertion sort. This takes linear
+ * time when nothing has overtaken anything else.
+ *
+ * @author Frank Kormann
+ */
+class SortOrder {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Edge to sort by. {@code TOP} and {@code LEFT} sort in ascending order;
+	 * {@code BOTTOM} and {@code RIGHT} sort in descending order.
+	 */
+	enum Key {
+		TOP, BOTTOM, LEFT, RIGHT;
+
+		private int of(BodyTable table, int index) {
+			switch (this) {
+				case TOP:
+					return table.getY(index);
+				case BOTTOM:
+					return -table.getY(index) - table.getHeight(index);
+				case LEFT:
+					return table.getX(index);
+				case RIGHT:
+					return -table.getX(index) - table.getWidth(index);
+			}
+			return 0;
+		}
+	}
+
+	private Key key;
+
+	private MovingRectangle[] order;
+	// Sort key and rank of each entry in order, filled in at the start of sort
+	private int[] keys;
+	private int[] ranks;
+	private int size;
+
+	/**
+	 * Creates an empty {@code SortOrder}.
+	 *
+	 * @param key edge to sort by
+	 */
+	SortOrder(Key key) {
+		this.key = key;
+
+		order = new MovingRectangle[INITIAL_CAPACITY];
+		keys = new int[INITIAL_CAPACITY];
+		ranks = new int[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * Adds {@code rect} to the end of this. It is moved into place on the next
+	 * call to {@code sort}.
+	 *
+	 * @param rect {@code MovingRectangle} to add
+	 */
+	void add(MovingRectangle rect) {
+		if (size == order.length) {
+			int newLength = order.length * 2;
+			order = Arrays.copyOf(order, newLength);
+			keys = Arrays.copyOf(keys, newLength);
+			ranks = Arrays.copyOf(ranks, newLength);
+		}
+		order[size++] = rect;
+	}
+
+	/**
+	 * Sorts this by its {@code Key}, breaking ties by each
+	 * {@code MovingRectangle}'s rank in {@code grid}, then sets the rank of
+	 * every {@code MovingRectangle} in {@code grid} to its position in this.
+	 * <p>
+	 * Every {@code MovingRectangle} in this must be in {@code grid}.
+	 *
+	 * @param grid {@code SpatialGrid} to take ranks from and update
+	 */
+	void sort(SpatialGrid grid) {
+		BodyTable table = grid.getTable();
+		for (int i = 0; i < size; i++) {
+			int index = grid.indexOf(order[i]);
+			keys[i] = key.of(table, index);
+			ranks[i] = grid.getRank(index);
+		}
+
+		for (int i = 1; i < size; i++) {
+			MovingRectangle rect = order[i];
+			int rectKey = keys[i];
+			int rectRank = ranks[i];
+			int j = i - 1;
+			while (j >= 0 && (keys[j] > rectKey
+					|| (keys[j] == rectKey && ranks[j] > rectRank))) {
+				order[j + 1] = order[j];
+				keys[j + 1] = keys[j];
+				ranks[j + 1] = ranks[j];
+				j--;
+			}
+			order[j + 1] = rect;
+			keys[j + 1] = rectKey;
+			ranks[j + 1] = rectRank;
+		}
+
+		grid.setOrder(order, size);
+	}
+
+	/**
+	 * Returns the number of {@code MovingRectangle}s in this.
+	 *
+	 * @return number of {@code MovingRectangle}s
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the {@code MovingRectangle} at {@code position} in this.
+	 *
+	 * @param position position in the order
+	 *
+	 * @return {@code MovingRectangle} at {@code position}
+	 */
+	MovingRectangle get(int position) {
+		return order[position];
+	}
+
+}
@@ -0,0 +1,487 @@
+package blockgame.physics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Uniform grid which indexes {@code MovingRectangle}s by the area they have
+ * swept through since the previous frame. Used as a broadphase so that
+ * {@code CollisionPropagator} only considers {@code MovingRectangle}s which
+ * could possibly be colliding.
+ * <p>
+ * The swept area of a {@code Rectangle} is the smallest box which contains both
+ * its current bounds and its bounds on the previous frame. Two
+ * {@code Rectangle}s can only collide if their swept areas overlap, so querying
+ * this gives exactly the {@code MovingRectangle}s which a brute-force scan
+ * would find to be colliding, plus some which turn out not to be.
+ * <p>
+ * {@link #update(MovingRectangle)} must be called every time the position or
+ * size of a {@code MovingRectangle} in this changes, including when
+ * {@code updateLastPosition} is called. Otherwise queries may miss it.
+ * <p>
+ * Each {@code MovingRectangle} has a rank, which is its position in the list
+ * last passed to {@link #setOrder(List)}. Queries return
+ * {@code MovingRectangle}s in ascending order of rank so that collision is
+ * resolved in the same order as iterating through that list.
+ * <p>
+ * Each {@code MovingRectangle} also has an index, which is fixed from when it
+ * is added. Queries return indices rather than {@code MovingRectangle}s so
+ * that callers can keep per-{@code MovingRectangle} data in plain arrays, and
+ * so that querying does not allocate anything. The state of each
+ * {@code MovingRectangle} is also kept in a {@code BodyTable} under the same
+ * index.
+ *
+ * @author Frank Kormann
+ */
+public class SpatialGrid {
+
+	private static final int DEFAULT_CELL_SIZE = 64;
+	private static final int INITIAL_CAPACITY = 16;
+	// Above this many results, sorting is done by walking through every rank
+	private static final int INSERTION_SORT_LIMIT = 16;
+
+	private int cellSize;
+
+	private MovingRectangle[] bodies;
+	private BodyTable table;
+	private int[] ranks;
+	// Index of the body with each rank
+	private int[] byRank;
+	// Range of cells each body is currently filed under
+	private int[] minCellX, minCellY, maxCellX, maxCellY;
+	// Last query each body was found in, so it is not found twice
+	private int[] queryStamps;
+	private int bodyCount;
+	private int queryCount;
+
+	// Body indices in each cell
+	private CellTable cells;
+
+	private int modCount;
+
+	/**
+	 * Creates an empty {@code SpatialGrid} with the default cell size.
+	 */
+	public SpatialGrid() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * Creates an empty {@code SpatialGrid}.
+	 *
+	 * @param cellSize width and height of each cell
+	 */
+	public SpatialGrid(int cellSize) {
+		this.cellSize = cellSize;
+
+		bodies = new MovingRectangle[INITIAL_CAPACITY];
+		table = new BodyTable();
+		ranks = new int[INITIAL_CAPACITY];
+		byRank = new int[INITIAL_CAPACITY];
+		minCellX = new int[INITIAL_CAPACITY];
+		minCellY = new int[INITIAL_CAPACITY];
+		maxCellX = new int[INITIAL_CAPACITY];
+		maxCellY = new int[INITIAL_CAPACITY];
+		queryStamps = new int[INITIAL_CAPACITY];
+		bodyCount = 0;
+		queryCount = 0;
+
+		cells = new CellTable();
+
+		modCount = 0;
+	}
+
+	/**
+	 * Adds {@code rect} to this. Its rank is the number of
+	 * {@code MovingRectangle}s already in this until {@code setOrder} is called.
+	 *
+	 * @param rect {@code MovingRectangle} to add
+	 */
+	public void add(MovingRectangle rect) {
+		if (bodyCount == bodies.length) {
+			int newLength = bodies.length * 2;
+			bodies = Arrays.copyOf(bodies, newLength);
+			ranks = Arrays.copyOf(ranks, newLength);
+			byRank = Arrays.copyOf(byRank, newLength);
+			minCellX = Arrays.copyOf(minCellX, newLength);
+			minCellY = Arrays.copyOf(minCellY, newLength);
+			maxCellX = Arrays.copyOf(maxCellX, newLength);
+			maxCellY = Arrays.copyOf(maxCellY, newLength);
+			queryStamps = Arrays.copyOf(queryStamps, newLength);
+		}
+
+		int index = bodyCount++;
+		bodies[index] = rect;
+		ranks[index] = index;
+		byRank[index] = index;
+		table.add(rect);
+		rect.setGridIndex(index, table);
+
+		minCellX[index] = cellOf(sweptMinX(rect));
+		minCellY[index] = cellOf(sweptMinY(rect));
+		maxCellX[index] = cellOf(sweptMaxX(rect));
+		maxCellY[index] = cellOf(sweptMaxY(rect));
+		fileUnder(index, true);
+
+		modCount++;
+	}
+
+	/**
+	 * Re-files {@code rect} according to its current swept area. This must be
+	 * called whenever {@code rect} moves or changes size.
+	 * <p>
+	 * If {@code rect} is not in this, only records that something moved.
+	 *
+	 * @param rect {@code MovingRectangle} which moved
+	 */
+	public void update(MovingRectangle rect) {
+		modCount++;
+
+		int index = indexOf(rect);
+		if (index < 0) {
+			return;
+		}
+
+		int newMinX = cellOf(table.sweptMinX(index));
+		int newMinY = cellOf(table.sweptMinY(index));
+		int newMaxX = cellOf(table.sweptMaxX(index));
+		int newMaxY = cellOf(table.sweptMaxY(index));
+
+		if (newMinX == minCellX[index] && newMinY == minCellY[index]
+				&& newMaxX == maxCellX[index] && newMaxY == maxCellY[index]) {
+			return;
+		}
+
+		fileUnder(index, false);
+		minCellX[index] = newMinX;
+		minCellY[index] = newMinY;
+		maxCellX[index] = newMaxX;
+		maxCellY[index] = newMaxY;
+		fileUnder(index, true);
+	}
+
+	/**
+	 * Re-files every {@code MovingRectangle} in this. Should be called after
+	 * {@code updateLastPosition} is called on all of them.
+	 */
+	public void updateAll() {
+		for (int i = 0; i < bodyCount; i++) {
+			update(bodies[i]);
+		}
+	}
+
+	/**
+	 * Updates the attached {@code Area}s of every {@code MovingRectangle} in
+	 * this which has moved or changed size since they were last updated.
+	 * <p>
+	 * {@code MovingRectangle}s in this do not update their attached
+	 * {@code Area}s when they move, so this must be called before anything
+	 * looks at them.
+	 */
+	public void flushAttachments() {
+		while (table.dirtyCount() > 0) {
+			bodies[table.takeDirty()].updateAttachments();
+		}
+	}
+
+	/**
+	 * Sets the rank of each {@code MovingRectangle} to its index in
+	 * {@code order}. {@code order} should contain every
+	 * {@code MovingRectangle} in this.
+	 *
+	 * @param order {@code List} of {@code MovingRectangle}s in the order they
+	 *              should be returned from queries
+	 */
+	public void setOrder(List<MovingRectangle> order) {
+		for (int i = 0; i < order.size(); i++) {
+			int index = indexOf(order.get(i));
+			if (index >= 0) {
+				ranks[index] = i;
+				byRank[i] = index;
+			}
+		}
+	}
+
+	/**
+	 * Sets the rank of each {@code MovingRectangle} to its index in
+	 * {@code order}. The first {@code count} elements of {@code order} should
+	 * be every {@code MovingRectangle} in this.
+	 *
+	 * @param order array of {@code MovingRectangle}s in the order they should
+	 *              be returned from queries
+	 * @param count number of elements of {@code order} to use
+	 */
+	public void setOrder(MovingRectangle[] order, int count) {
+		for (int i = 0; i < count; i++) {
+			int index = indexOf(order[i]);
+			if (index >= 0) {
+				ranks[index] = i;
+				byRank[i] = index;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of {@code MovingRectangle}s in this. Every index is
+	 * less than this.
+	 *
+	 * @return number of {@code MovingRectangle}s
+	 */
+	public int size() {
+		return bodyCount;
+	}
+
+	/**
+	 * Returns the index of {@code rect}, or {@code -1} if it is not in this.
+	 *
+	 * @param rect {@code MovingRectangle} to find
+	 *
+	 * @return index of {@code rect}
+	 */
+	public int indexOf(MovingRectangle rect) {
+		int index = rect.getGridIndex();
+		if (index < 0 || index >= bodyCount || bodies[index] != rect) {
+			return -1;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the {@code MovingRectangle} at {@code index}.
+	 *
+	 * @param index index of the {@code MovingRectangle}
+	 *
+	 * @return {@code MovingRectangle} at {@code index}
+	 */
+	public MovingRectangle get(int index) {
+		return bodies[index];
+	}
+
+	/**
+	 * Returns the {@code BodyTable} holding the state of every
+	 * {@code MovingRectangle} in this, by index.
+	 *
+	 * @return {@code BodyTable} of this
+	 */
+	BodyTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Returns the rank of {@code rect}, or {@code -1} if it is not in this.
+	 *
+	 * @param rect {@code MovingRectangle} to find the rank of
+	 *
+	 * @return rank of {@code rect}
+	 */
+	public int getRank(MovingRectangle rect) {
+		int index = indexOf(rect);
+		if (index < 0) {
+			return -1;
+		}
+		return ranks[index];
+	}
+
+	/**
+	 * Returns the rank of the {@code MovingRectangle} at {@code index}.
+	 *
+	 * @param index index of the {@code MovingRectangle}
+	 *
+	 * @return its rank
+	 */
+	public int getRank(int index) {
+		return ranks[index];
+	}
+
+	/**
+	 * Returns the {@code MovingRectangle} with rank {@code rank}.
+	 *
+	 * @param rank rank of the {@code MovingRectangle}
+	 *
+	 * @return {@code MovingRectangle} with that rank
+	 */
+	public MovingRectangle getByRank(int rank) {
+		return bodies[byRank[rank]];
+	}
+
+	/**
+	 * Returns a number which changes every time {@code update} is called. If
+	 * this has not changed since a query, the result of that query is still
+	 * accurate.
+	 *
+	 * @return modification count
+	 */
+	public int getModCount() {
+		return modCount;
+	}
+
+	/**
+	 * Finds every {@code MovingRectangle} whose swept area overlaps the swept
+	 * area of {@code rect} and whose rank is greater than {@code afterRank}.
+	 * {@code rect} itself is never found.
+	 * <p>
+	 * The indices of the {@code MovingRectangle}s found are written into
+	 * {@code result} starting at {@code offset}, in ascending order of rank.
+	 * {@code result} must have room for {@link #size()} indices after
+	 * {@code offset}.
+	 *
+	 * @param rect      {@code Rectangle} to test against
+	 * @param afterRank only {@code MovingRectangle}s with a greater rank are
+	 *                  found
+	 * @param result    array to write indices into
+	 * @param offset    position in {@code result} to start writing at
+	 *
+	 * @return number of indices written
+	 */
+	public int query(Rectangle rect, int afterRank, int[] result,
+			int offset) {
+		int index = rect instanceof MovingRectangle
+				? indexOf((MovingRectangle) rect)
+				: -1;
+		if (index >= 0) {
+			return query(rect, table.sweptMinX(index), table.sweptMinY(index),
+					table.sweptMaxX(index), table.sweptMaxY(index), afterRank,
+					result, offset);
+		}
+		return query(rect, sweptMinX(rect), sweptMinY(rect), sweptMaxX(rect),
+				sweptMaxY(rect), afterRank, result, offset);
+	}
+
+	/**
+	 * Finds every {@code MovingRectangle} whose swept area overlaps the box
+	 * from {@code (minX, minY)} to {@code (maxX, maxY)}, including its edges.
+	 * <p>
+	 * The indices of the {@code MovingRectangle}s found are written into
+	 * {@code result} starting at {@code offset}, in ascending order of rank.
+	 * {@code result} must have room for {@link #size()} indices after
+	 * {@code offset}.
+	 *
+	 * @param minX   left edge of the box
+	 * @param minY   top edge of the box
+	 * @param maxX   right edge of the box
+	 * @param maxY   bottom edge of the box
+	 * @param result array to write indices into
+	 * @param offset position in {@code result} to start writing at
+	 *
+	 * @return number of indices written
+	 */
+	public int query(int minX, int minY, int maxX, int maxY, int[] result,
+			int offset) {
+		return query(null, minX, minY, maxX, maxY, -1, result, offset);
+	}
+
+	/**
+	 * Finds every {@code MovingRectangle} other than {@code exclude} whose
+	 * rank is greater than {@code afterRank} and whose swept area overlaps the
+	 * given box.
+	 */
+	private int query(Rectangle exclude, int minX, int minY, int maxX,
+			int maxY, int afterRank, int[] result, int offset) {
+		int count = 0;
+		queryCount++;
+
+		int fromCellX = Math.max(cellOf(minX), cells.getMinCellX());
+		int fromCellY = Math.max(cellOf(minY), cells.getMinCellY());
+		int toCellX = Math.min(cellOf(maxX), cells.getMaxCellX());
+		int toCellY = Math.min(cellOf(maxY), cells.getMaxCellY());
+
+		for (int cx = fromCellX; cx <= toCellX; cx++) {
+			for (int cy = fromCellY; cy <= toCellY; cy++) {
+				int slot = cells.find(cx, cy);
+				if (slot == -1) {
+					continue;
+				}
+				int[] contents = cells.contents(slot);
+				int contentCount = cells.size(slot);
+				for (int i = 0; i < contentCount; i++) {
+					int index = contents[i];
+					if (ranks[index] <= afterRank || bodies[index] == exclude
+							|| queryStamps[index] == queryCount
+							|| !Aabb.touches(minX, minY, maxX, maxY,
+									table.sweptMinX(index),
+									table.sweptMinY(index),
+									table.sweptMaxX(index),
+									table.sweptMaxY(index))) {
+						continue;
+					}
+					queryStamps[index] = queryCount;
+					result[offset + count++] = index;
+				}
+			}
+		}
+
+		sortByRank(result, offset, count, afterRank);
+		return count;
+	}
+
+	/**
+	 * Sorts the {@code count} indices in {@code result} starting at
+	 * {@code offset} by rank. They must all have been found by the latest
+	 * query.
+	 */
+	private void sortByRank(int[] result, int offset, int count,
+			int afterRank) {
+		if (count <= INSERTION_SORT_LIMIT) {
+			for (int i = offset + 1; i < offset + count; i++) {
+				int index = result[i];
+				int j = i - 1;
+				while (j >= offset && ranks[result[j]] > ranks[index]) {
+					result[j + 1] = result[j];
+					j--;
+				}
+				result[j + 1] = index;
+			}
+			return;
+		}
+
+		int written = offset;
+		for (int rank = afterRank + 1; rank < bodyCount; rank++) {
+			if (queryStamps[byRank[rank]] == queryCount) {
+				result[written++] = byRank[rank];
+			}
+		}
+	}
+
+	/**
+	 * Adds or removes the body at {@code index} from every cell in its cell
+	 * range.
+	 *
+	 * @param index body to file
+	 * @param add   {@code true} to add it to the cells, {@code false} to remove
+	 *              it
+	 */
+	private void fileUnder(int index, boolean add) {
+		cells.file(minCellX[index], minCellY[index], maxCellX[index],
+				maxCellY[index], index, add);
+	}
+
+	private int cellOf(int coordinate) {
+		return Math.floorDiv(coordinate, cellSize);
+	}
+
+	/*
+	 * The swept area takes the min/max of every edge rather than assuming
+	 * width and height are positive
+	 */
+
+	static int sweptMinX(Rectangle rect) {
+		return Aabb.sweptMin(rect.getX(), rect.getWidth(),
+				rect.getLastX(), rect.getLastWidth());
+	}
+
+	static int sweptMaxX(Rectangle rect) {
+		return Aabb.sweptMax(rect.getX(), rect.getWidth(),
+				rect.getLastX(), rect.getLastWidth());
+	}
+
+	static int sweptMinY(Rectangle rect) {
+		return Aabb.sweptMin(rect.getY(), rect.getHeight(),
+				rect.getLastY(), rect.getLastHeight());
+	}
+
+	static int sweptMaxY(Rectangle rect) {
+		return Aabb.sweptMax(rect.getY(), rect.getHeight(),
+				rect.getLastY(), rect.getLastHeight());
+	}
+
+}
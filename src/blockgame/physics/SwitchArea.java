@@ -3,6 +3,7 @@ package blockgame.physics;
 import java.awt.Color;
 import java.awt.Graphics;
 
+import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -17,12 +18,13 @@ import blockgame.util.DrawUtils;
  *
  * @author Frank Kormann
  */
-public class SwitchArea extends Area {
+public final class SwitchArea extends Area {
 
 	private static final int DASH_SIZE = 10;
 	private static final int DASH_THICKNESS = 3;
 
 	private String key;
+	private int keyLayer;
 	private SwitchController controller;
 	private int numberInside;
 
@@ -31,11 +33,19 @@ public class SwitchArea extends Area {
 			@JsonProperty("width") int width,
 			@JsonProperty("height") int height,
 			@JsonProperty("color") Colors colorEnum,
-			@JsonProperty("key") String key) {
+			@JsonProperty("key") String key,
+			@JacksonInject KeyLayers keyLayers) {
 		super(x, y, width, height, colorEnum);
 		this.key = key;
+		keyLayer = keyLayers.layerOf(key);
 		controller = null;
 		numberInside = 0;
+		setLayers(keyLayer, ALL_LAYERS);
+	}
+
+	@Override
+	protected int computeKindLayer() {
+		return keyLayer;
 	}
 
 	@Override
@@ -3,9 +3,11 @@ package blockgame.physics;
 import java.awt.Color;
 import java.awt.Graphics;
 
+import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import blockgame.gui.Drawable;
 import blockgame.gui.ImageArea;
 import blockgame.util.DrawUtils;
 
@@ -18,7 +20,7 @@ import blockgame.util.DrawUtils;
  * 
  * @author Frank Kormann
  */
-public class SwitchRectangle extends MovingRectangle {
+public final class SwitchRectangle extends MovingRectangle {
 
 	private static final int DASH_SIZE = 5;
 	private static final int BORDER_THICKNESS = 2;
@@ -26,16 +28,22 @@ public class SwitchRectangle extends MovingRectangle {
 	private boolean isActive;
 	private boolean wasActive;
 	private String key;
+	// Layers this can interact with while inactive
+	private int inactiveLayerMask;
 
 	@JsonCreator
 	public SwitchRectangle(@JsonProperty("x") int x, @JsonProperty("y") int y,
 			@JsonProperty("width") int width,
 			@JsonProperty("height") int height,
 			@JsonProperty("color") Colors color,
-			@JsonProperty("key") String key) {
+			@JsonProperty("key") String key,
+			@JacksonInject KeyLayers keyLayers) {
 		super(x, y, width, height, color);
 		this.key = key;
 		isActive = false;
+		inactiveLayerMask = WALL_LAYER | SIDE_LAYERS
+				| keyLayers.layerOf(key) | RESIZE_LAYERS;
+		setLayers(OTHER_LAYER, inactiveLayerMask);
 	}
 
 	@Override
@@ -56,6 +64,12 @@ public class SwitchRectangle extends MovingRectangle {
 		g.dispose();
 	}
 
+	@Override
+	public boolean matchesSnapshot(Drawable snapshot) {
+		return super.matchesSnapshot(snapshot)
+				&& ((SwitchRectangle) snapshot).isActive == isActive;
+	}
+
 	@Override
 	public void updateLastPosition() {
 		super.updateLastPosition();
@@ -63,29 +77,29 @@ public class SwitchRectangle extends MovingRectangle {
 	}
 
 	@Override
-	public boolean canInteract(Rectangle other) {
-		return isActive || canAlwaysInteractWith(other);
+	protected int computeLayerMask() {
+		return isActive ? super.computeLayerMask() : inactiveLayerMask;
 	}
 
 	@Override
-	public boolean hasGravity() {
-		return isActive && super.hasGravity();
+	protected boolean matchesOverflowKey(int mask, Rectangle other) {
+		return mask != inactiveLayerMask || canAlwaysInteractWith(other);
 	}
 
 	@Override
-	public boolean usedToIntersectX(Rectangle other) {
-		return (wasActive || canAlwaysInteractWith(other))
-				&& super.usedToIntersectX(other);
+	public boolean hasGravity() {
+		return isActive && super.hasGravity();
 	}
 
 	@Override
-	public boolean usedToIntersectY(Rectangle other) {
-		return (wasActive || canAlwaysInteractWith(other))
-				&& super.usedToIntersectY(other);
+	protected boolean usedToInteract(Rectangle other) {
+		return canInteract(wasActive ? ALL_LAYERS : inactiveLayerMask, other)
+				&& super.usedToInteract(other);
 	}
 
 	/**
 	 * Checks if this can interact with {@code other} regardless of activity.
+	 * Only needed when {@code other}'s key has no layer of its own.
 	 * 
 	 * @param other {@code Rectangle} to test
 	 * 
@@ -128,6 +142,7 @@ public class SwitchRectangle extends MovingRectangle {
 	 */
 	public void setActive(boolean active) {
 		isActive = active;
+		updateLayers();
 		getAttachments().forEach(a -> a.setActive(active));
 		if (!isActive) {
 			setYVelocity(0);
@@ -144,6 +159,16 @@ public class SwitchRectangle extends MovingRectangle {
 		return !wasActive && isActive;
 	}
 
+	/**
+	 * Returns if this just became inactive.
+	 * 
+	 * @return {@code true} if this was active on the previous frame and is now
+	 *         inactive
+	 */
+	public boolean becameInactive() {
+		return wasActive && !isActive;
+	}
+
 	public String getKey() {
 		return key;
 	}
@@ -0,0 +1,237 @@
+package blockgame.physics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Static index of {@code WallRectangle}s which finds every
+ * {@code WallRectangle} overlapping a box without checking every one of them.
+ * <p>
+ * {@code WallRectangle}s never move, so the index is built once from the list
+ * of {@code WallRectangle}s and only rebuilt when more are added to the list.
+ * {@link #update()} should be called before querying to make sure it is up
+ * to date.
+ * <p>
+ * {@code WallRectangle}s are sorted by their left edge and arranged as an
+ * implicit balanced binary tree over that sorted array, where the root of
+ * each range is its middle element. Each node stores the rightmost right
+ * edge, topmost top edge, and bottommost bottom edge of every
+ * {@code WallRectangle} under it, so whole subtrees which can't overlap the
+ * box are skipped. Queries take logarithmic time plus time proportional to
+ * the number of {@code WallRectangle}s found, and do not allocate anything.
+ * Small ranges are tested all at once by {@link BoxBatch} instead of being
+ * split further.
+ * <p>
+ * Boxes include their edges, so a {@code WallRectangle} which only touches a
+ * box is found.
+ *
+ * @author Frank Kormann
+ */
+class WallIndex {
+
+	// Ranges this small are tested by BoxBatch
+	private static final int BATCH_SIZE = 16;
+
+	private List<WallRectangle> walls;
+	private int indexedCount;
+
+	// Sorted by left edge. order holds the index in walls of each one
+	private int[] order;
+	private int[] left, right, top, bottom;
+	// Bounds of the subtree rooted at each position
+	private int[] subtreeRight, subtreeTop, subtreeBottom;
+
+	// Pairs of (start, end) of ranges still to search
+	private int[] stack;
+	// Positions found by BoxBatch
+	private int[] batchHits;
+
+	/**
+	 * Creates a {@code WallIndex} for {@code walls}. {@code walls} should only
+	 * ever be added to, and the {@code WallRectangle}s in it should never
+	 * move.
+	 *
+	 * @param walls {@code WallRectangle}s to index
+	 */
+	WallIndex(List<WallRectangle> walls) {
+		this.walls = walls;
+		indexedCount = -1;
+		batchHits = new int[BATCH_SIZE];
+		update();
+	}
+
+	/**
+	 * Rebuilds the index if any {@code WallRectangle}s have been added since
+	 * it was last built.
+	 */
+	void update() {
+		if (walls.size() == indexedCount) {
+			return;
+		}
+		indexedCount = walls.size();
+		int size = indexedCount;
+
+		Integer[] sorted = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = i;
+		}
+		Arrays.sort(sorted, (i1, i2) -> Integer.compare(leftOf(walls.get(i1)),
+				leftOf(walls.get(i2))));
+
+		order = new int[size];
+		left = new int[size];
+		right = new int[size];
+		top = new int[size];
+		bottom = new int[size];
+		for (int i = 0; i < size; i++) {
+			WallRectangle wall = walls.get(sorted[i]);
+			order[i] = sorted[i];
+			left[i] = leftOf(wall);
+			right[i] = Aabb.max(wall.getX(), wall.getWidth());
+			top[i] = Aabb.min(wall.getY(), wall.getHeight());
+			bottom[i] = Aabb.max(wall.getY(), wall.getHeight());
+		}
+
+		subtreeRight = new int[size];
+		subtreeTop = new int[size];
+		subtreeBottom = new int[size];
+		buildSubtree(0, size);
+
+		// Each range searched pushes at most two more, one of which is popped
+		// straight away, so the stack never gets deeper than the tree
+		int depth = 32 - Integer.numberOfLeadingZeros(size) + 1;
+		stack = new int[4 * depth];
+	}
+
+	/**
+	 * Fills in the subtree bounds for the range from {@code start} inclusive
+	 * to {@code end} exclusive, and returns the position of its root.
+	 */
+	private int buildSubtree(int start, int end) {
+		if (start >= end) {
+			return -1;
+		}
+		int middle = (start + end) >>> 1;
+		subtreeRight[middle] = right[middle];
+		subtreeTop[middle] = top[middle];
+		subtreeBottom[middle] = bottom[middle];
+
+		includeSubtree(middle, buildSubtree(start, middle));
+		includeSubtree(middle, buildSubtree(middle + 1, end));
+		return middle;
+	}
+
+	/**
+	 * Expands the subtree bounds of {@code parent} to include those of
+	 * {@code child}, unless {@code child} is {@code -1}.
+	 */
+	private void includeSubtree(int parent, int child) {
+		if (child < 0) {
+			return;
+		}
+		subtreeRight[parent] = Math.max(subtreeRight[parent],
+				subtreeRight[child]);
+		subtreeTop[parent] = Math.min(subtreeTop[parent], subtreeTop[child]);
+		subtreeBottom[parent] = Math.max(subtreeBottom[parent],
+				subtreeBottom[child]);
+	}
+
+	/**
+	 * Finds every {@code WallRectangle} which overlaps or touches the box
+	 * from {@code (minX, minY)} to {@code (maxX, maxY)} and whose index in
+	 * the list of {@code WallRectangle}s is greater than {@code afterIndex}.
+	 * <p>
+	 * Their indices in the list are written into {@code result} in ascending
+	 * order. {@code result} must have room for every {@code WallRectangle}.
+	 *
+	 * @param minX       left edge of the box
+	 * @param minY       top edge of the box
+	 * @param maxX       right edge of the box
+	 * @param maxY       bottom edge of the box
+	 * @param afterIndex only {@code WallRectangle}s after this index are found
+	 * @param result     array to write indices into
+	 *
+	 * @return number of indices written
+	 */
+	int query(int minX, int minY, int maxX, int maxY, int afterIndex,
+			int[] result) {
+		int count = 0;
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+		stack[stackSize++] = order.length;
+
+		while (stackSize > 0) {
+			int end = stack[--stackSize];
+			int start = stack[--stackSize];
+			if (start >= end) {
+				continue;
+			}
+			int middle = (start + end) >>> 1;
+			if (subtreeRight[middle] < minX || subtreeTop[middle] > maxY
+					|| subtreeBottom[middle] < minY) {
+				continue;
+			}
+
+			if (end - start <= BATCH_SIZE) {
+				int found = BoxBatch.touching(minX, minY, maxX, maxY, left,
+						top, right, bottom, start, end, batchHits, 0);
+				for (int i = 0; i < found; i++) {
+					if (order[batchHits[i]] > afterIndex) {
+						result[count++] = order[batchHits[i]];
+					}
+				}
+				continue;
+			}
+
+			// Everything after middle starts at or to the right of it
+			if (left[middle] <= maxX) {
+				if (right[middle] >= minX && top[middle] <= maxY
+						&& bottom[middle] >= minY
+						&& order[middle] > afterIndex) {
+					result[count++] = order[middle];
+				}
+				stack[stackSize++] = middle + 1;
+				stack[stackSize++] = end;
+			}
+			stack[stackSize++] = start;
+			stack[stackSize++] = middle;
+		}
+
+		Arrays.sort(result, 0, count);
+		return count;
+	}
+
+	/**
+	 * Finds every {@code WallRectangle} which overlaps or touches the swept
+	 * area of {@code rect}. See {@link SpatialGrid} for what the swept area
+	 * is.
+	 *
+	 * @param rect       {@code Rectangle} to test against
+	 * @param afterIndex only {@code WallRectangle}s after this index are found
+	 * @param result     array to write indices into
+	 *
+	 * @return number of indices written
+	 *
+	 * @see #query(int, int, int, int, int, int[])
+	 */
+	int query(Rectangle rect, int afterIndex, int[] result) {
+		return query(SpatialGrid.sweptMinX(rect), SpatialGrid.sweptMinY(rect),
+				SpatialGrid.sweptMaxX(rect), SpatialGrid.sweptMaxY(rect),
+				afterIndex, result);
+	}
+
+	/**
+	 * Returns the number of {@code WallRectangle}s indexed. Every index found
+	 * is less than this.
+	 *
+	 * @return number of {@code WallRectangle}s
+	 */
+	int size() {
+		return order.length;
+	}
+
+	private static int leftOf(WallRectangle wall) {
+		return Aabb.min(wall.getX(), wall.getWidth());
+	}
+
+}
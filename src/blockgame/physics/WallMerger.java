@@ -0,0 +1,163 @@
+package blockgame.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import blockgame.physics.Rectangle.Colors;
+import blockgame.physics.Rectangle.ResizeBehavior;
+
+/**
+ * Merges {@code WallRectangle}s which line up exactly into fewer, larger
+ * {@code WallRectangle}s, so there are fewer for {@code MovingRectangle}s to
+ * collide with.
+ * <p>
+ * Two {@code WallRectangle}s are merged if they have the same
+ * {@code ResizeBehavior}, the same position and size along one axis, and
+ * touch along the other axis. For example, two floor tiles of the same height
+ * next to each other become one longer floor. Merging is repeated until
+ * nothing else can be merged, so a grid of tiles becomes one
+ * {@code WallRectangle}.
+ * <p>
+ * The merged {@code WallRectangle}s are only meant for collision. They have
+ * no attachments and should not be drawn; the original
+ * {@code WallRectangle}s should be kept for that.
+ *
+ * @author Frank Kormann
+ */
+class WallMerger {
+
+	private WallMerger() {}
+
+	/**
+	 * Returns a list of {@code WallRectangle}s which covers the same area as
+	 * {@code walls}, with lined-up ones merged together. Each merged
+	 * {@code WallRectangle} takes the place in the list of the first one it
+	 * replaces. {@code WallRectangle}s which could not be merged are kept
+	 * as-is.
+	 * <p>
+	 * {@code walls} is not changed.
+	 *
+	 * @param walls {@code WallRectangle}s to merge
+	 *
+	 * @return new list of merged {@code WallRectangle}s
+	 */
+	static List<WallRectangle> merge(List<WallRectangle> walls) {
+		List<WallRectangle> merged = new ArrayList<>(walls);
+		boolean changed = true;
+		while (changed) {
+			// Merging in one direction can line up walls in the other
+			boolean changedX = mergeRuns(merged, true);
+			boolean changedY = mergeRuns(merged, false);
+			changed = changedX || changedY;
+		}
+		return merged;
+	}
+
+	/**
+	 * Merges every run of {@code WallRectangle}s in {@code walls} which touch
+	 * end to end along one axis.
+	 *
+	 * @param walls  list to merge in-place
+	 * @param alongX {@code true} to merge {@code WallRectangle}s which are
+	 *               next to each other horizontally
+	 *
+	 * @return {@code true} if anything was merged
+	 */
+	private static boolean mergeRuns(List<WallRectangle> walls,
+			boolean alongX) {
+		int size = walls.size();
+		Integer[] sorted = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = i;
+		}
+		Comparator<Integer> byLine = Comparator.comparing(
+				(Integer i) -> walls.get(i).getResizeBehavior());
+		byLine = byLine.thenComparingInt(i -> crossStart(walls.get(i), alongX))
+				.thenComparingInt(i -> crossSize(walls.get(i), alongX))
+				.thenComparingInt(i -> start(walls.get(i), alongX));
+		Arrays.sort(sorted, byLine);
+
+		WallRectangle[] result = walls.toArray(new WallRectangle[size]);
+		boolean changed = false;
+
+		int runStart = 0;
+		while (runStart < size) {
+			WallRectangle first = walls.get(sorted[runStart]);
+			int firstIndex = sorted[runStart];
+			int end = start(first, alongX) + size(first, alongX);
+
+			int runEnd = runStart + 1;
+			while (runEnd < size && canMerge(walls.get(sorted[runStart]),
+					walls.get(sorted[runEnd]), end, alongX)) {
+				WallRectangle next = walls.get(sorted[runEnd]);
+				end = start(next, alongX) + size(next, alongX);
+				firstIndex = Math.min(firstIndex, sorted[runEnd]);
+				runEnd++;
+			}
+
+			if (runEnd - runStart > 1) {
+				for (int i = runStart; i < runEnd; i++) {
+					result[sorted[i]] = null;
+				}
+				int start = start(first, alongX);
+				if (alongX) {
+					result[firstIndex] = new WallRectangle(start, first.getY(),
+							end - start, first.getHeight(), Colors.GRAY,
+							first.getResizeBehavior());
+				}
+				else {
+					result[firstIndex] = new WallRectangle(first.getX(), start,
+							first.getWidth(), end - start, Colors.GRAY,
+							first.getResizeBehavior());
+				}
+				changed = true;
+			}
+			runStart = runEnd;
+		}
+
+		if (changed) {
+			walls.clear();
+			for (WallRectangle wall : result) {
+				if (wall != null) {
+					walls.add(wall);
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns {@code true} if {@code next} lines up with {@code first} and
+	 * starts exactly at {@code end}. {@code WallRectangle}s with no area are
+	 * never merged.
+	 */
+	private static boolean canMerge(WallRectangle first, WallRectangle next,
+			int end, boolean alongX) {
+		ResizeBehavior behavior = first.getResizeBehavior();
+		return first.getWidth() > 0 && first.getHeight() > 0
+				&& next.getWidth() > 0 && next.getHeight() > 0
+				&& next.getResizeBehavior() == behavior
+				&& crossStart(next, alongX) == crossStart(first, alongX)
+				&& crossSize(next, alongX) == crossSize(first, alongX)
+				&& start(next, alongX) == end;
+	}
+
+	private static int start(WallRectangle wall, boolean alongX) {
+		return alongX ? wall.getX() : wall.getY();
+	}
+
+	private static int size(WallRectangle wall, boolean alongX) {
+		return alongX ? wall.getWidth() : wall.getHeight();
+	}
+
+	private static int crossStart(WallRectangle wall, boolean alongX) {
+		return alongX ? wall.getY() : wall.getX();
+	}
+
+	private static int crossSize(WallRectangle wall, boolean alongX) {
+		return alongX ? wall.getHeight() : wall.getWidth();
+	}
+
+}
@@ -37,6 +37,12 @@ public class WallRectangle extends Rectangle {
 	public WallRectangle(int x, int y, int width, int height, Colors colorEnum,
 			ResizeBehavior resizeBehavior) {
 		super(x, y, width, height, colorEnum, resizeBehavior);
+		setLayers(WALL_LAYER, ALL_LAYERS);
+	}
+
+	@Override
+	protected int computeKindLayer() {
+		return WALL_LAYER;
 	}
 
 	@Override
@@ -0,0 +1,95 @@
+package blockgame.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Passes the latest of a stream of values from one writing thread to one
+ * reading thread without either thread waiting on the other.
+ * <p>
+ * There are three buffers. The writer fills the back buffer, then publishes
+ * it, which swaps it with the ready buffer. The reader takes the ready buffer
+ * as its front buffer with {@link #update()} whenever a new one has been
+ * published. Buffers are reused, so nothing is allocated after this is
+ * created.
+ * <p>
+ * Once published, a buffer is not handed back to the writer until the reader
+ * has moved on from it, so the reader can treat its front buffer as
+ * unchanging. If the writer publishes faster than the reader updates, the
+ * reader skips to the latest buffer.
+ * <p>
+ * {@link #getBack()} and {@link #publish()} should only be called by the
+ * writing thread, and {@link #update()} and {@link #getFront()} only by the
+ * reading thread.
+ *
+ * @param <T> type of buffer
+ *
+ * @author Frank Kormann
+ */
+public class TripleBuffer<T> {
+
+	private static final int INDEX_MASK = 3;
+	// Set in ready when the buffer there has not been taken by the reader yet
+	private static final int NEW = 4;
+
+	private Object[] buffers;
+	private int back;
+	private int front;
+	private AtomicInteger ready;
+
+	/**
+	 * Creates a {@code TripleBuffer} with three buffers from {@code factory}.
+	 * The first one starts as the front buffer.
+	 *
+	 * @param factory {@code Supplier} of empty buffers
+	 */
+	public TripleBuffer(Supplier<T> factory) {
+		buffers = new Object[] { factory.get(), factory.get(), factory.get() };
+		front = 0;
+		ready = new AtomicInteger(1);
+		back = 2;
+	}
+
+	/**
+	 * Returns the buffer the writer should fill next.
+	 *
+	 * @return back buffer
+	 */
+	@SuppressWarnings("unchecked")
+	public T getBack() {
+		return (T) buffers[back];
+	}
+
+	/**
+	 * Makes the back buffer available to the reader and gives the writer a new
+	 * back buffer.
+	 */
+	public void publish() {
+		back = ready.getAndSet(back | NEW) & INDEX_MASK;
+	}
+
+	/**
+	 * Takes the most recently published buffer as the front buffer, if one
+	 * has been published since the last call.
+	 *
+	 * @return {@code true} if the front buffer changed
+	 */
+	public boolean update() {
+		if ((ready.get() & NEW) == 0) {
+			return false;
+		}
+		front = ready.getAndSet(front) & INDEX_MASK;
+		return true;
+	}
+
+	/**
+	 * Returns the buffer the reader should read from.
+	 *
+	 * @return front buffer
+	 */
+	@SuppressWarnings("unchecked")
+	public T getFront() {
+		return (T) buffers[front];
+	}
+
+}
@@ -0,0 +1,216 @@
+package blockgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GameLoopTest {
+
+	static final long PERIOD = TimeUnit.MILLISECONDS.toNanos(5);
+
+	AtomicInteger ticks;
+	Set<Thread> threads;
+	GameLoop loop;
+
+	@BeforeEach
+	void setUp() {
+		ticks = new AtomicInteger();
+		threads = ConcurrentHashMap.newKeySet();
+		loop = new GameLoop(() -> {
+			ticks.incrementAndGet();
+			threads.add(Thread.currentThread());
+		}, PERIOD);
+	}
+
+	@AfterEach
+	void tearDown() {
+		loop.stop();
+	}
+
+	@Test
+	void runs_ticks_until_stopped() throws InterruptedException {
+		loop.start();
+		Thread.sleep(100);
+		loop.stop();
+		Thread.sleep(20);
+		int ticksWhenStopped = ticks.get();
+		Thread.sleep(50);
+
+		assertTrue(ticksWhenStopped > 0);
+		assertEquals(ticksWhenStopped, ticks.get());
+	}
+
+	@Test
+	void does_not_drift_behind_schedule() throws InterruptedException {
+		long start = System.nanoTime();
+		loop.start();
+		Thread.sleep(200);
+		loop.stop();
+		long elapsed = System.nanoTime() - start;
+
+		GameLoop.LatenessStatistics statistics = loop.getLatenessStatistics();
+		assertEquals(ticks.get(), statistics.getTickCount());
+		// Every scheduled tick either ran or was counted as dropped. Each
+		// restart after dropping can lose part of a period, and the thread
+		// may not be scheduled on time, so only a gross drift fails.
+		long scheduled = statistics.getTickCount()
+				+ statistics.getDroppedTickCount();
+		long expected = elapsed / PERIOD;
+		assertTrue(scheduled >= expected * 3 / 4, scheduled + " ticks");
+		assertTrue(scheduled <= expected + 2, scheduled + " ticks");
+	}
+
+	@Test
+	void changing_period_keeps_same_thread() throws InterruptedException {
+		loop.start();
+		Thread.sleep(30);
+		loop.setNanosBetweenTicks(PERIOD / 2);
+		Thread.sleep(30);
+		loop.setNanosBetweenTicks(PERIOD * 2);
+		Thread.sleep(30);
+
+		assertEquals(1, threads.size());
+		assertEquals(PERIOD * 2, loop.getNanosBetweenTicks());
+	}
+
+	@Test
+	void restarting_runs_one_thread_at_a_time() throws InterruptedException {
+		loop.start();
+		loop.start();
+		loop.stop();
+		loop.start();
+		Thread.sleep(50);
+		loop.stop();
+		Thread.sleep(20);
+		int ticksWhenStopped = ticks.get();
+		Thread.sleep(50);
+
+		assertEquals(ticksWhenStopped, ticks.get());
+	}
+
+	@Test
+	void resets_statistics() throws InterruptedException {
+		loop.start();
+		Thread.sleep(30);
+		loop.stop();
+		loop.resetLatenessStatistics();
+
+		assertEquals(0, loop.getLatenessStatistics().getTickCount());
+		assertEquals(0, loop.getLatenessStatistics().getDroppedTickCount());
+	}
+
+	@Test
+	void runs_no_ticks_while_idle() throws InterruptedException {
+		loop.start();
+		Thread.sleep(30);
+		loop.setIdle(true);
+		Thread.sleep(20);
+		int ticksWhenIdle = ticks.get();
+		Thread.sleep(50);
+
+		assertEquals(ticksWhenIdle, ticks.get());
+	}
+
+	@Test
+	void runs_requested_tick_while_idle() throws InterruptedException {
+		loop.setIdle(true);
+		loop.start();
+		Thread.sleep(20);
+		loop.requestTick();
+		Thread.sleep(20);
+
+		assertEquals(1, ticks.get());
+		assertEquals(0, loop.getLatenessStatistics().getTickCount());
+	}
+
+	@Test
+	void does_not_drop_ticks_for_time_spent_idle()
+			throws InterruptedException {
+		loop.start();
+		Thread.sleep(20);
+		loop.setIdle(true);
+		Thread.sleep(50);
+		loop.resetLatenessStatistics();
+		loop.setIdle(false);
+		Thread.sleep(20);
+
+		// About 10 ticks would be dropped if the idle time counted
+		assertTrue(ticks.get() > 0);
+		assertTrue(loop.getLatenessStatistics().getDroppedTickCount() < 5,
+				loop.getLatenessStatistics().toString());
+	}
+
+	GameLoop overrunningLoop(AtomicInteger renders) {
+		return new GameLoop(() -> {
+			// Only the first tick overruns, by a little over three periods
+			if (ticks.incrementAndGet() == 1) {
+				try {
+					Thread.sleep(TimeUnit.NANOSECONDS.toMillis(PERIOD * 3) + 2);
+				}
+				catch (InterruptedException e) {}
+			}
+		}, renders::incrementAndGet, PERIOD);
+	}
+
+	@Test
+	void catches_up_without_rendering_after_overrun()
+			throws InterruptedException {
+		AtomicInteger renders = new AtomicInteger();
+		loop = overrunningLoop(renders);
+		loop.start();
+		Thread.sleep(50);
+		loop.stop();
+		Thread.sleep(20);
+
+		GameLoop.LatenessStatistics statistics = loop.getLatenessStatistics();
+		assertTrue(statistics.getCatchUpTickCount() >= 3,
+				statistics.toString());
+		assertEquals(ticks.get(), statistics.getTickCount());
+		assertEquals(ticks.get() - statistics.getCatchUpTickCount(),
+				renders.get());
+	}
+
+	@Test
+	void drops_ticks_past_catch_up_limit() throws InterruptedException {
+		AtomicInteger renders = new AtomicInteger();
+		loop = overrunningLoop(renders);
+		loop.setMaxCatchUpTicks(1);
+		loop.start();
+		Thread.sleep(50);
+		loop.stop();
+
+		// Nothing would be dropped if all three missed ticks were caught up
+		GameLoop.LatenessStatistics statistics = loop.getLatenessStatistics();
+		assertTrue(statistics.getDroppedTickCount() >= 1,
+				statistics.toString());
+	}
+
+	@Test
+	void rejects_period_which_is_not_positive() {
+		assertThrows(IllegalArgumentException.class,
+				() -> loop.setNanosBetweenTicks(0));
+		assertThrows(IllegalArgumentException.class,
+				() -> new GameLoop(() -> {}, -1));
+		assertThrows(IllegalArgumentException.class,
+				() -> loop.setMaxCatchUpTicks(-1));
+	}
+
+	@Test
+	void converts_tick_rate_to_period() {
+		assertEquals(6_944_444, GameLoop.nanosBetweenTicks(144));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(20),
+				GameLoop.nanosBetweenTicks(50));
+		assertThrows(IllegalArgumentException.class,
+				() -> GameLoop.nanosBetweenTicks(0));
+	}
+
+}
@@ -0,0 +1,217 @@
+package blockgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import blockgame.gui.MainFrame.Direction;
+import blockgame.input.GameInputHandler.MovementInput;
+import blockgame.mocks.ViewportMock;
+import blockgame.physics.Area;
+import blockgame.physics.GoalArea;
+import blockgame.physics.MovingRectangle;
+import blockgame.physics.WallRectangle;
+import blockgame.util.Pair;
+
+class HeadlessEngineTest {
+
+	Level level;
+	MovingRectangle player;
+
+	@BeforeEach
+	void setUp() {
+		level = new Level();
+		level.width = 300;
+		level.height = 300;
+		player = new MovingRectangle(10, 10, 20, 20);
+		player.setControlledByPlayer(true);
+		level.movingRectangles.add(player);
+	}
+
+	void nextFrame(HeadlessEngine engine, Map<Direction, Integer> resizes) {
+		engine.nextFrame(
+				new Pair<>(resizes, new HashSet<MovementInput>()));
+	}
+
+	void runFrames(HeadlessEngine engine, int frames) {
+		for (int i = 0; i < frames; i++) {
+			nextFrame(engine, new HashMap<>());
+		}
+	}
+
+	@Test
+	void starts_at_Level_size() {
+		HeadlessEngine engine = new HeadlessEngine(level);
+
+		assertEquals(300, engine.getNextWidth());
+		assertEquals(300, engine.getNextHeight());
+		assertEquals(0, engine.getNextXOffset());
+		assertEquals(0, engine.getNextYOffset());
+	}
+
+	@Test
+	void resizing_north_moves_y_offset() {
+		HeadlessEngine engine = new HeadlessEngine(level);
+
+		nextFrame(engine, Map.of(Direction.NORTH, 10));
+
+		assertEquals(290, engine.getNextHeight());
+		assertEquals(10, engine.getNextYOffset());
+	}
+
+	@Test
+	void can_not_be_resized_below_minimum_size() {
+		HeadlessEngine engine = new HeadlessEngine(level);
+
+		nextFrame(engine, Map.of(Direction.EAST, -500));
+
+		assertEquals(150, engine.getNextWidth());
+	}
+
+	@Test
+	void player_falls_to_bottom_of_window() {
+		HeadlessEngine engine = new HeadlessEngine(level);
+
+		runFrames(engine, 100);
+
+		assertEquals(280, player.getY());
+	}
+
+	@Test
+	void finishes_when_GoalArea_is_completed() {
+		level.areas.add(new GoalArea(0, 0, 300, 300, "next", false));
+		HeadlessEngine engine = new HeadlessEngine(level);
+
+		runFrames(engine, 500);
+
+		assertTrue(engine.isFinished());
+		assertEquals("next", engine.getNextLevel());
+		assertTrue(engine.getFrame() < 500);
+	}
+
+	@Test
+	void does_not_finish_without_GoalArea() {
+		HeadlessEngine engine = new HeadlessEngine(level);
+
+		runFrames(engine, 500);
+
+		assertFalse(engine.isFinished());
+		assertEquals(500, engine.getFrame());
+	}
+
+	@Test
+	void takes_inputs_from_poll_format() {
+		HeadlessEngine engine = new HeadlessEngine(level);
+		Set<MovementInput> inputs = new HashSet<>();
+		inputs.add(MovementInput.RIGHT);
+
+		for (int i = 0; i < 10; i++) {
+			engine.nextFrame(new Pair<>(new HashMap<>(), inputs));
+		}
+
+		assertTrue(player.getX() > 10);
+	}
+
+	@Test
+	void LevelListener_is_told_about_each_object_in_order() {
+		WallRectangle wall = new WallRectangle(0, 290, 300, 10);
+		GoalArea goal = new GoalArea(0, 0, 300, 300, "next", false);
+		level.walls.add(wall);
+		level.areas.add(goal);
+		List<Object> added = new ArrayList<>();
+
+		new HeadlessEngine(level, new ViewportMock(300, 300),
+				new LevelListener() {
+					@Override
+					public void movingRectangleAdded(MovingRectangle rect) {
+						added.add(rect);
+					}
+
+					@Override
+					public void wallAdded(WallRectangle wall) {
+						added.add(wall);
+					}
+
+					@Override
+					public void areaAdded(Area area) {
+						added.add(area);
+					}
+				});
+
+		List<Object> expected = new ArrayList<>();
+		expected.add(player);
+		expected.addAll(player.getAttachments());
+		expected.add(wall);
+		expected.add(goal);
+		assertEquals(expected, added);
+	}
+
+	@Test
+	void resizes_go_through_Viewport() {
+		ViewportMock viewport = new ViewportMock(300, 300);
+		HeadlessEngine engine = new HeadlessEngine(level, viewport,
+				new LevelListener() {
+					@Override
+					public void movingRectangleAdded(MovingRectangle rect) {}
+
+					@Override
+					public void wallAdded(WallRectangle wall) {}
+
+					@Override
+					public void areaAdded(Area area) {}
+				});
+
+		nextFrame(engine, Map.of(Direction.EAST, 10));
+
+		assertEquals(Map.of(Direction.EAST, 10), viewport.resizes.get(0));
+		assertEquals(1, viewport.incorporateCount);
+	}
+
+	List<Integer> keyLayersOf(Level level) {
+		List<Integer> layers = new ArrayList<>();
+		for (MovingRectangle rect : level.movingRectangles) {
+			layers.add(rect.getLayers());
+			layers.add(rect.getLayerMask());
+		}
+		for (Area area : level.areas) {
+			layers.add(area.getLayers());
+			layers.add(area.getLayerMask());
+		}
+		return layers;
+	}
+
+	@Test
+	void levels_read_at_the_same_time_get_the_same_layers()
+			throws Exception {
+		List<Integer> expected = keyLayersOf(
+				HeadlessEngine.readLevel("/level_6-5.json"));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Level>> levels = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				levels.add(executor.submit(
+						() -> HeadlessEngine.readLevel("/level_6-5.json")));
+			}
+			for (Future<Level> future : levels) {
+				assertEquals(expected, keyLayersOf(future.get()));
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+}
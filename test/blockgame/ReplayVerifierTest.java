@@ -0,0 +1,75 @@
+package blockgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import blockgame.ReplayVerifier.Result;
+import blockgame.ReplayVerifier.Run;
+
+class ReplayVerifierTest {
+
+	static final String LEVEL = "/level_1-1.json";
+
+	@Test
+	void every_shipped_recording_matches_its_reference_run()
+			throws IOException {
+		List<String> levels = ReplayVerifier.readLevelIndex();
+		List<Result> results = ReplayVerifier.verifyAll(levels);
+
+		assertFalse(results.isEmpty());
+		assertEquals(levels.size(), results.size());
+		for (Result result : results) {
+			assertTrue(result.passed, result.toString());
+		}
+	}
+
+	@Test
+	void replaying_twice_gives_the_same_run() throws IOException {
+		Run first = ReplayVerifier.run(LEVEL);
+		Run second = ReplayVerifier.run(LEVEL);
+
+		assertEquals(first.frames, second.frames);
+		assertEquals(first.goalFrame, second.goalFrame);
+		assertEquals(first.checkpoints, second.checkpoints);
+	}
+
+	@Test
+	void fails_when_state_differs_from_reference() throws IOException {
+		Run reference = ReplayVerifier.run(LEVEL);
+		reference.checkpoints.set(1, reference.checkpoints.get(1) + 1);
+
+		Result result = ReplayVerifier.verify(LEVEL, reference);
+
+		assertFalse(result.passed);
+		assertTrue(result.message.contains("between frames 60 and 120"),
+				result.message);
+	}
+
+	@Test
+	void fails_when_frame_count_differs_from_reference() throws IOException {
+		Run reference = ReplayVerifier.run(LEVEL);
+		reference.frames++;
+
+		assertFalse(ReplayVerifier.verify(LEVEL, reference).passed);
+	}
+
+	@Test
+	void fails_without_reference() {
+		assertFalse(ReplayVerifier.verify(LEVEL, null).passed);
+	}
+
+	@Test
+	void fails_when_level_is_missing() {
+		Result result = ReplayVerifier.verify("/not_a_level.json", new Run());
+
+		assertFalse(result.passed);
+		assertEquals(0, result.frames);
+	}
+
+}
@@ -1,10 +1,13 @@
 package blockgame.gui;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.nio.file.Path;
 
@@ -14,6 +17,8 @@ import org.junit.jupiter.api.io.TempDir;
 
 import blockgame.input.ColorMapper;
 import blockgame.mocks.DrawableMock;
+import blockgame.physics.MovingRectangle;
+import blockgame.physics.Rectangle;
 import blockgame.util.SaveManager;
 
 class DrawingPaneTest {
@@ -44,6 +49,8 @@ class DrawingPaneTest {
 	}
 
 	private void draw() {
+		drawingPane.publishSnapshot(50, 50, 0, 0);
+		drawingPane.updateSnapshot();
 		Graphics g = bufferedImage.getGraphics();
 		drawingPane.paintComponent(g);
 		g.dispose();
@@ -100,4 +107,79 @@ class DrawingPaneTest {
 		assertCornersAreColored(drawable.x / 2, drawable.y / 2,
 				drawable.width / 2, drawable.height / 2);
 	}
+
+	@Test
+	void draws_drawables_as_they_were_when_published() {
+		drawingPane.publishSnapshot(50, 50, 0, 0);
+		drawingPane.updateSnapshot();
+		drawable.x = 30;
+		Graphics g = bufferedImage.getGraphics();
+		drawingPane.paintComponent(g);
+		g.dispose();
+
+		assertCornersAreColored(10, drawable.y, drawable.width,
+				drawable.height);
+		assertEquals(bufferedImage.getRGB(45, 45), bufferedImage.getRGB(30, 10));
+	}
+
+	@Test
+	void snapshot_has_window_bounds_it_was_published_with() {
+		drawingPane.publishSnapshot(200, 100, 5, -5);
+
+		assertTrue(drawingPane.updateSnapshot());
+		assertFalse(drawingPane.updateSnapshot());
+		assertEquals(1, drawingPane.getSnapshot().getDrawableCount());
+		assertFalse(drawingPane.getSnapshot().boundsDiffer(200, 100, 5, -5));
+		assertTrue(drawingPane.getSnapshot().boundsDiffer(200, 100, 0, 0));
+	}
+
+	@Test
+	void unchanged_drawables_are_not_copied_again() {
+		drawingPane.publishSnapshot(50, 50, 0, 0);
+		drawingPane.publishSnapshot(50, 50, 0, 0);
+		drawingPane.publishSnapshot(50, 50, 0, 0);
+
+		assertEquals(1, drawable.snapshotCount);
+	}
+
+	@Test
+	void changed_drawables_are_copied_again() {
+		drawingPane.publishSnapshot(50, 50, 0, 0);
+		drawable.x = 30;
+		draw();
+
+		assertEquals(2, drawable.snapshotCount);
+		assertCornersAreColored(30, drawable.y, drawable.width,
+				drawable.height);
+	}
+
+	@Test
+	void interpolation_draws_between_last_two_snapshots() {
+		Rectangle.setColorMapper(new ColorMapper());
+		drawingPane.clearDrawables();
+		MovingRectangle rect = new MovingRectangle(10, 10, 10, 10);
+		drawingPane.add(rect, 0);
+		drawingPane.publishSnapshot(50, 50, 0, 0);
+		rect.setX(30);
+		drawingPane.publishSnapshot(50, 50, 0, 0);
+		drawingPane.updateSnapshot();
+
+		Graphics2D g = (Graphics2D) bufferedImage.getGraphics();
+		drawingPane.getSnapshot().draw(g, 0.5);
+		g.dispose();
+
+		assertCornersAreColored(20, 10, 10, 10);
+		assertEquals(bufferedImage.getRGB(45, 45), bufferedImage.getRGB(31, 15));
+		assertEquals(30, rect.getX());
+	}
+
+	@Test
+	void interpolation_is_done_when_not_interpolating() {
+		drawingPane.setInterpolating(false);
+		drawingPane.publishSnapshot(50, 50, 0, 0);
+		drawingPane.updateSnapshot();
+
+		assertTrue(drawingPane.isInterpolationDone());
+	}
+
 }
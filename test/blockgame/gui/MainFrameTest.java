@@ -6,8 +6,11 @@ import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
 import java.awt.Component;
 import java.awt.GraphicsEnvironment;
+import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Path;
 
+import javax.swing.SwingUtilities;
+
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -41,7 +44,8 @@ class MainFrameTest {
 	}
 
 	@BeforeEach
-	void setUp(@TempDir Path dir) {
+	void setUp(@TempDir Path dir)
+			throws InvocationTargetException, InterruptedException {
 		assumeFalse(GraphicsEnvironment.isHeadless());
 		SaveManager.setDirectory(dir.toString());
 		paramMapper = new ParameterMapper();
@@ -54,6 +58,8 @@ class MainFrameTest {
 		level.width = 800;
 		level.height = 500;
 		mainFrame.setUpLevel(level);
+		// Wait for the window to be resized to fit the level
+		SwingUtilities.invokeAndWait(() -> {});
 	}
 
 	@Test
@@ -0,0 +1,77 @@
+package blockgame.input;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import blockgame.gui.MainFrame.Direction;
+import blockgame.input.GameInputHandler.MovementInput;
+import blockgame.util.Pair;
+
+class RecordingReaderTest {
+
+	private InputStream recording(int north, int south, int west, int east,
+			MovementInput... inputs) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		NumberWriter writer = new NumberWriter(outputStream);
+
+		writer.writeInt(north);
+		writer.writeInt(south);
+		writer.writeInt(west);
+		writer.writeInt(east);
+		writer.writeByte(inputs.length);
+		for (MovementInput inp : inputs) {
+			writer.writeByte(inp.ordinal());
+		}
+		writer.flush();
+
+		return new ByteArrayInputStream(outputStream.toByteArray());
+	}
+
+	@Test
+	void reads_resizes_in_order() throws IOException {
+		RecordingReader reader = new RecordingReader(
+				recording(1, -2, 300, 0));
+
+		Map<Direction, Integer> resizes = reader.readResizes();
+
+		assertEquals(1, resizes.get(Direction.NORTH));
+		assertEquals(-2, resizes.get(Direction.SOUTH));
+		assertEquals(300, resizes.get(Direction.WEST));
+		assertEquals(0, resizes.get(Direction.EAST));
+	}
+
+	@Test
+	void reads_frame_in_poll_format() throws IOException {
+		RecordingReader reader = new RecordingReader(recording(0, 0, 5, 0,
+				MovementInput.UP, MovementInput.RIGHT));
+
+		Pair<Map<Direction, Integer>, Set<MovementInput>> frame = reader
+				.readFrame();
+
+		assertEquals(5, frame.first.get(Direction.WEST));
+		assertEquals(Set.of(MovementInput.UP, MovementInput.RIGHT),
+				frame.second);
+	}
+
+	@Test
+	void closes_after_last_frame() throws IOException {
+		RecordingReader reader = new RecordingReader(
+				recording(0, 0, 0, 0, MovementInput.LEFT));
+		assertTrue(reader.isOpen());
+
+		reader.readFrame();
+
+		assertFalse(reader.isOpen());
+	}
+
+}
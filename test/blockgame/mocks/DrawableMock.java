@@ -9,6 +9,7 @@ public class DrawableMock implements Drawable {
 
 	public int x, y, width, height;
 	public Color color;
+	public int snapshotCount;
 
 	public DrawableMock(int x, int y, int width, int height, Color color) {
 		this.x = x;
@@ -26,4 +27,17 @@ public class DrawableMock implements Drawable {
 		g.dispose();
 	}
 
+	@Override
+	public Drawable snapshot() {
+		snapshotCount++;
+		return new DrawableMock(x, y, width, height, color);
+	}
+
+	@Override
+	public boolean matchesSnapshot(Drawable snapshot) {
+		DrawableMock other = (DrawableMock) snapshot;
+		return other.x == x && other.y == y && other.width == width
+				&& other.height == height && other.color.equals(color);
+	}
+
 }
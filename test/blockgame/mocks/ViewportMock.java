@@ -0,0 +1,53 @@
+package blockgame.mocks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import blockgame.Viewport;
+import blockgame.gui.MainFrame.Direction;
+
+public class ViewportMock implements Viewport {
+
+	public int width, height;
+	public List<Map<Direction, Integer>> resizes;
+	public int incorporateCount;
+
+	public ViewportMock(int width, int height) {
+		this.width = width;
+		this.height = height;
+		resizes = new ArrayList<>();
+		incorporateCount = 0;
+	}
+
+	@Override
+	public void resizeAll(Map<Direction, Integer> resizes) {
+		this.resizes.add(resizes);
+	}
+
+	@Override
+	public void incorporateChanges() {
+		incorporateCount++;
+	}
+
+	@Override
+	public int getNextWidth() {
+		return width;
+	}
+
+	@Override
+	public int getNextHeight() {
+		return height;
+	}
+
+	@Override
+	public int getNextXOffset() {
+		return 0;
+	}
+
+	@Override
+	public int getNextYOffset() {
+		return 0;
+	}
+
+}
@@ -0,0 +1,174 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class AabbTest {
+
+	// Every position and size from -RANGE to RANGE is tried, which covers
+	// every ordering of the four edges including empty and negative spans
+	static final int RANGE = 4;
+
+	// These are how Rectangle.intersectsX and intersectsY were written before
+	// they used Aabb
+
+	static boolean oldInBoundsX(int x, int width, int otherX,
+			int otherWidth) {
+		return (x <= otherX && otherX < x + width)
+				|| (x < otherX + otherWidth
+						&& otherX + otherWidth <= x + width)
+				|| (otherX < x && x < otherX + otherWidth);
+	}
+
+	static boolean oldInBoundsY(int y, int height, int otherY,
+			int otherHeight) {
+		return (y <= otherY && otherY < y + height)
+				|| (y < otherY + otherHeight
+						&& otherY + otherHeight <= y + height)
+				|| (otherY <= y && y < otherY + otherHeight);
+	}
+
+	@Test
+	void overlapsX_matches_old_test_exhaustively() {
+		for (int x = -RANGE; x <= RANGE; x++) {
+			for (int width = -RANGE; width <= RANGE; width++) {
+				for (int otherX = -RANGE; otherX <= RANGE; otherX++) {
+					for (int otherWidth = -RANGE; otherWidth <= RANGE;
+							otherWidth++) {
+						assertEquals(
+								oldInBoundsX(x, width, otherX, otherWidth),
+								Aabb.overlapsX(x, width, otherX, otherWidth),
+								x + " " + width + " " + otherX + " "
+										+ otherWidth);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void overlapsY_matches_old_test_exhaustively() {
+		for (int y = -RANGE; y <= RANGE; y++) {
+			for (int height = -RANGE; height <= RANGE; height++) {
+				for (int otherY = -RANGE; otherY <= RANGE; otherY++) {
+					for (int otherHeight = -RANGE; otherHeight <= RANGE;
+							otherHeight++) {
+						assertEquals(
+								oldInBoundsY(y, height, otherY, otherHeight),
+								Aabb.overlapsY(y, height, otherY, otherHeight),
+								y + " " + height + " " + otherY + " "
+										+ otherHeight);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void Rectangle_intersects_matches_old_test_exhaustively() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 1, 1);
+		MovingRectangle other = new MovingRectangle(0, 0, 1, 1);
+		for (int position = -RANGE; position <= RANGE; position++) {
+			for (int size = -RANGE; size <= RANGE; size++) {
+				rect.setX(0);
+				rect.setY(0);
+				rect.setWidth(size);
+				rect.setHeight(size);
+				other.setX(position);
+				other.setY(position);
+				other.setWidth(-size);
+				other.setHeight(size + 1);
+				rect.updateLastPosition();
+				other.updateLastPosition();
+
+				assertEquals(oldInBoundsX(0, size, position, -size),
+						rect.intersectsX(other));
+				assertEquals(oldInBoundsX(position, -size, 0, size),
+						other.intersectsX(rect));
+				assertEquals(oldInBoundsY(0, size, position, size + 1),
+						rect.intersectsY(other));
+				assertEquals(oldInBoundsY(position, size + 1, 0, size),
+						other.intersectsY(rect));
+				assertEquals(rect.intersectsX(other),
+						rect.usedToIntersectX(other));
+				assertEquals(other.intersectsY(rect),
+						other.usedToIntersectY(rect));
+			}
+		}
+	}
+
+	@Test
+	void touches_includes_edges() {
+		assertTrue(Aabb.touches(0, 0, 10, 10, 10, 10, 20, 20));
+		assertFalse(Aabb.touches(0, 0, 10, 10, 11, 0, 20, 10));
+		assertFalse(Aabb.touches(0, 0, 10, 10, 0, -10, 10, -1));
+	}
+
+	@Test
+	void swept_span_covers_both_frames() {
+		assertEquals(-5, Aabb.sweptMin(10, -15, 0, 10));
+		assertEquals(10, Aabb.sweptMax(10, -15, 0, 10));
+		assertEquals(0, Aabb.sweptMin(20, 5, 0, 10));
+		assertEquals(25, Aabb.sweptMax(20, 5, 0, 10));
+	}
+
+	@Test
+	void penetration_moves_next_to_span() {
+		assertEquals(-8, Aabb.penetrationBefore(10, 8, 10));
+		assertEquals(7, Aabb.penetrationAfter(10, 5, 8));
+	}
+
+	@Test
+	void sweptImpact_finds_direction_of_impact() {
+		assertEquals(Aabb.IMPACT_X,
+				Aabb.sweptImpact(50, 50, 10, 10, 20, 30, 10, 10, 60, 32));
+		assertEquals(Aabb.IMPACT_Y,
+				Aabb.sweptImpact(50, 50, 10, 10, 52, 0, 10, 10, 0, 100));
+		assertEquals(Aabb.IMPACT_X | Aabb.IMPACT_Y,
+				Aabb.sweptImpact(50, 50, 10, 10, 30, 30, 10, 10, 40, 40));
+	}
+
+	@Test
+	void sweptImpact_misses_when_only_touching() {
+		assertEquals(Aabb.NO_IMPACT,
+				Aabb.sweptImpact(50, 50, 10, 10, 0, 0, 10, 10, 40, 0));
+		assertEquals(Aabb.NO_IMPACT,
+				Aabb.sweptImpact(50, 50, 10, 10, 30, 0, 10, 10, 100, 100));
+		assertEquals(Aabb.NO_IMPACT,
+				Aabb.sweptImpact(50, 50, 10, 10, 0, 40, 10, 10, 100, 0));
+	}
+
+	@Test
+	void sweptImpact_misses_when_moving_away() {
+		assertEquals(Aabb.NO_IMPACT,
+				Aabb.sweptImpact(50, 50, 10, 10, 30, 50, 10, 10, -40, 0));
+		assertEquals(Aabb.NO_IMPACT,
+				Aabb.sweptImpact(50, 50, 10, 10, 55, 55, 10, 10, 20, 20));
+	}
+
+	@Test
+	void sweptImpact_matches_stepping_through_movement() {
+		// Moving one unit at a time and checking for overlap finds the same
+		// impacts, as long as the movement is only along one axis
+		for (int start = -RANGE * 4; start <= RANGE * 4; start++) {
+			for (int dx = -RANGE * 4; dx <= RANGE * 4; dx++) {
+				boolean stepped = false;
+				for (int step = 1; step <= Math.abs(dx); step++) {
+					int x = start + Integer.signum(dx) * step;
+					if (!oldInBoundsX(0, 5, start, 3)
+							&& Aabb.overlapsX(0, 5, x, 3)) {
+						stepped = true;
+					}
+				}
+				int impact = Aabb.sweptImpact(0, 0, 5, 5, start, 1, 3, 3, dx,
+						0);
+				assertEquals(stepped ? Aabb.IMPACT_X : Aabb.NO_IMPACT, impact,
+						start + " " + dx);
+			}
+		}
+	}
+
+}
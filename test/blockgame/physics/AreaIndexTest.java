@@ -0,0 +1,104 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import blockgame.mocks.AccessibleArea;
+import blockgame.physics.Rectangle.Colors;
+
+class AreaIndexTest {
+
+	SpatialGrid grid;
+	AreaIndex index;
+	MovingRectangle rect;
+
+	@BeforeEach
+	void setUp() {
+		grid = new SpatialGrid();
+		index = new AreaIndex(grid);
+		rect = new MovingRectangle(0, 0, 10, 10);
+		grid.add(rect);
+	}
+
+	AccessibleArea add(int x, int y) {
+		AccessibleArea area = new AccessibleArea(x, y, 20, 20, Colors.BLACK);
+		index.add(area);
+		return area;
+	}
+
+	int[] query(int afterId) {
+		int[] result = new int[index.size()];
+		int count = index.query(rect, afterId, result);
+		return Arrays.copyOf(result, count);
+	}
+
+	@Test
+	void finds_Areas_overlapping_MovingRectangle_in_order() {
+		add(5, 5);
+		add(500, 500);
+		add(-15, 0);
+
+		assertArrayEquals(new int[] { 0, 2 }, query(-1));
+	}
+
+	@Test
+	void only_finds_Areas_after_id() {
+		add(5, 5);
+		add(0, 0);
+
+		assertArrayEquals(new int[] { 1 }, query(0));
+	}
+
+	@Test
+	void finds_Area_after_it_moves() {
+		AccessibleArea area = add(500, 500);
+		int modCount = index.getModCount();
+
+		area.setX(0);
+		area.setY(0);
+
+		assertTrue(modCount != index.getModCount());
+		assertArrayEquals(new int[] { 0 }, query(-1));
+	}
+
+	@Test
+	void finds_Area_MovingRectangle_is_inside_after_it_leaves() {
+		AccessibleArea area = add(0, 0);
+		area.handle(rect);
+
+		rect.setX(300);
+
+		assertArrayEquals(new int[] { 0 }, query(-1));
+		area.handle(rect);
+		assertEquals(0, query(-1).length);
+	}
+
+	@Test
+	void PhysicsSimulator_only_handles_nearby_Areas() {
+		PhysicsSimulator simulator = new PhysicsSimulator();
+		MovingRectangle moving = new MovingRectangle(0, 0, 10, 10);
+		moving.setHasGravity(false);
+		simulator.add(moving);
+		AccessibleArea near = new AccessibleArea(0, 0, 20, 20, Colors.BLACK);
+		AccessibleArea far = new AccessibleArea(300, 300, 20, 20, Colors.BLACK);
+		simulator.add(near);
+		simulator.add(far);
+		simulator.setUp(500, 500, 0, 0);
+
+		simulator.updateAndMoveObjects(Set.of(), 500, 500, 0, 0);
+		moving.setX(300);
+		moving.setY(300);
+		simulator.updateAndMoveObjects(Set.of(), 500, 500, 0, 0);
+
+		assertTrue(near.hasExited);
+		assertTrue(far.hasEntered);
+	}
+
+}
@@ -2,11 +2,14 @@ package blockgame.physics;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -50,6 +53,15 @@ class AreaTest {
 		assertEquals(edgeColor, centerColor);
 	}
 
+	@Test
+	void snapshot_matches_until_activity_changes() {
+		Area copy = area.snapshot();
+		assertTrue(area.matchesSnapshot(copy));
+
+		area.setActive(false);
+		assertFalse(area.matchesSnapshot(copy));
+	}
+
 	@Nested
 	class WithMovingRectangle {
 
@@ -92,6 +104,17 @@ class AreaTest {
 			assertFalse(area.hasExited);
 		}
 
+		@Test
+		void snapshot_has_no_rects_inside() {
+			area.handle(rect);
+			Area copy = area.snapshot();
+			List<MovingRectangle> inside = new ArrayList<>();
+			copy.forEachInside(inside::add);
+
+			assertTrue(inside.isEmpty());
+			assertNull(copy.getIndex());
+		}
+
 		@Test
 		void everyFrame_is_called_the_correct_number_of_times() {
 			int numberOfTimes = 100;
@@ -0,0 +1,118 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BodyTableTest {
+
+	SpatialGrid grid;
+	BodyTable table;
+	MovingRectangle rect;
+	int index;
+
+	@BeforeEach
+	void setUp() {
+		grid = new SpatialGrid();
+		grid.add(new MovingRectangle(500, 500, 10, 10));
+		rect = new MovingRectangle(10, 20, 30, 40);
+		grid.add(rect);
+		table = grid.getTable();
+		index = grid.indexOf(rect);
+	}
+
+	void assertMatchesRect() {
+		assertEquals(rect.getX(), table.getX(index));
+		assertEquals(rect.getY(), table.getY(index));
+		assertEquals(rect.getWidth(), table.getWidth(index));
+		assertEquals(rect.getHeight(), table.getHeight(index));
+		assertEquals(rect.getLastX(), table.getLastX(index));
+		assertEquals(rect.getLastY(), table.getLastY(index));
+		assertEquals(rect.getLastWidth(), table.getLastWidth(index));
+		assertEquals(rect.getLastHeight(), table.getLastHeight(index));
+		assertEquals(rect.getXVelocity(), table.getXVelocity(index));
+		assertEquals(rect.getYVelocity(), table.getYVelocity(index));
+		assertEquals(SpatialGrid.sweptMinX(rect), table.sweptMinX(index));
+		assertEquals(SpatialGrid.sweptMaxX(rect), table.sweptMaxX(index));
+		assertEquals(SpatialGrid.sweptMinY(rect), table.sweptMinY(index));
+		assertEquals(SpatialGrid.sweptMaxY(rect), table.sweptMaxY(index));
+	}
+
+	@Test
+	void starts_with_state_of_MovingRectangle() {
+		assertMatchesRect();
+		assertTrue(table.isStill(index));
+	}
+
+	@Test
+	void follows_moveVelocity() {
+		rect.setXVelocity(5);
+		rect.setYVelocity(-50);
+
+		rect.moveVelocity();
+
+		assertMatchesRect();
+		assertFalse(table.isStill(index));
+	}
+
+	@Test
+	void follows_moveCollision() {
+		rect.setXVelocity(5);
+
+		rect.moveCollision(-3, 0, true);
+
+		assertMatchesRect();
+		assertEquals(0, table.getXVelocity(index));
+	}
+
+	@Test
+	void follows_changes_in_size() {
+		rect.changeWidth(-50, true);
+		rect.changeHeight(15, false);
+
+		assertMatchesRect();
+	}
+
+	@Test
+	void follows_updateLastPosition() {
+		rect.setX(100);
+		rect.updateLastPosition();
+
+		assertMatchesRect();
+		assertTrue(table.isStill(index));
+	}
+
+	@Test
+	void follows_controlledByPlayer() {
+		rect.setControlledByPlayer(true);
+		assertTrue(table.hasFlag(index, BodyTable.CONTROLLED_BY_PLAYER));
+
+		rect.setControlledByPlayer(false);
+		assertFalse(table.hasFlag(index, BodyTable.CONTROLLED_BY_PLAYER));
+	}
+
+	@Test
+	void snapshot_is_not_in_table() {
+		MovingRectangle copy = rect.snapshot();
+		copy.setX(200);
+		copy.changeHeight(15, false);
+
+		assertMatchesRect();
+		assertEquals(-1, copy.getGridIndex());
+	}
+
+	@Test
+	void keeps_rows_when_growing() {
+		for (int i = 0; i < 100; i++) {
+			grid.add(new MovingRectangle(i, i, 10, 10));
+		}
+		rect.setY(-30);
+
+		assertEquals(102, table.size());
+		assertMatchesRect();
+	}
+
+}
@@ -0,0 +1,117 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BoxBatchTest {
+
+	// Not a multiple of any vector length, so the scalar tail is used too
+	static final int SIZE = 1003;
+
+	int[] minX, minY, maxX, maxY;
+	int[] indices;
+
+	@BeforeEach
+	void setUp() {
+		Random random = new Random(0);
+		minX = new int[SIZE];
+		minY = new int[SIZE];
+		maxX = new int[SIZE];
+		maxY = new int[SIZE];
+		indices = new int[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			minX[i] = random.nextInt(100) - 50;
+			minY[i] = random.nextInt(100) - 50;
+			maxX[i] = minX[i] + random.nextInt(20);
+			maxY[i] = minY[i] + random.nextInt(20);
+			indices[i] = random.nextInt(SIZE);
+		}
+	}
+
+	int[] expected(int fromX, int fromY, int toX, int toY) {
+		int[] result = new int[SIZE];
+		int count = 0;
+		for (int i = 0; i < SIZE; i++) {
+			if (Aabb.touches(fromX, fromY, toX, toY, minX[i], minY[i],
+					maxX[i], maxY[i])) {
+				result[count++] = i;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	int[] expectedAt(int fromX, int fromY, int toX, int toY) {
+		int[] result = new int[SIZE];
+		int count = 0;
+		for (int index : indices) {
+			if (Aabb.touches(fromX, fromY, toX, toY, minX[index],
+					minY[index], maxX[index], maxY[index])) {
+				result[count++] = index;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	@Test
+	void finds_touching_boxes_in_order() {
+		int[] result = new int[SIZE];
+		for (int x = -60; x <= 60; x += 7) {
+			int count = BoxBatch.touching(x, -x, x + 10, -x + 30, minX, minY,
+					maxX, maxY, 0, SIZE, result, 0);
+			assertArrayEquals(expected(x, -x, x + 10, -x + 30),
+					Arrays.copyOf(result, count));
+		}
+	}
+
+	@Test
+	void finds_touching_boxes_at_indices_in_order() {
+		int[] result = new int[SIZE];
+		for (int x = -60; x <= 60; x += 7) {
+			int count = BoxBatch.touchingAt(x, -x, x + 10, -x + 30, minX, minY,
+					maxX, maxY, indices, SIZE, result, 0);
+			assertArrayEquals(expectedAt(x, -x, x + 10, -x + 30),
+					Arrays.copyOf(result, count));
+		}
+	}
+
+	@Test
+	void only_tests_range_and_writes_after_offset() {
+		int[] result = new int[SIZE];
+		int count = BoxBatch.touching(-1000, -1000, 1000, 1000, minX, minY,
+				maxX, maxY, 5, 10, result, 2);
+
+		assertEquals(5, count);
+		assertArrayEquals(new int[] { 0, 0, 5, 6, 7, 8, 9 },
+				Arrays.copyOf(result, 7));
+	}
+
+	@Test
+	void vector_version_matches_scalar_version() {
+		assumeTrue(BoxBatch.isVectorized());
+		int[] result = new int[SIZE];
+		int[] scalarResult = new int[SIZE];
+		for (int x = -60; x <= 60; x += 7) {
+			int count = BoxBatch.touching(x, x, x + 25, x + 5, minX,
+					minY, maxX, maxY, 3, SIZE, result, 0);
+			int scalarCount = BoxBatch.scalarTouching(x, x, x + 25, x + 5,
+					minX, minY, maxX, maxY, 3, SIZE, scalarResult, 0);
+			assertArrayEquals(Arrays.copyOf(scalarResult, scalarCount),
+					Arrays.copyOf(result, count));
+
+			count = BoxBatch.touchingAt(x, x, x + 25, x + 5, minX, minY,
+					maxX, maxY, indices, SIZE, result, 0);
+			scalarCount = BoxBatch.scalarTouchingAt(x, x, x + 25, x + 5, minX,
+					minY, maxX, maxY, indices, SIZE, scalarResult, 0);
+			assertArrayEquals(Arrays.copyOf(scalarResult, scalarCount),
+					Arrays.copyOf(result, count));
+		}
+	}
+
+}
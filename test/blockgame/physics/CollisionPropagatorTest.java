@@ -0,0 +1,239 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import blockgame.gui.MainFrame.Direction;
+
+class CollisionPropagatorTest {
+
+	SpatialGrid grid;
+	List<WallRectangle> walls;
+	Map<Direction, SideRectangle> sides;
+	CollisionPropagator propagator;
+
+	@BeforeEach
+	void setUp() {
+		grid = new SpatialGrid();
+		walls = new ArrayList<>();
+		sides = new HashMap<>();
+		propagator = new CollisionPropagator(grid, walls, sides);
+	}
+
+	@Test
+	void pushes_MovingRectangle_out_of_the_way() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		MovingRectangle other = new MovingRectangle(55, 0, 50, 50);
+		grid.add(rect);
+		grid.add(other);
+
+		rect.setX(10);
+		grid.update(rect);
+		long pushedBack = propagator.propagateCollision(rect);
+
+		assertEquals(60, other.getX());
+		assertEquals(10, rect.getX());
+		assertEquals(0, CollisionPropagator.unpackX(pushedBack));
+		assertEquals(0, CollisionPropagator.unpackY(pushedBack));
+	}
+
+	@Test
+	void is_pushed_back_by_WallRectangle() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		walls.add(new WallRectangle(55, 0, 50, 50));
+		grid.add(rect);
+
+		rect.setX(10);
+		grid.update(rect);
+		long pushedBack = propagator.propagateCollision(rect);
+
+		assertEquals(5, rect.getX());
+		assertEquals(-5, CollisionPropagator.unpackX(pushedBack));
+		assertEquals(0, CollisionPropagator.unpackY(pushedBack));
+	}
+
+	@Test
+	void is_pushed_back_when_pushed_MovingRectangle_hits_WallRectangle() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		MovingRectangle other = new MovingRectangle(55, 0, 50, 50);
+		walls.add(new WallRectangle(105, 0, 50, 50));
+		grid.add(rect);
+		grid.add(other);
+
+		rect.setX(10);
+		grid.update(rect);
+		long pushedBack = propagator.propagateCollision(rect);
+
+		assertEquals(5, rect.getX());
+		assertEquals(55, other.getX());
+		assertEquals(-5, CollisionPropagator.unpackX(pushedBack));
+	}
+
+	MovingRectangle moveDiagonallyPastWall() {
+		MovingRectangle rect = new MovingRectangle(20, 40, 10, 10);
+		walls.add(new WallRectangle(50, 50, 10, 10));
+		grid.add(rect);
+
+		rect.setX(80);
+		rect.setY(72);
+		grid.update(rect);
+		propagator.propagateCollision(rect);
+		return rect;
+	}
+
+	@Test
+	void misses_WallRectangle_passed_diagonally_without_swept_collision() {
+		MovingRectangle rect = moveDiagonallyPastWall();
+
+		assertEquals(80, rect.getX());
+		assertEquals(72, rect.getY());
+	}
+
+	@Test
+	void stops_at_WallRectangle_passed_diagonally_with_swept_collision() {
+		propagator.setSweptCollision(true);
+		MovingRectangle rect = moveDiagonallyPastWall();
+
+		assertEquals(40, rect.getX());
+		assertEquals(72, rect.getY());
+	}
+
+	@Test
+	void pushes_MovingRectangle_passed_through_with_swept_collision() {
+		propagator.setSweptCollision(true);
+		MovingRectangle rect = new MovingRectangle(0, 0, 10, 10);
+		MovingRectangle other = new MovingRectangle(40, 2, 5, 5);
+		grid.add(rect);
+		grid.add(other);
+
+		rect.setX(100);
+		rect.setY(-8);
+		grid.update(rect);
+		propagator.propagateCollision(rect);
+
+		assertEquals(110, other.getX());
+	}
+
+	@Test
+	void can_be_used_more_than_once() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		MovingRectangle other = new MovingRectangle(55, 0, 50, 50);
+		grid.add(rect);
+		grid.add(other);
+
+		rect.setX(10);
+		grid.update(rect);
+		propagator.propagateCollision(rect);
+		rect.updateLastPosition();
+		other.updateLastPosition();
+		grid.updateAll();
+		rect.setX(20);
+		grid.update(rect);
+		propagator.propagateCollision(rect);
+
+		assertEquals(70, other.getX());
+	}
+
+	@Test
+	void pushes_long_row_of_MovingRectangles() {
+		List<MovingRectangle> row = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			MovingRectangle rect = new MovingRectangle(10 * i, 0, 10, 10);
+			row.add(rect);
+			grid.add(rect);
+		}
+
+		row.get(0).setX(5);
+		grid.update(row.get(0));
+		propagator.propagateCollision(row.get(0));
+
+		for (int i = 0; i < row.size(); i++) {
+			assertEquals(10 * i + 5, row.get(i).getX());
+		}
+		assertEquals(row.size() - 1, propagator.getPushedCount());
+	}
+
+	@Nested
+	class Allocation {
+
+		static final int WARMUP_FRAMES = 20000;
+		static final int FRAMES = 1000;
+
+		List<MovingRectangle> rects;
+		int frame;
+
+		@BeforeEach
+		void setUp() {
+			walls.add(new WallRectangle(0, 500, 1000, 50));
+			walls.add(new WallRectangle(900, 0, 50, 500));
+			sides.put(Direction.NORTH,
+					new SideRectangle(0, -1, 1000, 1, Direction.NORTH));
+			sides.put(Direction.SOUTH,
+					new SideRectangle(0, 550, 1000, 1, Direction.SOUTH));
+			sides.put(Direction.WEST,
+					new SideRectangle(-1, 0, 1, 550, Direction.WEST));
+			sides.put(Direction.EAST,
+					new SideRectangle(1000, 0, 1, 550, Direction.EAST));
+
+			rects = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				MovingRectangle rect = new MovingRectangle(100 + 60 * i,
+						400 - 10 * i, 50, 50);
+				rects.add(rect);
+				grid.add(rect);
+			}
+			frame = 0;
+		}
+
+		// Pushes the first MovingRectangle back and forth through the others
+		void runFrame() {
+			for (int i = 0; i < rects.size(); i++) {
+				rects.get(i).updateLastPosition();
+			}
+			grid.updateAll();
+
+			for (int i = 0; i < rects.size(); i++) {
+				MovingRectangle rect = rects.get(i);
+				if (i == 0) {
+					rect.setXVelocity(frame % 200 < 100 ? 10 : -10);
+				}
+				rect.setYVelocity(rect.getYVelocity() + 2);
+				rect.moveVelocity();
+				grid.update(rect);
+				propagator.propagateCollision(rect);
+			}
+			frame++;
+		}
+
+		@Test
+		void does_not_allocate_once_warmed_up() {
+			ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory
+					.getThreadMXBean();
+			for (int i = 0; i < WARMUP_FRAMES; i++) {
+				runFrame();
+			}
+
+			long before = threadBean.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < FRAMES; i++) {
+				runFrame();
+			}
+			long allocated = threadBean.getCurrentThreadAllocatedBytes()
+					- before;
+
+			assertEquals(0, allocated / FRAMES);
+		}
+
+	}
+
+}
@@ -0,0 +1,57 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class KeyLayersTest {
+
+	KeyLayers keyLayers;
+
+	@BeforeEach
+	void setUp() {
+		keyLayers = new KeyLayers();
+	}
+
+	@Test
+	void same_key_gets_same_layer() {
+		assertEquals(keyLayers.layerOf("key"), keyLayers.layerOf("key"));
+	}
+
+	@Test
+	void different_keys_get_different_layers() {
+		assertNotEquals(keyLayers.layerOf("key"), keyLayers.layerOf("other"));
+	}
+
+	@Test
+	void layers_are_one_bit_between_kind_and_ResizeBehavior_layers() {
+		int layer = keyLayers.layerOf("key");
+
+		assertEquals(1, Integer.bitCount(layer));
+		assertEquals(0, layer & Rectangle.RESIZE_LAYERS);
+		assertEquals(0, layer & (Rectangle.KEY_OVERFLOW_LAYER - 1));
+	}
+
+	@Test
+	void keys_share_overflow_layer_after_layers_run_out() {
+		for (int i = 0; i < 30; i++) {
+			keyLayers.layerOf("key " + i);
+		}
+
+		assertEquals(Rectangle.KEY_OVERFLOW_LAYER,
+				keyLayers.layerOf("after the layers run out"));
+	}
+
+	@Test
+	void each_KeyLayers_starts_from_the_first_layer() {
+		for (int i = 0; i < 30; i++) {
+			keyLayers.layerOf("key " + i);
+		}
+
+		assertEquals(keyLayers.layerOf("key 0"),
+				new KeyLayers().layerOf("another key"));
+	}
+
+}
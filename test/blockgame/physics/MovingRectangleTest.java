@@ -36,6 +36,23 @@ class MovingRectangleTest {
 		assertTrue(attachments.stream().anyMatch(a -> a instanceof JumpArea));
 	}
 
+	@Test
+	void snapshot_has_no_attachments() {
+		Rectangle copy = rect.snapshot();
+
+		assertTrue(copy.getAttachments().isEmpty());
+		assertFalse(rect.getAttachments().isEmpty());
+	}
+
+	@Test
+	void snapshot_matches_until_moved() {
+		Rectangle copy = rect.snapshot();
+		assertTrue(rect.matchesSnapshot(copy));
+
+		rect.setX(11);
+		assertFalse(rect.matchesSnapshot(copy));
+	}
+
 	@Test
 	void moveVelocity_moves_by_velocity_amounts() {
 		int initialX = rect.getX(), initialY = rect.getY();
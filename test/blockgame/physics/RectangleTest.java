@@ -4,11 +4,17 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import blockgame.gui.MainFrame.Direction;
 import blockgame.physics.Rectangle.AttachmentOption;
+import blockgame.physics.Rectangle.Colors;
+import blockgame.physics.Rectangle.ResizeBehavior;
 
 class RectangleTest {
 
@@ -98,6 +104,26 @@ class RectangleTest {
 			assertEquals(200, attachedArea.getX());
 		}
 
+		@Test
+		void attaching_again_replaces_options() {
+			rect.addAttachment(attachedArea, AttachmentOption.GLUED_SOUTH);
+			rect.setY(200);
+
+			assertEquals(List.of(attachedArea), rect.getAttachments());
+			assertEquals(rect.getY() + rect.getHeight(), attachedArea.getY());
+		}
+
+		@Test
+		void removed_area_stops_moving() {
+			Area other = addNewAttachment(AttachmentOption.GLUED_EAST);
+			int oldX = attachedArea.getX();
+			rect.removeAttachment(attachedArea);
+			rect.setX(200);
+
+			assertEquals(oldX, attachedArea.getX());
+			assertEquals(rect.getX() + rect.getWidth(), other.getX());
+		}
+
 		Area addNewAttachment(AttachmentOption... attachmentOptions) {
 			Area newAttachment = new AntigravityArea(0, 0, 20, 20);
 			rect.addAttachment(newAttachment, attachmentOptions);
@@ -150,4 +176,115 @@ class RectangleTest {
 			assertEquals(rect.getX() + rect.getWidth(), newAttachment.getX());
 		}
 	}
+
+	@Nested
+	class CollisionLayers {
+
+		KeyLayers keyLayers;
+		List<Rectangle> rects;
+
+		@BeforeEach
+		void createRectangles() {
+			keyLayers = new KeyLayers();
+			rects = new ArrayList<>();
+			for (ResizeBehavior behavior : ResizeBehavior.values()) {
+				rects.add(new WallRectangle(0, 0, 0, 0, behavior));
+				rects.add(new MovingRectangle(0, 0, 0, 0, Colors.BLACK, true,
+						behavior));
+			}
+			for (Direction direction : Direction.values()) {
+				rects.add(new SideRectangle(0, 0, 0, 0, direction));
+			}
+			rects.add(new SideRectangle(0, 0, 0, 0, null));
+			rects.add(new GhostRectangle(0, 0, 0, 0, Colors.BLACK));
+			rects.add(new AntigravityArea(0, 0, 0, 0));
+			// Enough keys that some have to share KEY_OVERFLOW_LAYER
+			for (int i = 0; i < 30; i++) {
+				String key = "layer test " + i;
+				rects.add(new SwitchArea(0, 0, 0, 0, Colors.RED, key,
+						keyLayers));
+				SwitchRectangle inactive = new SwitchRectangle(0, 0, 0, 0,
+						Colors.RED, key, keyLayers);
+				rects.add(inactive);
+				SwitchRectangle active = new SwitchRectangle(0, 0, 0, 0,
+						Colors.RED, key, keyLayers);
+				active.setActive(true);
+				rects.add(active);
+			}
+		}
+
+		/**
+		 * How canInteract decided before collision layers.
+		 */
+		boolean expectedCanInteract(Rectangle rect, Rectangle other) {
+			if (rect instanceof SideRectangle) {
+				Direction direction = ((SideRectangle) rect).getDirection();
+				if (other instanceof SideRectangle) {
+					return false;
+				}
+				switch (other.getResizeBehavior()) {
+					case STAY:
+						return false;
+					case PREVENT_X:
+						return direction == Direction.WEST
+								|| direction == Direction.EAST;
+					case PREVENT_Y:
+						return direction == Direction.NORTH
+								|| direction == Direction.SOUTH;
+					default:
+						return true;
+				}
+			}
+			if (rect instanceof GhostRectangle
+					&& other instanceof SideRectangle) {
+				return ((SideRectangle) other)
+						.getDirection() == Direction.SOUTH;
+			}
+			if (rect instanceof SwitchRectangle) {
+				SwitchRectangle switchRect = (SwitchRectangle) rect;
+				if (switchRect.isActive()) {
+					return true;
+				}
+				if (other instanceof SwitchArea) {
+					return ((SwitchArea) other).getKey()
+							.equals(switchRect.getKey());
+				}
+				return other instanceof WallRectangle
+						|| other instanceof SideRectangle;
+			}
+			return true;
+		}
+
+		@Test
+		void interactions_are_the_same_as_before() {
+			for (Rectangle rect : rects) {
+				for (Rectangle other : rects) {
+					assertEquals(expectedCanInteract(rect, other),
+							rect.canInteract(other), rect + " with " + other);
+				}
+			}
+		}
+
+		@Test
+		void layers_are_updated_when_ResizeBehavior_changes() {
+			SideRectangle side = new SideRectangle(0, 0, 0, 0, Direction.NORTH);
+			assertFalse(side.canInteract(rect));
+
+			rect.setResizeBehavior(ResizeBehavior.PREVENT_Y);
+
+			assertTrue(side.canInteract(rect));
+		}
+
+		@Test
+		void layers_are_updated_when_SwitchRectangle_changes_activity() {
+			SwitchRectangle switchRect = new SwitchRectangle(0, 0, 0, 0,
+					Colors.RED, "key", keyLayers);
+			MovingRectangle other = new MovingRectangle(0, 0, 0, 0);
+			assertFalse(switchRect.canInteract(other));
+
+			switchRect.setActive(true);
+
+			assertTrue(switchRect.canInteract(other));
+		}
+	}
 }
@@ -0,0 +1,98 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import blockgame.gui.MainFrame.Direction;
+
+class SideProximityTest {
+
+	SpatialGrid grid;
+	List<WallRectangle> walls;
+	Map<Direction, SideRectangle> sides;
+	SideProximity proximity;
+	SideRectangle north;
+
+	@BeforeEach
+	void setUp() {
+		grid = new SpatialGrid();
+		walls = new ArrayList<>();
+		sides = new EnumMap<>(Direction.class);
+		north = new SideRectangle(0, -10, 500, 10, Direction.NORTH);
+		sides.put(Direction.NORTH, north);
+		sides.put(Direction.SOUTH,
+				new SideRectangle(0, 500, 500, 10, Direction.SOUTH));
+		sides.put(Direction.WEST,
+				new SideRectangle(-10, 0, 10, 500, Direction.WEST));
+		sides.put(Direction.EAST,
+				new SideRectangle(500, 0, 10, 500, Direction.EAST));
+		proximity = new SideProximity(grid, walls, sides);
+	}
+
+	void recordNothingHappened() {
+		proximity.record(north, north.getX(), north.getY(), north.getWidth(),
+				north.getHeight(), 0, 0);
+	}
+
+	@Test
+	void is_not_idle_before_anything_is_recorded() {
+		assertFalse(proximity.isIdle(north));
+	}
+
+	@Test
+	void is_idle_after_collision_did_nothing() {
+		grid.add(new MovingRectangle(100, 300, 10, 10));
+		recordNothingHappened();
+
+		assertTrue(proximity.isIdle(north));
+	}
+
+	@Test
+	void is_not_idle_when_MovingRectangle_is_in_reach() {
+		recordNothingHappened();
+		grid.add(new MovingRectangle(100, 0, 10, 10));
+
+		assertFalse(proximity.isIdle(north));
+	}
+
+	@Test
+	void is_not_idle_after_moving() {
+		recordNothingHappened();
+		north.setY(-5);
+
+		assertFalse(proximity.isIdle(north));
+	}
+
+	@Test
+	void is_not_idle_after_opposite_side_moves() {
+		recordNothingHappened();
+		sides.get(Direction.SOUTH).setY(400);
+
+		assertFalse(proximity.isIdle(north));
+	}
+
+	@Test
+	void is_not_idle_after_being_pushed_back() {
+		proximity.record(north, north.getX(), north.getY(), north.getWidth(),
+				north.getHeight(), 3, 0);
+
+		assertFalse(proximity.isIdle(north));
+	}
+
+	@Test
+	void is_not_idle_after_pushing_something() {
+		proximity.record(north, north.getX(), north.getY(), north.getWidth(),
+				north.getHeight(), 0, 1);
+
+		assertFalse(proximity.isIdle(north));
+	}
+
+}
@@ -0,0 +1,203 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import blockgame.input.GameInputHandler.MovementInput;
+import blockgame.physics.Rectangle.AttachmentOption;
+import blockgame.physics.Rectangle.Colors;
+
+class SleepTrackerTest {
+
+	static final int WIDTH = 400;
+	static final int HEIGHT = 300;
+
+	PhysicsSimulator simulator;
+
+	@BeforeEach
+	void setUp() {
+		simulator = new PhysicsSimulator();
+	}
+
+	void start() {
+		simulator.setUp(WIDTH, HEIGHT, 0, 0);
+	}
+
+	void runFrames(int frames, int height) {
+		for (int i = 0; i < frames; i++) {
+			simulator.updateAndMoveObjects(Set.of(), WIDTH, height, 0, 0);
+		}
+	}
+
+	void runUntilAsleep() {
+		runFrames(SleepTracker.FRAMES_BEFORE_SLEEP + 20, HEIGHT);
+	}
+
+	MovingRectangle addBox(int x, int y) {
+		MovingRectangle box = new MovingRectangle(x, y, 20, 20);
+		simulator.add(box);
+		return box;
+	}
+
+	@Test
+	void resting_MovingRectangle_falls_asleep() {
+		simulator.add(new WallRectangle(0, 200, WIDTH, 20));
+		MovingRectangle box = addBox(50, 180);
+		start();
+
+		runUntilAsleep();
+
+		assertTrue(simulator.isAsleep(box));
+		assertEquals(180, box.getY());
+	}
+
+	@Test
+	void falling_MovingRectangle_does_not_fall_asleep() {
+		MovingRectangle box = addBox(50, -10000);
+		simulator.add(new WallRectangle(0, 200, WIDTH, 20));
+		start();
+
+		runFrames(SleepTracker.FRAMES_BEFORE_SLEEP + 20, HEIGHT);
+
+		assertFalse(simulator.isAsleep(box));
+	}
+
+	@Test
+	void player_does_not_fall_asleep() {
+		simulator.add(new WallRectangle(0, 200, WIDTH, 20));
+		MovingRectangle player = addBox(50, 180);
+		player.setControlledByPlayer(true);
+		start();
+
+		runUntilAsleep();
+
+		assertFalse(simulator.isAsleep(player));
+	}
+
+	@Test
+	void MovingRectangle_touching_player_does_not_fall_asleep() {
+		simulator.add(new WallRectangle(0, 200, WIDTH, 20));
+		MovingRectangle player = addBox(50, 180);
+		player.setControlledByPlayer(true);
+		MovingRectangle box = addBox(50, 160);
+		start();
+
+		runUntilAsleep();
+
+		assertFalse(simulator.isAsleep(box));
+	}
+
+	@Test
+	void stack_falls_asleep_together() {
+		simulator.add(new WallRectangle(0, 200, WIDTH, 20));
+		MovingRectangle bottom = addBox(50, 180);
+		MovingRectangle top = addBox(50, 160);
+		start();
+
+		runUntilAsleep();
+
+		assertTrue(simulator.isAsleep(bottom));
+		assertTrue(simulator.isAsleep(top));
+	}
+
+	@Test
+	void wakes_when_something_lands_on_it() {
+		simulator.add(new WallRectangle(0, 200, WIDTH, 20));
+		MovingRectangle box = addBox(50, 180);
+		start();
+		runUntilAsleep();
+
+		MovingRectangle falling = addBox(55, 0);
+		runFrames(20, HEIGHT);
+
+		assertFalse(simulator.isAsleep(box));
+		assertEquals(160, falling.getY());
+		assertEquals(180, box.getY());
+	}
+
+	@Test
+	void wakes_when_pushed() {
+		simulator.add(new WallRectangle(0, 200, WIDTH, 20));
+		MovingRectangle box = addBox(100, 180);
+		MovingRectangle player = addBox(10, 180);
+		player.setControlledByPlayer(true);
+		start();
+		runUntilAsleep();
+		assertTrue(simulator.isAsleep(box));
+
+		for (int i = 0; i < 30; i++) {
+			simulator.updateAndMoveObjects(Set.of(MovementInput.RIGHT), WIDTH,
+					HEIGHT, 0, 0);
+		}
+
+		assertTrue(box.getX() > 100);
+	}
+
+	@Test
+	void wakes_when_window_edge_moves_away() {
+		MovingRectangle box = addBox(50, 280);
+		start();
+		runUntilAsleep();
+		assertTrue(simulator.isAsleep(box));
+
+		runFrames(10, HEIGHT + 50);
+
+		assertFalse(simulator.isAsleep(box));
+		assertEquals(330, box.getY());
+	}
+
+	@Test
+	void wakes_when_resting_on_SwitchRectangle_which_becomes_inactive() {
+		simulator.add(new WallRectangle(0, 200, WIDTH, 20));
+		SwitchController controller = new SwitchController();
+		KeyLayers keyLayers = new KeyLayers();
+		SwitchRectangle platform = new SwitchRectangle(40, 100, 40, 20,
+				Colors.BLUE, "key", keyLayers);
+		platform.setHasGravity(false);
+		controller.addSwitchRectangle(platform);
+		simulator.add(platform);
+		SwitchArea switchArea = new SwitchArea(300, 150, 50, 50,
+				Colors.TRANSLUCENT_BLUE, "key", keyLayers);
+		switchArea.setController(controller);
+		simulator.add(switchArea);
+		addBox(310, 180);
+		MovingRectangle box = addBox(50, 80);
+		start();
+		runUntilAsleep();
+		assertTrue(simulator.isAsleep(box));
+
+		switchArea.setActive(false);
+		runFrames(30, HEIGHT);
+
+		assertFalse(platform.isActive());
+		assertEquals(180, box.getY());
+	}
+
+	@Test
+	void wakes_when_Area_moves_onto_it() {
+		simulator.add(new WallRectangle(0, 200, WIDTH, 20));
+		MovingRectangle box = addBox(200, 180);
+		MovingRectangle carrier = addBox(0, 0);
+		carrier.setHasGravity(false);
+		AntigravityArea antigravity = new AntigravityArea(0, 0, 20, 20);
+		carrier.addAttachment(antigravity, AttachmentOption.GLUED_SOUTH);
+		simulator.add(antigravity);
+		start();
+		runUntilAsleep();
+		assertTrue(simulator.isAsleep(box));
+
+		carrier.setX(200);
+		carrier.setY(150);
+		runFrames(1, HEIGHT);
+
+		assertFalse(simulator.isAsleep(box));
+		assertFalse(box.hasGravity());
+	}
+
+}
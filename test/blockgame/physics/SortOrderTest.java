@@ -0,0 +1,121 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SortOrderTest {
+
+	SpatialGrid grid;
+	List<MovingRectangle> rects;
+
+	@BeforeEach
+	void setUp() {
+		grid = new SpatialGrid(64);
+		rects = new ArrayList<>();
+	}
+
+	MovingRectangle add(SortOrder order, int x, int y, int width, int height) {
+		MovingRectangle rect = new MovingRectangle(x, y, width, height);
+		grid.add(rect);
+		order.add(rect);
+		rects.add(rect);
+		return rect;
+	}
+
+	List<MovingRectangle> contents(SortOrder order) {
+		List<MovingRectangle> contents = new ArrayList<>();
+		for (int i = 0; i < order.size(); i++) {
+			contents.add(order.get(i));
+		}
+		return contents;
+	}
+
+	List<MovingRectangle> byRank() {
+		List<MovingRectangle> byRank = new ArrayList<>();
+		for (int rank = 0; rank < grid.size(); rank++) {
+			byRank.add(grid.getByRank(rank));
+		}
+		return byRank;
+	}
+
+	@Test
+	void sorts_by_top_edge() {
+		SortOrder order = new SortOrder(SortOrder.Key.TOP);
+		MovingRectangle low = add(order, 0, 50, 10, 10);
+		MovingRectangle high = add(order, 0, 10, 10, 10);
+
+		order.sort(grid);
+
+		assertEquals(List.of(high, low), contents(order));
+	}
+
+	@Test
+	void sorts_by_descending_bottom_edge() {
+		SortOrder order = new SortOrder(SortOrder.Key.BOTTOM);
+		MovingRectangle shortRect = add(order, 0, 20, 10, 10);
+		MovingRectangle tallRect = add(order, 0, 0, 10, 50);
+
+		order.sort(grid);
+
+		assertEquals(List.of(tallRect, shortRect), contents(order));
+	}
+
+	@Test
+	void breaks_ties_by_rank() {
+		SortOrder order = new SortOrder(SortOrder.Key.LEFT);
+		MovingRectangle first = add(order, 0, 0, 10, 10);
+		MovingRectangle second = add(order, 0, 0, 10, 10);
+		grid.setOrder(List.of(second, first));
+
+		order.sort(grid);
+
+		assertEquals(List.of(second, first), contents(order));
+	}
+
+	@Test
+	void sets_ranks_to_order() {
+		SortOrder order = new SortOrder(SortOrder.Key.RIGHT);
+		add(order, 0, 0, 10, 10);
+		add(order, 30, 0, 10, 10);
+		add(order, 10, 0, 10, 10);
+
+		order.sort(grid);
+
+		assertEquals(contents(order), byRank());
+	}
+
+	@Test
+	void matches_stable_sort_over_many_frames() {
+		SortOrder left = new SortOrder(SortOrder.Key.LEFT);
+		SortOrder top = new SortOrder(SortOrder.Key.TOP);
+		Random random = new Random(0);
+		for (int i = 0; i < 100; i++) {
+			MovingRectangle rect = add(left, random.nextInt(20) * 10,
+					random.nextInt(20) * 10, 10, 10);
+			top.add(rect);
+		}
+		List<MovingRectangle> expected = new ArrayList<>(rects);
+
+		for (int frame = 0; frame < 50; frame++) {
+			for (MovingRectangle rect : rects) {
+				rect.setX(rect.getX() + random.nextInt(5) - 2);
+				rect.setY(rect.getY() + random.nextInt(5) - 2);
+			}
+			expected.sort((r1, r2) -> r1.getX() - r2.getX());
+			expected.sort((r1, r2) -> r1.getY() - r2.getY());
+
+			left.sort(grid);
+			top.sort(grid);
+
+			assertEquals(expected, contents(top));
+			assertEquals(expected, byRank());
+		}
+	}
+
+}
@@ -0,0 +1,249 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import blockgame.physics.Rectangle.AttachmentOption;
+
+class SpatialGridTest {
+
+	SpatialGrid grid;
+
+	@BeforeEach
+	void setUp() {
+		grid = new SpatialGrid(64);
+	}
+
+	List<MovingRectangle> query(Rectangle rect, int afterRank) {
+		int[] result = new int[grid.size()];
+		int count = grid.query(rect, afterRank, result, 0);
+		List<MovingRectangle> found = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			found.add(grid.get(result[i]));
+		}
+		return found;
+	}
+
+	@Test
+	void finds_overlapping_MovingRectangle() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		MovingRectangle other = new MovingRectangle(40, 40, 50, 50);
+		grid.add(rect);
+		grid.add(other);
+
+		assertEquals(List.of(other), query(rect, -1));
+	}
+
+	@Test
+	void does_not_find_far_away_MovingRectangle() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		MovingRectangle other = new MovingRectangle(500, 500, 50, 50);
+		grid.add(rect);
+		grid.add(other);
+
+		assertEquals(List.of(), query(rect, -1));
+	}
+
+	@Test
+	void finds_MovingRectangle_which_passed_through_since_last_frame() {
+		MovingRectangle rect = new MovingRectangle(100, 0, 10, 50);
+		MovingRectangle other = new MovingRectangle(0, 0, 10, 50);
+		grid.add(rect);
+		grid.add(other);
+
+		other.setX(300);
+		grid.update(other);
+
+		assertEquals(List.of(other), query(rect, -1));
+	}
+
+	@Test
+	void finds_MovingRectangle_after_it_moves_into_range() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		MovingRectangle other = new MovingRectangle(500, 500, 50, 50);
+		grid.add(rect);
+		grid.add(other);
+
+		other.setX(20);
+		other.setY(20);
+		other.updateLastPosition();
+		grid.update(other);
+
+		assertEquals(List.of(other), query(rect, -1));
+	}
+
+	@Test
+	void does_not_find_MovingRectangle_after_it_moves_out_of_range() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		MovingRectangle other = new MovingRectangle(20, 20, 50, 50);
+		grid.add(rect);
+		grid.add(other);
+
+		other.setX(500);
+		other.setY(500);
+		other.updateLastPosition();
+		grid.update(other);
+
+		assertEquals(List.of(), query(rect, -1));
+	}
+
+	@Test
+	void returns_MovingRectangles_in_order_of_rank() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 200, 200);
+		MovingRectangle first = new MovingRectangle(10, 10, 10, 10);
+		MovingRectangle second = new MovingRectangle(150, 150, 10, 10);
+		MovingRectangle third = new MovingRectangle(80, 80, 10, 10);
+		grid.add(rect);
+		grid.add(third);
+		grid.add(second);
+		grid.add(first);
+
+		grid.setOrder(List.of(first, rect, second, third));
+
+		assertEquals(List.of(first, second, third),
+				query(rect, -1));
+	}
+
+	@Test
+	void skips_MovingRectangles_at_or_before_given_rank() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 200, 200);
+		MovingRectangle first = new MovingRectangle(10, 10, 10, 10);
+		MovingRectangle second = new MovingRectangle(150, 150, 10, 10);
+		grid.add(rect);
+		grid.add(first);
+		grid.add(second);
+
+		assertEquals(List.of(second),
+				query(rect, grid.getRank(first)));
+	}
+
+	@Test
+	void writes_indices_starting_at_offset() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		MovingRectangle other = new MovingRectangle(40, 40, 50, 50);
+		grid.add(rect);
+		grid.add(other);
+		int[] result = { -1, -1, -1, -1 };
+
+		int count = grid.query(rect, -1, result, 2);
+
+		assertEquals(1, count);
+		assertEquals(-1, result[1]);
+		assertEquals(other, grid.get(result[2]));
+	}
+
+	@Test
+	void sorts_many_MovingRectangles_by_rank() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 1000, 1000);
+		grid.add(rect);
+		List<MovingRectangle> others = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			MovingRectangle other = new MovingRectangle(i * 19 % 1000,
+					i * 37 % 1000, 10, 10);
+			others.add(other);
+			grid.add(other);
+		}
+		List<MovingRectangle> order = new ArrayList<>(others);
+		order.sort((r1, r2) -> r1.getY() - r2.getY());
+		order.add(0, rect);
+
+		grid.setOrder(order);
+
+		assertEquals(order.subList(1, order.size()), query(rect, -1));
+	}
+
+	@Test
+	void finds_MovingRectangles_for_Rectangles_outside_of_it() {
+		MovingRectangle other = new MovingRectangle(-30, -30, 50, 50);
+		grid.add(other);
+
+		assertEquals(List.of(other),
+				query(new SideRectangle(-5000, 0, 10000, 1, null), -1));
+	}
+
+	@Test
+	void mod_count_changes_on_update() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		grid.add(rect);
+		int modCount = grid.getModCount();
+
+		grid.update(rect);
+
+		assertNotEquals(modCount, grid.getModCount());
+	}
+
+	@Test
+	void finds_everything_a_brute_force_scan_finds() {
+		Random random = new Random(0);
+		List<MovingRectangle> rects = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			MovingRectangle rect = new MovingRectangle(
+					random.nextInt(1000) - 200, random.nextInt(1000) - 200,
+					1 + random.nextInt(80), 1 + random.nextInt(80));
+			rect.setX(rect.getX() + random.nextInt(41) - 20);
+			rect.setY(rect.getY() + random.nextInt(41) - 20);
+			rects.add(rect);
+			grid.add(rect);
+		}
+
+		for (MovingRectangle rect : rects) {
+			List<MovingRectangle> found = query(rect, -1);
+			for (MovingRectangle other : rects) {
+				if (other == rect) {
+					continue;
+				}
+				boolean colliding = (rect.intersectsX(other)
+						|| rect.usedToIntersectX(other))
+						&& (rect.intersectsY(other)
+								|| rect.usedToIntersectY(other));
+				if (colliding) {
+					assertTrue(found.contains(other));
+				}
+			}
+		}
+	}
+
+	@Test
+	void updates_attachments_only_when_flushed() {
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		Area attached = new AntigravityArea(0, 0, 10, 10);
+		rect.addAttachment(attached, AttachmentOption.GLUED_EAST);
+		grid.add(rect);
+
+		rect.setX(100);
+		rect.setY(30);
+		assertEquals(50, attached.getX());
+
+		grid.flushAttachments();
+		assertEquals(150, attached.getX());
+		assertEquals(30, attached.getY());
+	}
+
+	@Test
+	void PhysicsSimulator_flushes_attachments_each_frame() {
+		PhysicsSimulator simulator = new PhysicsSimulator();
+		MovingRectangle rect = new MovingRectangle(0, 0, 50, 50);
+		Area attached = new AntigravityArea(0, 0, 10, 10);
+		rect.addAttachment(attached, AttachmentOption.GLUED_SOUTH);
+		simulator.add(rect);
+		simulator.add(attached);
+		simulator.setUp(1000, 1000, 0, 0);
+
+		for (int i = 0; i < 5; i++) {
+			simulator.updateAndMoveObjects(Set.of(), 1000, 1000, 0, 0);
+			assertEquals(rect.getX(), attached.getX());
+			assertEquals(rect.getY() + rect.getHeight(), attached.getY());
+		}
+		assertNotEquals(50, attached.getY());
+	}
+
+}
@@ -16,8 +16,10 @@ public class SwitchAreaTest {
 
 	@BeforeEach
 	void setUp() {
-		area = new SwitchArea(0, 0, 50, 50, Colors.BLACK, "key");
-		rect = new SwitchRectangle(100, 100, 50, 50, Colors.BLACK, "key");
+		KeyLayers keyLayers = new KeyLayers();
+		area = new SwitchArea(0, 0, 50, 50, Colors.BLACK, "key", keyLayers);
+		rect = new SwitchRectangle(100, 100, 50, 50, Colors.BLACK, "key",
+				keyLayers);
 		controller = new SwitchController();
 		area.setController(controller);
 		controller.addSwitchRectangle(rect);
@@ -67,4 +69,24 @@ public class SwitchAreaTest {
 
 		assertFalse(rect.isActive());
 	}
+
+	@Test
+	void PhysicsSimulator_notices_MovingRectangle_leaving_far_away() {
+		PhysicsSimulator simulator = new PhysicsSimulator();
+		MovingRectangle movingRect = new MovingRectangle(0, 0, 10, 10);
+		simulator.add(movingRect);
+		for (int i = 0; i < 20; i++) {
+			simulator.add(new MovingRectangle(300 + 20 * i, 300, 10, 10));
+		}
+		simulator.add(area);
+		simulator.setUp(1000, 1000, 0, 0);
+		assertTrue(rect.isActive());
+
+		movingRect.setX(2000);
+		movingRect.updateLastPosition();
+		simulator.applySwitchAreas();
+
+		assertFalse(rect.isActive());
+	}
+
 }
@@ -16,7 +16,8 @@ public class SwitchControllerTest {
 	@BeforeEach
 	void setUp() {
 		controller = new SwitchController();
-		rect = new SwitchRectangle(0, 0, 0, 0, Colors.BLACK, "key");
+		rect = new SwitchRectangle(0, 0, 0, 0, Colors.BLACK, "key",
+				new KeyLayers());
 		controller.addSwitchRectangle(rect);
 	}
 
@@ -12,11 +12,14 @@ import blockgame.physics.Rectangle.Colors;
 
 public class SwitchRectangleTest {
 
+	KeyLayers keyLayers;
 	SwitchRectangle rect;
 
 	@BeforeEach
 	void setUp() {
-		rect = new SwitchRectangle(0, 0, 50, 50, Colors.BLACK, "key");
+		keyLayers = new KeyLayers();
+		rect = new SwitchRectangle(0, 0, 50, 50, Colors.BLACK, "key",
+				keyLayers);
 	}
 
 	@Test
@@ -91,8 +94,8 @@ public class SwitchRectangleTest {
 
 		@Test
 		void can_interact_with_SwitchAreas_with_its_key() {
-			assertTrue(rect.canInteract(
-					new SwitchArea(0, 0, 0, 0, Colors.RED, rect.getKey())));
+			assertTrue(rect.canInteract(new SwitchArea(0, 0, 0, 0, Colors.RED,
+					rect.getKey(), keyLayers)));
 		}
 
 		@Test
@@ -108,7 +111,7 @@ public class SwitchRectangleTest {
 		@Test
 		void cannot_interact_with_SwitchAreas_with_different_key() {
 			assertFalse(rect.canInteract(new SwitchArea(0, 0, 0, 0, Colors.RED,
-					rect.getKey() + "not")));
+					rect.getKey() + "not", keyLayers)));
 		}
 	}
 
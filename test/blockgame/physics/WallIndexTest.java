@@ -0,0 +1,118 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WallIndexTest {
+
+	List<WallRectangle> walls;
+	WallIndex index;
+	int[] result;
+
+	@BeforeEach
+	void setUp() {
+		walls = new ArrayList<>();
+		index = new WallIndex(walls);
+		result = new int[256];
+	}
+
+	void addWall(int x, int y, int width, int height) {
+		walls.add(new WallRectangle(x, y, width, height));
+	}
+
+	int[] query(int minX, int minY, int maxX, int maxY, int afterIndex) {
+		index.update();
+		int count = index.query(minX, minY, maxX, maxY, afterIndex, result);
+		return Arrays.copyOf(result, count);
+	}
+
+	@Test
+	void finds_overlapping_walls() {
+		addWall(0, 0, 10, 10);
+		addWall(100, 100, 10, 10);
+		addWall(5, 5, 10, 10);
+
+		assertEquals(List.of(0, 2), toList(query(8, 8, 20, 20, -1)));
+	}
+
+	@Test
+	void finds_walls_touching_the_edge() {
+		addWall(0, 0, 10, 10);
+		addWall(20, 0, 10, 10);
+
+		assertEquals(List.of(0, 1), toList(query(10, 0, 20, 5, -1)));
+	}
+
+	@Test
+	void skips_walls_at_or_before_afterIndex() {
+		for (int i = 0; i < 5; i++) {
+			addWall(0, 0, 10, 10);
+		}
+
+		assertEquals(List.of(3, 4), toList(query(0, 0, 10, 10, 2)));
+	}
+
+	@Test
+	void returns_indices_in_ascending_order() {
+		addWall(40, 0, 10, 10);
+		addWall(0, 0, 10, 10);
+		addWall(20, 0, 10, 10);
+
+		assertEquals(List.of(0, 1, 2), toList(query(0, 0, 50, 10, -1)));
+	}
+
+	@Test
+	void finds_walls_added_after_creation() {
+		addWall(0, 0, 10, 10);
+		query(0, 0, 10, 10, -1);
+		addWall(5, 0, 10, 10);
+
+		assertEquals(List.of(0, 1), toList(query(0, 0, 10, 10, -1)));
+	}
+
+	@Test
+	void matches_checking_every_wall() {
+		Random random = new Random(0);
+		for (int i = 0; i < 200; i++) {
+			addWall(random.nextInt(1000), random.nextInt(1000),
+					random.nextInt(100), random.nextInt(100));
+		}
+
+		for (int i = 0; i < 500; i++) {
+			int minX = random.nextInt(1100) - 50;
+			int minY = random.nextInt(1100) - 50;
+			int maxX = minX + random.nextInt(150);
+			int maxY = minY + random.nextInt(150);
+			int afterIndex = random.nextInt(50) - 1;
+
+			List<Integer> expected = new ArrayList<>();
+			for (int j = afterIndex + 1; j < walls.size(); j++) {
+				WallRectangle wall = walls.get(j);
+				if (wall.getX() <= maxX && wall.getX() + wall.getWidth() >= minX
+						&& wall.getY() <= maxY
+						&& wall.getY() + wall.getHeight() >= minY) {
+					expected.add(j);
+				}
+			}
+
+			assertEquals(expected,
+					toList(query(minX, minY, maxX, maxY, afterIndex)));
+		}
+	}
+
+	List<Integer> toList(int[] array) {
+		List<Integer> list = new ArrayList<>();
+		for (int i : array) {
+			list.add(i);
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,138 @@
+package blockgame.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import blockgame.physics.Rectangle.Colors;
+import blockgame.physics.Rectangle.ResizeBehavior;
+
+class WallMergerTest {
+
+	List<WallRectangle> walls;
+
+	@BeforeEach
+	void setUp() {
+		walls = new ArrayList<>();
+	}
+
+	WallRectangle addWall(int x, int y, int width, int height) {
+		return addWall(x, y, width, height, ResizeBehavior.STAY);
+	}
+
+	WallRectangle addWall(int x, int y, int width, int height,
+			ResizeBehavior behavior) {
+		WallRectangle wall = new WallRectangle(x, y, width, height,
+				Colors.GRAY, behavior);
+		walls.add(wall);
+		return wall;
+	}
+
+	void assertBounds(int x, int y, int width, int height, Rectangle rect) {
+		assertEquals(x, rect.getX());
+		assertEquals(y, rect.getY());
+		assertEquals(width, rect.getWidth());
+		assertEquals(height, rect.getHeight());
+	}
+
+	@Test
+	void merges_walls_next_to_each_other() {
+		addWall(20, 0, 10, 10);
+		addWall(0, 0, 10, 10);
+		addWall(10, 0, 10, 10);
+
+		List<WallRectangle> merged = WallMerger.merge(walls);
+
+		assertEquals(1, merged.size());
+		assertBounds(0, 0, 30, 10, merged.get(0));
+	}
+
+	@Test
+	void merges_walls_on_top_of_each_other() {
+		addWall(0, 0, 10, 10);
+		addWall(0, 10, 10, 5);
+
+		List<WallRectangle> merged = WallMerger.merge(walls);
+
+		assertEquals(1, merged.size());
+		assertBounds(0, 0, 10, 15, merged.get(0));
+	}
+
+	@Test
+	void merges_grid_of_walls_into_one() {
+		for (int x = 0; x < 50; x += 10) {
+			for (int y = 0; y < 30; y += 10) {
+				addWall(x, y, 10, 10);
+			}
+		}
+
+		List<WallRectangle> merged = WallMerger.merge(walls);
+
+		assertEquals(1, merged.size());
+		assertBounds(0, 0, 50, 30, merged.get(0));
+	}
+
+	@Test
+	void does_not_merge_walls_with_different_ResizeBehavior() {
+		addWall(0, 0, 10, 10, ResizeBehavior.STAY);
+		addWall(10, 0, 10, 10, ResizeBehavior.PREVENT_X);
+
+		assertEquals(walls, WallMerger.merge(walls));
+	}
+
+	@Test
+	void does_not_merge_walls_which_do_not_line_up() {
+		addWall(0, 0, 10, 10);
+		addWall(10, 5, 10, 10);
+		addWall(30, 0, 10, 10);
+		addWall(0, 10, 5, 10);
+
+		assertEquals(walls, WallMerger.merge(walls));
+	}
+
+	@Test
+	void keeps_order_of_walls() {
+		WallRectangle first = addWall(100, 100, 10, 10);
+		addWall(0, 0, 10, 10);
+		WallRectangle last = addWall(200, 200, 10, 10);
+		addWall(10, 0, 10, 10);
+
+		List<WallRectangle> merged = WallMerger.merge(walls);
+
+		assertEquals(3, merged.size());
+		assertSame(first, merged.get(0));
+		assertBounds(0, 0, 20, 10, merged.get(1));
+		assertSame(last, merged.get(2));
+	}
+
+	@Test
+	void does_not_change_original_walls() {
+		WallRectangle left = addWall(0, 0, 10, 10);
+		WallRectangle right = addWall(10, 0, 10, 10);
+
+		WallMerger.merge(walls);
+
+		assertEquals(List.of(left, right), walls);
+		assertBounds(0, 0, 10, 10, left);
+		assertBounds(10, 0, 10, 10, right);
+	}
+
+	@Test
+	void PhysicsSimulator_reports_removed_walls() {
+		PhysicsSimulator simulator = new PhysicsSimulator();
+		for (int x = 0; x < 100; x += 10) {
+			simulator.add(new WallRectangle(x, 200, 10, 10));
+		}
+		simulator.add(new WallRectangle(0, 0, 10, 10));
+
+		simulator.setUp(400, 300, 0, 0);
+
+		assertEquals(9, simulator.getRemovedWallCount());
+	}
+
+}
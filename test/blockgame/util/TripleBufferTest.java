@@ -0,0 +1,81 @@
+package blockgame.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TripleBufferTest {
+
+	TripleBuffer<AtomicInteger> buffer;
+
+	@BeforeEach
+	void setUp() {
+		buffer = new TripleBuffer<>(AtomicInteger::new);
+	}
+
+	void publish(int value) {
+		buffer.getBack().set(value);
+		buffer.publish();
+	}
+
+	@Test
+	void front_does_not_change_until_something_is_published() {
+		assertFalse(buffer.update());
+
+		publish(1);
+
+		assertTrue(buffer.update());
+		assertEquals(1, buffer.getFront().get());
+		assertFalse(buffer.update());
+		assertEquals(1, buffer.getFront().get());
+	}
+
+	@Test
+	void reader_skips_to_latest() {
+		publish(1);
+		publish(2);
+		publish(3);
+
+		assertTrue(buffer.update());
+		assertEquals(3, buffer.getFront().get());
+	}
+
+	@Test
+	void writer_never_gets_front_buffer() {
+		for (int i = 0; i < 10; i++) {
+			publish(i);
+			if (i % 3 == 0) {
+				buffer.update();
+			}
+			assertNotSame(buffer.getFront(), buffer.getBack());
+		}
+	}
+
+	@Test
+	void reader_sees_every_value_in_order_across_threads()
+			throws InterruptedException {
+		Thread writer = new Thread(() -> {
+			for (int i = 1; i <= 100000; i++) {
+				publish(i);
+			}
+		});
+		writer.start();
+
+		int last = 0;
+		while (last < 100000) {
+			if (buffer.update()) {
+				int value = buffer.getFront().get();
+				assertTrue(value > last, value + " after " + last);
+				last = value;
+			}
+		}
+		writer.join();
+	}
+
+}
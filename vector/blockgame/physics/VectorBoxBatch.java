@@ -0,0 +1,90 @@
+package blockgame.physics;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the {@link BoxBatch} tests. Tests as many boxes at once as
+ * fit in the widest vector the CPU supports, usually 8 or 16, and finishes
+ * the rest with the scalar versions.
+ * <p>
+ * This class is only compiled by the {@code vector} Maven profile and can
+ * only be loaded if the {@code jdk.incubator.vector} module is enabled, so
+ * {@code BoxBatch} loads it by name instead of referring to it.
+ *
+ * @author Frank Kormann
+ */
+final class VectorBoxBatch implements BoxTester {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector
+			.SPECIES_PREFERRED;
+
+	VectorBoxBatch() {}
+
+	@Override
+	public int touching(int minX, int minY, int maxX, int maxY, int[] boxMinX,
+			int[] boxMinY, int[] boxMaxX, int[] boxMaxY, int from, int to,
+			int[] result, int offset) {
+		int count = 0;
+		int i = from;
+		int bound = from + SPECIES.loopBound(to - from);
+		for (; i < bound; i += SPECIES.length()) {
+			VectorMask<Integer> mask = IntVector
+					.fromArray(SPECIES, boxMinX, i)
+					.compare(VectorOperators.LE, maxX)
+					.and(IntVector.fromArray(SPECIES, boxMaxX, i)
+							.compare(VectorOperators.GE, minX))
+					.and(IntVector.fromArray(SPECIES, boxMinY, i)
+							.compare(VectorOperators.LE, maxY))
+					.and(IntVector.fromArray(SPECIES, boxMaxY, i)
+							.compare(VectorOperators.GE, minY));
+			long lanes = mask.toLong();
+			while (lanes != 0) {
+				result[offset + count++] = i
+						+ Long.numberOfTrailingZeros(lanes);
+				lanes &= lanes - 1;
+			}
+		}
+		return count + BoxBatch.scalarTouching(minX, minY, maxX, maxY,
+				boxMinX, boxMinY, boxMaxX, boxMaxY, i, to, result,
+				offset + count);
+	}
+
+	@Override
+	public int touchingAt(int minX, int minY, int maxX, int maxY,
+			int[] boxMinX, int[] boxMinY, int[] boxMaxX, int[] boxMaxY,
+			int[] indices, int count, int[] result, int offset) {
+		int found = 0;
+		int i = 0;
+		int bound = SPECIES.loopBound(count);
+		for (; i < bound; i += SPECIES.length()) {
+			// Gathers the bounds of the boxes at indices[i] and on
+			VectorMask<Integer> mask = IntVector
+					.fromArray(SPECIES, boxMinX, 0, indices, i)
+					.compare(VectorOperators.LE, maxX)
+					.and(IntVector.fromArray(SPECIES, boxMaxX, 0, indices, i)
+							.compare(VectorOperators.GE, minX))
+					.and(IntVector.fromArray(SPECIES, boxMinY, 0, indices, i)
+							.compare(VectorOperators.LE, maxY))
+					.and(IntVector.fromArray(SPECIES, boxMaxY, 0, indices, i)
+							.compare(VectorOperators.GE, minY));
+			long lanes = mask.toLong();
+			while (lanes != 0) {
+				result[offset + found++] = indices[i
+						+ Long.numberOfTrailingZeros(lanes)];
+				lanes &= lanes - 1;
+			}
+		}
+		for (; i < count; i++) {
+			int index = indices[i];
+			if (Aabb.touches(minX, minY, maxX, maxY, boxMinX[index],
+					boxMinY[index], boxMaxX[index], boxMaxY[index])) {
+				result[offset + found++] = index;
+			}
+		}
+		return found;
+	}
+
+}